@@ -187,6 +187,12 @@ public class MessageMetadata {
 	 */
 	public String HTTP_HEADER_CONTENT_DISPOSITION = "content-disposition";
 
+	/**
+	 * 「Content-Encoding」メタデータのキー名.HTTP Headerとして使用されるため、このキー名は変更できません.<br/>
+	 * {@link NativeWebRequest#getHeaderNames()} の仕様に合わせて、すべて小文字にしています.
+	 */
+	public String HTTP_HEADER_CONTENT_ENCODING = "content-encoding";
+
 	/**
 	 * 「Set-Cookie」メタデータのキー名.HTTP Headerとして使用されるため、このキー名は変更できません.<br/>
 	 * {@link NativeWebRequest#getHeaderNames()} の仕様に合わせて、すべて小文字にしています.
@@ -198,4 +204,16 @@ public class MessageMetadata {
 	 * {@link NativeWebRequest#getHeaderNames()} の仕様に合わせて、すべて小文字にしています.
 	 */
 	public String HTTP_HEADER_LOCATION = "location";
+
+	/**
+	 * 「ETag」メタデータのキー名.HTTP Headerとして使用されるため、このキー名は変更できません.<br/>
+	 * {@link NativeWebRequest#getHeaderNames()} の仕様に合わせて、すべて小文字にしています.
+	 */
+	public String HTTP_HEADER_ETAG = "etag";
+
+	/**
+	 * 「If-None-Match」メタデータのキー名.HTTP Headerとして使用されるため、このキー名は変更できません.<br/>
+	 * {@link NativeWebRequest#getHeaderNames()} の仕様に合わせて、すべて小文字にしています.
+	 */
+	public String HTTP_HEADER_IF_NONE_MATCH = "if-none-match";
 }
@@ -67,4 +67,20 @@ public class ResourceConfigurationParameter {
 	/** DELETEリクエストのデフォルトアクション. */
 	@Value("${DEFAULT_ACTION_FOR_DELETE}")
 	public String DEFAULT_ACTION_FOR_DELETE;
+
+	/** 読み取り専用アクションのみからなる多重化リクエストを並行して実行するかどうか. */
+	@Value("${READ_ONLY_PARALLEL_ENABLED}")
+	public boolean READ_ONLY_PARALLEL_ENABLED;
+
+	/** 並行して実行できる読み取り専用アクション(カンマ区切り). */
+	@Value("${READ_ONLY_ACTIONS}")
+	public String[] READ_ONLY_ACTIONS;
+
+	/** 読み取り専用アクションを並行して実行するスレッド数の上限. */
+	@Value("${READ_ONLY_PARALLELISM}")
+	public int READ_ONLY_PARALLELISM;
+
+	/** 並行して実行した読み取り専用アクションの完了を待つ最大時間(ミリ秒).0以下の場合、制限なく待ちます. */
+	@Value("${READ_ONLY_PARALLEL_TIMEOUT}")
+	public long READ_ONLY_PARALLEL_TIMEOUT;
 }
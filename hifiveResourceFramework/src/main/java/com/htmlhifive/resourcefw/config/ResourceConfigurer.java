@@ -23,6 +23,8 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartResolver;
@@ -137,9 +139,35 @@ public class ResourceConfigurer {
 		resourceProcessor.setResourceConfigurationParameter(resourceConfigurationParameter());
 		resourceProcessor.setResourceManager(resourceManager());
 
+		// 読み取り専用アクションの並行実行が有効な場合のみ設定
+		if (resourceConfigurationParameter().READ_ONLY_PARALLEL_ENABLED
+				&& resourceProcessor instanceof DefaultResourceProcessor) {
+			DefaultResourceProcessor defaultResourceProcessor = (DefaultResourceProcessor) resourceProcessor;
+			defaultResourceProcessor.setReadOnlyMessageExecutor(readOnlyMessageExecutor());
+			defaultResourceProcessor.setTransactionManager(applicationContext
+					.getBean(PlatformTransactionManager.class));
+		}
+
 		return resourceProcessor;
 	}
 
+	/**
+	 * 読み取り専用アクションを並行して実行するExecutorのBean定義.<br/>
+	 * スレッドは最初のタスクの実行時に生成されるため、並行実行が無効の場合はスレッドを生成しません.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor readOnlyMessageExecutor() {
+
+		int poolSize = Math.max(resourceConfigurationParameter().READ_ONLY_PARALLELISM, 1);
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setThreadNamePrefix("resourcefw-read-only-");
+		executor.setDaemon(true);
+		return executor;
+	}
+
 	/**
 	 * リソースマネージャのBean定義
 	 */
@@ -18,10 +18,14 @@ package com.htmlhifive.resourcefw.message;
 
 import static org.apache.log4j.Logger.getLogger;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,6 +38,7 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpHeaders;
@@ -567,14 +572,29 @@ public class MessageContainerMethodProcessor extends AbstractMessageConverterMet
 
 		ResponseMessageContainer container = (ResponseMessageContainer) returnValue;
 
-		ResponseEntity<?> convertedResponseEntity = null;
-		if (container.isMultiplexed()) {
-			convertedResponseEntity = convertToMultiplexedResponseEntity(container);
-		} else {
-			convertedResponseEntity = convertToResponseEntity(container.getMessages().get(0));
+		// ボディがCloseableの場合(データベースのカーソルから逐次書き出すオブジェクト等)、書き出しの成否に関わらず最後にクローズする
+		List<Closeable> closeableBodies = new ArrayList<>();
+		for (ResponseMessage message : container.getMessages()) {
+			Object bodyObj = message.get(messageMetadata.RESPONSE_BODY);
+			if (bodyObj instanceof Closeable) {
+				closeableBodies.add((Closeable) bodyObj);
+			}
 		}
 
-		doHandleHttpEntityReturnValue(convertedResponseEntity, returnType, webRequest);
+		try {
+			ResponseEntity<?> convertedResponseEntity = null;
+			if (container.isMultiplexed()) {
+				convertedResponseEntity = convertToMultiplexedResponseEntity(container);
+			} else {
+				convertedResponseEntity = convertToResponseEntity(container.getMessages().get(0));
+			}
+
+			doHandleHttpEntityReturnValue(convertedResponseEntity, returnType, webRequest);
+		} finally {
+			for (Closeable closeableBody : closeableBodies) {
+				IOUtils.closeQuietly(closeableBody);
+			}
+		}
 
 		// MessageContext領域の削除
 		webRequest.removeAttribute(RequestMessageContext.REQUEST_MESSAGE_CONTEXT_ATTRIBUTE,
@@ -709,6 +729,11 @@ public class MessageContainerMethodProcessor extends AbstractMessageConverterMet
 
 		if (bodyObj != null) {
 
+			// FileChannelは読み込まず、HTTPレスポンスの書き出し時に転送する
+			if (bodyObj instanceof FileChannel) {
+				return bodyObj;
+			}
+
 			// FileやStreamは読み込み、byte[]に書き出し
 			if (bodyObj instanceof File) {
 				return FileUtils.readFileToByteArray((File) bodyObj);
@@ -783,6 +808,27 @@ public class MessageContainerMethodProcessor extends AbstractMessageConverterMet
 		return map;
 	}
 
+	/**
+	 * ファイルの内容を、メモリに読み込まずにHTTPレスポンスボディへ転送します.<br>
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}を使用するため、
+	 * 書き出し先がサポートしていればOSのゼロコピー転送が利用されます.
+	 *
+	 * @param channel ファイルチャネル
+	 * @param outputMessage HTTPレスポンス
+	 * @throws IOException
+	 */
+	private void transferFileChannel(FileChannel channel, ServletServerHttpResponse outputMessage) throws IOException {
+
+		long size = channel.size();
+		outputMessage.getHeaders().setContentLength(size);
+
+		WritableByteChannel target = Channels.newChannel(outputMessage.getBody());
+		long position = 0L;
+		while (position < size) {
+			position += channel.transferTo(position, size - position, target);
+		}
+	}
+
 	/**
 	 * HttpEntityMethodProcessorと同様のロジックでResponseEntityオブジェクトからHTTPレスポンスを生成します.
 	 *
@@ -803,7 +849,9 @@ public class MessageContainerMethodProcessor extends AbstractMessageConverterMet
 		}
 
 		Object body = returnValue.getBody();
-		if (body != null) {
+		if (body instanceof FileChannel) {
+			transferFileChannel((FileChannel) body, outputMessage);
+		} else if (body != null) {
 			writeWithMessageConverters(body, returnType, inputMessage, outputMessage);
 		} else {
 			outputMessage.getBody();
@@ -148,9 +148,38 @@ public abstract class AbstractCrudResource<T> implements BasicResource {
 	 * @see BasicResource#findByQuery(RequestMessage)
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public List<T> findByQuery(RequestMessage requestMessage) throws BadRequestException, LockedException {
 
+		Map<String, List<String>> conditions = getQueryConditions(requestMessage);
+
+		// Specificationsを用いたクエリ実行
+		ResourceQuerySpecifications<T> querySpec = this.getQuerySpec();
+		JpaSpecificationExecutor<T> specExecutor = this.getSpecificationExecutor();
+		List<T> resultList;
+		if(querySpec != null && specExecutor != null){
+			// QuerySpecとExecutorがあれば、それらを使ってクエリを解釈
+			resultList = specExecutor.findAll(querySpec.parseConditions(conditions));
+		} else {
+			// どちらかがなければ、クエリ無視して全件を返す。
+			resultList = getRepository().findAll();
+		}
+
+		checkCanRead(requestMessage, resultList);
+
+		return resultList;
+	}
+
+	/**
+	 * クエリ({@link MessageMetadata#QUERY})メタデータを解析し、条件名と条件値リストのMapを返します.<br>
+	 * クエリが指定されていない場合は空のMapを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return クエリ条件
+	 * @throws BadRequestException クエリが解析できない場合
+	 */
+	@SuppressWarnings("unchecked")
+	protected Map<String, List<String>> getQueryConditions(RequestMessage requestMessage) throws BadRequestException {
+
 		Map<String, List<String>> conditions = Collections.emptyMap();
 
 		Object queryObj = requestMessage.get(requestMessage.getMessageMetadata().QUERY);
@@ -170,21 +199,7 @@ public abstract class AbstractCrudResource<T> implements BasicResource {
 			}
 		}
 
-		// Specificationsを用いたクエリ実行
-		ResourceQuerySpecifications<T> querySpec = this.getQuerySpec();
-		JpaSpecificationExecutor<T> specExecutor = this.getSpecificationExecutor();
-		List<T> resultList;
-		if(querySpec != null && specExecutor != null){
-			// QuerySpecとExecutorがあれば、それらを使ってクエリを解釈
-			resultList = specExecutor.findAll(querySpec.parseConditions(conditions));
-		} else {
-			// どちらかがなければ、クエリ無視して全件を返す。
-			resultList = getRepository().findAll();
-		}
-
-		checkCanRead(requestMessage, resultList);
-
-		return resultList;
+		return conditions;
 	}
 
 	/**
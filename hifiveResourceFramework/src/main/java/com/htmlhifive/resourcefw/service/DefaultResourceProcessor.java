@@ -16,14 +16,31 @@
  */
 package com.htmlhifive.resourcefw.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.apache.log4j.Logger;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.htmlhifive.resourcefw.config.MessageMetadata;
 import com.htmlhifive.resourcefw.config.ResourceConfigurationParameter;
 import com.htmlhifive.resourcefw.exception.AbstractResourceException;
 import com.htmlhifive.resourcefw.exception.GenericResourceException;
 import com.htmlhifive.resourcefw.exception.NotFoundException;
+import com.htmlhifive.resourcefw.exception.ServiceUnavailableException;
 import com.htmlhifive.resourcefw.message.MessageSource;
 import com.htmlhifive.resourcefw.message.RequestMessage;
 import com.htmlhifive.resourcefw.message.RequestMessageContainer;
@@ -38,6 +55,7 @@ import com.htmlhifive.resourcefw.util.ResourcePathUtil;
 /**
  * リソースアクションのリクエストを処理し、レスポンスを生成するプロセッサのデフォルト実装.<br>
  * 単一リクエストを実行、あるいは多重化リクエストを順に実行し、失敗時のハンドリング、レスポンスメッセージの生成を担います.<br>
+ * 読み取り専用アクションの並行実行用Executorが設定されている場合、読み取り専用アクションのみからなる多重化リクエストは並行して実行します.<br>
  *
  * @author kishigam
  */
@@ -66,6 +84,16 @@ public class DefaultResourceProcessor implements ResourceProcessor {
 	 */
 	private ResourceConfigurationParameter resourceConfigurationParameter;
 
+	/**
+	 * 読み取り専用アクションのリクエストメッセージを並行して実行するExecutor.nullの場合は並行実行しません.
+	 */
+	private AsyncTaskExecutor readOnlyMessageExecutor;
+
+	/**
+	 * 並行して実行するリクエストメッセージのトランザクションを管理するトランザクションマネージャ.
+	 */
+	private PlatformTransactionManager transactionManager;
+
 	/**
 	 * リソースへのリクエストを実行します.<br/>
 	 * コンテナに含まれる全てのリクエストを適切なリソースとそのアクションに振り分けます.<br/>
@@ -105,6 +133,10 @@ public class DefaultResourceProcessor implements ResourceProcessor {
 	 */
 	protected ResponseMessageContainer doProcess(RequestMessageContainer requestMessages) {
 
+		if (isParallelExecutable(requestMessages)) {
+			return doProcessInParallel(requestMessages);
+		}
+
 		ResponseMessageContainer responseMessages = new ResponseMessageContainer(requestMessages.isMultiplexed());
 		for (RequestMessage requestMessage : requestMessages.getMessages()) {
 
@@ -112,23 +144,7 @@ public class DefaultResourceProcessor implements ResourceProcessor {
 			ResponseMessage responseMessage = null;
 			try {
 
-				String path = (String) requestMessage.get(messageMetadata.REQUEST_PATH);
-
-				String[] nameAndRemain = ResourcePathUtil.down(path);
-				String name = nameAndRemain[0];
-
-				if (name.isEmpty()) {
-					throw new NotFoundException("No resource specified.", requestMessage);
-				}
-
-				// 階層を降りて上書きする
-				// RequestMessage内のパスが変わる(リソース名部分が除去される)
-				requestMessage.put(messageMetadata.REQUEST_PATH, nameAndRemain[1], MessageSource.PROCESSOR);
-
-				String action = (String) requestMessage.get(messageMetadata.ACTION);
-
-				ResourceMethodInvoker targetResource = resourceManager.getResourceMethodByName(name, action,
-						requestMessage);
+				ResourceMethodInvoker targetResource = resolveResourceMethod(requestMessage);
 
 				responseMessage = processMessage(targetResource, requestMessage);
 
@@ -146,6 +162,158 @@ public class DefaultResourceProcessor implements ResourceProcessor {
 		return responseMessages;
 	}
 
+	/**
+	 * 多重化リクエストを並行して実行できるときtrueを返します.<br/>
+	 * Executorとトランザクションマネージャが設定されており、全てのリクエストメッセージのアクションが読み取り専用アクションである場合に並行して実行します.<br/>
+	 * 更新を含む多重化リクエストは、後続のリクエストメッセージが前のリクエストメッセージの更新結果を参照できるよう、順に実行します.<br/>
+	 * 前処理でリクエストスレッドのトランザクションがロックを取得する場合など、別のトランザクションで実行できない場合はサブクラスでfalseを返します.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @return 並行して実行できるときtrue
+	 */
+	protected boolean isParallelExecutable(RequestMessageContainer requestMessages) {
+
+		if (readOnlyMessageExecutor == null || transactionManager == null || !requestMessages.isMultiplexed()
+				|| requestMessages.getMessages().size() < 2) {
+			return false;
+		}
+
+		List<String> readOnlyActions = Arrays.asList(resourceConfigurationParameter.READ_ONLY_ACTIONS);
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+			if (!readOnlyActions.contains(requestMessage.get(messageMetadata.ACTION))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 多重化リクエストに含まれる全てのリクエストメッセージを、Executorにより並行して実行します.<br/>
+	 * 各リクエストメッセージはそれぞれ独立した読み取り専用トランザクションで実行されるため、コミット済のデータを参照します.<br/>
+	 * レスポンスメッセージはリクエストの順に格納します.例外がスローされた場合の処理継続可否もリクエストの順に判断し、
+	 * 処理を継続しない場合は、未実行のリクエストメッセージをキャンセルします.<br/>
+	 * 全てのリクエストメッセージの完了を待つ時間は{@link ResourceConfigurationParameter#READ_ONLY_PARALLEL_TIMEOUT}までとし、
+	 * それまでに完了しないものは{@link ServiceUnavailableException}とします.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @return レスポンスメッセージコンテナ
+	 */
+	private ResponseMessageContainer doProcessInParallel(RequestMessageContainer requestMessages) {
+
+		// リクエストスコープのコンテキスト情報を参照できるよう、リクエストスレッドの属性を引き継ぐ
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+		long timeout = resourceConfigurationParameter.READ_ONLY_PARALLEL_TIMEOUT;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+		List<Future<ResponseMessage>> futures = new ArrayList<>();
+		try {
+			for (RequestMessage requestMessage : requestMessages.getMessages()) {
+				futures.add(readOnlyMessageExecutor.submit(new ReadOnlyMessageTask(requestMessage, requestAttributes)));
+			}
+
+			ResponseMessageContainer responseMessages = new ResponseMessageContainer(true);
+			for (int i = 0; i < futures.size(); i++) {
+
+				ResourceProcessingStatus processingStatus = ResourceProcessingStatus.CONTINUE;
+				ResponseMessage responseMessage = null;
+				try {
+
+					long remaining = timeout > 0 ? Math.max(deadline - System.nanoTime(), 0L) : -1L;
+					responseMessage = getResult(futures.get(i), remaining, requestMessages.getMessages().get(i));
+
+				} catch (AbstractResourceException e) {
+
+					responseMessage = handleResourceException(requestMessages, e);
+
+					// Go Through
+				}
+
+				responseMessage.put(messageMetadata.PROCESSING_STATUS, processingStatus, MessageSource.PROCESSOR);
+				responseMessages.addMessage(responseMessage);
+			}
+
+			return responseMessages;
+
+		} finally {
+			// 処理を継続しない場合に、未実行のリクエストメッセージを実行しないようにする(完了済のものには影響しない)
+			for (Future<ResponseMessage> future : futures) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * 並行して実行したリクエストメッセージの処理結果を、完了を待って返します.<br/>
+	 * 処理中にスローされた例外は、リクエストスレッドで実行した場合と同じ例外としてスローします.<br/>
+	 * 待ち時間内に完了しない場合は、実行中の処理に割り込みをかけて{@link ServiceUnavailableException}をスローします.
+	 *
+	 * @param future リクエストメッセージの処理結果
+	 * @param timeout 待ち時間(ナノ秒).負の場合は制限なく待ちます
+	 * @param requestMessage リクエストメッセージ
+	 * @return レスポンスメッセージ
+	 * @throws AbstractResourceException リソース処理中にスローされたフレームワーク例外
+	 */
+	private ResponseMessage getResult(Future<ResponseMessage> future, long timeout, RequestMessage requestMessage)
+			throws AbstractResourceException {
+
+		try {
+			return timeout < 0 ? future.get() : future.get(timeout, TimeUnit.NANOSECONDS);
+
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new ServiceUnavailableException("Timed out waiting for read-only resource processing.", e,
+					requestMessage);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GenericResourceException("Interrupted while waiting for read-only resource processing.", e);
+
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof AbstractResourceException) {
+				throw (AbstractResourceException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new GenericResourceException(cause);
+		}
+	}
+
+	/**
+	 * リクエストメッセージのパスからリソース名を取り出し、アクションを実行するためのInvokerオブジェクトを返します.<br/>
+	 * リクエストメッセージのパスは、リソース名部分を除去したパスに上書きされます.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return リソースに対してアクションを実行するためのInvokerオブジェクト
+	 * @throws AbstractResourceException リソースが見つからない場合など
+	 */
+	private ResourceMethodInvoker resolveResourceMethod(RequestMessage requestMessage)
+			throws AbstractResourceException {
+
+		String path = (String) requestMessage.get(messageMetadata.REQUEST_PATH);
+
+		String[] nameAndRemain = ResourcePathUtil.down(path);
+		String name = nameAndRemain[0];
+
+		if (name.isEmpty()) {
+			throw new NotFoundException("No resource specified.", requestMessage);
+		}
+
+		// 階層を降りて上書きする
+		// RequestMessage内のパスが変わる(リソース名部分が除去される)
+		requestMessage.put(messageMetadata.REQUEST_PATH, nameAndRemain[1], MessageSource.PROCESSOR);
+
+		String action = (String) requestMessage.get(messageMetadata.ACTION);
+
+		return resourceManager.getResourceMethodByName(name, action, requestMessage);
+	}
+
 	/**
 	 * プロセス全体の事後処理を実行します.<br/>
 	 * デフォルト実装では処理はありません.
@@ -339,4 +507,91 @@ public class DefaultResourceProcessor implements ResourceProcessor {
 	public void setResourceConfigurationParameter(ResourceConfigurationParameter resourceConfigurationParameter) {
 		this.resourceConfigurationParameter = resourceConfigurationParameter;
 	}
+
+	/**
+	 * @return the readOnlyMessageExecutor
+	 */
+	protected AsyncTaskExecutor getReadOnlyMessageExecutor() {
+		return readOnlyMessageExecutor;
+	}
+
+	/**
+	 * 読み取り専用アクションのみからなる多重化リクエストを並行して実行するためのExecutorを設定します.<br/>
+	 * 設定しない場合、多重化リクエストは常に順に実行されます.
+	 *
+	 * @param readOnlyMessageExecutor the readOnlyMessageExecutor to set
+	 */
+	public void setReadOnlyMessageExecutor(AsyncTaskExecutor readOnlyMessageExecutor) {
+		this.readOnlyMessageExecutor = readOnlyMessageExecutor;
+	}
+
+	/**
+	 * @return the transactionManager
+	 */
+	protected PlatformTransactionManager getTransactionManager() {
+		return transactionManager;
+	}
+
+	/**
+	 * 並行して実行するリクエストのトランザクションを管理するトランザクションマネージャを設定します.
+	 *
+	 * @param transactionManager the transactionManager to set
+	 */
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * 読み取り専用アクションのリクエストメッセージを、Executorのスレッドで実行するタスク.<br/>
+	 * リクエストスレッドのトランザクションとは独立した、読み取り専用トランザクションで実行します.
+	 */
+	private class ReadOnlyMessageTask implements Callable<ResponseMessage> {
+
+		/**
+		 * 実行するリクエストメッセージ.
+		 */
+		private final RequestMessage requestMessage;
+
+		/**
+		 * リクエストスレッドのリクエスト属性.
+		 */
+		private final RequestAttributes requestAttributes;
+
+		/**
+		 * タスクを生成します.
+		 *
+		 * @param requestMessage 実行するリクエストメッセージ
+		 * @param requestAttributes リクエストスレッドのリクエスト属性
+		 */
+		ReadOnlyMessageTask(RequestMessage requestMessage, RequestAttributes requestAttributes) {
+			this.requestMessage = requestMessage;
+			this.requestAttributes = requestAttributes;
+		}
+
+		@Override
+		public ResponseMessage call() throws AbstractResourceException {
+
+			RequestContextHolder.setRequestAttributes(requestAttributes);
+			try {
+				DefaultTransactionDefinition definition = new DefaultTransactionDefinition(
+						TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+				definition.setReadOnly(true);
+				TransactionStatus status = transactionManager.getTransaction(definition);
+
+				ResponseMessage responseMessage;
+				try {
+					responseMessage = processMessage(resolveResourceMethod(requestMessage), requestMessage);
+				} catch (AbstractResourceException | RuntimeException | Error e) {
+					transactionManager.rollback(status);
+					throw e;
+				}
+
+				transactionManager.commit(status);
+				return responseMessage;
+
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		}
+	}
 }
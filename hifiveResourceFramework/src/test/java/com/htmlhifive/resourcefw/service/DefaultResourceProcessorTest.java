@@ -21,6 +21,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.NonStrictExpectations;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,9 +32,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.htmlhifive.resourcefw.config.MessageMetadata;
 import com.htmlhifive.resourcefw.config.ResourceConfigurationParameter;
@@ -92,6 +95,9 @@ public class DefaultResourceProcessorTest {
 	@Mocked
 	private ResponseMessageContext responseMessageContext;
 
+	@Mocked
+	private PlatformTransactionManager transactionManager;
+
 	private DefaultResourceProcessor target;
 
 	@Before
@@ -185,4 +191,68 @@ public class DefaultResourceProcessorTest {
 			assertThat(actual.getMessages().contains(msg), is(true));
 		}
 	}
+
+	/**
+	 * 正常系(読み取り専用アクションのみの多重化リクエストを並行して実行)
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testProcessInParallel() throws Exception {
+
+		final RequestMessage reqMsg1 = new RequestMessage(messageMetadata) {
+			{
+				put(messageMetadata.ACTION, "findById");
+				put(messageMetadata.REQUEST_PATH, "/resname1/1/");
+			}
+		};
+
+		final RequestMessage reqMsg2 = new RequestMessage(messageMetadata) {
+			{
+				put(messageMetadata.ACTION, "findByQuery");
+				put(messageMetadata.REQUEST_PATH, "/resname2");
+			}
+		};
+
+		final RequestMessageContainer reqContainer = new RequestMessageContainer(true) {
+			{
+				addMessage(reqMsg1);
+				addMessage(reqMsg2);
+			}
+		};
+
+		final Object item1 = new Object();
+		final Object item2 = new Object();
+
+		target.setReadOnlyMessageExecutor(new SimpleAsyncTaskExecutor());
+		target.setTransactionManager(transactionManager);
+
+		// 各リクエストメッセージは別スレッドで実行されるため、呼び出し順は検証しない
+		new NonStrictExpectations() {
+			ResourceMethodInvoker invoker1;
+			ResourceMethodInvoker invoker2;
+			{
+				setField(target, resourceManager);
+
+				resourceManager.getResourceMethodByName("resname1", "findById", reqMsg1);
+				result = invoker1;
+
+				invoker1.invoke(reqMsg1);
+				result = item1;
+
+				resourceManager.getResourceMethodByName("resname2", "findByQuery", reqMsg2);
+				result = invoker2;
+
+				invoker2.invoke(reqMsg2);
+				result = item2;
+			}
+		};
+
+		ResponseMessageContainer actual = target.process(reqContainer);
+
+		// レスポンスメッセージはリクエストの順に格納される
+		assertThat(actual.getMessages().size(), is(equalTo(2)));
+		assertThat(actual.getMessages().get(0).get(messageMetadata.RESPONSE_BODY), is(equalTo(item1)));
+		assertThat(actual.getMessages().get(1).get(messageMetadata.RESPONSE_BODY), is(equalTo(item2)));
+	}
 }
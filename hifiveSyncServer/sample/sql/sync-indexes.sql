@@ -0,0 +1,7 @@
+-- Indexes for hifive sync server tables.
+-- They are created automatically when the schema is generated by Hibernate (hbm2ddl).
+-- Apply this script when the schema is managed manually.
+
+CREATE INDEX IDX_RESOURCE_ITEM_COMMON_DATA_TARGET ON RESOURCE_ITEM_COMMON_DATA (resourceName, targetItemId);
+CREATE INDEX IDX_RESOURCE_ITEM_COMMON_DATA_MODIFIED ON RESOURCE_ITEM_COMMON_DATA (resourceName, lastModified);
+CREATE INDEX IDX_RESOURCE_ITEM_CHANGE_LOG_SEQUENCE ON RESOURCE_ITEM_CHANGE_LOG (resourceName, sequence);
@@ -0,0 +1,5 @@
+-- Backfills the optimistic lock version of hifive sync server common data.
+-- Hibernate (hbm2ddl update) adds the version column as nullable, so rows created before the column existed have NULL.
+-- Apply this script once after upgrading an existing schema.
+
+UPDATE RESOURCE_ITEM_COMMON_DATA SET version = 0 WHERE version IS NULL;
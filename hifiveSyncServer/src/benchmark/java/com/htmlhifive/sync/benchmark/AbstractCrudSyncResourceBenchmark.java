@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.htmlhifive.resourcefw.exception.AbstractResourceException;
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.AbstractCrudSyncResource;
+import com.htmlhifive.sync.resource.Synchronizer;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * {@link AbstractCrudSyncResource#upload(RequestMessage)}のベンチマーク.<br/>
+ * リソースプロセッサを経由せずにリソースを直接呼び出し、同期アクションごとの上り更新を測定します.<br/>
+ * 各呼び出しは、SQLを発行させるためにフラッシュした後、ロールバックします.そのため、投入済のリソースアイテムは測定中に変化しません.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+public class AbstractCrudSyncResourceBenchmark extends AbstractSyncBenchmark {
+
+	/**
+	 * 同期アクション.
+	 */
+	@Param({ "CREATE", "UPDATE", "DELETE" })
+	public String syncAction;
+
+	/**
+	 * 測定対象のリソース.
+	 */
+	private BenchItemSyncResource resource;
+
+	/**
+	 * トランザクションテンプレート.
+	 */
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * フラッシュに使用するEntityManager.
+	 */
+	private EntityManager entityManager;
+
+	/**
+	 * CREATEで使用するリソースアイテムIDの連番.
+	 */
+	private int createdCount;
+
+	/**
+	 * 測定対象のリソースを取得し、リソースプロセッサと同様にSynchronizerを設定します.
+	 */
+	@Override
+	protected void setUp(SyncConfigurationParameter syncConfigurationParameter) {
+
+		resource = environment.getBean(BenchItemSyncResource.class);
+		resource.setSynchronizer(environment.getBean(Synchronizer.class));
+		transactionTemplate = environment.createTransactionTemplate();
+		entityManager = SharedEntityManagerCreator.createSharedEntityManager(environment
+				.getBean(EntityManagerFactory.class));
+	}
+
+	/**
+	 * 1件のリソースアイテムを上り更新します.
+	 *
+	 * @return 上り更新結果
+	 */
+	@Benchmark
+	public Object upload() {
+
+		SyncAction action = SyncAction.valueOf(syncAction);
+		String itemId = action == SyncAction.CREATE ? "new-" + createdCount++ : environment.randomItemId();
+		final RequestMessage requestMessage = environment.createResourceUploadMessage(itemId, action);
+
+		return transactionTemplate.execute(new TransactionCallback<Object>() {
+
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+
+				try {
+					Object result = resource.upload(requestMessage);
+					entityManager.flush();
+					return result;
+				} catch (AbstractResourceException e) {
+					throw new IllegalStateException("Benchmark upload failed.", e);
+				} finally {
+					status.setRollbackOnly();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+
+/**
+ * sync機能のベンチマークの抽象クラス.<br/>
+ * 測定(Trial)ごとに組み込みDBを使用する実行環境を起動し、datasetSize件のリソースアイテムを投入します.<br/>
+ * 投入件数は、実行時に「-p datasetSize=...」で変更できます.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractSyncBenchmark {
+
+	/**
+	 * 投入するリソースアイテムの件数.
+	 */
+	@Param({ "1000", "10000" })
+	public int datasetSize;
+
+	/**
+	 * 実行環境.
+	 */
+	protected SyncBenchmarkEnvironment environment;
+
+	/**
+	 * 実行環境を起動します.
+	 */
+	@Setup(Level.Trial)
+	public void setUpEnvironment() {
+
+		environment = new SyncBenchmarkEnvironment(datasetSize);
+		environment.start();
+
+		setUp(environment.getBean(SyncConfigurationParameter.class));
+	}
+
+	/**
+	 * 実行環境を停止します.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDownEnvironment() {
+
+		environment.stop();
+	}
+
+	/**
+	 * 実行環境の起動後、測定の前に呼び出されます.<br/>
+	 * サブクラスでは、ベンチマークのパラメータに応じた動作設定の変更や、測定対象の取得を行います.
+	 *
+	 * @param syncConfigurationParameter sync機能の動作設定パラメータオブジェクト
+	 */
+	protected abstract void setUp(SyncConfigurationParameter syncConfigurationParameter);
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * ベンチマークで同期対象とするリソースアイテムのエンティティ.
+ *
+ * @author kishigam
+ */
+@Entity
+@Table(name = "BENCH_ITEM")
+public class BenchItem implements Serializable {
+
+	private static final long serialVersionUID = -2871306245517462096L;
+
+	/**
+	 * このエンティティのID.
+	 */
+	@Id
+	private String itemId;
+
+	/**
+	 * 名前.
+	 */
+	private String name;
+
+	/**
+	 * 数値.
+	 */
+	private Integer amount;
+
+	/**
+	 * 分類.
+	 */
+	private String category;
+
+	/**
+	 * @see Object#equals(Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+
+		if (this == obj)
+			return true;
+		if (!(obj instanceof BenchItem))
+			return false;
+
+		BenchItem otherObj = (BenchItem) obj;
+
+		return new EqualsBuilder().append(this.itemId, otherObj.itemId).append(this.name, otherObj.name)
+				.append(this.amount, otherObj.amount).append(this.category, otherObj.category).isEquals();
+	}
+
+	/**
+	 * @see Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+
+		return new HashCodeBuilder(17, 37).append(this.itemId).append(this.name).append(this.amount)
+				.append(this.category).hashCode();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return itemId
+	 */
+	public String getItemId() {
+		return itemId;
+	}
+
+	/**
+	 * @param itemId セットする itemId
+	 */
+	public void setItemId(String itemId) {
+		this.itemId = itemId;
+	}
+
+	/**
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name セットする name
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return amount
+	 */
+	public Integer getAmount() {
+		return amount;
+	}
+
+	/**
+	 * @param amount セットする amount
+	 */
+	public void setAmount(Integer amount) {
+		this.amount = amount;
+	}
+
+	/**
+	 * @return category
+	 */
+	public String getCategory() {
+		return category;
+	}
+
+	/**
+	 * @param category セットする category
+	 */
+	public void setCategory(String category) {
+		this.category = category;
+	}
+}
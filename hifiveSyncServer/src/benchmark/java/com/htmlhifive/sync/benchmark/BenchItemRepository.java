@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * BenchItemエンティティを永続化するためのリポジトリ.
+ *
+ * @author kishigam
+ */
+public interface BenchItemRepository extends JpaRepository<BenchItem, String>, JpaSpecificationExecutor<BenchItem> {
+
+	/**
+	 * 悲観的ロックを使用してIDでBenchItemを検索し、返します.
+	 *
+	 * @param itemId BenchItemのID
+	 * @return BenchItem
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM BenchItem b WHERE b.itemId = :itemId")
+	BenchItem findOneForUpdate(@Param("itemId") String itemId);
+}
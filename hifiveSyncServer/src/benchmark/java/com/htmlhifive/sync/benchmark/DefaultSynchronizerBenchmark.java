@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.DefaultSynchronizer;
+import com.htmlhifive.sync.resource.Synchronizer;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+
+/**
+ * {@link DefaultSynchronizer#getModified(String, List, long)}のベンチマーク.<br/>
+ * 投入済のリソースアイテムからランダムに選択したidListSize件のIDを指定し、共通データを取得します.<br/>
+ * IDリストはMODIFIED_QUERY_CHUNK_SIZE件ごとのIN句で検索されるため、chunkSizeを変えて比較できます.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+public class DefaultSynchronizerBenchmark extends AbstractSyncBenchmark {
+
+	/**
+	 * 取得対象のリソースアイテムIDの件数.
+	 */
+	@Param({ "10", "100", "1000", "10000" })
+	public int idListSize;
+
+	/**
+	 * IN句1回あたりのID数.
+	 */
+	@Param({ "500" })
+	public int chunkSize;
+
+	/**
+	 * Synchronizer.
+	 */
+	private Synchronizer synchronizer;
+
+	/**
+	 * 読み取り専用のトランザクションテンプレート.
+	 */
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * 取得対象のリソースアイテムIDのリスト.
+	 */
+	private List<String> itemIdList;
+
+	/**
+	 * チャンクサイズを設定し、取得対象のリソースアイテムIDを選択します.
+	 */
+	@Override
+	protected void setUp(SyncConfigurationParameter syncConfigurationParameter) {
+
+		syncConfigurationParameter.MODIFIED_QUERY_CHUNK_SIZE = chunkSize;
+		synchronizer = environment.getBean(Synchronizer.class);
+		transactionTemplate = environment.createTransactionTemplate();
+		transactionTemplate.setReadOnly(true);
+		itemIdList = environment.randomItemIds(idListSize);
+	}
+
+	/**
+	 * 下り更新と同様に1トランザクション内で、指定時刻以降に更新されている共通データを取得します.
+	 *
+	 * @return 共通データのリスト
+	 */
+	@Benchmark
+	public List<ResourceItemCommonData> getModified() {
+
+		return transactionTemplate.execute(new TransactionCallback<List<ResourceItemCommonData>>() {
+
+			@Override
+			public List<ResourceItemCommonData> doInTransaction(TransactionStatus status) {
+				return synchronizer.getModified(BenchItemSyncResource.RESOURCE_NAME, itemIdList, 0L);
+			}
+		});
+	}
+}
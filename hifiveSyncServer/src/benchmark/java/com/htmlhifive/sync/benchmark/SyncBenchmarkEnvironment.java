@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+import com.htmlhifive.resourcefw.config.MessageMetadata;
+import com.htmlhifive.resourcefw.message.MessageSource;
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.resourcefw.message.RequestMessageContainer;
+import com.htmlhifive.resourcefw.message.ResponseMessage;
+import com.htmlhifive.resourcefw.message.ResponseMessageContainer;
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.resourcefw.service.ResourceProcessor;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.Synchronizer;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.SyncAction;
+import com.htmlhifive.sync.service.SyncRequestCommonData;
+
+/**
+ * ベンチマークの実行環境.<br/>
+ * 組み込みDB(HSQLDB)を使用するアプリケーションコンテキストを起動し、指定された件数のリソースアイテムを投入します.<br/>
+ * また、コントローラを経由せずにリソースプロセッサやリソースを呼び出すためのリクエストを生成します.
+ *
+ * @author kishigam
+ */
+public class SyncBenchmarkEnvironment {
+
+	/**
+	 * アプリケーションコンテキストの設定ファイル.
+	 */
+	private static final String CONTEXT_CONFIG_LOCATION = "classpath:benchmark/benchmark-context.xml";
+
+	/**
+	 * リクエストのコンテキスト情報を保持するリクエストスコープの属性名.<br/>
+	 * 通常は{@link com.htmlhifive.resourcefw.message.MessageContainerMethodProcessor MessageContainerMethodProcessor}が設定します.
+	 */
+	private static final String REQUEST_MESSAGE_CONTEXT_ATTRIBUTE = "__requestMessageContextData";
+
+	/**
+	 * レスポンスのコンテキスト情報を保持するリクエストスコープの属性名.
+	 */
+	private static final String RESPONSE_MESSAGE_CONTEXT_ATTRIBUTE = "__responseMessageContextData";
+
+	/**
+	 * 1トランザクションで投入するリソースアイテム数.
+	 */
+	private static final int SEED_CHUNK_SIZE = 1000;
+
+	/**
+	 * アプリケーションコンテキスト.
+	 */
+	private XmlWebApplicationContext context;
+
+	/**
+	 * 投入済のリソースアイテムの件数.
+	 */
+	private final int datasetSize;
+
+	/**
+	 * リソースアイテムの選択に使用する乱数.<br/>
+	 * 測定ごとの差が出ないよう、固定のシードを使用します.
+	 */
+	private final Random random = new Random(17);
+
+	/**
+	 * 最後に払い出した同期時刻.
+	 */
+	private long lastSyncTime;
+
+	/**
+	 * 投入が完了した時点の同期時刻.
+	 */
+	private long seededTime;
+
+	/**
+	 * 指定された件数のリソースアイテムを持つ実行環境を生成します.
+	 *
+	 * @param datasetSize 投入するリソースアイテムの件数
+	 */
+	public SyncBenchmarkEnvironment(int datasetSize) {
+		this.datasetSize = datasetSize;
+	}
+
+	/**
+	 * アプリケーションコンテキストを起動し、リソースアイテムを投入します.
+	 */
+	public void start() {
+
+		context = new XmlWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.setConfigLocation(CONTEXT_CONFIG_LOCATION);
+		context.refresh();
+
+		seed();
+	}
+
+	/**
+	 * アプリケーションコンテキストを停止します.
+	 */
+	public void stop() {
+
+		RequestContextHolder.resetRequestAttributes();
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	/**
+	 * リソースアイテムと、その共通データを投入します.<br/>
+	 * 投入はSEED_CHUNK_SIZE件ごとにトランザクションを分けて行います.
+	 */
+	private void seed() {
+
+		final BenchItemRepository repository = getBean(BenchItemRepository.class);
+		final Synchronizer synchronizer = getBean(Synchronizer.class);
+		final long syncTime = nextSyncTime();
+
+		TransactionTemplate transactionTemplate = createTransactionTemplate();
+		for (int start = 0; start < datasetSize; start += SEED_CHUNK_SIZE) {
+
+			final int end = Math.min(start + SEED_CHUNK_SIZE, datasetSize);
+			final int chunkStart = start;
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+
+					List<BenchItem> items = new ArrayList<>();
+					for (int i = chunkStart; i < end; i++) {
+						items.add(createItem(itemId(i), i));
+					}
+					repository.save(items);
+
+					for (BenchItem item : items) {
+						ResourceItemCommonData common = synchronizer.getNew(new ResourceItemCommonDataId(
+								BenchItemSyncResource.RESOURCE_NAME, item.getItemId()));
+						common.setTargetItemId(item.getItemId());
+						common.modify(SyncAction.CREATE, syncTime);
+						synchronizer.modify(common);
+					}
+				}
+			});
+		}
+
+		seededTime = nextSyncTime();
+	}
+
+	/**
+	 * 指定された型のBeanを返します.
+	 *
+	 * @param type Beanの型
+	 * @return Bean
+	 */
+	public <T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	/**
+	 * リソースプロセッサを返します.
+	 *
+	 * @return リソースプロセッサ
+	 */
+	public ResourceProcessor getResourceProcessor() {
+		return context.getBean("resourceProcessor", ResourceProcessor.class);
+	}
+
+	/**
+	 * 新しいトランザクションテンプレートを返します.
+	 *
+	 * @return トランザクションテンプレート
+	 */
+	public TransactionTemplate createTransactionTemplate() {
+		return new TransactionTemplate(getBean(PlatformTransactionManager.class));
+	}
+
+	/**
+	 * 指定されたHTTPメソッドのリクエストを、現在のスレッドのリクエストとして設定します.<br/>
+	 * メッセージのコンテキスト情報とHTTPメソッドはリクエストスコープから参照されるため、リクエストを生成する前に呼び出す必要があります.
+	 *
+	 * @param httpMethod HTTPメソッド
+	 */
+	public void bindRequest(String httpMethod) {
+
+		MockHttpServletRequest request = new MockHttpServletRequest(httpMethod, "/");
+		request.setAttribute(REQUEST_MESSAGE_CONTEXT_ATTRIBUTE, new HashMap<>());
+		request.setAttribute(RESPONSE_MESSAGE_CONTEXT_ATTRIBUTE, new HashMap<>());
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	/**
+	 * 指定されたリソースアイテムを同期アクションで上り更新する、多重化されたリクエストを生成します.
+	 *
+	 * @param itemIdList リソースアイテムIDのリスト
+	 * @param syncAction 同期アクション
+	 * @return リクエストメッセージコンテナ
+	 */
+	public RequestMessageContainer createUploadRequest(List<String> itemIdList, SyncAction syncAction) {
+
+		bindRequest("POST");
+
+		SyncConfigurationParameter configParam = getBean(SyncConfigurationParameter.class);
+		MessageMetadata messageMetadata = getBean(MessageMetadata.class);
+
+		SyncRequestCommonData requestCommon = createSyncRequestCommonData();
+
+		RequestMessageContainer container = new RequestMessageContainer(true);
+		container.putContextData(messageMetadata.REQUEST_PATH, configParam.URL_PATH_UPLOAD, MessageSource.CONTROLLER);
+		container.putContextData(configParam.REQUEST_COMMON_DATA, requestCommon, MessageSource.CONTROLLER);
+
+		for (int i = 0; i < itemIdList.size(); i++) {
+			String itemId = itemIdList.get(i);
+			RequestMessage message = new RequestMessage(messageMetadata);
+			message.put(messageMetadata.REQUEST_PATH, BenchItemSyncResource.RESOURCE_NAME + "/" + itemId,
+					MessageSource.CONTROLLER);
+			putUploadContents(message, itemId, syncAction, requestCommon, i);
+			container.addMessage(message);
+		}
+
+		return container;
+	}
+
+	/**
+	 * 指定された時刻以降に更新されたリソースアイテムを全て下り更新するリクエストを生成します.
+	 *
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @return リクエストメッセージコンテナ
+	 */
+	public RequestMessageContainer createDownloadRequest(long modifiedSince) {
+
+		bindRequest("GET");
+
+		SyncConfigurationParameter configParam = getBean(SyncConfigurationParameter.class);
+		MessageMetadata messageMetadata = getBean(MessageMetadata.class);
+
+		RequestMessageContainer container = new RequestMessageContainer(false);
+		container.putContextData(configParam.REQUEST_COMMON_DATA, createSyncRequestCommonData(),
+				MessageSource.CONTROLLER);
+
+		RequestMessage message = new RequestMessage(messageMetadata);
+		message.put(messageMetadata.REQUEST_PATH, configParam.URL_PATH_DOWNLOAD + "/"
+				+ BenchItemSyncResource.RESOURCE_NAME, MessageSource.CONTROLLER);
+		message.put(messageMetadata.QUERY, Collections.emptyMap(), MessageSource.CONTROLLER);
+		message.put(configParam.LAST_MODIFIED, String.valueOf(modifiedSince), MessageSource.CONTROLLER);
+		container.addMessage(message);
+
+		return container;
+	}
+
+	/**
+	 * リソースプロセッサを経由せずに、リソースのuploadメソッドを直接呼び出すためのリクエストメッセージを生成します.<br/>
+	 * パスやリソースアイテム共通データIDなど、本来リソースプロセッサが設定する情報も設定します.
+	 *
+	 * @param itemId リソースアイテムID
+	 * @param syncAction 同期アクション
+	 * @return リクエストメッセージ
+	 */
+	public RequestMessage createResourceUploadMessage(String itemId, SyncAction syncAction) {
+
+		bindRequest("POST");
+
+		SyncConfigurationParameter configParam = getBean(SyncConfigurationParameter.class);
+		MessageMetadata messageMetadata = getBean(MessageMetadata.class);
+
+		RequestMessage message = new RequestMessage(messageMetadata);
+		message.put(messageMetadata.REQUEST_PATH, itemId, MessageSource.PROCESSOR);
+		message.put(configParam.RESOURCE_ITEM_COMMON_DATA_ID, new ResourceItemCommonDataId(
+				BenchItemSyncResource.RESOURCE_NAME, itemId), MessageSource.PROCESSOR);
+
+		SyncRequestCommonData requestCommon = createSyncRequestCommonData();
+		message.put(configParam.REQUEST_COMMON_DATA, requestCommon, MessageSource.CONTROLLER);
+		putUploadContents(message, itemId, syncAction, requestCommon, random.nextInt(1000));
+
+		return message;
+	}
+
+	/**
+	 * 上り更新するリソースアイテムの内容と、同期のためのメタデータをメッセージに設定します.<br/>
+	 * 競合が発生しないよう、クライアントデータの最終更新時刻には今回の同期時刻を設定します.
+	 *
+	 * @param message リクエストメッセージ
+	 * @param itemId リソースアイテムID
+	 * @param syncAction 同期アクション
+	 * @param requestCommon syncリクエスト共通データ
+	 * @param seed リソースアイテムの内容を決める値
+	 */
+	private void putUploadContents(RequestMessage message, String itemId, SyncAction syncAction,
+			SyncRequestCommonData requestCommon, int seed) {
+
+		SyncConfigurationParameter configParam = getBean(SyncConfigurationParameter.class);
+
+		message.put(configParam.RESOURCE_ITEM_ID, itemId, MessageSource.CONTROLLER);
+		message.put(configParam.SYNC_ACTION, syncAction.name(), MessageSource.CONTROLLER);
+		message.put(configParam.LAST_MODIFIED, String.valueOf(requestCommon.getSyncTime()), MessageSource.CONTROLLER);
+
+		BenchItem item = createItem(itemId, seed);
+		message.put("name", item.getName(), MessageSource.CONTROLLER);
+		message.put("amount", item.getAmount(), MessageSource.CONTROLLER);
+		message.put("category", item.getCategory(), MessageSource.CONTROLLER);
+	}
+
+	/**
+	 * リソースプロセッサの処理結果が全て正常終了していることを確認します.<br/>
+	 * 測定の前に呼び出し、設定の誤りによってエラー処理の性能を測定することを防ぎます.
+	 *
+	 * @param responseMessages レスポンスメッセージコンテナ
+	 * @throws IllegalStateException 正常終了していないレスポンスメッセージが含まれる場合
+	 */
+	public void verify(ResponseMessageContainer responseMessages) {
+
+		MessageMetadata messageMetadata = getBean(MessageMetadata.class);
+
+		for (ResponseMessage responseMessage : responseMessages.getMessages()) {
+			Object status = responseMessage.get(messageMetadata.RESPONSE_STATUS);
+			if (status != ResourceActionStatus.OK) {
+				throw new IllegalStateException("Benchmark request failed. : status = " + status + ", body = "
+						+ responseMessage.get(messageMetadata.RESPONSE_BODY));
+			}
+		}
+	}
+
+	/**
+	 * 新しい同期時刻を持つsyncリクエスト共通データを生成します.
+	 *
+	 * @return syncリクエスト共通データ
+	 */
+	private SyncRequestCommonData createSyncRequestCommonData() {
+
+		SyncRequestCommonData requestCommon = new SyncRequestCommonData();
+		requestCommon.setStorageId("benchmark");
+		requestCommon.setSyncTime(nextSyncTime());
+		return requestCommon;
+	}
+
+	/**
+	 * 同期時刻を払い出します.<br/>
+	 * 同一ミリ秒内に複数のリクエストを生成しても、同期時刻は単調に増加します.
+	 *
+	 * @return 同期時刻
+	 */
+	private synchronized long nextSyncTime() {
+
+		lastSyncTime = Math.max(System.currentTimeMillis(), lastSyncTime + 1);
+		return lastSyncTime;
+	}
+
+	/**
+	 * 投入済のリソースアイテムからランダムに選択した、重複のないリソースアイテムIDのリストを返します.
+	 *
+	 * @param size リストの要素数(投入済の件数を超える場合は投入済の件数)
+	 * @return リソースアイテムIDのリスト
+	 */
+	public List<String> randomItemIds(int size) {
+
+		int count = Math.min(size, datasetSize);
+		List<String> itemIdList = new ArrayList<>(count);
+
+		// 連続した範囲を選ぶと、IDのソート順と投入順が一致して結果が偏るため、開始位置と間隔を変える
+		int step = Math.max(1, datasetSize / Math.max(1, count));
+		int offset = random.nextInt(step);
+		for (int i = 0; i < count; i++) {
+			itemIdList.add(itemId((offset + i * step) % datasetSize));
+		}
+		Collections.shuffle(itemIdList, random);
+
+		return itemIdList;
+	}
+
+	/**
+	 * 投入済のリソースアイテムからランダムに選択したリソースアイテムIDを返します.
+	 *
+	 * @return リソースアイテムID
+	 */
+	public String randomItemId() {
+		return itemId(random.nextInt(datasetSize));
+	}
+
+	/**
+	 * 指定された番号の投入済リソースアイテムのIDを返します.
+	 *
+	 * @param index 番号
+	 * @return リソースアイテムID
+	 */
+	public String itemId(int index) {
+		return String.format("item-%08d", index);
+	}
+
+	/**
+	 * 指定されたIDと内容を持つリソースアイテムを生成します.
+	 *
+	 * @param itemId リソースアイテムID
+	 * @param seed リソースアイテムの内容を決める値
+	 * @return リソースアイテム
+	 */
+	private BenchItem createItem(String itemId, int seed) {
+
+		BenchItem item = new BenchItem();
+		item.setItemId(itemId);
+		item.setName("name-" + seed);
+		item.setAmount(seed % 1000);
+		item.setCategory("category-" + seed % 10);
+		return item;
+	}
+
+	/**
+	 * @return 投入済のリソースアイテムの件数
+	 */
+	public int getDatasetSize() {
+		return datasetSize;
+	}
+
+	/**
+	 * @return 投入が完了した時点の同期時刻
+	 */
+	public long getSeededTime() {
+		return seededTime;
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataRepository;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * リソースアイテム共通データのインデックスの効果を測定するベンチマーク.<br/>
+ * 組み込みDB(HSQLDB)に共通データのみをrowCount件(既定では100万件)投入し、
+ * (resourceName, targetItemId)、(resourceName, lastModified)のインデックスの有無ごとに、次の検索の平均応答時間を測定します.
+ * <ul>
+ * <li>IDによる下り更新と同じ、{@link ResourceItemCommonDataRepository#findModified(String, String, long)}による1件の検索</li>
+ * <li>ページ分割した下り更新と同じ、最終更新時刻が指定時刻より後の共通データを(最終更新時刻, リソースアイテムID)の順に1ページ分取得する検索</li>
+ * </ul>
+ * 測定の前に、それぞれの検索のSQLの実行計画(EXPLAIN PLAN)を標準出力に出力します.<br/>
+ * 投入件数は、他のベンチマークのdatasetSizeとは別に「-p rowCount=...」で変更できます.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SyncIndexBenchmark {
+
+	/**
+	 * 1トランザクションで投入する共通データ数.
+	 */
+	private static final int SEED_BATCH_SIZE = 10000;
+
+	/**
+	 * 最終更新時刻による検索で取得する件数(下り更新の1ページ分).
+	 */
+	private static final int PAGE_SIZE = 100;
+
+	/**
+	 * 測定対象のインデックス名.
+	 */
+	private static final String[] INDEX_NAMES = { "IDX_RESOURCE_ITEM_COMMON_DATA_TARGET",
+			"IDX_RESOURCE_ITEM_COMMON_DATA_MODIFIED" };
+
+	/**
+	 * findModifiedと同じ条件のSQL.
+	 */
+	private static final String FIND_MODIFIED_SQL = "SELECT * FROM RESOURCE_ITEM_COMMON_DATA WHERE resourceName = ? AND targetItemId = ? AND lastModified > ?";
+
+	/**
+	 * 最終更新時刻による検索と同じ条件のSQL.
+	 */
+	private static final String FIND_MODIFIED_SINCE_SQL = "SELECT * FROM RESOURCE_ITEM_COMMON_DATA WHERE resourceName = ? AND lastModified > ? ORDER BY lastModified, resourceItemId LIMIT "
+			+ PAGE_SIZE;
+
+	/**
+	 * 最終更新時刻による検索のJPQL.
+	 */
+	private static final String FIND_MODIFIED_SINCE_QUERY = "SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.lastModified > :since ORDER BY d.lastModified, d.id.resourceItemId";
+
+	/**
+	 * 投入する共通データの件数.
+	 */
+	@Param({ "1000000" })
+	public int rowCount;
+
+	/**
+	 * インデックスを使用する場合true.falseの場合は投入後にインデックスを削除します.
+	 */
+	@Param({ "true", "false" })
+	public boolean indexed;
+
+	/**
+	 * 実行環境.リソースアイテムは投入せず、共通データのみを投入します.
+	 */
+	private SyncBenchmarkEnvironment environment;
+
+	/**
+	 * 共通データのリポジトリ.
+	 */
+	private ResourceItemCommonDataRepository repository;
+
+	/**
+	 * 最終更新時刻による検索に使用するEntityManager.
+	 */
+	private EntityManager entityManager;
+
+	/**
+	 * 検索するリソースアイテムの選択に使用する乱数.
+	 */
+	private final Random random = new Random(17);
+
+	/**
+	 * 投入した共通データの最初の最終更新時刻.共通データごとに1ミリ秒ずつ後の時刻とします.
+	 */
+	private long baseTime;
+
+	/**
+	 * 実行環境を起動して共通データを投入し、インデックスの有無を設定して実行計画を出力します.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+
+		environment = new SyncBenchmarkEnvironment(0);
+		environment.start();
+
+		repository = environment.getBean(ResourceItemCommonDataRepository.class);
+		entityManager = environment.getBean(EntityManagerFactory.class).createEntityManager();
+
+		DataSource dataSource = environment.getBean(DataSource.class);
+		baseTime = System.currentTimeMillis() - rowCount;
+		seed(dataSource);
+
+		if (!indexed) {
+			dropIndexes(dataSource);
+		}
+
+		printPlan(dataSource, FIND_MODIFIED_SQL);
+		printPlan(dataSource, FIND_MODIFIED_SINCE_SQL);
+	}
+
+	/**
+	 * 実行環境を停止します.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		if (entityManager != null) {
+			entityManager.close();
+		}
+		environment.stop();
+	}
+
+	/**
+	 * 投入済の共通データからランダムに選択した1件を、IDによる下り更新と同様に検索します.
+	 *
+	 * @return 共通データ
+	 */
+	@Benchmark
+	public ResourceItemCommonData findModified() {
+
+		return repository.findModified(BenchItemSyncResource.RESOURCE_NAME,
+				environment.itemId(random.nextInt(rowCount)), 0L);
+	}
+
+	/**
+	 * 最後に更新された1ページ分の共通データを、ページ分割した下り更新と同様に最終更新時刻の順に検索します.
+	 *
+	 * @return 共通データのリスト
+	 */
+	@Benchmark
+	public List<ResourceItemCommonData> findModifiedSince() {
+
+		try {
+			return entityManager.createQuery(FIND_MODIFIED_SINCE_QUERY, ResourceItemCommonData.class)
+					.setParameter("resourceName", BenchItemSyncResource.RESOURCE_NAME)
+					.setParameter("since", sinceForOnePage()).setMaxResults(PAGE_SIZE).getResultList();
+		} finally {
+			entityManager.clear();
+		}
+	}
+
+	/**
+	 * @return 最後に更新された1ページ分の共通データのみが該当する最終更新時刻
+	 */
+	private long sinceForOnePage() {
+		return baseTime + rowCount - PAGE_SIZE - 1;
+	}
+
+	/**
+	 * 共通データをJDBCのバッチ更新で投入します.<br/>
+	 * JPAによる投入では100万件の投入に時間がかかりすぎるため、テーブルに直接投入します.
+	 *
+	 * @param dataSource データソース
+	 */
+	private void seed(DataSource dataSource) throws SQLException {
+
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement statement = connection
+					.prepareStatement("INSERT INTO RESOURCE_ITEM_COMMON_DATA (resourceName, resourceItemId, targetItemId, syncAction, lastModified, version) VALUES (?, ?, ?, ?, ?, 0)")) {
+
+				for (int i = 0; i < rowCount; i++) {
+					String itemId = environment.itemId(i);
+					statement.setString(1, BenchItemSyncResource.RESOURCE_NAME);
+					statement.setString(2, itemId);
+					statement.setString(3, itemId);
+					statement.setString(4, SyncAction.CREATE.name());
+					statement.setLong(5, baseTime + i);
+					statement.addBatch();
+
+					if ((i + 1) % SEED_BATCH_SIZE == 0 || i == rowCount - 1) {
+						statement.executeBatch();
+						connection.commit();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 測定対象のインデックスを削除します.
+	 *
+	 * @param dataSource データソース
+	 */
+	private void dropIndexes(DataSource dataSource) throws SQLException {
+
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			for (String indexName : INDEX_NAMES) {
+				statement.execute("DROP INDEX " + indexName);
+			}
+		}
+	}
+
+	/**
+	 * SQLの実行計画(EXPLAIN PLAN)を標準出力に出力します.<br/>
+	 * 実行計画はパラメータの値によらないため、パラメータは設定しません.
+	 *
+	 * @param dataSource データソース
+	 * @param sql SQL
+	 */
+	private void printPlan(DataSource dataSource, String sql) throws SQLException {
+
+		StringBuilder plan = new StringBuilder();
+		plan.append("[benchmark] EXPLAIN PLAN (indexed=").append(indexed).append(", rowCount=").append(rowCount)
+				.append(") FOR ").append(sql).append(System.lineSeparator());
+
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement("EXPLAIN PLAN FOR " + sql);
+				ResultSet resultSet = statement.executeQuery()) {
+
+			while (resultSet.next()) {
+				plan.append(resultSet.getString(1)).append(System.lineSeparator());
+			}
+		}
+
+		System.out.print(plan);
+	}
+}
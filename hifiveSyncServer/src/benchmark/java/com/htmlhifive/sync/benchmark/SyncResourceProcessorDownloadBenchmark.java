@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.htmlhifive.resourcefw.message.ResponseMessageContainer;
+import com.htmlhifive.resourcefw.service.ResourceProcessor;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.service.SyncResourceProcessor;
+
+/**
+ * {@link SyncResourceProcessor}による下り更新のベンチマーク.<br/>
+ * 全件を返す下り更新と、投入以降に更新がない(結果が0件の)下り更新を、下り更新クエリタイプごとに測定します.<br/>
+ * 後者は、共通データの(resourceName, lastModified)インデックスによる範囲検索の性能を表します.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+public class SyncResourceProcessorDownloadBenchmark extends AbstractSyncBenchmark {
+
+	/**
+	 * 下り更新クエリタイプ.
+	 */
+	@Param({ "SEPARATE", "JOIN" })
+	public String downloadQueryType;
+
+	/**
+	 * リソースプロセッサ.
+	 */
+	private ResourceProcessor resourceProcessor;
+
+	/**
+	 * 下り更新クエリタイプを設定し、1回実行して正常に終了することを確認します.
+	 */
+	@Override
+	protected void setUp(SyncConfigurationParameter syncConfigurationParameter) {
+
+		syncConfigurationParameter.DOWNLOAD_QUERY_TYPE = downloadQueryType;
+		resourceProcessor = environment.getResourceProcessor();
+
+		environment.verify(downloadAll());
+		environment.verify(downloadDelta());
+	}
+
+	/**
+	 * 投入済の全てのリソースアイテムを下り更新します.
+	 *
+	 * @return レスポンスメッセージコンテナ
+	 */
+	@Benchmark
+	public ResponseMessageContainer downloadAll() {
+
+		return resourceProcessor.process(environment.createDownloadRequest(0L));
+	}
+
+	/**
+	 * 投入が完了した時刻以降に更新されたリソースアイテムを下り更新します.
+	 *
+	 * @return レスポンスメッセージコンテナ
+	 */
+	@Benchmark
+	public ResponseMessageContainer downloadDelta() {
+
+		return resourceProcessor.process(environment.createDownloadRequest(environment.getSeededTime()));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.htmlhifive.resourcefw.message.ResponseMessageContainer;
+import com.htmlhifive.resourcefw.service.ResourceProcessor;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.common.SyncAction;
+import com.htmlhifive.sync.service.SyncResourceProcessor;
+
+/**
+ * {@link SyncResourceProcessor}による上り更新のベンチマーク.<br/>
+ * 投入済のリソースアイテムからランダムに選択したbatchSize件を、多重化された1リクエストでUPDATEします.<br/>
+ * 上り更新制御タイプごとに測定し、LOCK(共通データの"for update")とMEMORY_LOCK(JVM内のロック)の差を比較できます.
+ *
+ * @author kishigam
+ */
+@State(Scope.Benchmark)
+public class SyncResourceProcessorUploadBenchmark extends AbstractSyncBenchmark {
+
+	/**
+	 * 1リクエストで上り更新するリソースアイテム数.
+	 */
+	@Param({ "1", "10", "100" })
+	public int batchSize;
+
+	/**
+	 * 上り更新制御タイプ.
+	 */
+	@Param({ "NONE", "LOCK", "MEMORY_LOCK" })
+	public String uploadControlType;
+
+	/**
+	 * リソースプロセッサ.
+	 */
+	private ResourceProcessor resourceProcessor;
+
+	/**
+	 * 上り更新制御タイプを設定し、1回実行して正常に終了することを確認します.
+	 */
+	@Override
+	protected void setUp(SyncConfigurationParameter syncConfigurationParameter) {
+
+		syncConfigurationParameter.UPLOAD_CONTROL_TYPE = uploadControlType;
+		resourceProcessor = environment.getResourceProcessor();
+
+		environment.verify(upload());
+	}
+
+	/**
+	 * 上り更新リクエストを処理します.
+	 *
+	 * @return レスポンスメッセージコンテナ
+	 */
+	@Benchmark
+	public ResponseMessageContainer upload() {
+
+		return resourceProcessor.process(environment.createUploadRequest(environment.randomItemIds(batchSize),
+				SyncAction.UPDATE));
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark.load;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.htmlhifive.sync.config.DownloadControlType;
+import com.htmlhifive.sync.config.UploadControlType;
+
+/**
+ * 負荷試験の実行条件.<br/>
+ * 実行条件はシステムプロパティ(「-Dloadtest.devices=50」など)で指定し、指定されていない場合はデフォルト値を使用します.
+ *
+ * @author kishigam
+ */
+public class LoadSimulationSettings {
+
+	/**
+	 * システムプロパティ名のプレフィックス.
+	 */
+	private static final String PROPERTY_PREFIX = "loadtest.";
+
+	/**
+	 * 同時にリクエストを行う端末の数.
+	 */
+	private final int devices;
+
+	/**
+	 * 端末ごとのリクエスト回数(初回の下り更新を除く).
+	 */
+	private final int operations;
+
+	/**
+	 * 試験開始前に投入するリソースアイテムの件数.<br/>
+	 * 少ないほど、端末間で同じリソースアイテムを更新する確率が高くなり、競合が多く発生します.
+	 */
+	private final int items;
+
+	/**
+	 * 1回の上り更新リクエストに含めるリソースアイテムの件数.
+	 */
+	private final int batchSize;
+
+	/**
+	 * リクエストのうち、リソースアイテムを新規作成する上り更新の比率.
+	 */
+	private final int createWeight;
+
+	/**
+	 * リクエストのうち、リソースアイテムを更新する上り更新の比率.
+	 */
+	private final int updateWeight;
+
+	/**
+	 * リクエストのうち、リソースアイテムを削除する上り更新の比率.
+	 */
+	private final int deleteWeight;
+
+	/**
+	 * リクエストのうち、下り更新の比率.
+	 */
+	private final int downloadWeight;
+
+	/**
+	 * 端末の操作を決める乱数のシード.
+	 */
+	private final long randomSeed;
+
+	/**
+	 * 試験する上り更新同期制御方式.
+	 */
+	private final List<UploadControlType> uploadControlTypes;
+
+	/**
+	 * 試験する下り更新同期制御方式.
+	 */
+	private final List<DownloadControlType> downloadControlTypes;
+
+	/**
+	 * 試験結果の出力先ファイル.指定されていない場合はnullです.
+	 */
+	private final String resultFile;
+
+	/**
+	 * システムプロパティから実行条件を読み込みます.
+	 *
+	 * @throws IllegalArgumentException 実行条件の値が不正な場合
+	 */
+	public LoadSimulationSettings() {
+
+		devices = getInt("devices", 10);
+		operations = getInt("operations", 100);
+		items = getInt("items", 1000);
+		batchSize = getInt("batchSize", 5);
+
+		createWeight = getInt("createWeight", 10);
+		updateWeight = getInt("updateWeight", 60);
+		deleteWeight = getInt("deleteWeight", 5);
+		downloadWeight = getInt("downloadWeight", 25);
+
+		randomSeed = Long.parseLong(getString("randomSeed", "17"));
+
+		uploadControlTypes = getEnumList("uploadControlTypes", UploadControlType.class);
+		downloadControlTypes = getEnumList("downloadControlTypes", DownloadControlType.class);
+
+		String resultFileStr = getString("result", "");
+		resultFile = resultFileStr.isEmpty() ? null : resultFileStr;
+
+		if (devices < 1 || operations < 0 || items < 0 || batchSize < 1) {
+			throw new IllegalArgumentException("Invalid load test settings. : " + this);
+		}
+		if (createWeight < 0 || updateWeight < 0 || deleteWeight < 0 || downloadWeight < 0
+				|| createWeight + updateWeight + deleteWeight + downloadWeight == 0) {
+			throw new IllegalArgumentException("Invalid operation weights. : " + this);
+		}
+	}
+
+	/**
+	 * システムプロパティの値を返します.
+	 *
+	 * @param name プレフィックスを除いたプロパティ名
+	 * @param defaultValue 指定されていない場合の値
+	 * @return プロパティの値
+	 */
+	private static String getString(String name, String defaultValue) {
+
+		String value = System.getProperty(PROPERTY_PREFIX + name);
+		return value == null ? defaultValue : value.trim();
+	}
+
+	/**
+	 * システムプロパティの値を整数として返します.
+	 *
+	 * @param name プレフィックスを除いたプロパティ名
+	 * @param defaultValue 指定されていない場合の値
+	 * @return プロパティの値
+	 */
+	private static int getInt(String name, int defaultValue) {
+
+		return Integer.parseInt(getString(name, String.valueOf(defaultValue)));
+	}
+
+	/**
+	 * カンマ区切りで指定されたシステムプロパティの値を、列挙型のリストとして返します.<br/>
+	 * 指定されていない場合は、列挙型の全ての値を返します.
+	 *
+	 * @param name プレフィックスを除いたプロパティ名
+	 * @param enumType 列挙型
+	 * @return 列挙型のリスト
+	 */
+	private static <E extends Enum<E>> List<E> getEnumList(String name, Class<E> enumType) {
+
+		String value = getString(name, "");
+		if (value.isEmpty()) {
+			return new ArrayList<>(EnumSet.allOf(enumType));
+		}
+
+		List<E> result = new ArrayList<>();
+		for (String element : value.split(",")) {
+			result.add(Enum.valueOf(enumType, element.trim()));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the devices
+	 */
+	public int getDevices() {
+		return devices;
+	}
+
+	/**
+	 * @return the operations
+	 */
+	public int getOperations() {
+		return operations;
+	}
+
+	/**
+	 * @return the items
+	 */
+	public int getItems() {
+		return items;
+	}
+
+	/**
+	 * @return the batchSize
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the createWeight
+	 */
+	public int getCreateWeight() {
+		return createWeight;
+	}
+
+	/**
+	 * @return the updateWeight
+	 */
+	public int getUpdateWeight() {
+		return updateWeight;
+	}
+
+	/**
+	 * @return the deleteWeight
+	 */
+	public int getDeleteWeight() {
+		return deleteWeight;
+	}
+
+	/**
+	 * @return the downloadWeight
+	 */
+	public int getDownloadWeight() {
+		return downloadWeight;
+	}
+
+	/**
+	 * @return the randomSeed
+	 */
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * @return the uploadControlTypes
+	 */
+	public List<UploadControlType> getUploadControlTypes() {
+		return uploadControlTypes;
+	}
+
+	/**
+	 * @return the downloadControlTypes
+	 */
+	public List<DownloadControlType> getDownloadControlTypes() {
+		return downloadControlTypes;
+	}
+
+	/**
+	 * @return the resultFile
+	 */
+	public String getResultFile() {
+		return resultFile;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "devices=" + devices + ", operations=" + operations + ", items=" + items + ", batchSize="
+				+ batchSize + ", weight(create/update/delete/download)=" + createWeight + "/" + updateWeight + "/"
+				+ deleteWeight + "/" + downloadWeight + ", randomSeed=" + randomSeed;
+	}
+}
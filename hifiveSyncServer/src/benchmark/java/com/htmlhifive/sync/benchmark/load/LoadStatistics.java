@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 負荷試験の端末から見たリクエストの集計結果.<br/>
+ * 端末ごとに記録し、試験の終了後にまとめます.スレッドセーフではありません.
+ *
+ * @author kishigam
+ */
+public class LoadStatistics {
+
+	/**
+	 * 上り更新リクエストの応答時間(ナノ秒).
+	 */
+	private final List<Long> uploadLatencies = new ArrayList<>();
+
+	/**
+	 * 下り更新リクエストの応答時間(ナノ秒).
+	 */
+	private final List<Long> downloadLatencies = new ArrayList<>();
+
+	/**
+	 * 上り更新したリソースアイテムの件数.
+	 */
+	private long uploadedItems;
+
+	/**
+	 * 競合したリソースアイテムの件数.
+	 */
+	private long conflicts;
+
+	/**
+	 * 競合以外の理由で失敗したリソースアイテムの件数.
+	 */
+	private long failures;
+
+	/**
+	 * 正常終了しなかった上り更新リクエストの数.
+	 */
+	private long rejectedUploads;
+
+	/**
+	 * 下り更新で取得したリソースアイテムの件数.
+	 */
+	private long downloadedItems;
+
+	/**
+	 * 正常終了しなかった下り更新リクエストの数.
+	 */
+	private long rejectedDownloads;
+
+	/**
+	 * 上り更新リクエストの結果を記録します.
+	 *
+	 * @param elapsedNanos 応答時間(ナノ秒)
+	 * @param items リクエストに含めたリソースアイテムの件数
+	 * @param conflictedItems 競合したリソースアイテムの件数
+	 * @param failedItems 競合以外の理由で失敗したリソースアイテムの件数
+	 * @param rejected リクエストが正常終了しなかった場合true
+	 */
+	public void recordUpload(long elapsedNanos, int items, int conflictedItems, int failedItems, boolean rejected) {
+
+		uploadLatencies.add(elapsedNanos);
+		uploadedItems += items;
+		conflicts += conflictedItems;
+		failures += failedItems;
+		if (rejected) {
+			rejectedUploads++;
+		}
+	}
+
+	/**
+	 * 下り更新リクエストの結果を記録します.
+	 *
+	 * @param elapsedNanos 応答時間(ナノ秒)
+	 * @param items 取得したリソースアイテムの件数
+	 * @param rejected リクエストが正常終了しなかった場合true
+	 */
+	public void recordDownload(long elapsedNanos, int items, boolean rejected) {
+
+		downloadLatencies.add(elapsedNanos);
+		downloadedItems += items;
+		if (rejected) {
+			rejectedDownloads++;
+		}
+	}
+
+	/**
+	 * 他の集計結果をこの集計結果に加えます.
+	 *
+	 * @param other 他の集計結果
+	 */
+	public void merge(LoadStatistics other) {
+
+		uploadLatencies.addAll(other.uploadLatencies);
+		downloadLatencies.addAll(other.downloadLatencies);
+		uploadedItems += other.uploadedItems;
+		conflicts += other.conflicts;
+		failures += other.failures;
+		rejectedUploads += other.rejectedUploads;
+		downloadedItems += other.downloadedItems;
+		rejectedDownloads += other.rejectedDownloads;
+	}
+
+	/**
+	 * 上り更新リクエストの応答時間のパーセンタイル値をミリ秒で返します.
+	 *
+	 * @param percentile パーセンタイル(0より大きく100以下)
+	 * @return 応答時間(ミリ秒).リクエストがない場合は0
+	 */
+	public double getUploadLatencyMillis(double percentile) {
+		return percentileMillis(uploadLatencies, percentile);
+	}
+
+	/**
+	 * 下り更新リクエストの応答時間のパーセンタイル値をミリ秒で返します.
+	 *
+	 * @param percentile パーセンタイル(0より大きく100以下)
+	 * @return 応答時間(ミリ秒).リクエストがない場合は0
+	 */
+	public double getDownloadLatencyMillis(double percentile) {
+		return percentileMillis(downloadLatencies, percentile);
+	}
+
+	/**
+	 * 応答時間のリストから、最近接順位法によりパーセンタイル値を求め、ミリ秒で返します.
+	 *
+	 * @param latencies 応答時間(ナノ秒)のリスト
+	 * @param percentile パーセンタイル
+	 * @return 応答時間(ミリ秒)
+	 */
+	private static double percentileMillis(List<Long> latencies, double percentile) {
+
+		if (latencies.isEmpty()) {
+			return 0;
+		}
+
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+
+		int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+		return sorted.get(Math.max(rank, 1) - 1) / 1000000.0;
+	}
+
+	/**
+	 * 上り更新したリソースアイテムのうち、競合した件数の割合を返します.
+	 *
+	 * @return 競合率(0以上1以下)
+	 */
+	public double getConflictRate() {
+		return uploadedItems == 0 ? 0 : (double) conflicts / uploadedItems;
+	}
+
+	/**
+	 * @return 上り更新リクエストの数
+	 */
+	public int getUploadCount() {
+		return uploadLatencies.size();
+	}
+
+	/**
+	 * @return 下り更新リクエストの数
+	 */
+	public int getDownloadCount() {
+		return downloadLatencies.size();
+	}
+
+	/**
+	 * @return the uploadedItems
+	 */
+	public long getUploadedItems() {
+		return uploadedItems;
+	}
+
+	/**
+	 * @return the conflicts
+	 */
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * @return the failures
+	 */
+	public long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the rejectedUploads
+	 */
+	public long getRejectedUploads() {
+		return rejectedUploads;
+	}
+
+	/**
+	 * @return the downloadedItems
+	 */
+	public long getDownloadedItems() {
+		return downloadedItems;
+	}
+
+	/**
+	 * @return the rejectedDownloads
+	 */
+	public long getRejectedDownloads() {
+		return rejectedDownloads;
+	}
+}
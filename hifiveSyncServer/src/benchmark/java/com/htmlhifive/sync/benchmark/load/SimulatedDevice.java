@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark.load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * 負荷試験で同期を行う1台の端末.<br/>
+ * 端末ごとにストレージID、前回上り更新時刻、前回下り更新時刻(下り更新の最終更新時刻)と、保持しているリソースアイテムを管理します.<br/>
+ * 初回に全件の下り更新を行った後、新規作成・更新・削除の上り更新と下り更新を、実行条件の比率でランダムに実行します.<br/>
+ * 上り更新が正常終了しなかった場合、クライアントライブラリと同様に、次のリクエストで下り更新を行ってから再開します.
+ *
+ * @author kishigam
+ */
+public class SimulatedDevice implements Callable<LoadStatistics> {
+
+	/**
+	 * リクエストの送信クライアント.
+	 */
+	private final SyncLoadClient client;
+
+	/**
+	 * 負荷試験の実行条件.
+	 */
+	private final LoadSimulationSettings settings;
+
+	/**
+	 * 全端末が揃ってからリクエストを開始するためのラッチ.
+	 */
+	private final CountDownLatch startLatch;
+
+	/**
+	 * 端末の番号.新規作成するリソースアイテムのIDに使用します.
+	 */
+	private final int deviceNumber;
+
+	/**
+	 * 操作を決める乱数.
+	 */
+	private final Random random;
+
+	/**
+	 * 集計結果.
+	 */
+	private final LoadStatistics statistics = new LoadStatistics();
+
+	/**
+	 * ストレージID.初回のリクエストのレスポンスでサーバから払い出されます.
+	 */
+	private String storageId;
+
+	/**
+	 * 前回上り更新時刻.上り更新が正常終了するまではnullです.
+	 */
+	private Long lastUploadTime;
+
+	/**
+	 * 前回の下り更新の同期時刻.この時刻以前の更新は全て取得済です.
+	 */
+	private long lastDownloadTime;
+
+	/**
+	 * 端末が保持しているリソースアイテムのID.
+	 */
+	private final List<String> itemIds = new ArrayList<>();
+
+	/**
+	 * 前回の下り更新より後にこの端末が上り更新したリソースアイテムの、上り更新の同期時刻.
+	 */
+	private final Map<String, Long> uploadedTimes = new HashMap<>();
+
+	/**
+	 * この端末が新規作成したリソースアイテムの数.
+	 */
+	private int createdCount;
+
+	/**
+	 * 次のリクエストで下り更新を行う必要がある場合true.
+	 */
+	private boolean downloadRequired = true;
+
+	/**
+	 * 端末を生成します.
+	 *
+	 * @param client リクエストの送信クライアント
+	 * @param settings 負荷試験の実行条件
+	 * @param startLatch 全端末が揃ってからリクエストを開始するためのラッチ
+	 * @param deviceNumber 端末の番号
+	 */
+	public SimulatedDevice(SyncLoadClient client, LoadSimulationSettings settings, CountDownLatch startLatch,
+			int deviceNumber) {
+
+		this.client = client;
+		this.settings = settings;
+		this.startLatch = startLatch;
+		this.deviceNumber = deviceNumber;
+		this.random = new Random(settings.getRandomSeed() + deviceNumber);
+	}
+
+	/**
+	 * 初回の下り更新と、実行条件の回数のリクエストを実行し、集計結果を返します.
+	 *
+	 * @return 集計結果
+	 */
+	@Override
+	public LoadStatistics call() throws Exception {
+
+		startLatch.await();
+
+		// 初回は全件の下り更新
+		download();
+
+		for (int i = 0; i < settings.getOperations(); i++) {
+
+			if (downloadRequired) {
+				download();
+				continue;
+			}
+
+			int selected = random.nextInt(settings.getCreateWeight() + settings.getUpdateWeight()
+					+ settings.getDeleteWeight() + settings.getDownloadWeight());
+
+			if (selected < settings.getCreateWeight()) {
+				upload(SyncAction.CREATE);
+			} else if ((selected -= settings.getCreateWeight()) < settings.getUpdateWeight()) {
+				upload(SyncAction.UPDATE);
+			} else if ((selected -= settings.getUpdateWeight()) < settings.getDeleteWeight()) {
+				upload(SyncAction.DELETE);
+			} else {
+				download();
+			}
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * 前回の下り更新以降に更新されたリソースアイテムを取得し、端末が保持するリソースアイテムに反映します.
+	 */
+	private void download() throws Exception {
+
+		long start = System.nanoTime();
+		MockHttpServletResponse response = client.download(storageId, lastDownloadTime);
+		long elapsed = System.nanoTime() - start;
+
+		if (!isSucceeded(response)) {
+			statistics.recordDownload(elapsed, 0, true);
+			return;
+		}
+
+		Map<String, SyncAction> downloadedItems = client.getDownloadedItems(response);
+		for (Map.Entry<String, SyncAction> entry : downloadedItems.entrySet()) {
+			String itemId = entry.getKey();
+			itemIds.remove(itemId);
+			if (entry.getValue() != SyncAction.DELETE) {
+				itemIds.add(itemId);
+			}
+		}
+
+		// 下り更新により、同期時刻以前の更新は全て反映されている
+		storageId = client.getStorageId(response);
+		lastDownloadTime = client.getSyncTime(response);
+		uploadedTimes.clear();
+		downloadRequired = false;
+
+		statistics.recordDownload(elapsed, downloadedItems.size(), false);
+	}
+
+	/**
+	 * 指定された同期アクションで、実行条件の件数のリソースアイテムを上り更新します.<br/>
+	 * 更新・削除の対象は、端末が保持しているリソースアイテムからランダムに選択します.
+	 *
+	 * @param syncAction 同期アクション
+	 */
+	private void upload(SyncAction syncAction) throws Exception {
+
+		List<String> targetIds = selectTargets(syncAction);
+		if (targetIds.isEmpty()) {
+			downloadRequired = true;
+			return;
+		}
+
+		List<Map<String, Object>> messages = new ArrayList<>();
+		for (String itemId : targetIds) {
+			Long uploadedTime = uploadedTimes.get(itemId);
+			long lastModified = uploadedTime == null ? lastDownloadTime : Math.max(uploadedTime, lastDownloadTime);
+			messages.add(client.createUploadMessage(itemId, syncAction, lastModified, createItem(itemId)));
+		}
+
+		long start = System.nanoTime();
+		MockHttpServletResponse response = client.upload(storageId, lastUploadTime, messages);
+		long elapsed = System.nanoTime() - start;
+
+		int conflicted = 0;
+		int failed = 0;
+		for (String status : client.getUploadStatuses(response)) {
+			if (ResourceActionStatus.CONFLICT.name().equals(status)) {
+				conflicted++;
+			} else if (!ResourceActionStatus.OK.name().equals(status)) {
+				failed++;
+			}
+		}
+
+		boolean succeeded = isSucceeded(response);
+		statistics.recordUpload(elapsed, messages.size(), conflicted, failed, !succeeded);
+
+		if (!succeeded) {
+			// 競合などにより上り更新全体がロールバックされた場合、最新の状態を取得してから再開する
+			downloadRequired = true;
+			return;
+		}
+
+		storageId = client.getStorageId(response);
+		lastUploadTime = client.getSyncTime(response);
+		for (String itemId : targetIds) {
+			if (syncAction == SyncAction.DELETE) {
+				itemIds.remove(itemId);
+				uploadedTimes.remove(itemId);
+			} else {
+				if (syncAction == SyncAction.CREATE) {
+					itemIds.add(itemId);
+				}
+				uploadedTimes.put(itemId, lastUploadTime);
+			}
+		}
+	}
+
+	/**
+	 * 上り更新の対象とするリソースアイテムのIDを選択します.<br/>
+	 * 新規作成の場合は新しいIDを生成し、更新・削除の場合は保持しているリソースアイテムから重複しないように選択します.
+	 *
+	 * @param syncAction 同期アクション
+	 * @return リソースアイテムIDのリスト
+	 */
+	private List<String> selectTargets(SyncAction syncAction) {
+
+		List<String> targetIds = new ArrayList<>();
+
+		if (syncAction == SyncAction.CREATE) {
+			for (int i = 0; i < settings.getBatchSize(); i++) {
+				targetIds.add(String.format("device%04d-%08d", deviceNumber, createdCount++));
+			}
+			return targetIds;
+		}
+
+		int count = Math.min(settings.getBatchSize(), itemIds.size());
+		Set<String> selected = new HashSet<>();
+		while (selected.size() < count) {
+			selected.add(itemIds.get(random.nextInt(itemIds.size())));
+		}
+		targetIds.addAll(selected);
+		return targetIds;
+	}
+
+	/**
+	 * 上り更新するリソースアイテムの内容を生成します.
+	 *
+	 * @param itemId リソースアイテムID
+	 * @return リソースアイテムの内容
+	 */
+	private Map<String, Object> createItem(String itemId) {
+
+		Map<String, Object> item = new LinkedHashMap<>();
+		item.put("personId", itemId);
+		item.put("name", "person " + itemId);
+		item.put("age", random.nextInt(100));
+		item.put("organization", "device" + deviceNumber);
+		return item;
+	}
+
+	/**
+	 * レスポンスのHTTPステータスが正常終了(2xx)を示している場合trueを返します.
+	 *
+	 * @param response レスポンス
+	 * @return 正常終了の場合true
+	 */
+	private static boolean isSucceeded(MockHttpServletResponse response) {
+		return response.getStatus() / 100 == 2;
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark.load;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.util.NestedServletException;
+
+import com.htmlhifive.resourcefw.config.MessageMetadata;
+import com.htmlhifive.resourcefw.config.ResourceConfigurationParameter;
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * 負荷試験の端末が使用する、syncリクエストの送信クライアント.<br/>
+ * Spring MVC Testを使用して、サーブレットコンテナを起動せずにDispatcherServlet以降の処理(SyncController、SyncResourceProcessor)を呼び出します.<br/>
+ * リクエスト、レスポンスはクライアントライブラリと同じ形式(JSON、HTTPヘッダ)で送受信します.<br/>
+ * 複数の端末のスレッドから同時に使用できます.
+ *
+ * @author kishigam
+ */
+public class SyncLoadClient {
+
+	private static final Logger LOGGER = Logger.getLogger(SyncLoadClient.class);
+
+	/**
+	 * 下り更新結果の各要素で、リソースアイテム共通データを保持するキー.
+	 */
+	private static final String DOWNLOAD_RESULT_COMMON_DATA_KEY = "resourceItemCommonData";
+
+	/**
+	 * リソースアイテム共通データのJSON表現で、リソースアイテムIDを保持するキー.
+	 */
+	private static final String COMMON_DATA_RESOURCE_ITEM_ID_KEY = "resourceItemId";
+
+	/**
+	 * リソースアイテム共通データのJSON表現で、同期アクションを保持するキー.
+	 */
+	private static final String COMMON_DATA_SYNC_ACTION_KEY = "syncAction";
+
+	/**
+	 * リクエストを実行するMockMvc.
+	 */
+	private final MockMvc mockMvc;
+
+	/**
+	 * JSONの変換に使用するObjectMapper.
+	 */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * メッセージメタデータ.
+	 */
+	private final MessageMetadata messageMetadata;
+
+	/**
+	 * sync機能の動作設定パラメータ.
+	 */
+	private final SyncConfigurationParameter configParam;
+
+	/**
+	 * 負荷試験の対象リソース名.
+	 */
+	private final String resourceName;
+
+	/**
+	 * 上り更新のURL.
+	 */
+	private final String uploadUrl;
+
+	/**
+	 * 下り更新のURL.
+	 */
+	private final String downloadUrl;
+
+	/**
+	 * 指定されたアプリケーションコンテキストのリソースに対してリクエストを送信するクライアントを生成します.
+	 *
+	 * @param context アプリケーションコンテキスト
+	 * @param resourceName 負荷試験の対象リソース名
+	 */
+	public SyncLoadClient(WebApplicationContext context, String resourceName) {
+
+		this.mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		this.messageMetadata = context.getBean(MessageMetadata.class);
+		this.configParam = context.getBean(SyncConfigurationParameter.class);
+		this.resourceName = resourceName;
+
+		String serviceRootPath = "/" + context.getBean(ResourceConfigurationParameter.class).SERVICE_ROOT_PATH + "/";
+		this.uploadUrl = serviceRootPath + configParam.URL_PATH_UPLOAD;
+		this.downloadUrl = serviceRootPath + configParam.URL_PATH_DOWNLOAD + "/" + resourceName;
+	}
+
+	/**
+	 * 上り更新リクエストに含める、リソースアイテム1件分のメッセージを生成します.
+	 *
+	 * @param resourceItemId リソースアイテムID
+	 * @param syncAction 同期アクション
+	 * @param lastModified 端末が保持するリソースアイテムの最終更新時刻
+	 * @param item リソースアイテムの内容
+	 * @return メッセージ
+	 */
+	public Map<String, Object> createUploadMessage(String resourceItemId, SyncAction syncAction, long lastModified,
+			Map<String, Object> item) {
+
+		Map<String, Object> message = new LinkedHashMap<>();
+		message.put(messageMetadata.REQUEST_PATH, resourceName + "/" + resourceItemId);
+		message.put(configParam.RESOURCE_ITEM_ID, resourceItemId);
+		message.put(configParam.SYNC_ACTION, syncAction.name());
+		message.put(configParam.LAST_MODIFIED, String.valueOf(lastModified));
+		message.putAll(item);
+		return message;
+	}
+
+	/**
+	 * 多重化された上り更新リクエストを送信します.
+	 *
+	 * @param storageId ストレージID(初回のリクエストではnull)
+	 * @param lastUploadTime 前回上り更新時刻(初回の上り更新ではnull)
+	 * @param messages リソースアイテムごとのメッセージ
+	 * @return レスポンス
+	 */
+	public MockHttpServletResponse upload(String storageId, Long lastUploadTime, List<Map<String, Object>> messages)
+			throws Exception {
+
+		MockHttpServletRequestBuilder request = post(uploadUrl);
+		setSyncHeaders(request, storageId, lastUploadTime);
+
+		return perform(request, messages);
+	}
+
+	/**
+	 * 指定された時刻以降に更新されたリソースアイテムを全て取得する、下り更新リクエストを送信します.
+	 *
+	 * @param storageId ストレージID(初回のリクエストではnull)
+	 * @param lastModified 前回の下り更新の同期時刻(初回の下り更新では0)
+	 * @return レスポンス
+	 */
+	public MockHttpServletResponse download(String storageId, long lastModified) throws Exception {
+
+		MockHttpServletRequestBuilder request = post(downloadUrl);
+		setSyncHeaders(request, storageId, null);
+
+		Map<String, Object> message = new HashMap<>();
+		message.put(messageMetadata.QUERY, Collections.emptyMap());
+		message.put(configParam.LAST_MODIFIED, String.valueOf(lastModified));
+
+		return perform(request, message);
+	}
+
+	/**
+	 * syncリクエストのHTTPヘッダを設定します.
+	 *
+	 * @param request リクエスト
+	 * @param storageId ストレージID
+	 * @param lastUploadTime 前回上り更新時刻
+	 */
+	private void setSyncHeaders(MockHttpServletRequestBuilder request, String storageId, Long lastUploadTime) {
+
+		if (storageId != null) {
+			request.header(toHttpHeaderName(configParam.STORAGE_ID), storageId);
+		}
+		if (lastUploadTime != null) {
+			request.header(toHttpHeaderName(configParam.LAST_UPLOAD_TIME), String.valueOf(lastUploadTime));
+		}
+	}
+
+	/**
+	 * ボディをJSONに変換してリクエストを実行し、レスポンスを返します.<br/>
+	 * 処理されなかった例外がスローされた場合は、HTTPステータス500のレスポンスを返します.
+	 *
+	 * @param request リクエスト
+	 * @param body ボディ
+	 * @return レスポンス
+	 */
+	private MockHttpServletResponse perform(MockHttpServletRequestBuilder request, Object body) throws Exception {
+
+		request.contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsBytes(body));
+
+		try {
+			return mockMvc.perform(request).andReturn().getResponse();
+
+		} catch (NestedServletException e) {
+			// サーブレットコンテナと同様に、処理されなかった例外はInternal Server Errorとして扱う
+			LOGGER.debug("[loadtest] Request processing failed.", e);
+
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+			return response;
+		}
+	}
+
+	/**
+	 * レスポンスのHTTPヘッダからストレージIDを返します.
+	 *
+	 * @param response レスポンス
+	 * @return ストレージID.含まれない場合null
+	 */
+	public String getStorageId(MockHttpServletResponse response) {
+		return response.getHeader(toHttpHeaderName(configParam.STORAGE_ID));
+	}
+
+	/**
+	 * レスポンスのHTTPヘッダから同期時刻を返します.
+	 *
+	 * @param response レスポンス
+	 * @return 同期時刻.含まれない場合null
+	 */
+	public Long getSyncTime(MockHttpServletResponse response) {
+
+		String syncTime = response.getHeader(toHttpHeaderName(configParam.SYNC_TIME));
+		return syncTime == null ? null : Long.valueOf(syncTime);
+	}
+
+	/**
+	 * 多重化された上り更新リクエストのレスポンスから、リソースアイテムごとの処理結果ステータスを返します.<br/>
+	 * 競合などにより処理が中断された場合は、中断の原因となったリソースアイテムの処理結果ステータスのみを返します.
+	 *
+	 * @param response レスポンス
+	 * @return 処理結果ステータス({@link ResourceActionStatus}の名前)のリスト
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> getUploadStatuses(MockHttpServletResponse response) throws IOException {
+
+		List<String> statuses = new ArrayList<>();
+
+		Object body = readBody(response);
+		if (!(body instanceof List)) {
+			// 処理が中断された場合、原因となったリソースアイテムの処理結果ステータスがHTTPステータスとして返される
+			if (response.getStatus() / 100 != 2) {
+				statuses.add(toStatusName(response.getStatus()));
+			}
+			return statuses;
+		}
+
+		for (Object messageObj : (List<Object>) body) {
+			if (messageObj instanceof Map) {
+				statuses.add(String.valueOf(((Map<String, Object>) messageObj).get(messageMetadata.RESPONSE_STATUS)));
+			}
+		}
+		return statuses;
+	}
+
+	/**
+	 * HTTPステータスコードに対応する処理結果ステータスの名前を返します.
+	 *
+	 * @param httpStatusCode HTTPステータスコード
+	 * @return 処理結果ステータスの名前.対応するものがない場合はHTTPステータスコード
+	 */
+	private static String toStatusName(int httpStatusCode) {
+
+		for (ResourceActionStatus status : ResourceActionStatus.values()) {
+			if (status.getHttpStatus().value() == httpStatusCode) {
+				return status.name();
+			}
+		}
+		return String.valueOf(httpStatusCode);
+	}
+
+	/**
+	 * 下り更新リクエストのレスポンスから、取得したリソースアイテムのIDと同期アクションを返します.
+	 *
+	 * @param response レスポンス
+	 * @return リソースアイテムIDをキー、同期アクションを値とするMap
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, SyncAction> getDownloadedItems(MockHttpServletResponse response) throws IOException {
+
+		Map<String, SyncAction> items = new HashMap<>();
+
+		Object body = readBody(response);
+		if (!(body instanceof List)) {
+			return items;
+		}
+
+		for (Object resultObj : (List<Object>) body) {
+			Object commonObj = ((Map<String, Object>) resultObj).get(DOWNLOAD_RESULT_COMMON_DATA_KEY);
+			if (!(commonObj instanceof Map)) {
+				continue;
+			}
+
+			Map<String, Object> common = (Map<String, Object>) commonObj;
+			items.put((String) common.get(COMMON_DATA_RESOURCE_ITEM_ID_KEY),
+					SyncAction.valueOf((String) common.get(COMMON_DATA_SYNC_ACTION_KEY)));
+		}
+		return items;
+	}
+
+	/**
+	 * レスポンスのボディをJSONとして読み込みます.
+	 *
+	 * @param response レスポンス
+	 * @return 変換結果.ボディがない場合null
+	 */
+	private Object readBody(MockHttpServletResponse response) throws IOException {
+
+		// エラーの内容はテキストで返されることがある
+		String contentType = response.getContentType();
+		byte[] content = response.getContentAsByteArray();
+		if (content.length == 0 || contentType == null
+				|| !MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+			return null;
+		}
+		return objectMapper.readValue(content, Object.class);
+	}
+
+	/**
+	 * メタデータのキー名を、対応するHTTPヘッダ名に変換します.
+	 *
+	 * @param metadataKey メタデータのキー名
+	 * @return HTTPヘッダ名
+	 */
+	private String toHttpHeaderName(String metadataKey) {
+		return metadataKey.replaceFirst(messageMetadata.PREFIX_METADATA, messageMetadata.PREFIX_HTTP_HEADER);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.benchmark.load;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+import com.htmlhifive.resourcefw.resource.ResourceClass;
+import com.htmlhifive.resourcefw.sample.resource.person.PersonSyncResource;
+import com.htmlhifive.sync.config.DownloadControlType;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.config.UploadControlType;
+import com.htmlhifive.sync.resource.common.SyncAction;
+import com.htmlhifive.sync.service.SyncActionMetrics;
+import com.htmlhifive.sync.service.SyncMetrics;
+
+/**
+ * 複数端末からの同期リクエストによる負荷試験.<br/>
+ * 上り更新・下り更新の同期制御方式の組み合わせごとにアプリケーションコンテキストを起動し、{@link PersonSyncResource}のリソースアイテムを投入した上で、
+ * 実行条件({@link LoadSimulationSettings})の数の端末({@link SimulatedDevice})から同時にリクエストを行います.<br/>
+ * 組み合わせごとに、スループット、応答時間(50/99パーセンタイル)、競合率、ロック待ちの回数と時間を出力します.<br/>
+ * ロック待ちは{@link SyncMetrics}の集計値を使用するため、sync-configuration.propertiesのSYNC_METRICS_ENABLEDをtrueにしておく必要があります.
+ *
+ * @author kishigam
+ */
+public class SyncLoadSimulator {
+
+	/**
+	 * アプリケーションコンテキストの設定ファイル.
+	 */
+	private static final String CONTEXT_CONFIG_LOCATION = "classpath:loadtest/loadtest-context.xml";
+
+	/**
+	 * 試験開始前のリソースアイテムの投入で、1回の上り更新リクエストに含めるリソースアイテムの件数.
+	 */
+	private static final int SEED_BATCH_SIZE = 100;
+
+	/**
+	 * 結果の見出し行.
+	 */
+	private static final String RESULT_HEADER = String.format(
+			"%-11s %-11s %8s %9s %9s %9s %9s %9s %8s %8s %8s %8s %9s %8s %9s",
+			"upload", "download", "requests", "req/s", "up p50ms", "up p99ms", "dl p50ms", "dl p99ms", "conflict",
+			"failed", "rejected", "up lock", "wait ms", "dl lock", "wait ms");
+
+	/**
+	 * 負荷試験の実行条件.
+	 */
+	private final LoadSimulationSettings settings;
+
+	/**
+	 * 負荷試験の対象リソース名.
+	 */
+	private final String resourceName;
+
+	/**
+	 * 実行条件を指定して負荷試験を生成します.
+	 *
+	 * @param settings 負荷試験の実行条件
+	 */
+	public SyncLoadSimulator(LoadSimulationSettings settings) {
+
+		this.settings = settings;
+		this.resourceName = PersonSyncResource.class.getAnnotation(ResourceClass.class).name();
+	}
+
+	/**
+	 * システムプロパティで指定された実行条件で負荷試験を実行し、結果を標準出力(指定された場合はファイルにも)に出力します.
+	 *
+	 * @param args 使用しません
+	 */
+	public static void main(String[] args) throws Exception {
+
+		LoadSimulationSettings settings = new LoadSimulationSettings();
+		List<String> results = new SyncLoadSimulator(settings).run();
+
+		if (settings.getResultFile() != null) {
+			try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(
+					settings.getResultFile()), "UTF-8"))) {
+				for (String line : results) {
+					writer.println(line);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 全ての同期制御方式の組み合わせについて負荷試験を実行し、結果の行を返します.
+	 *
+	 * @return 結果(実行条件、見出し、組み合わせごとの結果の行)
+	 */
+	public List<String> run() throws Exception {
+
+		List<String> results = new ArrayList<>();
+		results.add("# " + settings);
+		results.add(RESULT_HEADER);
+		System.out.println(results.get(0));
+
+		for (UploadControlType uploadControlType : settings.getUploadControlTypes()) {
+			for (DownloadControlType downloadControlType : settings.getDownloadControlTypes()) {
+
+				String result = run(uploadControlType, downloadControlType);
+				results.add(result);
+
+				System.out.println(RESULT_HEADER);
+				System.out.println(result);
+			}
+		}
+
+		System.out.println();
+		for (String line : results) {
+			System.out.println(line);
+		}
+		return results;
+	}
+
+	/**
+	 * 指定された同期制御方式で負荷試験を実行し、結果の行を返します.<br/>
+	 * 他の組み合わせの影響を受けないよう、アプリケーションコンテキスト(組み込みDBを含む)は組み合わせごとに起動します.
+	 *
+	 * @param uploadControlType 上り更新同期制御方式
+	 * @param downloadControlType 下り更新同期制御方式
+	 * @return 結果の行
+	 */
+	private String run(UploadControlType uploadControlType, DownloadControlType downloadControlType)
+			throws Exception {
+
+		XmlWebApplicationContext context = new XmlWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.setConfigLocation(CONTEXT_CONFIG_LOCATION);
+		context.refresh();
+
+		try {
+			SyncConfigurationParameter configParam = context.getBean(SyncConfigurationParameter.class);
+			configParam.UPLOAD_CONTROL_TYPE = uploadControlType.name();
+			configParam.DOWNLOAD_CONTROL_TYPE = downloadControlType.name();
+
+			SyncLoadClient client = new SyncLoadClient(context, resourceName);
+			seed(client);
+
+			// 投入時のメトリクスを含めないよう、試験開始時点の値を差し引く
+			Map<String, long[]> lockWaitsBefore = getLockWaits(context.getBean(SyncMetrics.class));
+
+			long start = System.nanoTime();
+			LoadStatistics statistics = simulate(client);
+			double elapsedSeconds = (System.nanoTime() - start) / 1000000000.0;
+
+			Map<String, long[]> lockWaitsAfter = getLockWaits(context.getBean(SyncMetrics.class));
+			long[] uploadLockWaits = subtract(lockWaitsAfter, lockWaitsBefore, configParam.ACTION_FOR_UPLOAD);
+			long[] downloadLockWaits = subtract(lockWaitsAfter, lockWaitsBefore, configParam.ACTION_FOR_DOWNLOAD);
+
+			int requests = statistics.getUploadCount() + statistics.getDownloadCount();
+
+			return String.format(
+					"%-11s %-11s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %7.2f%% %8d %8d %8d %9d %8d %9d",
+					uploadControlType, downloadControlType, requests, requests / elapsedSeconds,
+					statistics.getUploadLatencyMillis(50), statistics.getUploadLatencyMillis(99),
+					statistics.getDownloadLatencyMillis(50), statistics.getDownloadLatencyMillis(99),
+					statistics.getConflictRate() * 100, statistics.getFailures(),
+					statistics.getRejectedUploads() + statistics.getRejectedDownloads(), uploadLockWaits[0],
+					uploadLockWaits[1], downloadLockWaits[0], downloadLockWaits[1]);
+
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * 試験開始前のリソースアイテムを、上り更新リクエストにより投入します.
+	 *
+	 * @param client リクエストの送信クライアント
+	 * @throws IllegalStateException 投入に失敗した場合
+	 */
+	private void seed(SyncLoadClient client) throws Exception {
+
+		String storageId = null;
+		Long lastUploadTime = null;
+
+		for (int start = 0; start < settings.getItems(); start += SEED_BATCH_SIZE) {
+
+			List<Map<String, Object>> messages = new ArrayList<>();
+			for (int i = start; i < Math.min(start + SEED_BATCH_SIZE, settings.getItems()); i++) {
+
+				String itemId = String.format("seed-%08d", i);
+				Map<String, Object> item = new LinkedHashMap<>();
+				item.put("personId", itemId);
+				item.put("name", "person " + itemId);
+				item.put("age", i % 100);
+				item.put("organization", "seed");
+
+				messages.add(client.createUploadMessage(itemId, SyncAction.CREATE, 0L, item));
+			}
+
+			MockHttpServletResponse response = client.upload(storageId, lastUploadTime, messages);
+			if (response.getStatus() / 100 != 2) {
+				throw new IllegalStateException("Failed to seed resource items. : status = " + response.getStatus()
+						+ ", body = " + response.getContentAsString());
+			}
+
+			storageId = client.getStorageId(response);
+			lastUploadTime = client.getSyncTime(response);
+		}
+	}
+
+	/**
+	 * 全端末のリクエストを同時に開始し、全端末の終了後に集計結果をまとめて返します.
+	 *
+	 * @param client リクエストの送信クライアント
+	 * @return 全端末の集計結果
+	 */
+	private LoadStatistics simulate(SyncLoadClient client) throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(settings.getDevices());
+		try {
+			CountDownLatch startLatch = new CountDownLatch(1);
+
+			List<Future<LoadStatistics>> futures = new ArrayList<>();
+			for (int i = 0; i < settings.getDevices(); i++) {
+				futures.add(executor.submit(new SimulatedDevice(client, settings, startLatch, i)));
+			}
+			startLatch.countDown();
+
+			LoadStatistics statistics = new LoadStatistics();
+			for (Future<LoadStatistics> future : futures) {
+				statistics.merge(future.get());
+			}
+			return statistics;
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 負荷試験の対象リソースについて、アクションごとのロック取得回数とロック待ち時間(ミリ秒)を返します.
+	 *
+	 * @param syncMetrics メトリクス
+	 * @return アクションをキー、{ロック取得回数, ロック待ち時間}を値とするMap
+	 */
+	private Map<String, long[]> getLockWaits(SyncMetrics syncMetrics) {
+
+		Map<String, long[]> lockWaits = new LinkedHashMap<>();
+		for (SyncActionMetrics metrics : syncMetrics.getByResourceName(resourceName)) {
+			lockWaits.put(metrics.getAction(),
+					new long[] { metrics.getLockCount(), metrics.getLockWaitTimeMillis() });
+		}
+		return lockWaits;
+	}
+
+	/**
+	 * 指定されたアクションについて、試験終了時点の値から試験開始時点の値を差し引いて返します.
+	 *
+	 * @param after 試験終了時点の値
+	 * @param before 試験開始時点の値
+	 * @param action アクション
+	 * @return {ロック取得回数, ロック待ち時間}
+	 */
+	private static long[] subtract(Map<String, long[]> after, Map<String, long[]> before, String action) {
+
+		long[] result = new long[2];
+		long[] afterValue = after.get(action);
+		long[] beforeValue = before.get(action);
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (afterValue == null ? 0 : afterValue[i]) - (beforeValue == null ? 0 : beforeValue[i]);
+		}
+		return result;
+	}
+}
@@ -30,6 +30,12 @@ public enum DownloadControlType {
 	 */
 	LOCK,
 
+	/**
+	 * 下り更新対象の全リソースアイテムに対して、JVM内の排他ロックを取得します.<br>
+	 * ロックはトランザクションの終了時に解放されます.単一ノード構成でのみ使用できます.
+	 */
+	MEMORY_LOCK,
+
 	/**
 	 * 下り更新において同期制御を行いません.<br>
 	 */
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.config;
+
+import com.htmlhifive.sync.resource.AbstractCrudSyncResource;
+
+/**
+ * {@link AbstractCrudSyncResource}におけるクエリ指定の下り更新の検索方式を表す列挙型.
+ *
+ * @author kishigam
+ */
+public enum DownloadQueryType {
+
+	/**
+	 * リソースアイテムをクエリで検索した後、リソースアイテム共通データを別途検索します.<br>
+	 * ページ分割が設定されている場合は、ページごとの全件検索を避けるためJOINと同じ動作になります.<br>
+	 */
+	SEPARATE,
+
+	/**
+	 * リソースアイテムとリソースアイテム共通データを結合し、最終更新時刻による絞り込みを含めて1回のクエリで検索します.<br>
+	 */
+	JOIN,
+
+	/**
+	 * JOINと同じクエリをレスポンスの書き出し時に実行し、データベースのカーソルから1件ずつ読み出して書き出します.<br>
+	 * 下り更新の件数によらずメモリ使用量が一定になります.ページ分割が設定されている場合はJOINと同じ動作になります.<br>
+	 * 書き出しはリソース処理のトランザクションの外で行われるため、読み出し時点でコミット済のデータが返されます.
+	 */
+	STREAM,
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.config;
+
+import com.htmlhifive.sync.service.SyncClock;
+
+/**
+ * 同期時刻の生成に使用する{@link SyncClock}の種類を表す列挙型.
+ *
+ * @author kishigam
+ */
+public enum SyncClockType {
+
+	/**
+	 * サーバのシステム時刻をそのまま同期時刻とします.
+	 */
+	SYSTEM,
+
+	/**
+	 * システム時刻に論理カウンタを組み合わせたハイブリッド論理時計により、ノード内で狭義単調増加する同期時刻を生成します.<br>
+	 * 発行済の時刻の上限をデータベースに保存するため、再起動後やシステム時刻が戻った場合も時刻は後退しません.
+	 */
+	HYBRID,
+}
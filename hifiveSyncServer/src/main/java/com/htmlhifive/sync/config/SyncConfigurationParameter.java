@@ -51,6 +51,13 @@ public class SyncConfigurationParameter {
 	@Value("${URL_PATH_DOWNLOAD}")
 	public String URL_PATH_DOWNLOAD;
 
+	/**
+	 * 初回同期のためにスナップショットを要求するリクエストであることを示すパスの値.<br/>
+	 * URLのパス部分は、 "/ (リソース名) / (URL_PATH_SNAPSHOTの値)" のようになります.
+	 */
+	@Value("${URL_PATH_SNAPSHOT}")
+	public String URL_PATH_SNAPSHOT;
+
 	/**
 	 * syncリクエストが、上り下りをHTTPメソッドで判定するためのパスの値.<br/>
 	 * URLのパス部分は、 "/ (リソース名) / (URL_PATH_UPLOADまたはURL_PATH_DOWNLOADの値) / (IDなど)" のようになります.
@@ -102,6 +109,34 @@ public class SyncConfigurationParameter {
 	@Value("#{'${PREFIX_METADATA}' + '${CONFLICT_TYPE}'}")
 	public String CONFLICT_TYPE;
 
+	/** syncリクエスト、レスポンスに含まれる「変更シーケンス番号」メタデータのキー名.時刻の代わりに更新履歴のシーケンス番号で下り更新を行う場合に使用します. */
+	@Value("#{'${PREFIX_METADATA}' + '${CHANGE_SEQUENCE}'}")
+	public String CHANGE_SEQUENCE;
+
+	/** syncリクエスト、レスポンスに含まれる「継続トークン」メタデータのキー名.ページ分割された下り更新で次のページを要求するために使用します. */
+	@Value("#{'${PREFIX_METADATA}' + '${CONTINUATION_TOKEN}'}")
+	public String CONTINUATION_TOKEN;
+
+	/** 下り更新処理で生成した「次ページの継続トークン」メタデータのキー名. */
+	@Value("#{'${PREFIX_METADATA}' + '${NEXT_CONTINUATION_TOKEN}'}")
+	public String NEXT_CONTINUATION_TOKEN;
+
+	/** 下り更新処理の事前処理で生成した、レスポンスのETagヘッダに設定する値のメタデータのキー名. */
+	@Value("#{'${PREFIX_METADATA}' + '${RESOURCE_ETAG}'}")
+	public String RESOURCE_ETAG;
+
+	/** 下り更新処理の事前処理で、リクエストのETagが一致したことを示すメタデータのキー名. */
+	@Value("#{'${PREFIX_METADATA}' + '${RESOURCE_NOT_MODIFIED}'}")
+	public String RESOURCE_NOT_MODIFIED;
+
+	/** 上り更新の事前処理でリクエストメッセージをまとめた結果を保持する、コンテキスト情報のキー名. */
+	@Value("#{'${PREFIX_METADATA}' + '${UPLOAD_COALESCER}'}")
+	public String UPLOAD_COALESCER;
+
+	/** 上り更新の事前処理で新規作成をまとめて実行するために生成した情報を保持する、コンテキスト情報のキー名. */
+	@Value("#{'${PREFIX_METADATA}' + '${BULK_CREATE_CONTEXT}'}")
+	public String BULK_CREATE_CONTEXT;
+
 	/** 上り更新リクエストのアクション名. */
 	@Value("${ACTION_FOR_UPLOAD}")
 	public String ACTION_FOR_UPLOAD;
@@ -114,10 +149,22 @@ public class SyncConfigurationParameter {
 	@Value("${ACTION_FOR_GETFORUPDATE}")
 	public String ACTION_FOR_GETFORUPDATE;
 
+	/** スナップショットリクエストのアクション名. */
+	@Value("${ACTION_FOR_SNAPSHOT}")
+	public String ACTION_FOR_SNAPSHOT;
+
 	/** クライアントに返す今回の同期時刻を、実際の同期実行時刻の何秒前とするか. */
 	@Value("${BUFFER_TIME_FOR_DOWNLOAD}")
 	public String BUFFER_TIME_FOR_DOWNLOAD;
 
+	/**
+	 * 変更シーケンス番号による下り更新で、読み取り範囲の終端を確定する際の安全ラグ(ミリ秒).<br/>
+	 * この時間以上前に記録した変更シーケンス番号の最大値を終端とするため、上り更新のトランザクションの最大実行時間より長くする必要があります.
+	 * 0以下の場合、現在の最大値を終端とします(実行中のトランザクションの更新を取得できない場合があります).
+	 */
+	@Value("${CHANGE_SEQUENCE_SAFETY_LAG}")
+	public long CHANGE_SEQUENCE_SAFETY_LAG;
+
 	/** 上り更新制御タイプ. */
 	@Value("${UPLOAD_CONTROL_TYPE}")
 	public String UPLOAD_CONTROL_TYPE;
@@ -125,4 +172,150 @@ public class SyncConfigurationParameter {
 	/** 下り更新制御タイプ. */
 	@Value("${DOWNLOAD_CONTROL_TYPE}")
 	public String DOWNLOAD_CONTROL_TYPE;
+
+	/** 更新されたリソースアイテム共通データを検索する際、1回のクエリ(IN句)で指定する対象リソースアイテムIDの最大数. */
+	@Value("${MODIFIED_QUERY_CHUNK_SIZE}")
+	public int MODIFIED_QUERY_CHUNK_SIZE;
+
+	/** クエリ指定の下り更新における検索方式. */
+	@Value("${DOWNLOAD_QUERY_TYPE}")
+	public String DOWNLOAD_QUERY_TYPE;
+
+	/**
+	 * クエリ指定の下り更新で1回のレスポンスに含めるリソースアイテムの最大数.0以下の場合はページ分割しません.<br>
+	 * ページ分割時は、{@link #DOWNLOAD_QUERY_TYPE}によらずキーセット(最終更新時刻, リソースアイテムID)による結合クエリで1ページ分のみを検索します.
+	 */
+	@Value("${DOWNLOAD_PAGE_SIZE}")
+	public int DOWNLOAD_PAGE_SIZE;
+
+	/** 下り更新結果をデータベースのカーソルから逐次読み出す場合に、一度に読み出す件数. */
+	@Value("${DOWNLOAD_FETCH_SIZE}")
+	public int DOWNLOAD_FETCH_SIZE;
+
+	/** 同期制御にJVM内の排他ロックを使用する場合の、ロックの数(2のべき乗に切り上げられます). */
+	@Value("${MEMORY_LOCK_STRIPES}")
+	public int MEMORY_LOCK_STRIPES;
+
+	/** 同期制御にJVM内の排他ロックを使用する場合の、ロック取得の最大待機時間(ミリ秒). */
+	@Value("${MEMORY_LOCK_TIMEOUT}")
+	public long MEMORY_LOCK_TIMEOUT;
+
+	/** 二重送信判定のため、前回上り更新時刻をメモリ上に保持するストレージIDの最大数.0以下の場合はリクエストごとにデータベースを参照します. */
+	@Value("${UPLOAD_HISTORY_CACHE_SIZE}")
+	public int UPLOAD_HISTORY_CACHE_SIZE;
+
+	/** 同期時刻の生成方式. */
+	@Value("${SYNC_CLOCK_TYPE}")
+	public String SYNC_CLOCK_TYPE;
+
+	/** ハイブリッド論理時計を使用する場合のノードID.指定しない場合はホスト名を使用します. */
+	@Value("${SYNC_CLOCK_NODE_ID}")
+	public String SYNC_CLOCK_NODE_ID;
+
+	/** ハイブリッド論理時計を使用する場合に、発行する同期時刻の上限をデータベースに一度に予約する範囲(ミリ秒).再起動直後の同期時刻は最大でこの範囲だけシステム時刻より先行します. */
+	@Value("${SYNC_CLOCK_RESERVATION}")
+	public long SYNC_CLOCK_RESERVATION;
+
+	/** ハイブリッド論理時計を使用する場合に、リクエストで受け取る時刻として許容するシステム時刻からの最大のずれ(ミリ秒). */
+	@Value("${SYNC_CLOCK_MAX_OFFSET}")
+	public long SYNC_CLOCK_MAX_OFFSET;
+
+	/** ハイブリッド論理時計を使用する場合に、リクエストで受け取った時刻によって同期時刻がシステム時刻より先行することを許容する最大量(ミリ秒). */
+	@Value("${SYNC_CLOCK_MAX_DRIFT}")
+	public long SYNC_CLOCK_MAX_DRIFT;
+
+	/** スナップショットファイルを保存するディレクトリ.指定しない場合、一時ディレクトリ以下に保存します. */
+	@Value("${SNAPSHOT_DIRECTORY}")
+	public String SNAPSHOT_DIRECTORY;
+
+	/**
+	 * スナップショットを再生成する間隔(ミリ秒).0以下の場合、スナップショットを使用しません.<br/>
+	 * スナップショットはクエリ条件を指定しないリクエストにのみ返すため、クエリ条件によって参照範囲を制限するリソースでは使用できません.
+	 */
+	@Value("${SNAPSHOT_INTERVAL}")
+	public long SNAPSHOT_INTERVAL;
+
+	/**
+	 * 下り更新結果のキャッシュに保持する最大総件数.0以下の場合、キャッシュを使用しません.<br/>
+	 * キャッシュの破棄はサーバごとに行われるため、複数のサーバで同じデータベースを更新する構成では使用できません.
+	 */
+	@Value("${DOWNLOAD_CACHE_MAX_ITEMS}")
+	public int DOWNLOAD_CACHE_MAX_ITEMS;
+
+	/** 下り更新結果のキャッシュで、クライアントデータの最終更新時刻を切り捨てる区間の幅(ミリ秒). */
+	@Value("${DOWNLOAD_CACHE_BUCKET}")
+	public long DOWNLOAD_CACHE_BUCKET;
+
+	/**
+	 * 下り更新のレスポンスにETagヘッダを付与し、If-None-Matchヘッダによる条件付き下り更新を受け付ける場合true.<br/>
+	 * リソースの更新の検知はサーバごとに行われるため、複数のサーバで同じデータベースを更新する構成では使用できません.
+	 */
+	@Value("${DOWNLOAD_ETAG_ENABLED}")
+	public boolean DOWNLOAD_ETAG_ENABLED;
+
+	/**
+	 * 多重化された上り更新リクエストで、同じリソースアイテムに対する一連のリクエストメッセージを1つにまとめて実行する場合true.<br/>
+	 * 新規作成から削除までのリクエストメッセージは何も実行しないため、そのリソースアイテムの削除済の共通データは残りません.
+	 */
+	@Value("${UPLOAD_COALESCING_ENABLED}")
+	public boolean UPLOAD_COALESCING_ENABLED;
+
+	/**
+	 * 上り更新で、サーバで保持している内容と同じリソースアイテムの更新を実行しない場合true.<br/>
+	 * リソースアイテムの内容のハッシュ値を共通データに保持し、一致する場合は最終更新時刻を進めずに現在の共通データを返します.
+	 */
+	@Value("${UNCHANGED_UPDATE_SKIP_ENABLED}")
+	public boolean UNCHANGED_UPDATE_SKIP_ENABLED;
+
+	/**
+	 * 上り更新で、リソースアイテム共通データの更新と更新履歴の追加をリクエストの最後にまとめて実行する場合true.<br/>
+	 * 同じリソースアイテムの共通データは最後の内容のみ更新し、JDBCバッチとして実行します.<br/>
+	 * 更新はリクエストの最後(またはコミット前)に実行されるため、制約違反などのエラーは各リクエストメッセージの処理中ではなくその時点で発生し、
+	 * どのリクエストメッセージによるものかを特定したレスポンスは返せません.この場合、リクエスト全体がロールバックされます.<br/>
+	 * また、更新履歴の変更シーケンス番号はallocationSize=1のシーケンスから採番するため、シーケンスの取得は更新履歴ごとに行われ、バッチにはなりません.
+	 */
+	@Value("${COMMON_DATA_WRITE_COALESCING_ENABLED}")
+	public boolean COMMON_DATA_WRITE_COALESCING_ENABLED;
+
+	/**
+	 * 多重化された上り更新で、複数の新規作成(CREATE)をまとめて実行する際に、フラッシュして作成したエンティティを永続化コンテキストから切り離す件数.0以下の場合、まとめて実行しません.<br/>
+	 * リソースアイテムIDの重複は事前に一括で検索し、リソースアイテムと共通データの登録はJDBCバッチとして実行します.
+	 */
+	@Value("${BULK_CREATE_BATCH_SIZE}")
+	public int BULK_CREATE_BATCH_SIZE;
+
+	/**
+	 * 削除済のリソースアイテムの共通データ(トゥームストーン)と共通データの更新履歴を破棄する間隔(ミリ秒).0以下の場合、破棄しません.<br/>
+	 * 破棄したトゥームストーンや更新履歴より前の時刻(変更シーケンス番号)から下り更新を行うクライアントには、全件の同期をやり直すよう410(Gone)を返します.
+	 */
+	@Value("${TOMBSTONE_COMPACTION_INTERVAL}")
+	public long TOMBSTONE_COMPACTION_INTERVAL;
+
+	/** 削除済のリソースアイテムの共通データと、共通データの更新履歴を破棄せずに保持する期間(ミリ秒). */
+	@Value("${TOMBSTONE_RETENTION_PERIOD}")
+	public long TOMBSTONE_RETENTION_PERIOD;
+
+	/** 削除済のリソースアイテムの共通データを破棄する際、1回のトランザクションで破棄する最大数. */
+	@Value("${TOMBSTONE_COMPACTION_BATCH_SIZE}")
+	public int TOMBSTONE_COMPACTION_BATCH_SIZE;
+
+	/** 競合発生時の解決にデフォルトで使用する更新戦略の種類. */
+	@Value("${UPDATE_STRATEGY_TYPE}")
+	public String UPDATE_STRATEGY_TYPE;
+
+	/** 3方向マージによる競合解決を行う場合に、リソースアイテムごとに保持する基準版の最大数. */
+	@Value("${MERGE_BASE_VERSION_COUNT}")
+	public int MERGE_BASE_VERSION_COUNT;
+
+	/** リソース、syncアクションごとの同期処理のメトリクスを記録し、JMXで公開する場合true. */
+	@Value("${SYNC_METRICS_ENABLED}")
+	public boolean SYNC_METRICS_ENABLED;
+
+	/** 同期処理のメトリクスを記録する、リソースとsyncアクションの組み合わせの最大数. */
+	@Value("${SYNC_METRICS_MAX_ENTRIES}")
+	public int SYNC_METRICS_MAX_ENTRIES;
+
+	/** 同期処理のメトリクスを、"/syncmetrics"リソースとしてJSONで公開する場合true. */
+	@Value("${SYNC_METRICS_ENDPOINT_ENABLED}")
+	public boolean SYNC_METRICS_ENDPOINT_ENABLED;
 }
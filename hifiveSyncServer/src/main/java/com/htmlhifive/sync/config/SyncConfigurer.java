@@ -28,7 +28,21 @@ import com.htmlhifive.sync.ctrl.SyncController;
 import com.htmlhifive.sync.resource.DefaultSynchronizer;
 import com.htmlhifive.sync.resource.Synchronizer;
 import com.htmlhifive.sync.resource.update.ClientResolvingStrategy;
+import com.htmlhifive.sync.resource.update.ForceUpdateStrategy;
+import com.htmlhifive.sync.resource.update.ThreeWayMergeStrategy;
+import com.htmlhifive.sync.resource.update.UpdateStrategy;
+import com.htmlhifive.sync.service.ChangeSequenceHighWaterMark;
+import com.htmlhifive.sync.service.DownloadResultCache;
+import com.htmlhifive.sync.service.HybridLogicalClock;
+import com.htmlhifive.sync.service.ResourceChangeWatermark;
+import com.htmlhifive.sync.service.StripedLockTable;
+import com.htmlhifive.sync.service.SyncClock;
+import com.htmlhifive.sync.service.SyncMetrics;
 import com.htmlhifive.sync.service.SyncResourceProcessor;
+import com.htmlhifive.sync.service.SyncSnapshotManager;
+import com.htmlhifive.sync.service.SystemSyncClock;
+import com.htmlhifive.sync.service.TombstoneCompactor;
+import com.htmlhifive.sync.service.UploadHistoryCache;
 
 /**
  * resource frameworkにsync機能を付加する動作設定クラス.<br/>
@@ -51,6 +65,7 @@ public class SyncConfigurer extends ResourceConfigurer {
 	public ResourceController resourceController() {
 		SyncController resourceController = new SyncController();
 		resourceController.setSyncConfigurationParameter(syncConfigurationParameter());
+		resourceController.setSyncClock(syncClock());
 		return setUpResourceController(resourceController);
 	}
 
@@ -64,6 +79,11 @@ public class SyncConfigurer extends ResourceConfigurer {
 		SyncResourceProcessor resourceProcessor = new SyncResourceProcessor();
 		resourceProcessor.setSynchronizer(synchronizer());
 		resourceProcessor.setSyncConfigurationParameter(syncConfigurationParameter());
+		resourceProcessor.setStripedLockTable(stripedLockTable());
+		resourceProcessor.setUploadHistoryCache(uploadHistoryCache());
+		resourceProcessor.setResourceChangeWatermark(resourceChangeWatermark());
+		resourceProcessor.setTombstoneCompactor(tombstoneCompactor());
+		resourceProcessor.setSyncMetrics(syncMetrics());
 		return setUpResourceProcessor(resourceProcessor);
 	}
 
@@ -75,11 +95,127 @@ public class SyncConfigurer extends ResourceConfigurer {
 		DefaultSynchronizer synchronizer = new DefaultSynchronizer();
 
 		synchronizer.setSyncConfigurationParameter(syncConfigurationParameter());
-		synchronizer.setDefaultUpdateStrategy(new ClientResolvingStrategy());
+		synchronizer.setDefaultUpdateStrategy(defaultUpdateStrategy());
+		synchronizer.setDownloadResultCache(downloadResultCache());
+		synchronizer.setResourceChangeWatermark(resourceChangeWatermark());
+		synchronizer.setChangeSequenceHighWaterMark(changeSequenceHighWaterMark());
 
 		return synchronizer;
 	}
 
+	/**
+	 * 競合発生時の解決にデフォルトで使用する更新戦略のBean定義
+	 */
+	@Bean
+	public UpdateStrategy defaultUpdateStrategy() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+
+		switch (UpdateStrategyType.valueOf(param.UPDATE_STRATEGY_TYPE)) {
+			case THREE_WAY_MERGE:
+				return new ThreeWayMergeStrategy(param.MERGE_BASE_VERSION_COUNT);
+			case FORCE_UPDATE:
+				return new ForceUpdateStrategy();
+			case CLIENT_RESOLVING:
+			default:
+				return new ClientResolvingStrategy();
+		}
+	}
+
+	/**
+	 * 同期時刻を生成するオブジェクトのBean定義
+	 */
+	@Bean
+	public SyncClock syncClock() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+
+		switch (SyncClockType.valueOf(param.SYNC_CLOCK_TYPE)) {
+			case HYBRID:
+				return new HybridLogicalClock(param.SYNC_CLOCK_NODE_ID, param.SYNC_CLOCK_RESERVATION,
+						param.SYNC_CLOCK_MAX_OFFSET, param.SYNC_CLOCK_MAX_DRIFT);
+			case SYSTEM:
+			default:
+				return new SystemSyncClock();
+		}
+	}
+
+	/**
+	 * 同期制御に使用するJVM内の排他ロックを管理するオブジェクトのBean定義
+	 */
+	@Bean
+	public StripedLockTable stripedLockTable() {
+		return new StripedLockTable(syncConfigurationParameter().MEMORY_LOCK_STRIPES);
+	}
+
+	/**
+	 * 二重送信判定に使用する前回上り更新時刻のキャッシュのBean定義
+	 */
+	@Bean
+	public UploadHistoryCache uploadHistoryCache() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+		return new UploadHistoryCache(param.UPLOAD_HISTORY_CACHE_SIZE);
+	}
+
+	/**
+	 * 初回同期のためのスナップショットを管理するオブジェクトのBean定義
+	 */
+	@Bean
+	public SyncSnapshotManager syncSnapshotManager() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+		return new SyncSnapshotManager(param.SNAPSHOT_DIRECTORY, param.SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * 下り更新結果のキャッシュのBean定義
+	 */
+	@Bean
+	public DownloadResultCache downloadResultCache() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+		return new DownloadResultCache(param.DOWNLOAD_CACHE_MAX_ITEMS, param.DOWNLOAD_CACHE_BUCKET);
+	}
+
+	/**
+	 * 条件付き下り更新の判定に使用する、リソースごとのウォーターマークのBean定義
+	 */
+	@Bean
+	public ResourceChangeWatermark resourceChangeWatermark() {
+		return new ResourceChangeWatermark();
+	}
+
+	/**
+	 * 変更シーケンス番号による下り更新の読み取り範囲の終端を管理するオブジェクトのBean定義
+	 */
+	@Bean
+	public ChangeSequenceHighWaterMark changeSequenceHighWaterMark() {
+		return new ChangeSequenceHighWaterMark(syncConfigurationParameter().CHANGE_SEQUENCE_SAFETY_LAG);
+	}
+
+	/**
+	 * 削除済のリソースアイテムの共通データを破棄するオブジェクトのBean定義
+	 */
+	@Bean
+	public TombstoneCompactor tombstoneCompactor() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+		return new TombstoneCompactor(param.TOMBSTONE_COMPACTION_INTERVAL, param.TOMBSTONE_RETENTION_PERIOD,
+				param.TOMBSTONE_COMPACTION_BATCH_SIZE);
+	}
+
+	/**
+	 * 同期処理のメトリクスを記録するオブジェクトのBean定義
+	 */
+	@Bean
+	public SyncMetrics syncMetrics() {
+		SyncConfigurationParameter param = syncConfigurationParameter();
+		return new SyncMetrics(param.SYNC_METRICS_ENABLED, param.SYNC_METRICS_MAX_ENTRIES);
+	}
+
+	/**
+	 * sync機能のテーブルのインデックスを起動時に検証するオブジェクトのBean定義
+	 */
+	@Bean
+	public SyncSchemaVerifier syncSchemaVerifier() {
+		return new SyncSchemaVerifier();
+	}
+
 	/**
 	 * sync機能動作設定パラメータオブジェクトのBean定義
 	 */
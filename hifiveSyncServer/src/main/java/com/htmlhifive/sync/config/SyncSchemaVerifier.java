@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+/**
+ * sync機能が使用するテーブルに、下り更新の検索に必要なインデックスが定義されているかを起動時に検証するクラス.<br/>
+ * インデックスが見つからない場合、作成するためのDDLを含む警告ログを出力します.検証に失敗しても起動は継続します.<br/>
+ * スキーマの自動生成(hbm2ddl)が完了した後に検証するよう、アプリケーションコンテキストの初期化完了時に実行します.
+ *
+ * @author kishigam
+ */
+public class SyncSchemaVerifier implements ApplicationListener<ContextRefreshedEvent> {
+
+	private static final Logger LOGGER = Logger.getLogger(SyncSchemaVerifier.class);
+
+	/**
+	 * 検証対象のインデックス定義(インデックス名と、テーブル名、先頭から順にカラム名を格納した配列).
+	 */
+	private static final Map<String, String[]> REQUIRED_INDEXES = new TreeMap<>();
+	static {
+		REQUIRED_INDEXES.put("IDX_RESOURCE_ITEM_COMMON_DATA_TARGET", new String[] { "RESOURCE_ITEM_COMMON_DATA",
+				"resourceName", "targetItemId" });
+		REQUIRED_INDEXES.put("IDX_RESOURCE_ITEM_COMMON_DATA_MODIFIED", new String[] { "RESOURCE_ITEM_COMMON_DATA",
+				"resourceName", "lastModified" });
+		REQUIRED_INDEXES.put("IDX_RESOURCE_ITEM_CHANGE_LOG_SEQUENCE", new String[] { "RESOURCE_ITEM_CHANGE_LOG",
+				"resourceName", "sequence" });
+	}
+
+	/**
+	 * sync機能のテーブルを格納するデータソース.
+	 */
+	@Autowired
+	private DataSource dataSource;
+
+	/**
+	 * 検証済みかどうか.子コンテキストの初期化完了時にも通知されるため、検証は一度だけ行います.
+	 */
+	private boolean verified = false;
+
+	/**
+	 * アプリケーションコンテキストの初期化完了時に、インデックスを検証します.
+	 */
+	@Override
+	public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+
+		if (verified) {
+			return;
+		}
+		verified = true;
+
+		verify();
+	}
+
+	/**
+	 * 必要なインデックスが定義されているかを検証し、見つからないものについて警告ログを出力します.
+	 */
+	public void verify() {
+
+		Connection connection = null;
+		try {
+			connection = DataSourceUtils.getConnection(dataSource);
+			DatabaseMetaData metaData = connection.getMetaData();
+
+			// テーブルごとに、定義されているインデックスのカラム構成を取得しておく
+			Map<String, List<List<String>>> indexColumnsByTable = new HashMap<>();
+
+			for (Map.Entry<String, String[]> required : REQUIRED_INDEXES.entrySet()) {
+
+				String tableName = required.getValue()[0];
+				List<String> columns = Arrays.asList(required.getValue()).subList(1, required.getValue().length);
+
+				List<List<String>> indexColumns = indexColumnsByTable.get(tableName);
+				if (indexColumns == null) {
+					indexColumns = getIndexColumns(metaData, tableName);
+					indexColumnsByTable.put(tableName, indexColumns);
+				}
+
+				if (!hasIndex(indexColumns, columns)) {
+					LOGGER.warn(new StringBuilder().append("[syncfw]Index for sync download is not found. ")
+							.append("Create it to avoid full table scans : CREATE INDEX ").append(required.getKey())
+							.append(" ON ").append(tableName).append(" (")
+							.append(columns.toString().replaceAll("^\\[|\\]$", "")).append(")").toString());
+				}
+			}
+
+		} catch (SQLException | RuntimeException e) {
+			LOGGER.warn("[syncfw]Failed to verify indexes for sync tables : " + e.getMessage());
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	/**
+	 * 指定されたテーブルに定義されているインデックスについて、先頭から順にカラム名を格納したリストを返します.<br/>
+	 * テーブル名の大文字、小文字の扱いはデータベースによって異なるため、指定された名前、大文字、小文字の順に検索します.
+	 *
+	 * @param metaData データベースのメタデータ
+	 * @param tableName テーブル名
+	 * @return インデックスごとのカラム名のリスト
+	 * @throws SQLException
+	 */
+	private List<List<String>> getIndexColumns(DatabaseMetaData metaData, String tableName) throws SQLException {
+
+		for (String name : new String[] { tableName, tableName.toUpperCase(), tableName.toLowerCase() }) {
+
+			Map<String, Map<Integer, String>> columnsByIndex = new HashMap<>();
+
+			try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+				while (rs.next()) {
+					String indexName = rs.getString("INDEX_NAME");
+					String columnName = rs.getString("COLUMN_NAME");
+					if (indexName == null || columnName == null) {
+						continue;
+					}
+
+					Map<Integer, String> columns = columnsByIndex.get(indexName);
+					if (columns == null) {
+						columns = new TreeMap<>();
+						columnsByIndex.put(indexName, columns);
+					}
+					columns.put((int) rs.getShort("ORDINAL_POSITION"), columnName);
+				}
+			}
+
+			if (!columnsByIndex.isEmpty()) {
+				List<List<String>> result = new ArrayList<>();
+				for (Map<Integer, String> columns : columnsByIndex.values()) {
+					result.add(new ArrayList<>(columns.values()));
+				}
+				return result;
+			}
+		}
+
+		return new ArrayList<>();
+	}
+
+	/**
+	 * 指定されたカラムを先頭から順に含むインデックスが存在するときtrueを返します.
+	 *
+	 * @param indexColumns インデックスごとのカラム名のリスト
+	 * @param columns 検証するカラム名のリスト
+	 * @return インデックスが存在する場合true
+	 */
+	private boolean hasIndex(List<List<String>> indexColumns, List<String> columns) {
+
+		for (List<String> index : indexColumns) {
+			if (index.size() < columns.size()) {
+				continue;
+			}
+
+			boolean matched = true;
+			for (int i = 0; i < columns.size(); i++) {
+				if (!index.get(i).equalsIgnoreCase(columns.get(i))) {
+					matched = false;
+					break;
+				}
+			}
+			if (matched) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
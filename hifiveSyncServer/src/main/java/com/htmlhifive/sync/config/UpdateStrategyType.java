@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.config;
+
+import com.htmlhifive.sync.resource.update.UpdateStrategy;
+
+/**
+ * 競合発生時の解決にデフォルトで使用する{@link UpdateStrategy}の種類を表す列挙型.
+ *
+ * @author kishigam
+ */
+public enum UpdateStrategyType {
+
+	/**
+	 * 競合を解決せず、クライアントに判断を求めます.
+	 */
+	CLIENT_RESOLVING,
+
+	/**
+	 * クライアントの内容でサーバのリソースアイテムを上書きします.
+	 */
+	FORCE_UPDATE,
+
+	/**
+	 * クライアントが前回同期した時点の内容(基準版)との3方向マージにより、クライアント、サーバが異なるフィールドを変更した場合は自動的にマージします.<br>
+	 * 同じフィールドを異なる値に変更した場合のみ、競合として扱います.
+	 */
+	THREE_WAY_MERGE,
+}
@@ -35,6 +35,18 @@ public enum UploadControlType {
 	 */
 	SORT,
 
+	/**
+	 * 上り更新対象リソースアイテムをロックせずに取得し、更新時にバージョンを比較する条件付き更新(楽観的ロック)を行います.<br>
+	 * 取得後に他のリクエストによって更新されていた場合は、競合として扱います.
+	 */
+	OPTIMISTIC,
+
+	/**
+	 * 上り更新対象の全リソースアイテムに対して、あらかじめJVM内の排他ロックを取得します.<br>
+	 * ロックはトランザクションの終了時に解放されます.単一ノード構成でのみ使用できます.
+	 */
+	MEMORY_LOCK,
+
 	/**
 	 * 上り更新において同期制御を行いません.
 	 */
@@ -37,7 +37,9 @@ import com.htmlhifive.resourcefw.message.ResponseMessage;
 import com.htmlhifive.resourcefw.message.ResponseMessageContainer;
 import com.htmlhifive.sync.config.SyncConfigurationParameter;
 import com.htmlhifive.sync.exception.SyncUploadDuplicatedException;
+import com.htmlhifive.sync.service.SyncClock;
 import com.htmlhifive.sync.service.SyncRequestCommonData;
+import com.htmlhifive.sync.service.SystemSyncClock;
 
 /**
  * sync機能を追加したresource frameworkのController(Handler).
@@ -51,6 +53,11 @@ public class SyncController extends ResourceController {
 	 */
 	private SyncConfigurationParameter syncConfigurationParameter;
 
+	/**
+	 * 同期時刻を生成するオブジェクト
+	 */
+	private SyncClock syncClock = new SystemSyncClock();
+
 	/**
 	 * リクエスト編集処理.<br/>
 	 * syncリクエスト共通データを事前に生成し、コンテキスト情報として設定します.
@@ -104,6 +111,9 @@ public class SyncController extends ResourceController {
 			throw new GenericResourceException(e);
 		}
 
+		// クライアントが受け取っている時刻より後の同期時刻とするため、リクエストに含まれる時刻を通知する
+		observeClientTime(requestCommon, requestMessages);
+
 		// 同期時刻の生成
 		requestCommon.setSyncTime(generateSyncTime(requestMessages));
 
@@ -154,6 +164,32 @@ public class SyncController extends ResourceController {
 		}
 	}
 
+	/**
+	 * リクエストに含まれる、サーバが以前に生成した時刻(前回上り更新時刻、各リクエストメッセージの最終更新時刻)を同期時刻生成オブジェクトに通知します.<br>
+	 * 数値として解釈できない時刻は無視します(検証はリソース処理の中で行われます).
+	 *
+	 * @param requestCommon syncリクエスト共通データ
+	 * @param requestMessages リクエストメッセージコンテナ
+	 */
+	private void observeClientTime(SyncRequestCommonData requestCommon, RequestMessageContainer requestMessages) {
+
+		if (requestCommon.hasLastUploadTime()) {
+			syncClock.observe(requestCommon.getLastUploadTime());
+		}
+
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+			Object lastModifiedObj = requestMessage.get(syncConfigurationParameter.LAST_MODIFIED);
+			if (lastModifiedObj == null) {
+				continue;
+			}
+			try {
+				syncClock.observe(Long.parseLong(lastModifiedObj.toString()));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+	}
+
 	/**
 	 * ストレージIDを生成します.
 	 *
@@ -173,7 +209,7 @@ public class SyncController extends ResourceController {
 	 */
 	protected long generateSyncTime(RequestMessageContainer requestMessages) {
 
-		return System.currentTimeMillis();
+		return syncClock.now();
 	}
 
 	/**
@@ -219,6 +255,12 @@ public class SyncController extends ResourceController {
 				responseMessages.getContextData(syncConfigurationParameter.STORAGE_ID));
 		headers.put(syncConfigurationParameter.SYNC_TIME,
 				responseMessages.getContextData(syncConfigurationParameter.SYNC_TIME));
+
+		// 下り更新の場合は変更シーケンス番号もヘッダで返す
+		Object changeSequence = responseMessages.getContextData(syncConfigurationParameter.CHANGE_SEQUENCE);
+		if (changeSequence != null) {
+			headers.put(syncConfigurationParameter.CHANGE_SEQUENCE, changeSequence);
+		}
 	}
 
 	/**
@@ -260,4 +302,18 @@ public class SyncController extends ResourceController {
 	public void setSyncConfigurationParameter(SyncConfigurationParameter syncConfigurationParameter) {
 		this.syncConfigurationParameter = syncConfigurationParameter;
 	}
+
+	/**
+	 * @return the syncClock
+	 */
+	public SyncClock getSyncClock() {
+		return syncClock;
+	}
+
+	/**
+	 * @param syncClock the syncClock to set
+	 */
+	public void setSyncClock(SyncClock syncClock) {
+		this.syncClock = syncClock;
+	}
 }
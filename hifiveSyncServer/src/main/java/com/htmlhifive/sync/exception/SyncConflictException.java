@@ -120,4 +120,11 @@ public abstract class SyncConflictException extends ConflictException {
 		this.conflictType = conflictType;
 		this.conflictedItem = conflictedItem;
 	}
+
+	/**
+	 * @return the conflictType
+	 */
+	public SyncAction getConflictType() {
+		return conflictType;
+	}
 }
@@ -16,38 +16,69 @@
  */
 package com.htmlhifive.sync.resource;
 
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 
 import com.htmlhifive.resourcefw.config.MessageMetadata;
 import com.htmlhifive.resourcefw.exception.AbstractResourceException;
 import com.htmlhifive.resourcefw.exception.BadRequestException;
 import com.htmlhifive.resourcefw.exception.ConflictException;
+import com.htmlhifive.resourcefw.exception.ForbiddenException;
 import com.htmlhifive.resourcefw.exception.GenericResourceException;
 import com.htmlhifive.resourcefw.exception.LockedException;
 import com.htmlhifive.resourcefw.exception.NotFoundException;
+import com.htmlhifive.resourcefw.exception.NotImplementedException;
 import com.htmlhifive.resourcefw.exception.NotModifiedException;
 import com.htmlhifive.resourcefw.exception.ServiceUnavailableException;
+import com.htmlhifive.resourcefw.message.MessageSource;
 import com.htmlhifive.resourcefw.message.RequestMessage;
 import com.htmlhifive.resourcefw.message.RequestMessageUtil;
+import com.htmlhifive.resourcefw.message.ResponseMessage;
 import com.htmlhifive.resourcefw.resource.AbstractCrudResource;
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.resourcefw.resource.query.ResourceQuerySpecifications;
+import com.htmlhifive.sync.config.DownloadQueryType;
 import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.config.UploadControlType;
 import com.htmlhifive.sync.exception.SyncConflictException;
 import com.htmlhifive.sync.exception.SyncDuplicateIdConflictException;
 import com.htmlhifive.sync.exception.SyncUpdateConflictException;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.ResourceItemHashUtil;
 import com.htmlhifive.sync.resource.common.SyncAction;
+import com.htmlhifive.sync.resource.update.MergingUpdateStrategy;
 import com.htmlhifive.sync.resource.update.UpdateStrategy;
+import com.htmlhifive.sync.service.DownloadResultCache;
 import com.htmlhifive.sync.service.SyncRequestCommonData;
+import com.htmlhifive.sync.service.SyncSnapshot;
+import com.htmlhifive.sync.service.SyncSnapshotManager;
 
 /**
  * JPA EntityのCRUDアクションにsync機能を付加する抽象リソース実装.<br/>
@@ -59,6 +90,11 @@ import com.htmlhifive.sync.service.SyncRequestCommonData;
  */
 public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T> implements SyncResource {
 
+	/**
+	 * 楽観的ロックによる上り更新で、更新の競合が続いた場合に競合解決を再試行する最大回数
+	 */
+	private static final int MAX_OPTIMISTIC_UPDATE_ATTEMPTS = 3;
+
 	/**
 	 * 下り更新結果オブジェクト(Map)に含むリソースアイテムデータのキー
 	 */
@@ -79,6 +115,32 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 	 */
 	private UpdateStrategy updateStrategy;
 
+	/**
+	 * JPA EntityManager.<br>
+	 * リソースアイテムとリソースアイテム共通データを結合した検索を行うために使用します.
+	 */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * JPA EntityManagerFactory.<br>
+	 * 下り更新結果をレスポンスの書き出し時に逐次読み出すために使用します.
+	 */
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * 初回同期のためのスナップショットを管理するオブジェクト.
+	 */
+	@Autowired(required = false)
+	private SyncSnapshotManager syncSnapshotManager;
+
+	/**
+	 * 下り更新結果のキャッシュ.
+	 */
+	@Autowired(required = false)
+	private DownloadResultCache downloadResultCache;
+
 	/**
 	 * {@link Synchronizer Synchronizer}を使用して同期上り更新を実行します.<br/>
 	 * リクエストメッセージに含まれるsyncアクションに応じて、クライアントのデータをサーバに対して同期します.<br/>
@@ -110,6 +172,10 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 
 			case UPDATE:
 			case DELETE:
+				// 内容が変わらない更新は、リソースアイテムと共通データを更新せず、最終更新時刻も進めない
+				if (isUnchangedUpdate(requestMessage, clientItemCommon, currentItemCommon)) {
+					return currentItemCommon;
+				}
 				currentItemCommon = doUpdateOrDelete(requestMessage, clientItemCommon, currentItemCommon);
 				break;
 
@@ -118,7 +184,36 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 		}
 
 		// sync共通データの更新
-		synchronizer.modify(currentItemCommon);
+		// 楽観的ロックによる更新・削除の場合、条件付き更新により既に更新されている
+		if (!(isOptimisticUpload() && clientItemCommon.getSyncAction() != SyncAction.CREATE)) {
+			currentItemCommon = synchronizer.modify(currentItemCommon);
+		}
+
+		// まとめて新規作成している場合、一定件数ごとにJDBCバッチとしてフラッシュし、作成したエンティティを永続化コンテキストから切り離す
+		// 保留している共通データの更新を先に実行し、切り離しにより失われないようにする
+		// 他のリソースが読み込んだエンティティに影響しないよう、永続化コンテキスト全体は破棄しない
+		BulkCreateContext bulkCreateContext = getBulkCreateContext(requestMessage);
+		if (bulkCreateContext != null) {
+			bulkCreateContext.addCreatedEntity(currentItemCommon);
+			if (bulkCreateContext.countCreated()) {
+				synchronizer.flush();
+				entityManager.flush();
+				for (Object created : bulkCreateContext.takeCreatedEntities()) {
+					entityManager.detach(created);
+				}
+			}
+		}
+
+		// マージによる競合解決を行う場合、同期後のリソースアイテムを次回の競合解決の基準版として記録する
+		UpdateStrategy updateStrategy = getUpdateStrategy();
+		if (updateStrategy instanceof MergingUpdateStrategy) {
+			MergingUpdateStrategy mergingUpdateStrategy = (MergingUpdateStrategy) updateStrategy;
+			if (currentItemCommon.getSyncAction() == SyncAction.DELETE) {
+				mergingUpdateStrategy.removeBaseVersions(currentItemCommon);
+			} else {
+				mergingUpdateStrategy.recordBaseVersion(currentItemCommon, findById(requestMessage));
+			}
+		}
 
 		return currentItemCommon;
 	}
@@ -195,6 +290,19 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 		if (syncAction == SyncAction.CREATE) {
 			ResourceItemCommonDataId commonDataId = (ResourceItemCommonDataId) requestMessage
 					.get(configParam.RESOURCE_ITEM_COMMON_DATA_ID);
+
+			// まとめて新規作成する場合、事前に一括で検索した結果で重複を判定し、登録はまとめて実行する
+			BulkCreateContext bulkCreateContext = getBulkCreateContext(requestMessage);
+			if (bulkCreateContext != null) {
+				if (bulkCreateContext.existsItem(commonDataId)) {
+					throw new SyncDuplicateIdConflictException(SyncAction.DUPLICATE.toString(),
+							findById(requestMessage), configParam, requestMessage);
+				}
+				currentItemCommon = synchronizer.getNewInBatch(commonDataId);
+				bulkCreateContext.markItemCreated(commonDataId);
+				return currentItemCommon;
+			}
+
 			currentItemCommon = synchronizer.getNew(commonDataId);
 
 			// 共通データでIDの重複が発生
@@ -222,10 +330,19 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 		}
 
 		// 取得されていない場合はここで取得
+		// 楽観的ロックの場合はロックせずに取得する
+		// JVM内の排他ロックを取得済みの場合は、データベースのロックは不要
 		ResourceItemCommonDataId commonDataId = (ResourceItemCommonDataId) requestMessage
 				.get(configParam.RESOURCE_ITEM_COMMON_DATA_ID);
 
-		currentItemCommon = synchronizer.getForUpdate(commonDataId);
+		UploadControlType controlType = UploadControlType.valueOf(configParam.UPLOAD_CONTROL_TYPE);
+		if (controlType == UploadControlType.OPTIMISTIC) {
+			currentItemCommon = synchronizer.getForOptimisticUpdate(commonDataId);
+		} else if (controlType == UploadControlType.MEMORY_LOCK) {
+			currentItemCommon = synchronizer.getCommon(commonDataId);
+		} else {
+			currentItemCommon = synchronizer.getForUpdate(commonDataId);
+		}
 
 		// 空の場合はNotFound
 		if (currentItemCommon == null) {
@@ -255,7 +372,9 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 
 		String targetItemId = null;
 		try {
-			targetItemId = insert(requestMessage);
+			BulkCreateContext bulkCreateContext = getBulkCreateContext(requestMessage);
+			targetItemId = bulkCreateContext != null ? insertInBatch(requestMessage, bulkCreateContext)
+					: insert(requestMessage);
 		} catch (ConflictException e) {
 			// syncのID重複例外に変換
 			throw new SyncDuplicateIdConflictException(e, findById(requestMessage), configParam, requestMessage);
@@ -263,14 +382,102 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 
 		currentItemCommon.setTargetItemId(targetItemId);
 		currentItemCommon.modify(clientItemCommon.getSyncAction(), requestCommon.getSyncTime());
+		currentItemCommon.setContentHash(hashItem(requestMessage));
 
 		return currentItemCommon;
 	}
 
+	/**
+	 * まとめて新規作成する対象のリクエストメッセージの場合、上り更新の事前処理で生成された情報を返します.<br/>
+	 * 対象でない場合はnullを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return まとめて新規作成するための情報
+	 */
+	private BulkCreateContext getBulkCreateContext(RequestMessage requestMessage) {
+
+		BulkCreateContext bulkCreateContext = (BulkCreateContext) requestMessage.get(synchronizer
+				.getSyncConfigurationParameter().BULK_CREATE_CONTEXT);
+		if (bulkCreateContext == null || !bulkCreateContext.isTarget(requestMessage)) {
+			return null;
+		}
+		return bulkCreateContext;
+	}
+
+	/**
+	 * リクエストメッセージの情報でリソースアイテムを新規生成します.<br/>
+	 * {@link #insert(RequestMessage)}と異なり、存在確認はリソースの対象リクエストメッセージについて一括で行い、フラッシュはまとめて行います.
+	 * そのため、他のリクエストにより同時に作成された場合の一意制約違反は、フラッシュ時にリクエスト全体の失敗となります.<br/>
+	 * 永続化に失敗した場合は、{@link #insert(RequestMessage)}と同様に{@link ConflictException}をスローします.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @param bulkCreateContext まとめて新規作成するための情報
+	 * @return 生成したリソースアイテムのID
+	 */
+	private String insertInBatch(RequestMessage requestMessage, BulkCreateContext bulkCreateContext)
+			throws BadRequestException, ConflictException {
+
+		String resourceName = ((ResourceItemCommonDataId) requestMessage.get(synchronizer
+				.getSyncConfigurationParameter().RESOURCE_ITEM_COMMON_DATA_ID)).getResourceName();
+
+		Set<String> existingTargetItemIds = bulkCreateContext.getExistingTargetItemIds(resourceName);
+		if (existingTargetItemIds == null) {
+			existingTargetItemIds = findExistingTargetItemIds(bulkCreateContext.getMessages(resourceName));
+			bulkCreateContext.setExistingTargetItemIds(resourceName, existingTargetItemIds);
+		}
+
+		String id = getId(requestMessage);
+		if (existingTargetItemIds.contains(id)) {
+			throw new BadRequestException("Resource item already exists : " + id, requestMessage);
+		}
+
+		T item = RequestMessageUtil.extractObject(requestMessage, getItemType(), getIdFieldName(), id);
+		try {
+			entityManager.persist(item);
+		} catch (PersistenceException e) {
+			throw new ConflictException("Failed to insert item : " + item, e, requestMessage);
+		}
+		existingTargetItemIds.add(id);
+		bulkCreateContext.addCreatedEntity(item);
+
+		return id;
+	}
+
+	/**
+	 * 指定されたリクエストメッセージが新規作成するリソースアイテムのうち、既に存在するもののIDを返します.<br/>
+	 * IN句で指定する最大数ごとに、まとめて検索します.
+	 *
+	 * @param requestMessages リクエストメッセージのリスト
+	 * @return リソースアイテムが既に存在するID
+	 */
+	private Set<String> findExistingTargetItemIds(List<RequestMessage> requestMessages) {
+
+		List<String> idList = new ArrayList<>();
+		for (RequestMessage requestMessage : requestMessages) {
+			idList.add(getId(requestMessage));
+		}
+
+		int chunkSize = synchronizer.getSyncConfigurationParameter().MODIFIED_QUERY_CHUNK_SIZE;
+		if (chunkSize <= 0) {
+			chunkSize = Math.max(idList.size(), 1);
+		}
+
+		Set<String> existingIds = new HashSet<>();
+		for (int from = 0; from < idList.size(); from += chunkSize) {
+			List<String> chunk = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+			for (T item : getRepository().findAll(chunk)) {
+				existingIds.add(getIdFieldValue(item));
+			}
+		}
+		return existingIds;
+	}
+
 	/**
 	 * リソースアイテムの更新をサーバに同期する処理を実行し、処理後のリソースアイテム共通データを返します.<br/>
 	 * 先に他のリクエストにより更新されていた場合、{@link UpdateStrategy}による競合解決を行います.<br/>
-	 * その結果、リクエストとは異なるアクションが実行されることがあります.
+	 * その結果、リクエストとは異なるアクションが実行されることがあります.<br/>
+	 * 楽観的ロックの場合、リソースアイテムの更新前に共通データを条件付きで更新します.
+	 * 取得後に他のリクエストにより更新されていた場合は、最新の共通データを取得し直して競合解決を再度行います.
 	 *
 	 * @param requestMessage リクエストメッセージ
 	 * @param clientItemCommon リクエストされた対象リソースアイテムの共通データ
@@ -287,21 +494,31 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 				.get(configParam.REQUEST_COMMON_DATA);
 
 		// 競合検出と解決の試行
-		SyncAction resolvedSyncAction = clientItemCommon.getSyncAction();
-		if (synchronizer.isConflicted(clientItemCommon, currentItemCommon, requestCommon)) {
-
-			T clientItem = RequestMessageUtil.extractObject(requestMessage, getItemType(), getIdFieldName(),
-					getId(requestMessage));
-
-			Object currentItem = findById(requestMessage);
-
-			// UpdateStrategyの設定がない場合にデフォルトを使用するため必ずgetUpdateStrategyを使用すること
-			resolvedSyncAction = getUpdateStrategy().resolveConflict(clientItemCommon, clientItem, currentItemCommon,
-					currentItem);
-
-			if (resolvedSyncAction == SyncAction.CONFLICT) {
-				throw new SyncUpdateConflictException(resolvedSyncAction.toString(), currentItem, configParam,
-						requestMessage);
+		SyncAction resolvedSyncAction = resolveSyncAction(requestMessage, clientItemCommon, currentItemCommon,
+				requestCommon);
+		applyContentHash(requestMessage, currentItemCommon, resolvedSyncAction);
+
+		// 楽観的ロックの場合、リソースアイテムの更新前に共通データを条件付きで更新する
+		if (isOptimisticUpload()) {
+
+			int attempts = 1;
+			currentItemCommon.modify(resolvedSyncAction, requestCommon.getSyncTime());
+			while (!synchronizer.modifyIfUnchanged(currentItemCommon)) {
+
+				// 他のリクエストにより先に更新されたため、最新の共通データで競合解決をやり直す
+				currentItemCommon = synchronizer.getForOptimisticUpdate(currentItemCommon.getId());
+				if (currentItemCommon == null) {
+					throw new NotFoundException("Sync target resource item is not found.", requestMessage);
+				}
+				if (attempts++ >= MAX_OPTIMISTIC_UPDATE_ATTEMPTS) {
+					throw new SyncUpdateConflictException(SyncAction.CONFLICT.toString(), findById(requestMessage),
+							configParam, requestMessage);
+				}
+
+				resolvedSyncAction = resolveSyncAction(requestMessage, clientItemCommon, currentItemCommon,
+						requestCommon);
+				applyContentHash(requestMessage, currentItemCommon, resolvedSyncAction);
+				currentItemCommon.modify(resolvedSyncAction, requestCommon.getSyncTime());
 			}
 		}
 
@@ -324,9 +541,134 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 		return currentItemCommon;
 	}
 
+	/**
+	 * リソースアイテム共通データのバージョン比較により競合を検出し、競合している場合は{@link UpdateStrategy}により解決します.<br/>
+	 * 解決した結果、実行すべき同期アクションを返します.解決できない場合は{@link SyncUpdateConflictException}をスローします.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @param clientItemCommon リクエストされた対象リソースアイテムの共通データ
+	 * @param currentItemCommon サーバ管理されている対象リソースアイテムの共通データ
+	 * @param requestCommon syncリクエスト共通データ
+	 * @return 実行すべき同期アクション
+	 */
+	private SyncAction resolveSyncAction(RequestMessage requestMessage, ResourceItemCommonData clientItemCommon,
+			ResourceItemCommonData currentItemCommon, SyncRequestCommonData requestCommon) throws BadRequestException,
+			NotFoundException, LockedException, SyncConflictException {
+
+		if (!synchronizer.isConflicted(clientItemCommon, currentItemCommon, requestCommon)) {
+			return clientItemCommon.getSyncAction();
+		}
+
+		T clientItem = RequestMessageUtil.extractObject(requestMessage, getItemType(), getIdFieldName(),
+				getId(requestMessage));
+
+		Object currentItem = findById(requestMessage);
+
+		// UpdateStrategyの設定がない場合にデフォルトを使用するため必ずgetUpdateStrategyを使用すること
+		UpdateStrategy updateStrategy = getUpdateStrategy();
+		SyncAction resolvedSyncAction = updateStrategy.resolveConflict(clientItemCommon, clientItem,
+				currentItemCommon, currentItem);
+
+		if (resolvedSyncAction == SyncAction.CONFLICT) {
+			throw new SyncUpdateConflictException(resolvedSyncAction.toString(), currentItem,
+					synchronizer.getSyncConfigurationParameter(), requestMessage);
+		}
+
+		// マージされた場合、マージ結果のリソースアイテムで更新されるようリクエストメッセージに書き戻す
+		if (resolvedSyncAction == SyncAction.UPDATE && updateStrategy instanceof MergingUpdateStrategy) {
+			BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(clientItem);
+			for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+				String propName = descriptor.getName();
+				if (wrapper.isReadableProperty(propName) && wrapper.isWritableProperty(propName)) {
+					requestMessage.put(propName, wrapper.getPropertyValue(propName), MessageSource.RESOURCE);
+				}
+			}
+		}
+
+		return resolvedSyncAction;
+	}
+
+	/**
+	 * 内容が変わらない更新のスキップが有効で、リクエストされたリソースアイテムの内容がサーバで保持している内容と同じ更新の場合、trueを返します.<br/>
+	 * 共通データに内容のハッシュ値が保持されていない場合(同期以外で変更された場合など)はfalseを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @param clientItemCommon リクエストされた対象リソースアイテムの共通データ
+	 * @param currentItemCommon サーバ管理されている対象リソースアイテムの共通データ
+	 * @return 内容が変わらない更新の場合true
+	 */
+	private boolean isUnchangedUpdate(RequestMessage requestMessage, ResourceItemCommonData clientItemCommon,
+			ResourceItemCommonData currentItemCommon) throws BadRequestException {
+
+		if (!synchronizer.getSyncConfigurationParameter().UNCHANGED_UPDATE_SKIP_ENABLED
+				|| clientItemCommon.getSyncAction() != SyncAction.UPDATE
+				|| currentItemCommon.getSyncAction() == SyncAction.DELETE || currentItemCommon.getContentHash() == null) {
+			return false;
+		}
+
+		return currentItemCommon.getContentHash().equals(hashItem(requestMessage));
+	}
+
+	/**
+	 * 実行する同期アクションに応じて、更新後のリソースアイテムの内容のハッシュ値を共通データに設定します.<br/>
+	 * 何も実行しない場合は、保持しているハッシュ値をそのまま使用します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @param currentItemCommon サーバ管理されている対象リソースアイテムの共通データ
+	 * @param resolvedSyncAction 実行する同期アクション
+	 */
+	private void applyContentHash(RequestMessage requestMessage, ResourceItemCommonData currentItemCommon,
+			SyncAction resolvedSyncAction) throws BadRequestException {
+
+		switch (resolvedSyncAction) {
+			case UPDATE:
+				currentItemCommon.setContentHash(hashItem(requestMessage));
+				break;
+			case DELETE:
+				currentItemCommon.setContentHash(null);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * リクエストメッセージに含まれるリソースアイテムの内容のハッシュ値を返します.<br/>
+	 * 内容が変わらない更新のスキップが無効の場合、ハッシュ値を計算できない場合はnullを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return リソースアイテムの内容のハッシュ値
+	 */
+	private String hashItem(RequestMessage requestMessage) throws BadRequestException {
+
+		if (!synchronizer.getSyncConfigurationParameter().UNCHANGED_UPDATE_SKIP_ENABLED) {
+			return null;
+		}
+
+		T item = RequestMessageUtil.extractObject(requestMessage, getItemType(), getIdFieldName(),
+				getId(requestMessage));
+		try {
+			return ResourceItemHashUtil.hashItem(item);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 上り更新制御タイプとして楽観的ロックが設定されているときtrueを返します.
+	 *
+	 * @return 楽観的ロックの場合true
+	 */
+	private boolean isOptimisticUpload() {
+
+		String controlType = synchronizer.getSyncConfigurationParameter().UPLOAD_CONTROL_TYPE;
+		return UploadControlType.valueOf(controlType) == UploadControlType.OPTIMISTIC;
+	}
+
 	/**
 	 * {@link Synchronizer Synchronizer}を使用して同期下り更新を実行します.<br/>
-	 * クライアントが持っているデータの最終更新時刻以降に更新されたサーバデータがあれば、それをクライアントに返すことで同期します.
+	 * クライアントが持っているデータの最終更新時刻以降に更新されたサーバデータがあれば、それをクライアントに返すことで同期します.<br/>
+	 * 変更シーケンス番号が指定されている場合は、時刻の代わりに、そのシーケンス番号以降に更新されたサーバデータを返します.
 	 *
 	 * @param requestMessage リクエストメッセージ
 	 * @return 下り更新結果の
@@ -353,13 +695,362 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 
 		MessageMetadata messageMetadata = requestMessage.getMessageMetadata();
 
-		// queryがあればdownloadByQuery,なければdownloadById
+		// ETagが一致した場合も、通常の下り更新と同様に読み取りロックを確認してから未更新とする
+		// 確認の対象は、IDによる下り更新ではそのID、クエリによる下り更新ではクエリ条件と最終更新時刻に該当するアイテムのみとする
 		Object query = requestMessage.get(messageMetadata.QUERY);
+		if (Boolean.TRUE.equals(requestMessage.get(configParam.RESOURCE_NOT_MODIFIED))) {
+			if (query == null) {
+				checkCanRead(requestMessage, getId(requestMessage));
+			} else {
+				checkCanReadByJoinQuery(resourceName, modifiedSince, requestMessage);
+			}
+			throw new NotModifiedException("Resource is not modified. : " + resourceName, requestMessage);
+		}
+
+		// 変更シーケンス番号が指定されていればdownloadByChangeSequence
+		Object changeSequenceObj = requestMessage.get(configParam.CHANGE_SEQUENCE);
+		if (changeSequenceObj != null) {
+			return downloadByChangeSequence(resourceName, changeSequenceObj, requestMessage);
+		}
+
+		// queryがあればdownloadByQuery,なければdownloadById
 		if (query == null) {
 			return downloadById(resourceName, modifiedSince, requestMessage);
 		}
 
-		return downloadByQuery(resourceName, modifiedSince, requestMessage);
+		return downloadByQueryWithCache(resourceName, modifiedSince, requestMessage);
+	}
+
+	/**
+	 * 下り更新結果のキャッシュを使用して、クエリを指定した下り更新を実行します.<br/>
+	 * キャッシュを使用する場合、クライアントデータの最終更新時刻を区間の先頭に切り捨てて実行し、その結果をキャッシュします.<br/>
+	 * キャッシュから返す場合も、読み取りロックの確認はリクエストごとに行います.
+	 *
+	 * @param resourceName リソース名
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @param requestMessage リクエストメッセージ
+	 * @return 下り更新結果のリソースアイテムオブジェクトのコレクション
+	 */
+	@SuppressWarnings("unchecked")
+	private Object downloadByQueryWithCache(String resourceName, long modifiedSince, RequestMessage requestMessage)
+			throws BadRequestException, LockedException, NotModifiedException, NotFoundException {
+
+		if (!isDownloadResultCacheable(requestMessage)) {
+			return downloadByQuery(resourceName, modifiedSince, requestMessage);
+		}
+
+		// 条件の順序に関わらず同じキーになるよう、条件名でソートする
+		String query = new TreeMap<>(getQueryConditions(requestMessage)).toString();
+		long bucket = downloadResultCache.toBucket(modifiedSince);
+
+		List<Map<String, Object>> cached = downloadResultCache.get(resourceName, query, bucket);
+		if (cached != null) {
+			List<T> itemList = new ArrayList<>();
+			for (Map<String, Object> result : cached) {
+				Object item = result.get(DOWNLOAD_RESULT_ITEM_KEY);
+				if (getItemType().isInstance(item)) {
+					itemList.add(getItemType().cast(item));
+				}
+			}
+			checkCanRead(requestMessage, itemList);
+
+			return cached;
+		}
+
+		// 生成中にキャッシュが破棄された場合は、結果をキャッシュしない
+		long generation = downloadResultCache.getGeneration(resourceName);
+		Object result = downloadByQuery(resourceName, bucket, requestMessage);
+
+		// 下り更新結果オブジェクト(Map)のListのみキャッシュする
+		if (!(result instanceof List)) {
+			return result;
+		}
+		List<?> resultList = (List<?>) result;
+		if (!resultList.isEmpty() && !(resultList.get(0) instanceof Map)) {
+			return result;
+		}
+
+		return downloadResultCache.put(resourceName, query, bucket, generation,
+				(List<Map<String, Object>>) resultList);
+	}
+
+	/**
+	 * 下り更新結果のキャッシュを使用できる場合trueを返します.<br/>
+	 * 事前に共通データを取得している場合、ページ分割する場合、逐次読み出しの場合は使用しません.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return キャッシュを使用できる場合true
+	 */
+	private boolean isDownloadResultCacheable(RequestMessage requestMessage) {
+
+		if (downloadResultCache == null || !downloadResultCache.isEnabled()) {
+			return false;
+		}
+
+		SyncConfigurationParameter configParam = synchronizer.getSyncConfigurationParameter();
+
+		return requestMessage.get(configParam.RESOURCE_ITEM_COMMON_DATA) == null
+				&& configParam.DOWNLOAD_PAGE_SIZE <= 0
+				&& DownloadQueryType.valueOf(configParam.DOWNLOAD_QUERY_TYPE) != DownloadQueryType.STREAM;
+	}
+
+	/**
+	 * 初回同期を行うクライアントのために、リソースの全リソースアイテムを含むスナップショットを返します.<br/>
+	 * スナップショットは事前に生成されたgzip圧縮済のJSONファイルであり、そのままレスポンスボディとして書き出します.<br/>
+	 * クライアントは、返された同期時刻(または変更シーケンス番号)を起点とする下り更新で、スナップショット生成以降の更新を取得します.<br/>
+	 * スナップショットは全リソースアイテムを含むため、クエリ条件が指定された(またはリソースが条件を付加する)リクエストには返しません.
+	 * また、通常の下り更新と同様に、読み取りロックされたリソースアイテムがある場合は返しません.<br/>
+	 * スナップショットがまだ生成されていない場合は、生成を開始して503を返します.クライアントは通常の下り更新を行うか、時間をおいて再度要求します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return スナップショットファイルをボディとするレスポンスメッセージ
+	 * @throws AbstractResourceException
+	 */
+	public Object snapshot(RequestMessage requestMessage) throws AbstractResourceException {
+
+		if (syncSnapshotManager == null || !syncSnapshotManager.isEnabled()) {
+			throw new NotImplementedException("Snapshot is not enabled.", requestMessage);
+		}
+
+		SyncConfigurationParameter configParam = synchronizer.getSyncConfigurationParameter();
+		String resourceName = ((ResourceItemCommonDataId) requestMessage.get(configParam.RESOURCE_ITEM_COMMON_DATA_ID))
+				.getResourceName();
+
+		// クエリ条件による参照範囲の制限をスナップショットには適用できないため、条件のないリクエストにのみ返す
+		if (!getQueryConditions(requestMessage).isEmpty()) {
+			throw new ForbiddenException("Snapshot cannot be used with query conditions. : " + resourceName,
+					requestMessage);
+		}
+
+		// 下り更新と同様に、読み取りロックを確認する
+		checkCanReadByJoinQuery(resourceName, 0L, requestMessage);
+
+		SyncSnapshot snapshot;
+		FileChannel channel;
+		try {
+			snapshot = syncSnapshotManager.getSnapshot(resourceName, this);
+			if (snapshot == null) {
+				throw new ServiceUnavailableException("Snapshot is being generated. : " + resourceName, requestMessage);
+			}
+			channel = snapshot.open();
+		} catch (IOException e) {
+			throw new ServiceUnavailableException("Failed to prepare snapshot. : " + resourceName, e, requestMessage);
+		}
+
+		// レスポンスの同期時刻、変更シーケンス番号はスナップショット生成時のものとする
+		SyncRequestCommonData requestCommon = (SyncRequestCommonData) requestMessage
+				.get(configParam.REQUEST_COMMON_DATA);
+		requestCommon.setSyncTime(snapshot.getSyncTime());
+		requestCommon.setChangeSequence(snapshot.getChangeSequence());
+
+		ResponseMessage responseMessage = new ResponseMessage(requestMessage);
+		MessageMetadata messageMetadata = responseMessage.getMessageMetadata();
+
+		Map<String, Object> headers = new HashMap<>();
+		headers.put(messageMetadata.HTTP_HEADER_CONTENT_TYPE, "application/json;charset=utf-8");
+		headers.put(messageMetadata.HTTP_HEADER_CONTENT_ENCODING, "gzip");
+		responseMessage.put(messageMetadata.RESPONSE_HEADER, headers);
+
+		responseMessage.put(messageMetadata.RESPONSE_STATUS, ResourceActionStatus.OK);
+		responseMessage.put(messageMetadata.RESPONSE_BODY, channel);
+
+		return responseMessage;
+	}
+
+	/**
+	 * スナップショットに書き出す、リソースの全リソースアイテム(削除済のものを除く)とその共通データを逐次読み出す結果を生成します.<br/>
+	 * 特定のユーザーからのリクエストではないため、クエリ条件や読み取りロックの確認は行いません.これらは{@link #snapshot(RequestMessage)}で返す際に確認します.
+	 *
+	 * @param resourceName リソース名
+	 * @return スナップショットに書き出す下り更新結果
+	 */
+	public StreamingDownloadResult createSnapshotResult(String resourceName) {
+
+		CriteriaBuilder builder = entityManagerFactory.getCriteriaBuilder();
+		CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+		Root<T> itemRoot = query.from(getItemType());
+		Root<ResourceItemCommonData> commonRoot = query.from(ResourceItemCommonData.class);
+
+		query.multiselect(itemRoot, commonRoot)
+				.where(builder.equal(commonRoot.get("id").get("resourceName"), resourceName),
+						builder.equal(commonRoot.get("targetItemId"), itemRoot.get(getIdFieldName())),
+						builder.notEqual(commonRoot.get("syncAction"), SyncAction.DELETE))
+				.orderBy(builder.asc(commonRoot.get("targetItemId")));
+
+		return new StreamingDownloadResult(entityManagerFactory, query,
+				synchronizer.getSyncConfigurationParameter().DOWNLOAD_FETCH_SIZE) {
+
+			@Override
+			protected Map<String, Object> convert(Object[] row) {
+
+				Map<String, Object> result = new HashMap<>();
+				result.put(DOWNLOAD_RESULT_ITEM_KEY, row[0]);
+				result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, row[1]);
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * 変更シーケンス番号を指定して下り更新を実行します.<br/>
+	 * 指定されたシーケンス番号より後、かつこのリクエストで確定した最新のシーケンス番号までに更新されたリソースアイテムが対象となります.<br/>
+	 * IDが指定されている場合はそのリソースアイテムのみ、クエリが指定されている場合はクエリ結果に含まれるリソースアイテムと削除済のリソースアイテムが対象となります.<br/>
+	 * 結果が空の場合、ID指定時は{@link NotModifiedException}がスローされ、それ以外は空のリストを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param changeSequenceObj クライアントが前回の下り更新で取得した変更シーケンス番号
+	 * @param requestMessage リクエストメッセージ
+	 * @return 下り更新結果のリソースアイテムオブジェクト、あるいはそのコレクション
+	 * @throws AbstractResourceException
+	 */
+	private Object downloadByChangeSequence(String resourceName, Object changeSequenceObj,
+			RequestMessage requestMessage) throws AbstractResourceException {
+
+		SyncConfigurationParameter configParam = synchronizer.getSyncConfigurationParameter();
+
+		long afterSequence;
+		try {
+			afterSequence = Long.parseLong(changeSequenceObj.toString());
+		} catch (NumberFormatException e) {
+			throw new BadRequestException("Failed to parse change sequence. : " + changeSequenceObj, requestMessage);
+		}
+
+		// 読み取り範囲の終端はpreProcessで確定されている
+		SyncRequestCommonData requestCommon = (SyncRequestCommonData) requestMessage
+				.get(configParam.REQUEST_COMMON_DATA);
+		Long upToSequence = requestCommon.getChangeSequence();
+		if (upToSequence == null) {
+			upToSequence = Math.max(synchronizer.getLatestChangeSequence(), afterSequence);
+			requestCommon.setChangeSequence(upToSequence);
+		}
+
+		MessageMetadata messageMetadata = requestMessage.getMessageMetadata();
+		Object query = requestMessage.get(messageMetadata.QUERY);
+
+		// 初回の同期は、保持期間の経過により削除された更新履歴があっても全件を返すよう、時刻による下り更新で行う
+		if (afterSequence <= 0) {
+			return query == null ? downloadById(resourceName, 0L, requestMessage) : downloadByQueryWithCache(
+					resourceName, 0L, requestMessage);
+		}
+
+		List<ResourceItemCommonData> changedCommonList = synchronizer.getChanged(resourceName, afterSequence,
+				upToSequence);
+
+		if (query == null) {
+
+			// ID指定の場合、そのリソースアイテムの共通データのみ対象とする
+			String targetItemId = getId(requestMessage);
+			for (ResourceItemCommonData common : changedCommonList) {
+				if (!common.getTargetItemId().equals(targetItemId)) {
+					continue;
+				}
+				if (common.getSyncAction() == SyncAction.DELETE) {
+					return createDownloadResult(common);
+				}
+
+				// 削除されていなければ、アクセス権限の確認を含めてリソースアイテムを取得する
+				Map<String, Object> result = new HashMap<>();
+				result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, common);
+				result.put(DOWNLOAD_RESULT_ITEM_KEY, findById(requestMessage));
+				return result;
+			}
+			throw new NotModifiedException(requestMessage);
+		}
+
+		// クエリ指定の場合、クエリ結果に含まれるリソースアイテムのIDを収集する
+		Object itemObj = findByQuery(requestMessage);
+		if (!(itemObj instanceof List)) {
+			return itemObj;
+		}
+		Set<String> queriedIdSet = new HashSet<>();
+		for (Object item : (List<?>) itemObj) {
+			if (getItemType().isInstance(item)) {
+				queriedIdSet.add(getIdFieldValue(getItemType().cast(item)));
+			}
+		}
+
+		// 削除済のリソースアイテムはクエリ結果に含まれないため、すべて返す
+		List<ResourceItemCommonData> targetCommonList = new ArrayList<>();
+		for (ResourceItemCommonData common : changedCommonList) {
+			if (common.getSyncAction() == SyncAction.DELETE || queriedIdSet.contains(common.getTargetItemId())) {
+				targetCommonList.add(common);
+			}
+		}
+
+		return createDownloadResults(targetCommonList);
+	}
+
+	/**
+	 * リソースアイテム共通データのリストから、下り更新結果オブジェクト(Map)のリストを生成します.<br/>
+	 * 削除されていないリソースアイテムは、1件ずつではなくチャンク単位でまとめてリポジトリから取得します.<br/>
+	 * 結果は共通データのリストと同じ順序になります.
+	 *
+	 * @param commonList リソースアイテム共通データのリスト
+	 * @return 下り更新結果オブジェクトのリスト
+	 */
+	private List<Map<String, Object>> createDownloadResults(List<ResourceItemCommonData> commonList) {
+
+		// 削除されていないリソースアイテムのIDを収集する
+		List<String> targetItemIdList = new ArrayList<>();
+		for (ResourceItemCommonData common : commonList) {
+			if (common.getSyncAction() != SyncAction.DELETE) {
+				targetItemIdList.add(common.getTargetItemId());
+			}
+		}
+
+		// IN句で指定する最大数ごとに、まとめて取得する
+		int chunkSize = synchronizer.getSyncConfigurationParameter().MODIFIED_QUERY_CHUNK_SIZE;
+		if (chunkSize <= 0) {
+			chunkSize = Math.max(targetItemIdList.size(), 1);
+		}
+
+		Map<String, T> itemMap = new HashMap<>();
+		for (int from = 0; from < targetItemIdList.size(); from += chunkSize) {
+			List<String> chunk = targetItemIdList.subList(from, Math.min(from + chunkSize, targetItemIdList.size()));
+			for (T item : getRepository().findAll(chunk)) {
+				itemMap.put(getIdFieldValue(item), item);
+			}
+		}
+
+		// 共通データの順に、リソースアイテムと組み合わせる
+		List<Map<String, Object>> resultList = new ArrayList<>();
+		for (ResourceItemCommonData common : commonList) {
+
+			Map<String, Object> result = new HashMap<>();
+			result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, common);
+
+			// 削除済みであればIDだけのリソースアイテムを返す
+			if (common.getSyncAction() == SyncAction.DELETE) {
+				result.put(DOWNLOAD_RESULT_ITEM_KEY, createDeletedItem(common));
+			} else {
+				result.put(DOWNLOAD_RESULT_ITEM_KEY, itemMap.get(common.getTargetItemId()));
+			}
+
+			resultList.add(result);
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * リソースアイテム共通データから、リソースアイテムデータとその共通データを含む下り更新結果オブジェクト(Map)を生成します.
+	 *
+	 * @param common リソースアイテム共通データ
+	 * @return 下り更新結果オブジェクト
+	 */
+	private Map<String, Object> createDownloadResult(ResourceItemCommonData common) {
+
+		Map<String, Object> result = new HashMap<>();
+		result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, common);
+
+		// 削除済みであればIDだけのリソースアイテムを返す
+		if (common.getSyncAction() == SyncAction.DELETE) {
+			result.put(DOWNLOAD_RESULT_ITEM_KEY, createDeletedItem(common));
+		} else {
+			result.put(DOWNLOAD_RESULT_ITEM_KEY, getRepository().findOne(common.getTargetItemId()));
+		}
+
+		return result;
 	}
 
 	/**
@@ -427,6 +1118,9 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 	/**
 	 * IDでリソースアイテムを指定して下り更新を実行します.<br/>
 	 * 指定した時刻以降に更新されたアイテムのみ対象となるため、結果が空の場合があります.<br/>
+	 * {@link SyncConfigurationParameter#DOWNLOAD_PAGE_SIZE}が設定されている場合、結果は(最終更新時刻, リソースアイテムID)の順にページ分割され、
+	 * 続きがあれば次ページの継続トークンをリクエストメッセージに設定します.<br/>
+	 * 共通データを事前に取得していない場合、ページ分割は{@link DownloadQueryType}によらず結合クエリで行います.
 	 *
 	 * @param resourceName リソース名
 	 * @param modifiedSince クライアントデータの最終更新時刻
@@ -446,6 +1140,12 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 
 			// 事前に共通データをgetForUpdateしていたらそれを使用
 			modifiedCommonList = (List<ResourceItemCommonData>) gotCommonDataListObj;
+		} else if (configParam.DOWNLOAD_PAGE_SIZE > 0
+				|| DownloadQueryType.valueOf(configParam.DOWNLOAD_QUERY_TYPE) != DownloadQueryType.SEPARATE) {
+
+			// リソースアイテムと共通データを結合し、1回のクエリで取得する
+			// ページ分割時は、ページごとに全件を検索し直さないよう検索方式によらずこちらでキーセットによる絞り込みを行う
+			return downloadByJoinQuery(resourceName, modifiedSince, requestMessage);
 		} else {
 
 			// modified対象リソースアイテムを特定するためにクエリー実行し、対象リソースアイテムのIDを収集する
@@ -468,20 +1168,82 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 			modifiedCommonList = synchronizer.getModified(resourceName, targetItemIdList, modifiedSince);
 		}
 
+		// ページ分割が設定されていれば、継続トークンの位置から1ページ分を取り出す
+		// (事前にgetForUpdateで対象全件をロック済の場合のみ)
+		if (configParam.DOWNLOAD_PAGE_SIZE > 0) {
+			modifiedCommonList = extractPage(modifiedCommonList, getContinuationToken(requestMessage),
+					configParam.DOWNLOAD_PAGE_SIZE, requestMessage);
+		}
+
 		// 戻り値はリソースアイテムデータとその共通データを含むObject(Map)のList
-		ArrayList<Map<String, Object>> resultList = new ArrayList<>();
-		for (ResourceItemCommonData common : modifiedCommonList) {
+		// IDを含むRequestMessageはないため、リポジトリを直接呼び出してまとめて取得する
+		return createDownloadResults(modifiedCommonList);
+	}
 
-			Map<String, Object> result = new HashMap<>();
-			result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, common);
+	/**
+	 * リソースアイテムとリソースアイテム共通データを結合したクエリにより下り更新を実行します.<br/>
+	 * リソースのクエリ条件と最終更新時刻による絞り込みをデータベースで行い、リソースアイテムとその共通データを同時に取得します.<br/>
+	 * 結果に含まれるのは存在するリソースアイテムのみであり、ID値の順にソートされます.<br/>
+	 * ページ分割時は(最終更新時刻, リソースアイテムID)の順にソートし、1ページ分のみをデータベースから取得します.<br/>
+	 * {@link DownloadQueryType#STREAM}が設定されていてページ分割しない場合、クエリはレスポンスの書き出し時に実行されます.
+	 *
+	 * @param resourceName リソース名
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @param requestMessage リクエストメッセージ
+	 * @return 下り更新結果のリソースアイテムオブジェクトのコレクション
+	 */
+	private Object downloadByJoinQuery(String resourceName, long modifiedSince, RequestMessage requestMessage)
+			throws BadRequestException, LockedException {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+		Root<T> itemRoot = query.from(getItemType());
+		Root<ResourceItemCommonData> commonRoot = query.from(ResourceItemCommonData.class);
+
+		List<Predicate> predicates = createJoinQueryPredicates(resourceName, modifiedSince, requestMessage, builder,
+				query, itemRoot, commonRoot);
+		query.multiselect(itemRoot, commonRoot).where(predicates.toArray(new Predicate[predicates.size()]));
+
+		List<Object[]> rows;
+		int pageSize = synchronizer.getSyncConfigurationParameter().DOWNLOAD_PAGE_SIZE;
+		if (pageSize > 0) {
+
+			// 次ページの有無を判定するため、1件多く取得する
+			query.orderBy(builder.asc(commonRoot.get("lastModified")),
+					builder.asc(commonRoot.get("id").get("resourceItemId")));
+			rows = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+
+			if (rows.size() > pageSize) {
+				rows = rows.subList(0, pageSize);
+				ResourceItemCommonData last = (ResourceItemCommonData) rows.get(pageSize - 1)[1];
+				requestMessage.put(synchronizer.getSyncConfigurationParameter().NEXT_CONTINUATION_TOKEN,
+						DownloadContinuationToken.of(last).encode());
+			}
+		} else {
+			query.orderBy(builder.asc(commonRoot.get("targetItemId")));
 
-			// 削除済みであればIDだけのリソースアイテムを返す
-			if (common.getSyncAction() == SyncAction.DELETE) {
-				result.put(DOWNLOAD_RESULT_ITEM_KEY, createDeletedItem(common));
-			} else { // IDを含むRequestMessageはないため、リポジトリを直接呼び出す
-				T item = getRepository().findOne(common.getTargetItemId());
-				result.put(DOWNLOAD_RESULT_ITEM_KEY, item);
+			// 逐次読み出しの場合、レスポンスの書き出し時にクエリを実行する
+			String queryType = synchronizer.getSyncConfigurationParameter().DOWNLOAD_QUERY_TYPE;
+			if (DownloadQueryType.valueOf(queryType) == DownloadQueryType.STREAM) {
+				checkCanReadByJoinQuery(resourceName, modifiedSince, requestMessage);
+				return createStreamingDownloadResult(query);
 			}
+			rows = entityManager.createQuery(query).getResultList();
+		}
+
+		List<T> itemList = new ArrayList<>();
+		for (Object[] row : rows) {
+			itemList.add(getItemType().cast(row[0]));
+		}
+		checkCanRead(requestMessage, itemList);
+
+		// 戻り値はリソースアイテムデータとその共通データを含むObject(Map)のList
+		ArrayList<Map<String, Object>> resultList = new ArrayList<>();
+		for (Object[] row : rows) {
+
+			Map<String, Object> result = new HashMap<>();
+			result.put(DOWNLOAD_RESULT_ITEM_KEY, row[0]);
+			result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, row[1]);
 
 			resultList.add(result);
 		}
@@ -489,6 +1251,174 @@ public abstract class AbstractCrudSyncResource<T> extends AbstractCrudResource<T
 		return resultList;
 	}
 
+	/**
+	 * リソースアイテムとリソースアイテム共通データを結合したクエリの検索条件を生成します.<br/>
+	 * リソース名、最終更新時刻、ページ分割時の継続トークンの位置、リソースのクエリ条件による絞り込みを含みます.
+	 *
+	 * @param resourceName リソース名
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @param requestMessage リクエストメッセージ
+	 * @param builder CriteriaBuilder
+	 * @param query 結合クエリ
+	 * @param itemRoot リソースアイテムのルート
+	 * @param commonRoot リソースアイテム共通データのルート
+	 * @return 検索条件のリスト
+	 */
+	private List<Predicate> createJoinQueryPredicates(String resourceName, long modifiedSince,
+			RequestMessage requestMessage, CriteriaBuilder builder, CriteriaQuery<?> query, Root<T> itemRoot,
+			Root<ResourceItemCommonData> commonRoot) throws BadRequestException {
+
+		List<Predicate> predicates = new ArrayList<>();
+		predicates.add(builder.equal(commonRoot.get("id").get("resourceName"), resourceName));
+		predicates.add(builder.equal(commonRoot.get("targetItemId"), itemRoot.get(getIdFieldName())));
+		predicates.add(builder.greaterThan(commonRoot.<Long> get("lastModified"), modifiedSince));
+
+		// ページ分割時は、継続トークンの位置より後のデータのみを対象とする
+		int pageSize = synchronizer.getSyncConfigurationParameter().DOWNLOAD_PAGE_SIZE;
+		DownloadContinuationToken token = getContinuationToken(requestMessage);
+		if (pageSize > 0 && token != null) {
+			predicates.add(builder.or(
+					builder.greaterThan(commonRoot.<Long> get("lastModified"), token.getLastModified()),
+					builder.and(builder.equal(commonRoot.get("lastModified"), token.getLastModified()), builder
+							.greaterThan(commonRoot.get("id").<String> get("resourceItemId"),
+									token.getResourceItemId()))));
+		}
+
+		// findByQueryと同様、QuerySpecとExecutorがあればクエリ条件を適用する
+		ResourceQuerySpecifications<T> querySpec = getQuerySpec();
+		if (querySpec != null && getSpecificationExecutor() != null) {
+			Predicate queryPredicate = toQueryPredicate(querySpec.parseConditions(getQueryConditions(requestMessage)),
+					itemRoot, query, builder);
+			if (queryPredicate != null) {
+				predicates.add(queryPredicate);
+			}
+		}
+
+		return predicates;
+	}
+
+	/**
+	 * 結合クエリの対象となるリソースアイテムのIDのみを検索し、読み取りロックを確認します.<br/>
+	 * 逐次読み出しではレスポンスの書き出し開始後に中断できないため、書き出し前にこのメソッドで確認します.
+	 *
+	 * @param resourceName リソース名
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @param requestMessage リクエストメッセージ
+	 * @throws LockedException 読み取りできないリソースアイテムがある場合
+	 */
+	private void checkCanReadByJoinQuery(String resourceName, long modifiedSince, RequestMessage requestMessage)
+			throws BadRequestException, LockedException {
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<String> idQuery = builder.createQuery(String.class);
+		Root<T> itemRoot = idQuery.from(getItemType());
+		Root<ResourceItemCommonData> commonRoot = idQuery.from(ResourceItemCommonData.class);
+
+		List<Predicate> predicates = createJoinQueryPredicates(resourceName, modifiedSince, requestMessage, builder,
+				idQuery, itemRoot, commonRoot);
+		idQuery.select(commonRoot.<String> get("targetItemId")).where(
+				predicates.toArray(new Predicate[predicates.size()]));
+
+		for (String targetItemId : entityManager.createQuery(idQuery).getResultList()) {
+			checkCanRead(requestMessage, targetItemId);
+		}
+	}
+
+	/**
+	 * クエリ条件を表すSpecificationから、結合クエリに追加する条件を生成します.<br/>
+	 * クエリ条件が1つもない場合、{@link ResourceQuerySpecifications#parseConditions(Map)}はnullを返すため、条件を追加しないことを表すnullを返します.
+	 *
+	 * @param specification クエリ条件を表すSpecification
+	 * @param itemRoot リソースアイテムのルート
+	 * @param query 結合クエリ
+	 * @param builder CriteriaBuilder
+	 * @return 追加する条件(追加しない場合null)
+	 */
+	static <T> Predicate toQueryPredicate(Specification<T> specification, Root<T> itemRoot, CriteriaQuery<?> query,
+			CriteriaBuilder builder) {
+
+		return specification == null ? null : specification.toPredicate(itemRoot, query, builder);
+	}
+
+	/**
+	 * クエリ結果をデータベースのカーソルから逐次読み出す下り更新結果を生成します.<br/>
+	 * 読み取りロックの確認は、書き出しの途中で中断しないよう呼び出し元で事前に行います.
+	 *
+	 * @param query リソースアイテムとリソースアイテム共通データを結合したクエリ
+	 * @return 下り更新結果
+	 */
+	private StreamingDownloadResult createStreamingDownloadResult(CriteriaQuery<Object[]> query) {
+
+		return new StreamingDownloadResult(entityManagerFactory, query,
+				synchronizer.getSyncConfigurationParameter().DOWNLOAD_FETCH_SIZE) {
+
+			@Override
+			protected Map<String, Object> convert(Object[] row) {
+
+				Map<String, Object> result = new HashMap<>();
+				result.put(DOWNLOAD_RESULT_ITEM_KEY, row[0]);
+				result.put(DOWNLOAD_RESULT_COMMON_DATA_KEY, row[1]);
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * リクエストメッセージから継続トークンを取得します.<br/>
+	 * 継続トークンが指定されていない場合はnullを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return 継続トークン
+	 * @throws BadRequestException 継続トークンとして解釈できない場合
+	 */
+	private DownloadContinuationToken getContinuationToken(RequestMessage requestMessage) throws BadRequestException {
+
+		Object tokenObj = requestMessage.get(synchronizer.getSyncConfigurationParameter().CONTINUATION_TOKEN);
+		if (tokenObj == null || tokenObj.toString().isEmpty()) {
+			return null;
+		}
+
+		try {
+			return DownloadContinuationToken.decode(tokenObj.toString());
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Failed to parse continuation token. : " + tokenObj, requestMessage);
+		}
+	}
+
+	/**
+	 * リソースアイテム共通データのリストを(最終更新時刻, リソースアイテムID)の順にソートし、継続トークンの位置から1ページ分を返します.<br/>
+	 * 続きがある場合、次ページの継続トークンをリクエストメッセージに設定します.
+	 *
+	 * @param commonList リソースアイテム共通データのリスト
+	 * @param token 継続トークン(先頭ページの場合はnull)
+	 * @param pageSize 1ページの最大件数
+	 * @param requestMessage リクエストメッセージ
+	 * @return 1ページ分のリソースアイテム共通データのリスト
+	 */
+	private List<ResourceItemCommonData> extractPage(List<ResourceItemCommonData> commonList,
+			DownloadContinuationToken token, int pageSize, RequestMessage requestMessage) {
+
+		List<ResourceItemCommonData> sorted = new ArrayList<>(commonList);
+		Collections.sort(sorted, DownloadContinuationToken.ORDER);
+
+		List<ResourceItemCommonData> page = new ArrayList<>();
+		for (ResourceItemCommonData common : sorted) {
+			if (token != null && !token.isBefore(common)) {
+				continue;
+			}
+			if (page.size() == pageSize) {
+
+				// 続きがあれば、このページの最後のデータの位置を継続トークンとする
+				requestMessage.put(synchronizer.getSyncConfigurationParameter().NEXT_CONTINUATION_TOKEN,
+						DownloadContinuationToken.of(page.get(pageSize - 1)).encode());
+				break;
+			}
+			page.add(common);
+		}
+
+		return page;
+	}
+
 	/**
 	 * 削除済のリソースアイテムを表す、IDだけを持つオブジェクトを返します.
 	 *
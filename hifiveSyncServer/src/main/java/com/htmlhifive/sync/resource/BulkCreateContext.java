@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+
+/**
+ * 多重化された上り更新リクエストに含まれる複数の新規作成(CREATE)を、まとめて実行するための情報を保持するクラス.<br/>
+ * 上り更新の事前処理で、対象のリクエストメッセージと既に存在するリソースアイテムIDを一括で検索して保持します.<br/>
+ * リソースはこれを使用して、リソースアイテムごとの存在確認とフラッシュを行わずに新規作成し、一定件数ごとにまとめてフラッシュします.<br/>
+ * 1つのリクエストの処理中のみ使用し、複数のスレッドからは使用しません.
+ *
+ * @author kishigam
+ */
+public class BulkCreateContext {
+
+	/**
+	 * フラッシュして作成したエンティティを永続化コンテキストから切り離す新規作成の件数.
+	 */
+	private final int batchSize;
+
+	/**
+	 * まとめて新規作成する対象のリクエストメッセージ.
+	 */
+	private final Set<RequestMessage> targetMessages = Collections
+			.newSetFromMap(new IdentityHashMap<RequestMessage, Boolean>());
+
+	/**
+	 * リソース名ごとの、まとめて新規作成する対象のリクエストメッセージ.
+	 */
+	private final MultiValueMap<String, RequestMessage> messageMap = new LinkedMultiValueMap<>();
+
+	/**
+	 * リソース名ごとの、共通データが既に存在する(またはこのリクエストで作成した)リソースアイテムID.
+	 */
+	private final Map<String, Set<String>> existingItemIdMap = new HashMap<>();
+
+	/**
+	 * リソース名ごとの、リソースアイテムが既に存在する(またはこのリクエストで作成した)対象リソースアイテムID.<br/>
+	 * リソースが最初に新規作成する際に検索します.
+	 */
+	private final Map<String, Set<String>> existingTargetItemIdMap = new HashMap<>();
+
+	/**
+	 * 前回フラッシュしてから新規作成した件数.
+	 */
+	private int createdCount;
+
+	/**
+	 * 前回フラッシュしてから新規作成したエンティティ.フラッシュ後に永続化コンテキストから切り離します.
+	 */
+	private final List<Object> createdEntities = new ArrayList<>();
+
+	/**
+	 * フラッシュして作成したエンティティを永続化コンテキストから切り離す新規作成の件数を指定してインスタンスを生成します.
+	 *
+	 * @param batchSize フラッシュして作成したエンティティを永続化コンテキストから切り離す新規作成の件数
+	 */
+	public BulkCreateContext(int batchSize) {
+
+		this.batchSize = Math.max(batchSize, 1);
+	}
+
+	/**
+	 * まとめて新規作成する対象のリクエストメッセージを追加します.
+	 *
+	 * @param resourceName リソース名
+	 * @param requestMessage リクエストメッセージ
+	 */
+	public void addMessage(String resourceName, RequestMessage requestMessage) {
+
+		targetMessages.add(requestMessage);
+		messageMap.add(resourceName, requestMessage);
+	}
+
+	/**
+	 * @param requestMessage リクエストメッセージ
+	 * @return まとめて新規作成する対象のリクエストメッセージの場合true
+	 */
+	public boolean isTarget(RequestMessage requestMessage) {
+
+		return targetMessages.contains(requestMessage);
+	}
+
+	/**
+	 * @return まとめて新規作成する対象のリソース名
+	 */
+	public Set<String> getResourceNames() {
+
+		return messageMap.keySet();
+	}
+
+	/**
+	 * @param resourceName リソース名
+	 * @return 指定されたリソースで、まとめて新規作成する対象のリクエストメッセージ
+	 */
+	public List<RequestMessage> getMessages(String resourceName) {
+
+		List<RequestMessage> messages = messageMap.get(resourceName);
+		return messages == null ? Collections.<RequestMessage> emptyList() : messages;
+	}
+
+	/**
+	 * 一括で検索した、共通データが既に存在するリソースアイテムIDを設定します.
+	 *
+	 * @param resourceName リソース名
+	 * @param existingItemIds 共通データが既に存在するリソースアイテムID
+	 */
+	public void setExistingItemIds(String resourceName, Set<String> existingItemIds) {
+
+		existingItemIdMap.put(resourceName, new HashSet<>(existingItemIds));
+	}
+
+	/**
+	 * 指定されたIDの共通データが、既に存在するかこのリクエストで作成済の場合trueを返します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return 共通データが存在する場合true
+	 */
+	public boolean existsItem(ResourceItemCommonDataId itemCommonId) {
+
+		Set<String> existingItemIds = existingItemIdMap.get(itemCommonId.getResourceName());
+		return existingItemIds != null && existingItemIds.contains(itemCommonId.getResourceItemId());
+	}
+
+	/**
+	 * 指定されたIDの共通データを、このリクエストで作成済として記録します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 */
+	public void markItemCreated(ResourceItemCommonDataId itemCommonId) {
+
+		Set<String> existingItemIds = existingItemIdMap.get(itemCommonId.getResourceName());
+		if (existingItemIds == null) {
+			existingItemIds = new HashSet<>();
+			existingItemIdMap.put(itemCommonId.getResourceName(), existingItemIds);
+		}
+		existingItemIds.add(itemCommonId.getResourceItemId());
+	}
+
+	/**
+	 * リソースアイテムが既に存在する対象リソースアイテムIDを返します.<br/>
+	 * まだ検索していない場合はnullを返します.返されたSetに追加することで、作成済として記録できます.
+	 *
+	 * @param resourceName リソース名
+	 * @return リソースアイテムが既に存在する対象リソースアイテムID
+	 */
+	public Set<String> getExistingTargetItemIds(String resourceName) {
+
+		return existingTargetItemIdMap.get(resourceName);
+	}
+
+	/**
+	 * 一括で検索した、リソースアイテムが既に存在する対象リソースアイテムIDを設定します.
+	 *
+	 * @param resourceName リソース名
+	 * @param existingTargetItemIds リソースアイテムが既に存在する対象リソースアイテムID
+	 */
+	public void setExistingTargetItemIds(String resourceName, Set<String> existingTargetItemIds) {
+
+		existingTargetItemIdMap.put(resourceName, existingTargetItemIds);
+	}
+
+	/**
+	 * 新規作成したエンティティを、フラッシュ後に永続化コンテキストから切り離す対象として記録します.
+	 *
+	 * @param entity 新規作成したエンティティ
+	 */
+	public void addCreatedEntity(Object entity) {
+
+		createdEntities.add(entity);
+	}
+
+	/**
+	 * 前回フラッシュしてから新規作成したエンティティを返し、記録を消去します.
+	 *
+	 * @return 新規作成したエンティティ
+	 */
+	public List<Object> takeCreatedEntities() {
+
+		List<Object> taken = new ArrayList<>(createdEntities);
+		createdEntities.clear();
+		return taken;
+	}
+
+	/**
+	 * 新規作成した件数を数え、フラッシュして作成したエンティティを永続化コンテキストから切り離す件数に達した場合trueを返します.
+	 *
+	 * @return フラッシュする場合true
+	 */
+	public boolean countCreated() {
+
+		if (++createdCount < batchSize) {
+			return false;
+		}
+		createdCount = 0;
+		return true;
+	}
+}
@@ -17,8 +17,12 @@
 package com.htmlhifive.sync.resource;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -27,13 +31,20 @@ import javax.persistence.PersistenceException;
 import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.common.ResourceItemChangeLog;
+import com.htmlhifive.sync.resource.common.ResourceItemChangeLogRepository;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonDataRepository;
 import com.htmlhifive.sync.resource.common.SyncAction;
 import com.htmlhifive.sync.resource.update.UpdateStrategy;
+import com.htmlhifive.sync.service.ChangeSequenceHighWaterMark;
+import com.htmlhifive.sync.service.DownloadResultCache;
+import com.htmlhifive.sync.service.ResourceChangeWatermark;
 import com.htmlhifive.sync.service.SyncRequestCommonData;
 
 /**
@@ -59,11 +70,32 @@ public class DefaultSynchronizer implements Synchronizer {
 	@Autowired
 	private ResourceItemCommonDataRepository resourceItemCommonDataRepository;
 
+	/**
+	 * 共通データの更新履歴のリポジトリ
+	 */
+	@Autowired
+	private ResourceItemChangeLogRepository resourceItemChangeLogRepository;
+
 	/**
 	 * 競合発生時の競合戦略クラスインスタンス.
 	 */
 	private UpdateStrategy defaultUpdateStrategy;
 
+	/**
+	 * 更新をコミットした時に破棄する下り更新結果のキャッシュ.
+	 */
+	private DownloadResultCache downloadResultCache;
+
+	/**
+	 * 更新をコミットした時に進める、リソースごとのウォーターマーク.
+	 */
+	private ResourceChangeWatermark resourceChangeWatermark;
+
+	/**
+	 * 下り更新の読み取り範囲の終端とする、コミット済の変更シーケンス番号.
+	 */
+	private ChangeSequenceHighWaterMark changeSequenceHighWaterMark;
+
 	/**
 	 * 指定されたIDを持つだけの新規リソースアイテム共通データを生成します.<br/>
 	 * このメソッドにより共通データを生成した後、{@link DefaultSynchronizer#modify(ResourceItemCommonData)} メソッドを使用して、内容を更新する必要があります.
@@ -89,6 +121,51 @@ public class DefaultSynchronizer implements Synchronizer {
 		return common;
 	}
 
+	/**
+	 * 重複がないことを確認済のIDについて、新規リソースアイテム共通データを生成します.<br/>
+	 * 永続化のみを行い、登録は次のフラッシュでJDBCバッチとしてまとめて実行されます.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return 生成された共通データ
+	 */
+	@Override
+	public ResourceItemCommonData getNewInBatch(ResourceItemCommonDataId itemCommonId) {
+
+		ResourceItemCommonData common = new ResourceItemCommonData(itemCommonId);
+		entityManager.persist(common);
+		return common;
+	}
+
+	/**
+	 * 指定されたリソースアイテムIDのうち、共通データが既に存在するものを返します.<br/>
+	 * {@link SyncConfigurationParameter#MODIFIED_QUERY_CHUNK_SIZE}件ごとにまとめて検索します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIdList リソースアイテムIDのリスト
+	 * @return 共通データが存在するリソースアイテムID
+	 */
+	@Override
+	public Set<String> getExistingIds(String resourceName, List<String> resourceItemIdList) {
+
+		Set<String> existingIds = new HashSet<>();
+		for (List<String> chunk : sortAndSplit(resourceItemIdList)) {
+			existingIds.addAll(resourceItemCommonDataRepository.findExistingIds(resourceName, chunk));
+		}
+		return existingIds;
+	}
+
+	/**
+	 * 指定されたIDを持つリソースアイテム共通データを、データベースのロックを用いずに取得します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return リソースアイテム共通データ(存在しない場合null)
+	 */
+	@Override
+	public ResourceItemCommonData getCommon(ResourceItemCommonDataId itemCommonId) {
+
+		return resourceItemCommonDataRepository.findOne(itemCommonId);
+	}
+
 	/**
 	 * 指定されたIDを持つリソースアイテム共通データを悲観的ロック("for update")を用いて取得します.
 	 *
@@ -102,7 +179,27 @@ public class DefaultSynchronizer implements Synchronizer {
 	}
 
 	/**
-	 * 指定された対象リソースアイテムのID値を持ち、指定時刻以降に更新されているリソースアイテム共通データを取得します.
+	 * 指定されたIDを持つリソースアイテム共通データを、楽観的ロックによる更新のためにロックせずに取得します.<br/>
+	 * 未反映の変更を失わないようフラッシュした後、取得したオブジェクトを永続化コンテキストから切り離して返します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return リソースアイテム共通データ
+	 */
+	@Override
+	public ResourceItemCommonData getForOptimisticUpdate(ResourceItemCommonDataId itemCommonId) {
+
+		entityManager.flush();
+
+		ResourceItemCommonData common = resourceItemCommonDataRepository.findOne(itemCommonId);
+		if (common != null) {
+			entityManager.detach(common);
+		}
+		return common;
+	}
+
+	/**
+	 * 指定された対象リソースアイテムのID値を持ち、指定時刻以降に更新されているリソースアイテム共通データを取得します.<br/>
+	 * ID値の順にソートし、{@link SyncConfigurationParameter#MODIFIED_QUERY_CHUNK_SIZE}件ごとにまとめて検索します.
 	 *
 	 * @param resourceName リソース名
 	 * @param targetItemIdList 対象リソースアイテムのID値のリスト
@@ -115,18 +212,9 @@ public class DefaultSynchronizer implements Synchronizer {
 
 		List<ResourceItemCommonData> commonList = new ArrayList<>();
 
-		// IDのソート順に取得
-		List<String> tempList = new ArrayList<>(targetItemIdList);
-		Collections.sort(tempList);
-
-		for (String id : tempList) {
-
-			ResourceItemCommonData common = resourceItemCommonDataRepository.findModified(resourceName, id,
-					modifiedSince);
-
-			if (common != null) {
-				commonList.add(common);
-			}
+		// IDのソート順に、チャンク単位で取得
+		for (List<String> chunk : sortAndSplit(targetItemIdList)) {
+			commonList.addAll(resourceItemCommonDataRepository.findModifiedIn(resourceName, chunk, modifiedSince));
 		}
 
 		return commonList;
@@ -134,7 +222,8 @@ public class DefaultSynchronizer implements Synchronizer {
 
 	/**
 	 * 指定された対象リソースアイテムのID値を持ち、指定時刻以降に更新されているリソースアイテム共通データを悲観的ロック("for update")を用いて取得します.<br/>
-	 * ID値の順にソートして実行されるため、返されるリストは元のID値リストの順とは異なる場合があります.
+	 * ID値の順にソートして実行されるため、返されるリストは元のID値リストの順とは異なる場合があります.<br/>
+	 * デッドロックを避けるため、ロックはID値の順にチャンク単位で取得します.
 	 *
 	 * @param resourceName リソース名
 	 * @param targetItemIdList 対象リソースアイテムのID値のリスト
@@ -144,25 +233,97 @@ public class DefaultSynchronizer implements Synchronizer {
 	@Override
 	public List<ResourceItemCommonData> getModifiedForUpdate(String resourceName, List<String> targetItemIdList,
 			long modifiedSince) {
+
 		List<ResourceItemCommonData> commonList = new ArrayList<>();
 
-		// IDのソート順に取得
-		List<String> tempList = new ArrayList<>(targetItemIdList);
-		Collections.sort(tempList);
+		// IDのソート順に、チャンク単位で取得
+		for (List<String> chunk : sortAndSplit(targetItemIdList)) {
+			commonList.addAll(resourceItemCommonDataRepository.findModifiedInForUpdate(resourceName, chunk,
+					modifiedSince));
+		}
+
+		return commonList;
+	}
 
-		for (String id : tempList) {
+	/**
+	 * 指定されたリソースアイテムIDを持つリソースアイテム共通データを悲観的ロック("for update")を用いて一括で取得します.<br/>
+	 * リソースアイテムIDの順にソートして実行されるため、返されるリストは元のIDリストの順とは異なる場合があります.<br/>
+	 * デッドロックを避けるため、ロックはID順にチャンク単位で取得します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIdList リソースアイテムIDのリスト
+	 * @return リソースアイテム共通データ
+	 */
+	@Override
+	public List<ResourceItemCommonData> getForUpdate(String resourceName, List<String> resourceItemIdList) {
 
-			ResourceItemCommonData common = resourceItemCommonDataRepository.findModifiedForUpdate(resourceName, id,
-					modifiedSince);
+		List<ResourceItemCommonData> commonList = new ArrayList<>();
 
-			if (common != null) {
-				commonList.add(common);
-			}
+		// IDのソート順に、チャンク単位で取得
+		for (List<String> chunk : sortAndSplit(resourceItemIdList)) {
+			commonList.addAll(resourceItemCommonDataRepository.findInForUpdate(resourceName, chunk));
 		}
 
 		return commonList;
 	}
 
+	/**
+	 * 対象リソースアイテムのID値のリストから重複を除いてソートし、IN句で指定する最大数ごとに分割したリストを返します.
+	 *
+	 * @param targetItemIdList 対象リソースアイテムのID値のリスト
+	 * @return 分割されたID値のリスト
+	 */
+	private List<List<String>> sortAndSplit(List<String> targetItemIdList) {
+
+		List<String> tempList = new ArrayList<>(new TreeSet<>(targetItemIdList));
+
+		int chunkSize = syncConfigurationParameter.MODIFIED_QUERY_CHUNK_SIZE;
+		if (chunkSize <= 0) {
+			chunkSize = tempList.size();
+		}
+
+		List<List<String>> chunks = new ArrayList<>();
+		for (int from = 0; from < tempList.size(); from += chunkSize) {
+			chunks.add(tempList.subList(from, Math.min(from + chunkSize, tempList.size())));
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * 変更シーケンス番号による下り更新の読み取り範囲の終端として使用できる、最新の変更シーケンス番号を返します.<br/>
+	 * {@link ChangeSequenceHighWaterMark}が設定されている場合、コミット済であることが確実な番号を返します(確実な番号がまだない場合は0).
+	 * 設定されていない場合は現在の最大値を返しますが、実行中のトランザクションがより小さい番号でコミットされる可能性があります.<br/>
+	 * 更新履歴が存在しない場合は0を返します.
+	 *
+	 * @return 最新の変更シーケンス番号
+	 */
+	@Override
+	public long getLatestChangeSequence() {
+
+		if (changeSequenceHighWaterMark != null) {
+			return changeSequenceHighWaterMark.get();
+		}
+
+		Long latest = resourceItemChangeLogRepository.findLatestSequence();
+		return latest == null ? 0L : latest;
+	}
+
+	/**
+	 * 変更シーケンス番号が指定範囲に含まれる更新が行われたリソースアイテムの共通データを取得します.<br/>
+	 * 更新履歴のシーケンス番号による範囲検索で対象を特定するため、時刻による検索と異なり、同期時刻のバッファを必要としません.
+	 *
+	 * @param resourceName リソース名
+	 * @param afterSequence 検索範囲の開始シーケンス番号(この値を含まない)
+	 * @param upToSequence 検索範囲の終了シーケンス番号(この値を含む)
+	 * @return 更新されているリソースアイテム共通データ
+	 */
+	@Override
+	public List<ResourceItemCommonData> getChanged(String resourceName, long afterSequence, long upToSequence) {
+
+		return resourceItemChangeLogRepository.findChanged(resourceName, afterSequence, upToSequence);
+	}
+
 	/**
 	 * リソースアイテム共通データのバージョン比較により、リソースアイテムの更新競合が発生しているときtrueを返します.
 	 *
@@ -184,7 +345,10 @@ public class DefaultSynchronizer implements Synchronizer {
 	}
 
 	/**
-	 * リソースアイテム共通データを指定されたアイテムの内容で更新します.
+	 * リソースアイテム共通データを指定されたアイテムの内容で更新し、更新履歴を追加します.<br/>
+	 * 共通データの更新をまとめて実行する設定の場合、トランザクション内では更新を保留し、{@link #flush()}でまとめて実行します.
+	 * 同じリソースアイテムの共通データが複数回更新された場合、最後の内容のみを更新します.<br/>
+	 * いずれの場合も、永続化コンテキストで管理される共通データを返します.保留した更新のエラーは、このメソッドではなく{@link #flush()}またはコミット時に発生します.
 	 *
 	 * @param itemCommon リソースアイテム共通データ
 	 * @return 更新後のリソースアイテム共通データ
@@ -192,8 +356,122 @@ public class DefaultSynchronizer implements Synchronizer {
 	@Override
 	public ResourceItemCommonData modify(ResourceItemCommonData itemCommon) {
 
-		ResourceItemCommonData saved = resourceItemCommonDataRepository.save(itemCommon);
-		return saved;
+		if (!syncConfigurationParameter.COMMON_DATA_WRITE_COALESCING_ENABLED
+				|| !TransactionSynchronizationManager.isSynchronizationActive()) {
+
+			ResourceItemCommonData saved = resourceItemCommonDataRepository.save(itemCommon);
+			resourceItemChangeLogRepository.save(new ResourceItemChangeLog(saved));
+			notifyModified(saved);
+			return saved;
+		}
+
+		// 永続化コンテキストにマージし、管理される共通データを返す(更新文はフラッシュ時に最後の内容で実行される)
+		ResourceItemCommonData managed = resourceItemCommonDataRepository.save(itemCommon);
+
+		// 更新履歴の順序が最後の更新の順になるよう、既に保留されている場合は末尾に移動する
+		Map<ResourceItemCommonDataId, ResourceItemCommonData> pendingMap = getPendingModifications();
+		pendingMap.remove(managed.getId());
+		pendingMap.put(managed.getId(), managed);
+
+		notifyModified(managed);
+		return managed;
+	}
+
+	/**
+	 * トランザクション内で保留している共通データの更新と更新履歴の追加を、まとめて実行します.<br/>
+	 * 保留している更新がない場合は何もしません.<br/>
+	 * 制約違反などのエラーは、保留した更新のいずれによるものかに関わらずここでスローされます.
+	 * 更新履歴の変更シーケンス番号は、allocationSize=1のシーケンスから更新履歴ごとに取得します.
+	 */
+	@Override
+	public void flush() {
+
+		@SuppressWarnings("unchecked")
+		Map<ResourceItemCommonDataId, ResourceItemCommonData> pendingMap = (Map<ResourceItemCommonDataId, ResourceItemCommonData>) TransactionSynchronizationManager
+				.getResource(this);
+		if (pendingMap == null || pendingMap.isEmpty()) {
+			return;
+		}
+
+		// 共通データはmodifyでマージ済のため、フラッシュ時に最後の内容で更新される
+		List<ResourceItemChangeLog> changeLogList = new ArrayList<>();
+		for (ResourceItemCommonData managed : pendingMap.values()) {
+			changeLogList.add(new ResourceItemChangeLog(managed));
+		}
+		pendingMap.clear();
+		resourceItemChangeLogRepository.save(changeLogList);
+
+		// JDBCバッチとして実行されるよう、まとめてフラッシュする
+		entityManager.flush();
+	}
+
+	/**
+	 * 現在のトランザクションで保留している共通データの更新を、IDをキーとして保持するMapを返します.<br/>
+	 * 初回の呼び出し時にトランザクションに登録し、{@link #flush()}が呼び出されずにコミットされる場合もコミット前に実行します.
+	 *
+	 * @return 保留している共通データの更新
+	 */
+	private Map<ResourceItemCommonDataId, ResourceItemCommonData> getPendingModifications() {
+
+		@SuppressWarnings("unchecked")
+		Map<ResourceItemCommonDataId, ResourceItemCommonData> pendingMap = (Map<ResourceItemCommonDataId, ResourceItemCommonData>) TransactionSynchronizationManager
+				.getResource(this);
+		if (pendingMap == null) {
+			pendingMap = new LinkedHashMap<>();
+			TransactionSynchronizationManager.bindResource(this, pendingMap);
+
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					flush();
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(DefaultSynchronizer.this);
+				}
+			});
+		}
+		return pendingMap;
+	}
+
+	/**
+	 * リソースアイテム共通データを、取得時のバージョンが変わっていない場合のみ更新し、更新履歴を追加します.<br/>
+	 * バージョンを条件とした更新文を実行するため、例外によってトランザクションがロールバック対象になることはありません.
+	 *
+	 * @param itemCommon リソースアイテム共通データ
+	 * @return 更新した場合true
+	 */
+	@Override
+	public boolean modifyIfUnchanged(ResourceItemCommonData itemCommon) {
+
+		int updated = resourceItemCommonDataRepository.updateIfVersionMatches(itemCommon.getId(),
+				itemCommon.getSyncAction(), itemCommon.getLastModified(), itemCommon.getContentHash(),
+				itemCommon.getVersion());
+		if (updated == 0) {
+			return false;
+		}
+
+		itemCommon.setVersion(itemCommon.getVersion() + 1);
+		resourceItemChangeLogRepository.save(new ResourceItemChangeLog(itemCommon));
+		notifyModified(itemCommon);
+		return true;
+	}
+
+	/**
+	 * 更新されたリソースについて、トランザクションのコミット後に下り更新結果のキャッシュを破棄し、ウォーターマークを進めます.
+	 *
+	 * @param itemCommon 更新されたリソースアイテム共通データ
+	 */
+	private void notifyModified(ResourceItemCommonData itemCommon) {
+
+		String resourceName = itemCommon.getId().getResourceName();
+		if (downloadResultCache != null) {
+			downloadResultCache.invalidateAfterCommit(resourceName);
+		}
+		if (resourceChangeWatermark != null) {
+			resourceChangeWatermark.advanceAfterCommit(resourceName);
+		}
 	}
 
 	@Override
@@ -215,4 +493,39 @@ public class DefaultSynchronizer implements Synchronizer {
 	public void setDefaultUpdateStrategy(UpdateStrategy defaultUpdateStrategy) {
 		this.defaultUpdateStrategy = defaultUpdateStrategy;
 	}
+
+	/**
+	 * @return the downloadResultCache
+	 */
+	public DownloadResultCache getDownloadResultCache() {
+		return downloadResultCache;
+	}
+
+	/**
+	 * @param downloadResultCache the downloadResultCache to set
+	 */
+	public void setDownloadResultCache(DownloadResultCache downloadResultCache) {
+		this.downloadResultCache = downloadResultCache;
+	}
+
+	/**
+	 * @return the resourceChangeWatermark
+	 */
+	public ResourceChangeWatermark getResourceChangeWatermark() {
+		return resourceChangeWatermark;
+	}
+
+	/**
+	 * @param resourceChangeWatermark the resourceChangeWatermark to set
+	 */
+	public void setResourceChangeWatermark(ResourceChangeWatermark resourceChangeWatermark) {
+		this.resourceChangeWatermark = resourceChangeWatermark;
+	}
+
+	/**
+	 * @param changeSequenceHighWaterMark the changeSequenceHighWaterMark to set
+	 */
+	public void setChangeSequenceHighWaterMark(ChangeSequenceHighWaterMark changeSequenceHighWaterMark) {
+		this.changeSequenceHighWaterMark = changeSequenceHighWaterMark;
+	}
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource;
+
+import java.nio.charset.Charset;
+import java.util.Comparator;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+
+/**
+ * ページ分割された下り更新において、次のページの開始位置を表す継続トークン.<br>
+ * 下り更新結果は(最終更新時刻, リソースアイテムID)の順に並べられ、トークンは前のページで最後に返されたリソースアイテムの位置を保持します.<br>
+ * クライアントに対しては、内容を意識させない文字列として受け渡します.
+ *
+ * @author kishigam
+ */
+public class DownloadContinuationToken {
+
+	/**
+	 * 下り更新結果を並べる順序(最終更新時刻, リソースアイテムIDの順).
+	 */
+	public static final Comparator<ResourceItemCommonData> ORDER = new Comparator<ResourceItemCommonData>() {
+
+		@Override
+		public int compare(ResourceItemCommonData o1, ResourceItemCommonData o2) {
+
+			int compare1 = Long.compare(o1.getLastModified(), o2.getLastModified());
+
+			return compare1 != 0 ? compare1 : o1.getId().getResourceItemId()
+					.compareTo(o2.getId().getResourceItemId());
+		}
+	};
+
+	/**
+	 * トークン文字列の符号化に使用する文字セット.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * 最終更新時刻とリソースアイテムIDの区切り文字.
+	 */
+	private static final char SEPARATOR = ':';
+
+	/**
+	 * 前のページで最後に返されたリソースアイテムの最終更新時刻.
+	 */
+	private final long lastModified;
+
+	/**
+	 * 前のページで最後に返されたリソースアイテムのID.
+	 */
+	private final String resourceItemId;
+
+	/**
+	 * 最終更新時刻とリソースアイテムIDを指定して継続トークンを生成します.
+	 *
+	 * @param lastModified 最終更新時刻
+	 * @param resourceItemId リソースアイテムID
+	 */
+	public DownloadContinuationToken(long lastModified, String resourceItemId) {
+
+		this.lastModified = lastModified;
+		this.resourceItemId = resourceItemId;
+	}
+
+	/**
+	 * 指定されたリソースアイテム共通データの位置を表す継続トークンを生成します.
+	 *
+	 * @param common リソースアイテム共通データ
+	 * @return 継続トークン
+	 */
+	public static DownloadContinuationToken of(ResourceItemCommonData common) {
+
+		return new DownloadContinuationToken(common.getLastModified(), common.getId().getResourceItemId());
+	}
+
+	/**
+	 * {@link DownloadContinuationToken#encode()}で生成された文字列から継続トークンを復元します.
+	 *
+	 * @param encoded トークン文字列
+	 * @return 継続トークン
+	 * @throws IllegalArgumentException トークン文字列として解釈できない場合
+	 */
+	public static DownloadContinuationToken decode(String encoded) {
+
+		if (encoded == null || encoded.isEmpty() || encoded.length() % 2 != 0) {
+			throw new IllegalArgumentException("Invalid continuation token. : " + encoded);
+		}
+
+		byte[] bytes = new byte[encoded.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(encoded.charAt(i * 2), 16);
+			int low = Character.digit(encoded.charAt(i * 2 + 1), 16);
+			if (high < 0 || low < 0) {
+				throw new IllegalArgumentException("Invalid continuation token. : " + encoded);
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+
+		String decoded = new String(bytes, CHARSET);
+		int separatorIndex = decoded.indexOf(SEPARATOR);
+		if (separatorIndex < 0) {
+			throw new IllegalArgumentException("Invalid continuation token. : " + encoded);
+		}
+
+		try {
+			return new DownloadContinuationToken(Long.parseLong(decoded.substring(0, separatorIndex)),
+					decoded.substring(separatorIndex + 1));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid continuation token. : " + encoded, e);
+		}
+	}
+
+	/**
+	 * この継続トークンをクライアントに受け渡す文字列に変換します.
+	 *
+	 * @return トークン文字列
+	 */
+	public String encode() {
+
+		byte[] bytes = (String.valueOf(lastModified) + SEPARATOR + resourceItemId).getBytes(CHARSET);
+
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 指定されたリソースアイテム共通データが、このトークンが表す位置より後に並ぶ場合trueを返します.
+	 *
+	 * @param common リソースアイテム共通データ
+	 * @return トークンの位置より後であればtrue
+	 */
+	public boolean isBefore(ResourceItemCommonData common) {
+
+		if (lastModified != common.getLastModified()) {
+			return lastModified < common.getLastModified();
+		}
+		return resourceItemId.compareTo(common.getId().getResourceItemId()) < 0;
+	}
+
+	/**
+	 * @return the lastModified
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the resourceItemId
+	 */
+	public String getResourceItemId() {
+		return resourceItemId;
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.criteria.CriteriaQuery;
+
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+/**
+ * データベースのカーソルから1件ずつ読み出しながら返す、下り更新結果のコレクション.<br>
+ * 結果全体をメモリ上に保持せず、レスポンスの書き出し(JSONへの変換)時に逐次読み出すことで、下り更新の件数によらずメモリ使用量を一定に保ちます.<br>
+ * 読み出しはリソース処理のトランザクション終了後に行われるため、独自のEntityManagerと読み取り専用のトランザクションを使用します.<br>
+ * 読み出し終了後、あるいはレスポンスの書き出し後に{@link StreamingDownloadResult#close()}によりカーソルを解放します.
+ *
+ * @author kishigam
+ */
+public abstract class StreamingDownloadResult implements Iterable<Map<String, Object>>, Closeable {
+
+	/**
+	 * カーソルを開くEntityManagerを生成するファクトリ.
+	 */
+	private final EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * 実行するクエリ.
+	 */
+	private final CriteriaQuery<Object[]> query;
+
+	/**
+	 * カーソルから一度に読み出す件数.
+	 */
+	private final int fetchSize;
+
+	/**
+	 * このオブジェクトが開いたカーソルのリスト.
+	 */
+	private final List<ScrollingIterator> openIterators = new ArrayList<>();
+
+	/**
+	 * カーソルを開くために必要な情報を指定して下り更新結果を生成します.<br>
+	 * クエリはこの時点では実行されず、{@link StreamingDownloadResult#iterator()}の呼び出し時に実行されます.
+	 *
+	 * @param entityManagerFactory EntityManagerファクトリ
+	 * @param query 実行するクエリ
+	 * @param fetchSize カーソルから一度に読み出す件数
+	 */
+	public StreamingDownloadResult(EntityManagerFactory entityManagerFactory, CriteriaQuery<Object[]> query,
+			int fetchSize) {
+
+		this.entityManagerFactory = entityManagerFactory;
+		this.query = query;
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * クエリを実行してカーソルを開き、その結果を1件ずつ返すイテレータを返します.
+	 */
+	@Override
+	public synchronized Iterator<Map<String, Object>> iterator() {
+
+		ScrollingIterator iterator = new ScrollingIterator();
+		openIterators.add(iterator);
+		return iterator;
+	}
+
+	/**
+	 * このオブジェクトが開いたカーソルを全て解放します.
+	 */
+	@Override
+	public synchronized void close() {
+
+		for (ScrollingIterator iterator : openIterators) {
+			iterator.close();
+		}
+		openIterators.clear();
+	}
+
+	/**
+	 * クエリ結果の1行を下り更新結果オブジェクト(Map)に変換します.<br>
+	 * 変換後、その行のエンティティは永続化コンテキストから除去されるため、書き出しに必要な遅延ロード対象はこのメソッド内で読み出してください.
+	 *
+	 * @param row クエリ結果の1行
+	 * @return 下り更新結果オブジェクト
+	 */
+	protected abstract Map<String, Object> convert(Object[] row);
+
+	/**
+	 * ScrollableResultsを使用してクエリ結果を1件ずつ読み出すイテレータ.
+	 */
+	private class ScrollingIterator implements Iterator<Map<String, Object>> {
+
+		private final EntityManager entityManager;
+
+		private final EntityTransaction transaction;
+
+		private final Session session;
+
+		private final ScrollableResults results;
+
+		/**
+		 * 次の行が読み出し済みかどうか.
+		 */
+		private boolean fetched = false;
+
+		/**
+		 * 次の行が存在するかどうか.
+		 */
+		private boolean hasNextRow = false;
+
+		private boolean closed = false;
+
+		private ScrollingIterator() {
+
+			entityManager = entityManagerFactory.createEntityManager();
+			transaction = entityManager.getTransaction();
+
+			try {
+				transaction.begin();
+
+				session = entityManager.unwrap(Session.class);
+				session.setDefaultReadOnly(true);
+
+				Query hibernateQuery = entityManager.createQuery(query).unwrap(Query.class);
+				hibernateQuery.setReadOnly(true);
+				hibernateQuery.setFetchSize(fetchSize);
+				results = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY);
+
+			} catch (RuntimeException e) {
+				if (transaction.isActive()) {
+					transaction.rollback();
+				}
+				entityManager.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if (closed) {
+				return false;
+			}
+
+			if (!fetched) {
+				hasNextRow = results.next();
+				fetched = true;
+			}
+
+			if (!hasNextRow) {
+				close();
+			}
+			return hasNextRow;
+		}
+
+		@Override
+		public Map<String, Object> next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			fetched = false;
+
+			// 管理下にある状態で変換してから、その行のエンティティのみを永続化コンテキストから除去してメモリを解放する
+			Object[] row = results.get();
+
+			// multiselectのクエリでは、変換後の行がさらに配列に包まれて返される
+			if (row.length == 1 && row[0] instanceof Object[]) {
+				row = (Object[]) row[0];
+			}
+			Map<String, Object> result = convert(row);
+			for (Object entity : row) {
+				session.evict(entity);
+			}
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void close() {
+
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			try {
+				results.close();
+			} finally {
+				try {
+					if (transaction.isActive()) {
+						transaction.rollback();
+					}
+				} finally {
+					entityManager.close();
+				}
+			}
+		}
+	}
+}
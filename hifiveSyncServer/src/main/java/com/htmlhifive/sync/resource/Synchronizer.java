@@ -17,6 +17,7 @@
 package com.htmlhifive.sync.resource;
 
 import java.util.List;
+import java.util.Set;
 
 import com.htmlhifive.sync.config.SyncConfigurationParameter;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
@@ -38,6 +39,33 @@ public interface Synchronizer {
 	 */
 	ResourceItemCommonData getNew(ResourceItemCommonDataId itemCommonId);
 
+	/**
+	 * 重複がないことを{@link Synchronizer#getExistingIds(String, List)}で確認済のIDについて、新規リソースアイテム共通データを生成します.<br/>
+	 * 重複を検出するためのフラッシュを行わないため、登録はまとめて実行されます.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return 生成された共通データ
+	 */
+	ResourceItemCommonData getNewInBatch(ResourceItemCommonDataId itemCommonId);
+
+	/**
+	 * 指定されたリソースアイテムIDのうち、共通データが既に存在するものを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIdList リソースアイテムIDのリスト
+	 * @return 共通データが存在するリソースアイテムID
+	 */
+	Set<String> getExistingIds(String resourceName, List<String> resourceItemIdList);
+
+	/**
+	 * 指定されたIDを持つリソースアイテム共通データを、データベースのロックを用いずに取得します.<br/>
+	 * JVM内の排他ロックなど、呼び出し元で排他制御を行っている場合や、存在確認のみを行う場合に使用します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return リソースアイテム共通データ(存在しない場合null)
+	 */
+	ResourceItemCommonData getCommon(ResourceItemCommonDataId itemCommonId);
+
 	/**
 	 * 指定されたIDを持つリソースアイテム共通データを悲観的ロック("for update")を用いて取得します.<br/>
 	 *
@@ -46,6 +74,15 @@ public interface Synchronizer {
 	 */
 	ResourceItemCommonData getForUpdate(ResourceItemCommonDataId itemCommonId);
 
+	/**
+	 * 指定されたIDを持つリソースアイテム共通データを、楽観的ロックによる更新のためにロックせずに取得します.<br/>
+	 * 返されるオブジェクトは永続化コンテキストから切り離されており、{@link Synchronizer#modifyIfUnchanged(ResourceItemCommonData)}で更新します.
+	 *
+	 * @param itemCommonId リソースアイテム共通データのIDオブジェクト
+	 * @return リソースアイテム共通データ
+	 */
+	ResourceItemCommonData getForOptimisticUpdate(ResourceItemCommonDataId itemCommonId);
+
 	/**
 	 * 指定された対象リソースアイテムのID値を持ち、指定時刻以降に更新されているリソースアイテム共通データを取得します.
 	 *
@@ -68,6 +105,36 @@ public interface Synchronizer {
 	List<ResourceItemCommonData> getModifiedForUpdate(String resourceName, List<String> targetItemIdList,
 			long modifiedSince);
 
+	/**
+	 * 指定されたリソースアイテムIDを持つリソースアイテム共通データを悲観的ロック("for update")を用いて一括で取得します.<br/>
+	 * リソースアイテムIDの順にソートして実行されるため、返されるリストは元のIDリストの順とは異なる場合があります.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIdList リソースアイテムIDのリスト
+	 * @return リソースアイテム共通データ
+	 */
+	List<ResourceItemCommonData> getForUpdate(String resourceName, List<String> resourceItemIdList);
+
+	/**
+	 * 変更シーケンス番号による下り更新の読み取り範囲の終端として使用できる、最新の変更シーケンス番号を返します.<br/>
+	 * この番号以下の更新は全てコミット済(またはロールバック済)である必要があります.<br/>
+	 * 更新履歴が存在しない場合、あるいはコミット済であることが確実な番号がまだない場合は0を返します.
+	 *
+	 * @return 最新の変更シーケンス番号
+	 */
+	long getLatestChangeSequence();
+
+	/**
+	 * 変更シーケンス番号が指定範囲に含まれる更新が行われたリソースアイテムの共通データを取得します.<br/>
+	 * ID値の順にソートされたリストを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param afterSequence 検索範囲の開始シーケンス番号(この値を含まない)
+	 * @param upToSequence 検索範囲の終了シーケンス番号(この値を含む)
+	 * @return 更新されているリソースアイテム共通データ
+	 */
+	List<ResourceItemCommonData> getChanged(String resourceName, long afterSequence, long upToSequence);
+
 	/**
 	 * リソースアイテム共通データのバージョン比較により、リソースアイテムの更新競合が発生しているときtrueを返します.
 	 *
@@ -79,13 +146,28 @@ public interface Synchronizer {
 			SyncRequestCommonData requestCommon);
 
 	/**
-	 * リソースアイテム共通データを指定されたアイテムの内容で更新します.
+	 * リソースアイテム共通データを指定されたアイテムの内容で更新し、更新履歴を追加します.<br/>
+	 * 実装によっては更新を保留し、{@link Synchronizer#flush()}でまとめて実行します.
 	 *
 	 * @param itemCommon リソースアイテム共通データ
 	 * @return 更新後のリソースアイテム共通データ
 	 */
 	ResourceItemCommonData modify(ResourceItemCommonData itemCommon);
 
+	/**
+	 * {@link Synchronizer#modify(ResourceItemCommonData)}で保留している共通データの更新と更新履歴の追加を、まとめて実行します.
+	 */
+	void flush();
+
+	/**
+	 * {@link Synchronizer#getForOptimisticUpdate(ResourceItemCommonDataId)}で取得したリソースアイテム共通データを、取得後に更新されていない場合のみ更新し、更新履歴を追加します.<br/>
+	 * 他のリクエストによって先に更新されていた場合は何もせず、falseを返します.
+	 *
+	 * @param itemCommon リソースアイテム共通データ
+	 * @return 更新した場合true
+	 */
+	boolean modifyIfUnchanged(ResourceItemCommonData itemCommon);
+
 	SyncConfigurationParameter getSyncConfigurationParameter();
 
 	void setSyncConfigurationParameter(SyncConfigurationParameter syncConfigurationParameter);
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Index;
+
+/**
+ * 3方向マージによる競合解決のため、同期時点のリソースアイテムの内容(基準版)を保持するエンティティ.<br>
+ * 内容そのものではなく、リソースアイテム全体のハッシュ値とフィールドごとのハッシュ値のみを保持します.<br>
+ * クライアントが前回取得したリソースアイテムの最終更新時刻をキーに検索し、クライアント、サーバそれぞれがどのフィールドを変更したかを判定するために使用します.
+ *
+ * @author kishigam
+ */
+@Entity
+@Table(name = "RESOURCE_ITEM_BASE_VERSION")
+@org.hibernate.annotations.Table(appliesTo = "RESOURCE_ITEM_BASE_VERSION", indexes = { @Index(name = "IDX_RESOURCE_ITEM_BASE_VERSION_ITEM", columnNames = {
+		"resourceName", "resourceItemId", "lastModified" }) })
+@SequenceGenerator(name = "RESOURCE_ITEM_BASE_VERSION_SEQ_GEN", sequenceName = "RESOURCE_ITEM_BASE_VERSION_SEQ", allocationSize = 1)
+public class ResourceItemBaseVersion implements Serializable {
+
+	private static final long serialVersionUID = -2261940173386620513L;
+
+	/**
+	 * 基準版のID.
+	 */
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RESOURCE_ITEM_BASE_VERSION_SEQ_GEN")
+	private Long id;
+
+	/**
+	 * リソースアイテムのリソース名.
+	 */
+	private String resourceName;
+
+	/**
+	 * リソースアイテムのID.
+	 */
+	private String resourceItemId;
+
+	/**
+	 * この内容になった時点のリソースアイテム共通データの最終更新時刻(ミリ秒).
+	 */
+	private long lastModified;
+
+	/**
+	 * リソースアイテム全体のハッシュ値.
+	 */
+	private String itemHash;
+
+	/**
+	 * フィールド名をキー、フィールドの値のハッシュ値を値とするMapのJSON表現.
+	 */
+	@Lob
+	private String fieldHashes;
+
+	/**
+	 * フレームワーク、ライブラリが使用するプライベートデフォルトコンストラクタ.
+	 */
+	@SuppressWarnings("unused")
+	private ResourceItemBaseVersion() {
+	}
+
+	/**
+	 * 同期後のリソースアイテム共通データから、基準版を生成します.
+	 *
+	 * @param itemCommon 同期後のリソースアイテム共通データ
+	 */
+	public ResourceItemBaseVersion(ResourceItemCommonData itemCommon) {
+
+		this.resourceName = itemCommon.getId().getResourceName();
+		this.resourceItemId = itemCommon.getId().getResourceItemId();
+		this.lastModified = itemCommon.getLastModified();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return the id
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the resourceName
+	 */
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	/**
+	 * @return the resourceItemId
+	 */
+	public String getResourceItemId() {
+		return resourceItemId;
+	}
+
+	/**
+	 * @return the lastModified
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the itemHash
+	 */
+	public String getItemHash() {
+		return itemHash;
+	}
+
+	/**
+	 * @param itemHash the itemHash to set
+	 */
+	public void setItemHash(String itemHash) {
+		this.itemHash = itemHash;
+	}
+
+	/**
+	 * @return the fieldHashes
+	 */
+	public String getFieldHashes() {
+		return fieldHashes;
+	}
+
+	/**
+	 * @param fieldHashes the fieldHashes to set
+	 */
+	public void setFieldHashes(String fieldHashes) {
+		this.fieldHashes = fieldHashes;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * リソースアイテムの基準版エンティティを永続化するためのリポジトリ.<br>
+ * SpringFrameworkの標準的なリポジトリインターフェースを継承します.<br>
+ *
+ * @author kishigam
+ */
+public interface ResourceItemBaseVersionRepository extends JpaRepository<ResourceItemBaseVersion, Long> {
+
+	/**
+	 * リソース名、リソースアイテムID、最終更新時刻が合致する基準版を返します.<br>
+	 * 存在しない場合はnullを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemId リソースアイテムID
+	 * @param lastModified 最終更新時刻
+	 * @return 検索した基準版エンティティ
+	 */
+	@Query("SELECT v FROM ResourceItemBaseVersion v WHERE v.resourceName = :resourceName AND v.resourceItemId = :resourceItemId AND v.lastModified = :lastModified")
+	ResourceItemBaseVersion findVersion(@Param("resourceName") String resourceName,
+			@Param("resourceItemId") String resourceItemId, @Param("lastModified") long lastModified);
+
+	/**
+	 * リソース名、リソースアイテムIDが合致する基準版を、最終更新時刻の新しい順に返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemId リソースアイテムID
+	 * @return 検索した基準版エンティティのリスト
+	 */
+	@Query("SELECT v FROM ResourceItemBaseVersion v WHERE v.resourceName = :resourceName AND v.resourceItemId = :resourceItemId ORDER BY v.lastModified DESC")
+	List<ResourceItemBaseVersion> findVersions(@Param("resourceName") String resourceName,
+			@Param("resourceItemId") String resourceItemId);
+
+	/**
+	 * リソース名、リソースアイテムIDが合致する基準版を全て削除します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemId リソースアイテムID
+	 * @return 削除件数
+	 */
+	@Modifying
+	@Query("DELETE FROM ResourceItemBaseVersion v WHERE v.resourceName = :resourceName AND v.resourceItemId = :resourceItemId")
+	int deleteVersions(@Param("resourceName") String resourceName, @Param("resourceItemId") String resourceItemId);
+}
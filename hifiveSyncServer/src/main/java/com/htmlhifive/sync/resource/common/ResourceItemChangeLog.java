@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Index;
+
+/**
+ * リソースアイテム共通データの更新履歴を管理するエンティティ.<br>
+ * リソースアイテム共通データが更新されるたびに1件追加され、更新・削除されることはありません.<br>
+ * 変更シーケンス番号はデータベースのシーケンスにより採番されるため、サーバの時刻に依存せず単調に増加します.<br>
+ * 下り更新時の範囲検索のため、(リソース名, 変更シーケンス番号)のインデックスを定義します.
+ *
+ * @author kishigam
+ */
+@Entity
+@Table(name = "RESOURCE_ITEM_CHANGE_LOG")
+@org.hibernate.annotations.Table(appliesTo = "RESOURCE_ITEM_CHANGE_LOG", indexes = { @Index(name = "IDX_RESOURCE_ITEM_CHANGE_LOG_SEQUENCE", columnNames = {
+		"resourceName", "sequence" }) })
+@SequenceGenerator(name = "RESOURCE_ITEM_CHANGE_LOG_SEQ_GEN", sequenceName = "RESOURCE_ITEM_CHANGE_LOG_SEQ", allocationSize = 1)
+public class ResourceItemChangeLog implements Serializable {
+
+	private static final long serialVersionUID = 2784633925157401246L;
+
+	/**
+	 * 変更シーケンス番号.<br>
+	 * 複数サーバで共有しても順序が保たれるよう、1件ずつ採番します.
+	 */
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RESOURCE_ITEM_CHANGE_LOG_SEQ_GEN")
+	private Long sequence;
+
+	/**
+	 * 更新されたリソースアイテムのリソース名.
+	 */
+	private String resourceName;
+
+	/**
+	 * 更新されたリソースアイテムのID.
+	 */
+	private String resourceItemId;
+
+	/**
+	 * 更新に使用されたアクション.
+	 */
+	@Enumerated(EnumType.STRING)
+	private SyncAction syncAction;
+
+	/**
+	 * 更新時刻(ミリ秒).
+	 */
+	private long lastModified;
+
+	/**
+	 * フレームワーク、ライブラリが使用するプライベートデフォルトコンストラクタ.
+	 */
+	@SuppressWarnings("unused")
+	private ResourceItemChangeLog() {
+	}
+
+	/**
+	 * 更新後のリソースアイテム共通データから、更新履歴を生成します.
+	 *
+	 * @param itemCommon 更新後のリソースアイテム共通データ
+	 */
+	public ResourceItemChangeLog(ResourceItemCommonData itemCommon) {
+
+		this.resourceName = itemCommon.getId().getResourceName();
+		this.resourceItemId = itemCommon.getId().getResourceItemId();
+		this.syncAction = itemCommon.getSyncAction();
+		this.lastModified = itemCommon.getLastModified();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return the sequence
+	 */
+	public Long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the resourceName
+	 */
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	/**
+	 * @return the resourceItemId
+	 */
+	public String getResourceItemId() {
+		return resourceItemId;
+	}
+
+	/**
+	 * @return the syncAction
+	 */
+	public SyncAction getSyncAction() {
+		return syncAction;
+	}
+
+	/**
+	 * @return the lastModified
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+}
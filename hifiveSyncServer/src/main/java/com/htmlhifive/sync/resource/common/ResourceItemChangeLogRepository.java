@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * リソースアイテム共通データの更新履歴エンティティを永続化するためのリポジトリ.<br>
+ * SpringFrameworkの標準的なリポジトリインターフェースを継承します.<br>
+ *
+ * @author kishigam
+ */
+public interface ResourceItemChangeLogRepository extends JpaRepository<ResourceItemChangeLog, Long> {
+
+	/**
+	 * 現在の最新の変更シーケンス番号を返します.<br>
+	 * 更新履歴が存在しない場合はnullを返します.
+	 *
+	 * @return 最新の変更シーケンス番号
+	 */
+	@Query("SELECT MAX(l.sequence) FROM ResourceItemChangeLog l")
+	Long findLatestSequence();
+
+	/**
+	 * リソース名が合致し、変更シーケンス番号が指定範囲に含まれる更新履歴を持つリソースアイテムの共通データを返します.<br>
+	 * 結果は対象リソースアイテムのID値の順にソートされます.
+	 *
+	 * @param resourceName リソース名
+	 * @param after 検索範囲の開始シーケンス番号(この値を含まない)
+	 * @param upTo 検索範囲の終了シーケンス番号(この値を含む)
+	 * @return 検索した共通データエンティティのリスト
+	 */
+	@Query("SELECT DISTINCT d FROM ResourceItemCommonData d, ResourceItemChangeLog l WHERE l.resourceName = :resourceName AND l.sequence > :after AND l.sequence <= :upTo AND d.id.resourceName = l.resourceName AND d.id.resourceItemId = l.resourceItemId ORDER BY d.targetItemId")
+	List<ResourceItemCommonData> findChanged(@Param("resourceName") String resourceName, @Param("after") long after,
+			@Param("upTo") long upTo);
+
+	/**
+	 * リソース名が合致し、リソースアイテムIDが指定されたコレクションに含まれ、指定時刻より前に記録された更新履歴のうち、最新の変更シーケンス番号を返します.<br>
+	 * 該当する更新履歴が存在しない場合はnullを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIds リソースアイテムIDのコレクション
+	 * @param before 検索する時刻(この時刻より前の更新を検索)
+	 * @return 最新の変更シーケンス番号
+	 */
+	@Query("SELECT MAX(l.sequence) FROM ResourceItemChangeLog l WHERE l.resourceName = :resourceName AND l.resourceItemId IN :resourceItemIds AND l.lastModified < :before")
+	Long findLatestSequenceBefore(@Param("resourceName") String resourceName,
+			@Param("resourceItemIds") Collection<String> resourceItemIds, @Param("before") long before);
+
+	/**
+	 * 指定時刻より前に記録された更新履歴を持つリソース名を、重複なく返します.
+	 *
+	 * @param before 検索する時刻(この時刻より前の更新を検索)
+	 * @return リソース名のリスト
+	 */
+	@Query("SELECT DISTINCT l.resourceName FROM ResourceItemChangeLog l WHERE l.lastModified < :before")
+	List<String> findResourceNamesBefore(@Param("before") long before);
+
+	/**
+	 * リソース名が合致し、指定時刻より前に記録され、変更シーケンス番号が指定値より小さい更新履歴の変更シーケンス番号を、小さい順に返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param before 検索する時刻(この時刻より前の更新を検索)
+	 * @param latest 検索する変更シーケンス番号の上限(この値を含まない)
+	 * @param pageable 取得件数の指定
+	 * @return 変更シーケンス番号のリスト
+	 */
+	@Query("SELECT l.sequence FROM ResourceItemChangeLog l WHERE l.resourceName = :resourceName AND l.lastModified < :before AND l.sequence < :latest ORDER BY l.sequence")
+	List<Long> findSequencesBefore(@Param("resourceName") String resourceName, @Param("before") long before,
+			@Param("latest") long latest, Pageable pageable);
+
+	/**
+	 * 変更シーケンス番号が指定されたコレクションに含まれる更新履歴を削除します.
+	 *
+	 * @param sequences 変更シーケンス番号のコレクション
+	 * @return 削除した件数
+	 */
+	@Modifying
+	@Query("DELETE FROM ResourceItemChangeLog l WHERE l.sequence IN :sequences")
+	int deleteBySequences(@Param("sequences") Collection<Long> sequences);
+}
@@ -23,20 +23,27 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonUnwrapped;
+import org.hibernate.annotations.Index;
 
 /**
  * リソースアイテムを同期するために必要な共通データを管理するエンティティ.<br>
- * リソースアイテムごとに1つの共通データが生成されます.
+ * リソースアイテムごとに1つの共通データが生成されます.<br>
+ * 下り更新時の検索のため、(リソース名, 対象リソースアイテムID)、(リソース名, 最終更新時刻)のインデックスを定義します.
  *
  * @author kishigam
  */
 @Entity
 @Table(name = "RESOURCE_ITEM_COMMON_DATA")
+@org.hibernate.annotations.Table(appliesTo = "RESOURCE_ITEM_COMMON_DATA", indexes = {
+		@Index(name = "IDX_RESOURCE_ITEM_COMMON_DATA_TARGET", columnNames = { "resourceName", "targetItemId" }),
+		@Index(name = "IDX_RESOURCE_ITEM_COMMON_DATA_MODIFIED", columnNames = { "resourceName", "lastModified" }) })
 public class ResourceItemCommonData implements Serializable, Comparable<ResourceItemCommonData> {
 
 	private static final long serialVersionUID = -9200797333301417852L;
@@ -64,6 +71,22 @@ public class ResourceItemCommonData implements Serializable, Comparable<Resource
 	 */
 	private long lastModified;
 
+	/**
+	 * 楽観的ロックのためのバージョン.<br>
+	 * 更新のたびにインクリメントされます.クライアントには返しません.<br>
+	 * カラム追加前から存在するデータではnullとなるため、ラッパー型とし、nullは0として扱います.
+	 */
+	@JsonIgnore
+	@Version
+	private Long version;
+
+	/**
+	 * リソースアイテムの内容のハッシュ値.<br>
+	 * 内容が変わらない更新を検出するために使用します.クライアントには返しません.
+	 */
+	@JsonIgnore
+	private String contentHash;
+
 	/**
 	 * フレームワーク、ライブラリが使用するプライベートデフォルトコンストラクタ.
 	 */
@@ -194,4 +217,34 @@ public class ResourceItemCommonData implements Serializable, Comparable<Resource
 	public void setLastModified(long lastModified) {
 		this.lastModified = lastModified;
 	}
+
+	/**
+	 * @return the version
+	 */
+	@JsonIgnore
+	public long getVersion() {
+		return version == null ? 0L : version;
+	}
+
+	/**
+	 * @param version the version to set
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	/**
+	 * @return the contentHash
+	 */
+	@JsonIgnore
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @param contentHash the contentHash to set
+	 */
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
 }
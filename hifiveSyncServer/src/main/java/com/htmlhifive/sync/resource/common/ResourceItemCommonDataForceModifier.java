@@ -61,6 +61,8 @@ public class ResourceItemCommonDataForceModifier implements ResourceItemCommonDa
 		}
 
 		common.modify(action, updateTime);
+		// 同期以外で変更された内容はハッシュ値が不明のため、内容が変わらない更新として扱わないよう破棄する
+		common.setContentHash(null);
 
 		repository.save(common);
 	}
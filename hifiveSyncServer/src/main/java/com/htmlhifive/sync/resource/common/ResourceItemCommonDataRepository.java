@@ -16,10 +16,15 @@
  */
 package com.htmlhifive.sync.resource.common;
 
+import java.util.Collection;
+import java.util.List;
+
 import javax.persistence.LockModeType;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -43,6 +48,24 @@ public interface ResourceItemCommonDataRepository extends
 	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id = :id")
 	ResourceItemCommonData findOneForUpdate(@Param("id") ResourceItemCommonDataId id);
 
+	/**
+	 * IDとバージョンが合致するリソースアイテムの共通データを、指定された内容で更新し、バージョンをインクリメントします.<br>
+	 * 取得後に他のリクエストによって更新されていた場合は、バージョンが合致しないため更新されません.<br>
+	 * バージョンがnull(カラム追加前から存在するデータ)の場合は0として扱います.
+	 *
+	 * @param id リソースアイテム共通データのIDオブジェクト
+	 * @param syncAction 更新アクション
+	 * @param lastModified 更新時刻
+	 * @param contentHash リソースアイテムの内容のハッシュ値
+	 * @param version 取得時のバージョン
+	 * @return 更新件数(バージョンが合致しない場合は0)
+	 */
+	@Modifying
+	@Query("UPDATE ResourceItemCommonData d SET d.syncAction = :syncAction, d.lastModified = :lastModified, d.contentHash = :contentHash, d.version = COALESCE(d.version, 0) + 1 WHERE d.id = :id AND COALESCE(d.version, 0) = :version")
+	int updateIfVersionMatches(@Param("id") ResourceItemCommonDataId id, @Param("syncAction") SyncAction syncAction,
+			@Param("lastModified") long lastModified, @Param("contentHash") String contentHash,
+			@Param("version") long version);
+
 	/**
 	 * リソース名と対象リソースアイテムのID値が合致し、ある時刻以降に更新されたリソースアイテムの共通データを返します.
 	 *
@@ -68,4 +91,108 @@ public interface ResourceItemCommonDataRepository extends
 	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.targetItemId = :targetItemId AND d.lastModified > :since")
 	ResourceItemCommonData findModifiedForUpdate(@Param("resourceName") String resourceName,
 			@Param("targetItemId") String targetItemId, @Param("since") long since);
+
+	/**
+	 * リソース名が合致し、対象リソースアイテムのID値が指定されたコレクションに含まれ、ある時刻以降に更新されたリソースアイテムの共通データを返します.<br>
+	 * 結果は対象リソースアイテムのID値の順にソートされます.
+	 *
+	 * @param resourceName リソース名
+	 * @param targetItemIds 対象リソースアイテムのID値のコレクション
+	 * @param since データを検索する時刻(指定時刻以降の更新データを検索)
+	 * @return 検索した共通データエンティティのリスト
+	 */
+	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.targetItemId IN :targetItemIds AND d.lastModified > :since ORDER BY d.targetItemId")
+	List<ResourceItemCommonData> findModifiedIn(@Param("resourceName") String resourceName,
+			@Param("targetItemIds") Collection<String> targetItemIds, @Param("since") long since);
+
+	/**
+	 * リソース名が合致し、対象リソースアイテムのID値が指定されたコレクションに含まれ、ある時刻以降に更新されたリソースアイテムの共通データを返します.<br>
+	 * 結果は対象リソースアイテムのID値の順にソートされます.<br>
+	 * 悲観的ロックを実行します.
+	 *
+	 * @param resourceName リソース名
+	 * @param targetItemIds 対象リソースアイテムのID値のコレクション
+	 * @param since データを検索する時刻(指定時刻以降の更新データを検索)
+	 * @return 検索した共通データエンティティのリスト
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.targetItemId IN :targetItemIds AND d.lastModified > :since ORDER BY d.targetItemId")
+	List<ResourceItemCommonData> findModifiedInForUpdate(@Param("resourceName") String resourceName,
+			@Param("targetItemIds") Collection<String> targetItemIds, @Param("since") long since);
+
+	/**
+	 * 全てのリソースアイテム共通データのうち、最も新しい最終更新時刻を返します.<br>
+	 * 共通データが存在しない場合はnullを返します.
+	 *
+	 * @return 最終更新時刻の最大値
+	 */
+	@Query("SELECT MAX(d.lastModified) FROM ResourceItemCommonData d")
+	Long findMaxLastModified();
+
+	/**
+	 * リソース名が合致し、リソースアイテムIDが指定されたコレクションに含まれるリソースアイテムの共通データを返します.<br>
+	 * 結果はリソースアイテムIDの順にソートされます.<br>
+	 * 悲観的ロックを実行します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIds リソースアイテムIDのコレクション
+	 * @return 検索した共通データエンティティのリスト
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.id.resourceItemId IN :resourceItemIds ORDER BY d.id.resourceItemId")
+	List<ResourceItemCommonData> findInForUpdate(@Param("resourceName") String resourceName,
+			@Param("resourceItemIds") Collection<String> resourceItemIds);
+
+	/**
+	 * リソース名が合致し、指定されたリソースアイテムIDのいずれかを持つ共通データが存在するリソースアイテムIDを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIds リソースアイテムIDのコレクション
+	 * @return 共通データが存在するリソースアイテムIDのリスト
+	 */
+	@Query("SELECT d.id.resourceItemId FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.id.resourceItemId IN :resourceItemIds")
+	List<String> findExistingIds(@Param("resourceName") String resourceName,
+			@Param("resourceItemIds") Collection<String> resourceItemIds);
+
+	/**
+	 * 指定時刻より前に指定されたアクションで更新されたリソースアイテムの共通データを持つリソースのリソース名を返します.<br>
+	 * 削除済の共通データ(トゥームストーン)を破棄するリソースの検索に使用します.
+	 *
+	 * @param syncAction 更新アクション
+	 * @param before 検索する時刻(この時刻より前の更新を検索)
+	 * @return リソース名のリスト
+	 */
+	@Query("SELECT DISTINCT d.id.resourceName FROM ResourceItemCommonData d WHERE d.syncAction = :syncAction AND d.lastModified < :before")
+	List<String> findResourceNamesByActionBefore(@Param("syncAction") SyncAction syncAction,
+			@Param("before") long before);
+
+	/**
+	 * リソース名が合致し、指定時刻より前に指定されたアクションで更新されたリソースアイテムの共通データを返します.<br>
+	 * 結果は最終更新時刻の順にソートされ、指定されたページの範囲のみ返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param syncAction 更新アクション
+	 * @param before 検索する時刻(この時刻より前の更新を検索)
+	 * @param pageable 取得する範囲
+	 * @return 検索した共通データエンティティのリスト
+	 */
+	@Query("SELECT d FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.syncAction = :syncAction AND d.lastModified < :before ORDER BY d.lastModified, d.id.resourceItemId")
+	List<ResourceItemCommonData> findByActionBefore(@Param("resourceName") String resourceName,
+			@Param("syncAction") SyncAction syncAction, @Param("before") long before, Pageable pageable);
+
+	/**
+	 * リソース名が合致し、リソースアイテムIDが指定されたコレクションに含まれ、指定時刻より前に指定されたアクションで更新されたリソースアイテムの共通データを削除します.<br>
+	 * 検索後に他のアクションで更新されたリソースアイテムは、条件に合致しないため削除されません.
+	 *
+	 * @param resourceName リソース名
+	 * @param resourceItemIds リソースアイテムIDのコレクション
+	 * @param syncAction 更新アクション
+	 * @param before 削除する時刻(この時刻より前の更新を対象とする)
+	 * @return 削除件数
+	 */
+	@Modifying
+	@Query("DELETE FROM ResourceItemCommonData d WHERE d.id.resourceName = :resourceName AND d.id.resourceItemId IN :resourceItemIds AND d.syncAction = :syncAction AND d.lastModified < :before")
+	int deleteByActionBefore(@Param("resourceName") String resourceName,
+			@Param("resourceItemIds") Collection<String> resourceItemIds, @Param("syncAction") SyncAction syncAction,
+			@Param("before") long before);
 }
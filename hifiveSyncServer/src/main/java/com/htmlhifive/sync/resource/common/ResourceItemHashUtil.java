@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+/**
+ * リソースアイテムの内容のハッシュ値を計算するユーティリティ.<br>
+ * 読み取り可能な各フィールドの値をJSONにシリアライズしたハッシュ値をフィールドごとに計算し、それらからリソースアイテム全体のハッシュ値を計算します.
+ *
+ * @author kishigam
+ */
+public final class ResourceItemHashUtil {
+
+	/**
+	 * ハッシュ値の計算に使用するアルゴリズム.
+	 */
+	private static final String HASH_ALGORITHM = "SHA-1";
+
+	/**
+	 * フィールドの値をハッシュ値の計算のためにシリアライズするオブジェクト.
+	 */
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private ResourceItemHashUtil() {
+		// インスタンスの生成禁止.
+	}
+
+	/**
+	 * リソースアイテム全体のハッシュ値を計算します.
+	 *
+	 * @param item リソースアイテム
+	 * @return リソースアイテム全体のハッシュ値
+	 * @throws IOException フィールドの値をシリアライズできない場合
+	 */
+	public static String hashItem(Object item) throws IOException {
+
+		return hashItem(hashFields(PropertyAccessorFactory.forBeanPropertyAccess(item)));
+	}
+
+	/**
+	 * フィールドごとのハッシュ値から、リソースアイテム全体のハッシュ値を計算します.
+	 *
+	 * @param fieldHashes フィールド名をキー、値のハッシュ値を値とするMap
+	 * @return リソースアイテム全体のハッシュ値
+	 * @throws IOException Mapをシリアライズできない場合
+	 */
+	public static String hashItem(Map<String, String> fieldHashes) throws IOException {
+
+		return hash(OBJECT_MAPPER.writeValueAsBytes(fieldHashes));
+	}
+
+	/**
+	 * リソースアイテムの読み取り可能な各フィールドについて、値をシリアライズしたハッシュ値を計算し、フィールド名の順のMapで返します.
+	 *
+	 * @param wrapper リソースアイテムのBeanWrapper
+	 * @return フィールド名をキー、値のハッシュ値を値とするMap
+	 * @throws IOException フィールドの値をシリアライズできない場合
+	 */
+	public static Map<String, String> hashFields(BeanWrapper wrapper) throws IOException {
+
+		Map<String, String> fieldHashes = new TreeMap<>();
+		for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+			String name = descriptor.getName();
+			if ("class".equals(name) || !wrapper.isReadableProperty(name)) {
+				continue;
+			}
+			fieldHashes.put(name, hash(OBJECT_MAPPER.writeValueAsBytes(wrapper.getPropertyValue(name))));
+		}
+		return fieldHashes;
+	}
+
+	/**
+	 * 指定されたバイト列のハッシュ値を、16進数形式の文字列で返します.
+	 *
+	 * @param bytes バイト列
+	 * @return ハッシュ値
+	 */
+	public static String hash(byte[] bytes) {
+
+		try {
+			return String.format("%040x", new BigInteger(1, MessageDigest.getInstance(HASH_ALGORITHM).digest(bytes)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
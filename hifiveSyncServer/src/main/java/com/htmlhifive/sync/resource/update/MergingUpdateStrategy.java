@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.update;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+
+/**
+ * 同期時点のリソースアイテムの内容(基準版)を使用してマージを行う競合解決ロジッククラスのインターフェース.<br>
+ * {@link #resolveConflict(ResourceItemCommonData, Object, ResourceItemCommonData, Object) resolveConflict}が
+ * {@link com.htmlhifive.sync.resource.common.SyncAction#UPDATE UPDATE}を返した場合、
+ * 引数の更新しようとしているリソースアイテムはマージ結果の内容に書き換えられています.<br>
+ * 同期を行ったリソースは、同期後のリソースアイテムを基準版として記録する必要があります.
+ *
+ * @author kishigam
+ */
+public interface MergingUpdateStrategy extends UpdateStrategy {
+
+	/**
+	 * 同期後のリソースアイテムの内容を、その時点の最終更新時刻の基準版として記録します.
+	 *
+	 * @param itemCommon 同期後のリソースアイテムの共通データ
+	 * @param item 同期後のリソースアイテム
+	 */
+	public void recordBaseVersion(ResourceItemCommonData itemCommon, Object item);
+
+	/**
+	 * リソースアイテムの基準版を全て破棄します.リソースアイテムが削除された場合に使用します.
+	 *
+	 * @param itemCommon 削除されたリソースアイテムの共通データ
+	 */
+	public void removeBaseVersions(ResourceItemCommonData itemCommon);
+}
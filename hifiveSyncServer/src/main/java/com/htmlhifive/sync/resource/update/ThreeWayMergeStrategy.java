@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.update;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.htmlhifive.sync.resource.common.ResourceItemBaseVersion;
+import com.htmlhifive.sync.resource.common.ResourceItemBaseVersionRepository;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemHashUtil;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * クライアントが前回同期した時点の内容(基準版)との3方向マージにより競合を解決する競合時更新戦略実装クラス.<br>
+ * クライアント、サーバがそれぞれ基準版から変更したフィールドをフィールド単位で判定し、異なるフィールドの変更であればマージします.<br>
+ * 同じフィールドを異なる値に変更していた場合、基準版が見つからない場合、更新以外のアクションの場合は競合として扱います.<br>
+ * 基準版は値そのものではなくハッシュ値のみを保持するため、リソースアイテムのサイズに関わらず小さく保たれます.
+ *
+ * @author kishigam
+ */
+public class ThreeWayMergeStrategy implements MergingUpdateStrategy {
+
+	private static final Logger LOGGER = Logger.getLogger(ThreeWayMergeStrategy.class);
+
+	/**
+	 * 基準版のリポジトリ.
+	 */
+	@Autowired
+	private ResourceItemBaseVersionRepository resourceItemBaseVersionRepository;
+
+	/**
+	 * 基準版のフィールドごとのハッシュ値をJSONとして読み書きするオブジェクト.
+	 */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * リソースアイテムごとに保持する基準版の最大数.
+	 */
+	private final int maxVersions;
+
+	/**
+	 * リソースアイテムごとに保持する基準版の最大数を指定してインスタンスを生成します.<br>
+	 * 最大数を超えた基準版は、最終更新時刻の古いものから破棄されます.
+	 *
+	 * @param maxVersions リソースアイテムごとに保持する基準版の最大数
+	 */
+	public ThreeWayMergeStrategy(int maxVersions) {
+
+		this.maxVersions = Math.max(maxVersions, 1);
+	}
+
+	/**
+	 * クライアントが前回同期した時点の基準版と比較し、フィールド単位でマージします.<br>
+	 * サーバのみが変更したフィールドは、更新しようとしているリソースアイテムにサーバの値を設定した上で{@link SyncAction#UPDATE UPDATE}
+	 * を返します.マージできない場合は{@link SyncAction#CONFLICT CONFLICT}を返します.
+	 */
+	@Override
+	public SyncAction resolveConflict(ResourceItemCommonData clientCommon, Object clientItem,
+			ResourceItemCommonData serverCommon, Object serverItem) {
+
+		if (clientCommon.getSyncAction() != SyncAction.UPDATE || serverCommon.getSyncAction() == SyncAction.DELETE
+				|| clientItem == null || serverItem == null) {
+			return SyncAction.CONFLICT;
+		}
+
+		ResourceItemBaseVersion baseVersion = resourceItemBaseVersionRepository.findVersion(serverCommon.getId()
+				.getResourceName(), serverCommon.getId().getResourceItemId(), clientCommon.getLastModified());
+		if (baseVersion == null) {
+			return SyncAction.CONFLICT;
+		}
+
+		try {
+			Map<String, String> baseHashes = objectMapper.readValue(baseVersion.getFieldHashes(),
+					new TypeReference<TreeMap<String, String>>() {
+					});
+
+			BeanWrapper clientWrapper = PropertyAccessorFactory.forBeanPropertyAccess(clientItem);
+			BeanWrapper serverWrapper = PropertyAccessorFactory.forBeanPropertyAccess(serverItem);
+			Map<String, String> clientHashes = ResourceItemHashUtil.hashFields(clientWrapper);
+			Map<String, String> serverHashes = ResourceItemHashUtil.hashFields(serverWrapper);
+
+			// サーバが基準版から変更していなければ、クライアントの内容をそのまま反映する
+			if (baseVersion.getItemHash().equals(ResourceItemHashUtil.hashItem(serverHashes))) {
+				return SyncAction.UPDATE;
+			}
+
+			// 全てのフィールドの競合を確認してから書き換えるため、サーバの値を採用するフィールドを先に集める
+			Map<String, Object> serverValues = new TreeMap<>();
+			for (Map.Entry<String, String> clientHash : clientHashes.entrySet()) {
+				String name = clientHash.getKey();
+				String baseHash = baseHashes.get(name);
+				String serverHash = serverHashes.get(name);
+
+				// クライアントとサーバが同じ値であれば、どちらが変更したかに関わらずマージ不要
+				if (clientHash.getValue().equals(serverHash)) {
+					continue;
+				}
+
+				// サーバのみが変更したフィールドはサーバの値を採用する
+				if (clientHash.getValue().equals(baseHash)) {
+					if (clientWrapper.isWritableProperty(name)) {
+						serverValues.put(name, serverWrapper.getPropertyValue(name));
+					}
+					continue;
+				}
+
+				// クライアントとサーバが同じフィールドを異なる値に変更した
+				if (serverHash == null || !serverHash.equals(baseHash)) {
+					return SyncAction.CONFLICT;
+				}
+			}
+
+			clientWrapper.setPropertyValues(serverValues);
+
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("[syncfw]Failed to merge resource item. : " + serverCommon.getId(), e);
+			return SyncAction.CONFLICT;
+		}
+
+		return SyncAction.UPDATE;
+	}
+
+	/**
+	 * 同期後のリソースアイテムの各フィールドのハッシュ値を、基準版として保存します.<br>
+	 * 保持する最大数を超えた場合、最終更新時刻の古い基準版を破棄します.<br>
+	 * ハッシュ値を計算できないリソースアイテムは記録しません(そのリソースアイテムの競合はマージされません).
+	 */
+	@Override
+	public void recordBaseVersion(ResourceItemCommonData itemCommon, Object item) {
+
+		if (item == null) {
+			return;
+		}
+
+		ResourceItemBaseVersion baseVersion = resourceItemBaseVersionRepository.findVersion(itemCommon.getId()
+				.getResourceName(), itemCommon.getId().getResourceItemId(), itemCommon.getLastModified());
+		if (baseVersion == null) {
+			baseVersion = new ResourceItemBaseVersion(itemCommon);
+		}
+
+		try {
+			Map<String, String> fieldHashes = ResourceItemHashUtil.hashFields(PropertyAccessorFactory
+					.forBeanPropertyAccess(item));
+
+			baseVersion.setFieldHashes(objectMapper.writeValueAsString(fieldHashes));
+			baseVersion.setItemHash(ResourceItemHashUtil.hashItem(fieldHashes));
+
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("[syncfw]Failed to record base version of resource item. : " + itemCommon.getId(), e);
+			return;
+		}
+
+		resourceItemBaseVersionRepository.save(baseVersion);
+
+		List<ResourceItemBaseVersion> versions = resourceItemBaseVersionRepository.findVersions(itemCommon.getId()
+				.getResourceName(), itemCommon.getId().getResourceItemId());
+		if (versions.size() > maxVersions) {
+			resourceItemBaseVersionRepository.delete(versions.subList(maxVersions, versions.size()));
+		}
+	}
+
+	/**
+	 * リソースアイテムの基準版を全て破棄します.
+	 */
+	@Override
+	public void removeBaseVersions(ResourceItemCommonData itemCommon) {
+
+		resourceItemBaseVersionRepository.deleteVersions(itemCommon.getId().getResourceName(), itemCommon.getId()
+				.getResourceItemId());
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.htmlhifive.sync.resource.common.ResourceItemChangeLogRepository;
+
+/**
+ * 変更シーケンス番号による下り更新で、読み取り範囲の終端とする「コミット済であることが確実な」変更シーケンス番号を管理するクラス.<br/>
+ * 変更シーケンス番号は更新履歴の登録時に採番されるため、最大値を持つ更新履歴がコミットされていても、それより小さい番号のトランザクションがまだ実行中の場合があります.
+ * このため、更新履歴の最大値を一定間隔で記録し、安全ラグ以上前に記録した値のうち最新のものを終端とします.<br/>
+ * 記録した時点で採番済の番号は、その時点で開始済のトランザクションのものであるため、トランザクションの実行時間が安全ラグを超えなければ、全てコミット(またはロールバック)されています.<br/>
+ * 最大値の検索は記録の間隔ごとに1回のみ行うため、下り更新ごとにデータベースを検索することはありません.<br/>
+ * 起動直後などで安全ラグ以上前に記録した値がない場合も待機せず、0を返します.呼び出し側は、クライアントが指定した起点より終端を進めないようにする必要があります.<br/>
+ * 安全ラグが0以下の場合、呼び出しごとに最大値を検索してそのまま返します.
+ *
+ * @author kishigam
+ */
+public class ChangeSequenceHighWaterMark {
+
+	/**
+	 * 更新履歴のリポジトリ.
+	 */
+	@Autowired
+	private ResourceItemChangeLogRepository resourceItemChangeLogRepository;
+
+	/**
+	 * 安全ラグ(ナノ秒).
+	 */
+	private final long safetyLagNanos;
+
+	/**
+	 * 最大値を記録する間隔(ナノ秒).
+	 */
+	private final long sampleIntervalNanos;
+
+	/**
+	 * 記録した(記録時刻(ナノ秒), 変更シーケンス番号の最大値)の組.古い順に保持します.
+	 */
+	private final Deque<long[]> samples = new ArrayDeque<>();
+
+	/**
+	 * 他のスレッドが最大値を検索中の場合true.
+	 */
+	private boolean sampling;
+
+	/**
+	 * 安全ラグを指定してインスタンスを生成します.<br/>
+	 * 最大値は、安全ラグの1/10の間隔で記録します.
+	 *
+	 * @param safetyLag 安全ラグ(ミリ秒).アップロードのトランザクションの最大実行時間より長くする必要があります.
+	 */
+	public ChangeSequenceHighWaterMark(long safetyLag) {
+
+		this.safetyLagNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(safetyLag, 0L));
+		this.sampleIntervalNanos = Math.max(safetyLagNanos / 10, 1L);
+	}
+
+	/**
+	 * コミット済であることが確実な、最新の変更シーケンス番号を返します.<br/>
+	 * 起動直後で安全ラグ以上前に記録した値がない場合は、待機せずに0を返します.
+	 *
+	 * @return 変更シーケンス番号(更新履歴が存在しない場合、または安全ラグ以上前に記録した値がない場合は0)
+	 */
+	public long get() {
+
+		if (safetyLagNanos <= 0) {
+			return findLatest();
+		}
+
+		sampleIfDue();
+
+		synchronized (this) {
+			long[] safe = findSafeSample(System.nanoTime());
+			return safe == null ? 0L : safe[1];
+		}
+	}
+
+	/**
+	 * 前回の記録から記録の間隔が経過していれば、変更シーケンス番号の最大値を検索して記録します.<br/>
+	 * 検索中に他のスレッドを待たせないよう、検索はロックの外で1つのスレッドのみが行います.
+	 */
+	private void sampleIfDue() {
+
+		synchronized (this) {
+			long[] latest = samples.peekLast();
+			if (sampling || (latest != null && System.nanoTime() - latest[0] < sampleIntervalNanos)) {
+				return;
+			}
+			sampling = true;
+		}
+
+		try {
+			long sequence = findLatest();
+
+			// 記録時刻は検索の完了後とする(検索結果の番号は、全てこの時刻より前に採番されている)
+			synchronized (this) {
+				samples.addLast(new long[] { System.nanoTime(), sequence });
+			}
+		} finally {
+			synchronized (this) {
+				sampling = false;
+			}
+		}
+	}
+
+	/**
+	 * 安全ラグ以上前に記録した値のうち最新のものを返し、それより古い記録を破棄します.<br/>
+	 * 該当する記録がない場合はnullを返します.
+	 *
+	 * @param now 現在時刻(ナノ秒)
+	 * @return 安全ラグ以上前に記録した最新の(記録時刻, 変更シーケンス番号)
+	 */
+	private long[] findSafeSample(long now) {
+
+		long[] safe = null;
+		while (!samples.isEmpty() && now - samples.peekFirst()[0] >= safetyLagNanos) {
+			safe = samples.pollFirst();
+		}
+		if (safe != null) {
+			samples.addFirst(safe);
+		}
+		return safe;
+	}
+
+	/**
+	 * @return 現在の変更シーケンス番号の最大値(更新履歴が存在しない場合は0)
+	 */
+	private long findLatest() {
+
+		Long latest = resourceItemChangeLogRepository.findLatestSequence();
+		return latest == null ? 0L : latest;
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 下り更新結果をキャッシュし、同じ条件の下り更新リクエストに再利用するクラス.<br/>
+ * キャッシュのキーはリソース名、正規化したクエリ条件、クライアントデータの最終更新時刻を区間の先頭に切り捨てた値です.<br/>
+ * 最終更新時刻を切り捨てるため、結果にはクライアントが既に持っている更新が含まれることがありますが、下り更新の結果としては問題ありません.<br/>
+ * リソースアイテム共通データが更新された場合、トランザクションのコミット後にそのリソースのキャッシュを破棄します.<br/>
+ * キャッシュの大きさは、保持している下り更新結果の総件数で制限し、超えた場合は最も長く参照されていないものから破棄します.
+ * 最大件数が0以下の場合、キャッシュは使用しません.
+ *
+ * @author kishigam
+ */
+public class DownloadResultCache {
+
+	/**
+	 * キャッシュに保持する下り更新結果の最大総件数.
+	 */
+	private final int maxItems;
+
+	/**
+	 * クライアントデータの最終更新時刻を切り捨てる区間の幅(ミリ秒).
+	 */
+	private final long watermarkBucket;
+
+	/**
+	 * 下り更新結果のキャッシュ.参照順に保持します.
+	 */
+	private final LinkedHashMap<Key, List<Map<String, Object>>> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * リソースごとの世代番号.キャッシュが破棄されるたびに増加します.<br/>
+	 * 下り更新結果の生成中に破棄された場合、その結果をキャッシュしないために使用します.
+	 */
+	private final Map<String, Long> generations = new LinkedHashMap<>();
+
+	/**
+	 * キャッシュに保持している下り更新結果の総件数.
+	 */
+	private int itemCount;
+
+	/**
+	 * キャッシュヒット数.
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * キャッシュミス数.
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * キャッシュの大きさと、最終更新時刻を切り捨てる区間の幅を指定してインスタンスを生成します.
+	 *
+	 * @param maxItems キャッシュに保持する下り更新結果の最大総件数(0以下の場合はキャッシュを使用しない)
+	 * @param watermarkBucket 最終更新時刻を切り捨てる区間の幅(ミリ秒)
+	 */
+	public DownloadResultCache(int maxItems, long watermarkBucket) {
+
+		this.maxItems = maxItems;
+		this.watermarkBucket = watermarkBucket;
+	}
+
+	/**
+	 * クライアントデータの最終更新時刻を区間の先頭に切り捨てます.<br/>
+	 * キャッシュを使用する下り更新は、この時刻以降の更新を対象に実行します.
+	 *
+	 * @param modifiedSince クライアントデータの最終更新時刻
+	 * @return 切り捨てた最終更新時刻
+	 */
+	public long toBucket(long modifiedSince) {
+
+		if (watermarkBucket <= 1) {
+			return modifiedSince;
+		}
+		return modifiedSince - modifiedSince % watermarkBucket;
+	}
+
+	/**
+	 * キャッシュされている下り更新結果を返します.存在しない場合はnullを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param query 正規化したクエリ条件
+	 * @param bucket 切り捨てた最終更新時刻
+	 * @return 下り更新結果(変更不可)
+	 */
+	public synchronized List<Map<String, Object>> get(String resourceName, String query, long bucket) {
+
+		List<Map<String, Object>> results = cache.get(new Key(resourceName, query, bucket));
+		if (results == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return results;
+	}
+
+	/**
+	 * リソースの現在の世代番号を返します.<br/>
+	 * 下り更新結果の生成前に取得し、{@link DownloadResultCache#put(String, String, long, long, List)}に渡します.
+	 *
+	 * @param resourceName リソース名
+	 * @return 世代番号
+	 */
+	public synchronized long getGeneration(String resourceName) {
+
+		Long generation = generations.get(resourceName);
+		return generation == null ? 0L : generation;
+	}
+
+	/**
+	 * 下り更新結果をキャッシュします.<br/>
+	 * 生成中にそのリソースのキャッシュが破棄されていた場合や、1件で最大総件数を超える場合はキャッシュしません.
+	 *
+	 * @param resourceName リソース名
+	 * @param query 正規化したクエリ条件
+	 * @param bucket 切り捨てた最終更新時刻
+	 * @param generation 下り更新結果の生成前に取得した世代番号
+	 * @param results 下り更新結果
+	 * @return キャッシュした下り更新結果(変更不可)
+	 */
+	public synchronized List<Map<String, Object>> put(String resourceName, String query, long bucket,
+			long generation, List<Map<String, Object>> results) {
+
+		List<Map<String, Object>> unmodifiable = Collections.unmodifiableList(results);
+		if (generation != getGeneration(resourceName) || results.size() > maxItems) {
+			return unmodifiable;
+		}
+
+		List<Map<String, Object>> replaced = cache.put(new Key(resourceName, query, bucket), unmodifiable);
+		if (replaced != null) {
+			itemCount -= replaced.size();
+		}
+		itemCount += results.size();
+
+		// 最大総件数に収まるまで、最も長く参照されていないものから破棄する
+		Iterator<List<Map<String, Object>>> it = cache.values().iterator();
+		while (itemCount > maxItems && it.hasNext()) {
+			itemCount -= it.next().size();
+			it.remove();
+		}
+
+		return unmodifiable;
+	}
+
+	/**
+	 * リソースのキャッシュを全て破棄します.
+	 *
+	 * @param resourceName リソース名
+	 */
+	public synchronized void invalidate(String resourceName) {
+
+		generations.put(resourceName, getGeneration(resourceName) + 1);
+
+		Iterator<Map.Entry<Key, List<Map<String, Object>>>> it = cache.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, List<Map<String, Object>>> entry = it.next();
+			if (entry.getKey().resourceName.equals(resourceName)) {
+				itemCount -= entry.getValue().size();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * 現在のトランザクションのコミット後に、リソースのキャッシュを破棄します.<br/>
+	 * 1つのトランザクションで同じリソースを複数回更新した場合も、破棄は1回だけ行います.
+	 * トランザクション外で呼び出された場合は、すぐに破棄します.
+	 *
+	 * @param resourceName リソース名
+	 */
+	public void invalidateAfterCommit(String resourceName) {
+
+		if (!isEnabled()) {
+			return;
+		}
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			invalidate(resourceName);
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		Set<String> resourceNames = (Set<String>) TransactionSynchronizationManager.getResource(this);
+		if (resourceNames == null) {
+			final Set<String> modifiedResourceNames = new HashSet<>();
+			resourceNames = modifiedResourceNames;
+			TransactionSynchronizationManager.bindResource(this, modifiedResourceNames);
+
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					for (String name : modifiedResourceNames) {
+						invalidate(name);
+					}
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(DownloadResultCache.this);
+				}
+			});
+		}
+		resourceNames.add(resourceName);
+	}
+
+	/**
+	 * @return キャッシュを使用する場合true
+	 */
+	public boolean isEnabled() {
+		return maxItems > 0;
+	}
+
+	/**
+	 * @return キャッシュヒット数
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return キャッシュミス数
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return キャッシュしている下り更新結果の数
+	 */
+	public synchronized int getSize() {
+		return cache.size();
+	}
+
+	/**
+	 * @return キャッシュしている下り更新結果の総件数
+	 */
+	public synchronized int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * キャッシュのキー.
+	 */
+	private static final class Key {
+
+		private final String resourceName;
+
+		private final String query;
+
+		private final long bucket;
+
+		private Key(String resourceName, String query, long bucket) {
+
+			this.resourceName = resourceName;
+			this.query = query;
+			this.bucket = bucket;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+
+			Key key = (Key) obj;
+
+			return new EqualsBuilder().append(this.resourceName, key.resourceName).append(this.query, key.query)
+					.append(this.bucket, key.bucket).isEquals();
+		}
+
+		@Override
+		public int hashCode() {
+
+			return new HashCodeBuilder(17, 37).append(this.resourceName).append(this.query).append(this.bucket)
+					.hashCode();
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataRepository;
+
+/**
+ * ハイブリッド論理時計による{@link SyncClock}実装.<br>
+ * 物理時刻(ミリ秒)と論理カウンタの組を時計とし、組としてノード内で狭義単調増加させます.<br>
+ * システム時刻が物理時刻より進んでいなければ論理カウンタのみを加算するため、同期時刻として返す物理時刻は同じミリ秒が続くことがあります.
+ * 論理カウンタをミリ秒に加算しないため、1ミリ秒あたりに発行できる同期時刻の数に上限はなく、発行のために待機することもありません.
+ * 同期時刻はシステム時刻と同じミリ秒単位であるため、既存の最終更新時刻やバッファ時間とそのまま比較できます.<br>
+ * <br>
+ * 発行する同期時刻の上限を一定時間分ずつデータベースに予約し、再起動時は予約済の上限と保存済の最終更新時刻から再開します.
+ * 再起動直後にシステム時刻より先行する分は物理時刻として扱い、システム時刻が追いつくまで同じ物理時刻を返します.<br>
+ * 予約はモニタの外で実行し、予約中も予約済の範囲内の同期時刻は待たずに発行します.<br>
+ * また、クライアントがリクエストで送信した時刻(他のノードが生成した時刻を含む)を{@link #observe(long)}で受け取り、以降の同期時刻をそれより後にします.
+ * ただし、システム時刻より最大の先行量を超えて先の時刻は、その先行量までに制限して反映します.
+ *
+ * @author kishigam
+ */
+public class HybridLogicalClock implements SyncClock {
+
+	private static final Logger LOGGER = Logger.getLogger(HybridLogicalClock.class);
+
+	/**
+	 * 同期時刻の上限を永続化するリポジトリ.
+	 */
+	@Autowired
+	private SyncClockStateRepository syncClockStateRepository;
+
+	/**
+	 * 再起動時に保存済の最終更新時刻を取得するためのリポジトリ.
+	 */
+	@Autowired
+	private ResourceItemCommonDataRepository resourceItemCommonDataRepository;
+
+	/**
+	 * 同期時刻の上限を保存するためのトランザクションマネージャ.
+	 */
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * このノードのID.
+	 */
+	private final String nodeId;
+
+	/**
+	 * 一度に予約する同期時刻の範囲(ミリ秒).
+	 */
+	private final long reservation;
+
+	/**
+	 * 受け取った時刻として許容する、システム時刻からの最大のずれ(ミリ秒).
+	 */
+	private final long maxOffset;
+
+	/**
+	 * 受け取った時刻によって物理時刻がシステム時刻より先行することを許容する最大量(ミリ秒).
+	 */
+	private final long maxDrift;
+
+	/**
+	 * 時計の物理時刻部分(これまでに観測した最大のシステム時刻あるいは受信時刻).同期時刻として返す値.
+	 */
+	private long physical;
+
+	/**
+	 * 時計の論理カウンタ部分.物理時刻が進まない間に生成した同期時刻の数.同期時刻には加算しません.
+	 */
+	private long logical;
+
+	/**
+	 * 予約済の同期時刻の上限(この値を含まない).
+	 */
+	private long reservedUntil;
+
+	/**
+	 * いずれかのスレッドが同期時刻の上限を予約中かどうか.
+	 */
+	private boolean reserving = false;
+
+	/**
+	 * ノードID、予約範囲、受信時刻の最大のずれ、受信時刻による最大の先行量を指定してインスタンスを生成します.<br>
+	 * ノードIDが指定されていない場合は、ホスト名をノードIDとします.
+	 *
+	 * @param nodeId ノードID
+	 * @param reservation 一度に予約する同期時刻の範囲(ミリ秒)
+	 * @param maxOffset 受け取った時刻として許容する、システム時刻からの最大のずれ(ミリ秒)
+	 * @param maxDrift 受け取った時刻によって物理時刻がシステム時刻より先行することを許容する最大量(ミリ秒)
+	 */
+	public HybridLogicalClock(String nodeId, long reservation, long maxOffset, long maxDrift) {
+
+		if (nodeId == null || nodeId.isEmpty()) {
+			try {
+				nodeId = InetAddress.getLocalHost().getHostName();
+			} catch (UnknownHostException e) {
+				throw new IllegalStateException("Failed to resolve node id from host name.", e);
+			}
+		}
+
+		this.nodeId = nodeId;
+		this.reservation = reservation;
+		this.maxOffset = maxOffset;
+		this.maxDrift = maxDrift;
+	}
+
+	/**
+	 * 保存済の同期時刻の上限と最終更新時刻から、時計を初期化します.<br>
+	 * 予約済の上限までの同期時刻は再起動前に発行済の可能性があるため、上限を物理時刻として再開します.
+	 */
+	@PostConstruct
+	public synchronized void init() {
+
+		long start = 0L;
+
+		SyncClockState state = syncClockStateRepository.findOne(nodeId);
+		if (state != null) {
+			start = state.getReservedUntil();
+		}
+
+		Long maxLastModified = resourceItemCommonDataRepository.findMaxLastModified();
+		if (maxLastModified != null) {
+			start = Math.max(start, maxLastModified);
+		}
+
+		// 最初の同期時刻の生成時に予約が行われる
+		// 上限がシステム時刻より先であっても、その先行量はmaxDriftによる制限の対象としない
+		this.physical = start;
+		this.logical = 0L;
+		this.reservedUntil = start;
+
+		LOGGER.info("[syncfw]Hybrid logical clock started. nodeId : " + nodeId + ", start : " + start);
+	}
+
+	/**
+	 * 前回の同期時刻、受け取った時刻のいずれよりも前にならない同期時刻を生成します.<br>
+	 * 予約済の上限に近づいた場合、1つのスレッドがモニタの外で次の範囲を予約します.
+	 * 上限を超える同期時刻は、予約が完了するまで返しません.
+	 */
+	@Override
+	public long now() {
+
+		long timestamp;
+		long newReservedUntil;
+		synchronized (this) {
+			timestamp = tick();
+
+			// 他のスレッドが予約中であれば、予約済の範囲を超える同期時刻は予約の完了を待つ
+			while (timestamp >= reservedUntil && reserving) {
+				waitFor(0L);
+			}
+
+			// 予約済の範囲の半分を過ぎたら、次の範囲を予約する
+			if (reserving || timestamp + reservation / 2 < reservedUntil) {
+				return timestamp;
+			}
+			reserving = true;
+			newReservedUntil = timestamp + reservation;
+		}
+
+		boolean reserved = false;
+		try {
+			reserve(newReservedUntil);
+			reserved = true;
+		} finally {
+			synchronized (this) {
+				if (reserved) {
+					reservedUntil = Math.max(reservedUntil, newReservedUntil);
+				}
+				reserving = false;
+				notifyAll();
+			}
+		}
+
+		return timestamp;
+	}
+
+	/**
+	 * 時計を進め、同期時刻として物理時刻を返します.<br>
+	 * システム時刻が物理時刻より進んでいれば物理時刻をシステム時刻に合わせ、進んでいなければ論理カウンタのみを加算します.
+	 *
+	 * @return 同期時刻
+	 */
+	private long tick() {
+
+		long systemTime = System.currentTimeMillis();
+		if (systemTime > physical) {
+			physical = systemTime;
+			logical = 0L;
+		} else {
+			logical++;
+		}
+		return physical;
+	}
+
+	/**
+	 * モニタを解放して待機します.
+	 *
+	 * @param timeout 最大の待機時間(ミリ秒).0の場合は通知されるまで待機します
+	 */
+	private void waitFor(long timeout) {
+
+		try {
+			wait(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the sync clock.", e);
+		}
+	}
+
+	/**
+	 * 受け取った時刻が時計より後であれば、以降の同期時刻がその時刻より後になるよう物理時刻を進めます.<br>
+	 * システム時刻から最大のずれを超えて先の時刻は、不正な値として無視します.
+	 * 最大の先行量を超えて先の時刻は、システム時刻に最大の先行量を加えた時刻までに制限して反映します.
+	 */
+	@Override
+	public synchronized void observe(long timestamp) {
+
+		if (timestamp < physical) {
+			return;
+		}
+
+		long systemTime = System.currentTimeMillis();
+		if (timestamp > systemTime + maxOffset) {
+			LOGGER.warn("[syncfw]Ignored timestamp too far ahead of system time. timestamp : " + timestamp);
+			return;
+		}
+
+		long next = Math.min(timestamp + 1, systemTime + maxDrift);
+		if (next <= physical) {
+			return;
+		}
+		if (next <= timestamp) {
+			LOGGER.warn("[syncfw]Limited timestamp ahead of system time to max drift. timestamp : " + timestamp);
+		}
+
+		physical = next;
+		logical = 0L;
+	}
+
+	/**
+	 * 同期時刻の上限を、リクエストのトランザクションとは独立してデータベースに保存します.<br>
+	 * モニタを保持せずに呼び出されます.
+	 *
+	 * @param newReservedUntil 新しい同期時刻の上限
+	 */
+	private void reserve(final long newReservedUntil) {
+
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		template.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				syncClockStateRepository.save(new SyncClockState(nodeId, newReservedUntil));
+			}
+		});
+	}
+
+	/**
+	 * @return このノードのID
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * @return 論理カウンタの現在値(現在の物理時刻で発行した同期時刻の数)
+	 */
+	public synchronized long getLogical() {
+		return logical;
+	}
+}
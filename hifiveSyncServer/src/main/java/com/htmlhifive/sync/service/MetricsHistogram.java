@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 値の分布を、固定の区間ごとの件数として記録するヒストグラム.<br/>
+ * 記録は区間の探索と1回の加算のみで行われるため、リクエストごとに記録しても負荷はわずかです.
+ *
+ * @author kishigam
+ */
+public class MetricsHistogram {
+
+	/**
+	 * 各区間の上限値(この値を含む).最後の区間の件数は、上限値を超えた値の件数です.
+	 */
+	private final long[] bounds;
+
+	/**
+	 * 区間の表記に使用する単位.
+	 */
+	private final String unit;
+
+	/**
+	 * 区間ごとの件数.
+	 */
+	private final AtomicLongArray counts;
+
+	/**
+	 * 区間の上限値と単位を指定してインスタンスを生成します.
+	 *
+	 * @param unit 区間の表記に使用する単位
+	 * @param bounds 昇順に並んだ各区間の上限値
+	 */
+	public MetricsHistogram(String unit, long... bounds) {
+
+		this.unit = unit;
+		this.bounds = bounds.clone();
+		this.counts = new AtomicLongArray(bounds.length + 1);
+	}
+
+	/**
+	 * 値を記録します.
+	 *
+	 * @param value 値
+	 */
+	public void record(long value) {
+
+		int index = 0;
+		while (index < bounds.length && value > bounds[index]) {
+			index++;
+		}
+		counts.incrementAndGet(index);
+	}
+
+	/**
+	 * 区間ごとの件数を、区間の表記("<=10ms"など)をキーとする、区間の順に並んだMapで返します.
+	 *
+	 * @return 区間ごとの件数
+	 */
+	public Map<String, Long> toMap() {
+
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < bounds.length; i++) {
+			result.put("<=" + bounds[i] + unit, counts.get(i));
+		}
+		result.put(">" + bounds[bounds.length - 1] + unit, counts.get(bounds.length));
+		return result;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * リソースごとの「最終変更」の目印(ウォーターマーク)を管理するクラス.<br/>
+ * リソースアイテム共通データの更新がコミットされるたびに、そのリソースのウォーターマークを進めます.<br/>
+ * ウォーターマークが変わっていなければ、そのリソースに更新がないと判定できるため、条件付き下り更新(If-None-Match)の判定に使用します.<br/>
+ * ウォーターマークはメモリ上のみで管理し、起動ごとに異なる値から始まるため、再起動前のETagが一致することはありません.
+ * 更新の検知はサーバごとに行われるため、複数のサーバで同じデータベースを更新する構成では使用できません.
+ *
+ * @author kishigam
+ */
+public class ResourceChangeWatermark {
+
+	/**
+	 * このインスタンスを識別する値.ウォーターマークの先頭に付与します.
+	 */
+	private final String instanceId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	/**
+	 * リソースごとの更新回数.
+	 */
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * リソースの現在のウォーターマークを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return ウォーターマーク
+	 */
+	public String get(String resourceName) {
+
+		return instanceId + "-" + counterFor(resourceName).get();
+	}
+
+	/**
+	 * リソースのウォーターマークを進めます.
+	 *
+	 * @param resourceName リソース名
+	 */
+	public void advance(String resourceName) {
+
+		counterFor(resourceName).incrementAndGet();
+	}
+
+	/**
+	 * 現在のトランザクションのコミット後に、リソースのウォーターマークを進めます.<br/>
+	 * 1つのトランザクションで同じリソースを複数回更新した場合も、1回だけ進めます.
+	 * トランザクション外で呼び出された場合は、すぐに進めます.
+	 *
+	 * @param resourceName リソース名
+	 */
+	public void advanceAfterCommit(String resourceName) {
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			advance(resourceName);
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		Set<String> resourceNames = (Set<String>) TransactionSynchronizationManager.getResource(this);
+		if (resourceNames == null) {
+			final Set<String> modifiedResourceNames = new HashSet<>();
+			resourceNames = modifiedResourceNames;
+			TransactionSynchronizationManager.bindResource(this, modifiedResourceNames);
+
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					for (String name : modifiedResourceNames) {
+						advance(name);
+					}
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(ResourceChangeWatermark.this);
+				}
+			});
+		}
+		resourceNames.add(resourceName);
+	}
+
+	/**
+	 * リソースの更新回数を返します.存在しない場合は生成します.
+	 *
+	 * @param resourceName リソース名
+	 * @return 更新回数
+	 */
+	private AtomicLong counterFor(String resourceName) {
+
+		AtomicLong counter = counters.get(resourceName);
+		if (counter != null) {
+			return counter;
+		}
+
+		counter = new AtomicLong();
+		AtomicLong existing = counters.putIfAbsent(resourceName, counter);
+		return existing != null ? existing : counter;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+
+/**
+ * リソースアイテム共通データIDのハッシュ値で分割された、JVM内の排他ロックを管理するクラス.<br/>
+ * 単一ノード構成において、データベースの悲観的ロックの代わりに同期制御に使用します.<br/>
+ * 異なるIDが同じロックに割り当てられることがあるため、デッドロックを避けるよう、ロックは常に割り当て先の番号順に取得します.
+ *
+ * @author kishigam
+ */
+public class StripedLockTable {
+
+	/**
+	 * ロックの配列.
+	 */
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * ロックを取得した回数.
+	 */
+	private final AtomicLong acquiredCount = new AtomicLong();
+
+	/**
+	 * ロックの取得時に、他のスレッドが保持していたため待機した回数.
+	 */
+	private final AtomicLong contendedCount = new AtomicLong();
+
+	/**
+	 * ロックの取得を待機した時間の合計(ナノ秒).
+	 */
+	private final AtomicLong waitTimeNanos = new AtomicLong();
+
+	/**
+	 * 待機時間内にロックを取得できなかった回数.
+	 */
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	/**
+	 * 指定された数以上で最小の2のべき乗の数のロックを持つインスタンスを生成します.
+	 *
+	 * @param stripeCount ロックの数
+	 */
+	public StripedLockTable(int stripeCount) {
+
+		if (stripeCount <= 0) {
+			throw new IllegalArgumentException("Stripe count must be positive. : " + stripeCount);
+		}
+
+		int size = Integer.highestOneBit(stripeCount);
+		if (size < stripeCount) {
+			size <<= 1;
+		}
+
+		this.stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * 指定されたリソースアイテム共通データIDに割り当てられたロックを、番号順に取得します.<br/>
+	 * いずれかのロックを待機時間内に取得できなかった場合、それまでに取得したロックを解放してnullを返します.
+	 *
+	 * @param commonDataIds リソースアイテム共通データIDのコレクション
+	 * @param timeoutMillis ロックごとの最大待機時間(ミリ秒)
+	 * @return 取得したロックの番号の配列.取得できなかった場合null
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	public int[] lock(Collection<ResourceItemCommonDataId> commonDataIds, long timeoutMillis)
+			throws InterruptedException {
+
+		TreeSet<Integer> indexes = new TreeSet<>();
+		for (ResourceItemCommonDataId commonDataId : commonDataIds) {
+			indexes.add(indexFor(commonDataId));
+		}
+
+		int[] acquired = new int[indexes.size()];
+		int count = 0;
+		try {
+			for (int index : indexes) {
+				if (!lockStripe(stripes[index], timeoutMillis)) {
+					timeoutCount.incrementAndGet();
+					return null;
+				}
+				acquired[count++] = index;
+			}
+		} finally {
+			// 全てのロックを取得できなかった場合は、取得済のロックを解放する
+			if (count < acquired.length) {
+				unlock(acquired, count);
+			}
+		}
+
+		return acquired;
+	}
+
+	/**
+	 * {@link #lock(Collection, long)}で取得したロックを解放します.<br/>
+	 * ロックを取得したスレッドで実行する必要があります.
+	 *
+	 * @param acquired 取得したロックの番号の配列
+	 */
+	public void unlock(int[] acquired) {
+
+		unlock(acquired, acquired.length);
+	}
+
+	/**
+	 * 取得したロックのうち、先頭から指定された数のロックを逆順に解放します.
+	 *
+	 * @param acquired 取得したロックの番号の配列
+	 * @param count 解放するロックの数
+	 */
+	private void unlock(int[] acquired, int count) {
+
+		for (int i = count - 1; i >= 0; i--) {
+			stripes[acquired[i]].unlock();
+		}
+	}
+
+	/**
+	 * ロックを1つ取得し、待機の有無と待機時間を記録します.
+	 *
+	 * @param stripe ロック
+	 * @param timeoutMillis 最大待機時間(ミリ秒)
+	 * @return 取得できた場合true
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	private boolean lockStripe(ReentrantLock stripe, long timeoutMillis) throws InterruptedException {
+
+		// 待機せずに取得できた場合
+		if (stripe.tryLock()) {
+			acquiredCount.incrementAndGet();
+			return true;
+		}
+
+		contendedCount.incrementAndGet();
+
+		long start = System.nanoTime();
+		try {
+			if (!stripe.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				return false;
+			}
+		} finally {
+			waitTimeNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		acquiredCount.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * リソースアイテム共通データIDに割り当てるロックの番号を返します.
+	 *
+	 * @param commonDataId リソースアイテム共通データID
+	 * @return ロックの番号
+	 */
+	int indexFor(ResourceItemCommonDataId commonDataId) {
+
+		// 下位ビットに偏りが出ないよう、上位ビットを混ぜる
+		int hash = commonDataId.hashCode();
+		hash ^= (hash >>> 16);
+
+		return hash & (stripes.length - 1);
+	}
+
+	/**
+	 * @return ロックの数
+	 */
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * @return ロックを取得した回数
+	 */
+	public long getAcquiredCount() {
+		return acquiredCount.get();
+	}
+
+	/**
+	 * @return ロックの取得時に他のスレッドが保持していたため待機した回数
+	 */
+	public long getContendedCount() {
+		return contendedCount.get();
+	}
+
+	/**
+	 * @return ロックの取得を待機した時間の合計(ミリ秒)
+	 */
+	public long getWaitTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get());
+	}
+
+	/**
+	 * @return 待機時間内にロックを取得できなかった回数
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * リソース、syncアクションごとの同期処理のメトリクス.<br/>
+ * 件数や時間はすべてアトミックな加算で記録するため、ロックを取得せずに複数のスレッドから記録できます.
+ *
+ * @author kishigam
+ */
+public class SyncActionMetrics implements SyncActionMetricsMXBean {
+
+	/**
+	 * リソース名.
+	 */
+	private final String resourceName;
+
+	/**
+	 * syncアクション名.
+	 */
+	private final String action;
+
+	/**
+	 * 処理したリクエストメッセージの数.
+	 */
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * 例外で終了したリクエストメッセージの数.
+	 */
+	private final AtomicLong errorCount = new AtomicLong();
+
+	/**
+	 * 処理時間の合計(ナノ秒).
+	 */
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	/**
+	 * 処理時間の最大値(ナノ秒).
+	 */
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * 処理時間(ミリ秒)の分布.
+	 */
+	private final MetricsHistogram latencyHistogram = new MetricsHistogram("ms", 1, 5, 10, 50, 100, 500, 1000, 5000);
+
+	/**
+	 * リソースアイテムの総数.
+	 */
+	private final AtomicLong itemCount = new AtomicLong();
+
+	/**
+	 * 1リクエストあたりのリソースアイテム数の分布.
+	 */
+	private final MetricsHistogram itemsHistogram = new MetricsHistogram("", 1, 10, 100, 1000, 10000);
+
+	/**
+	 * 競合の種類ごとの競合数.{@link SyncAction}の順に保持します.
+	 */
+	private final AtomicLongArray conflictCounts = new AtomicLongArray(SyncAction.values().length);
+
+	/**
+	 * 二重送信と判定された上り更新リクエストの数.
+	 */
+	private final AtomicLong duplicateUploadCount = new AtomicLong();
+
+	/**
+	 * 同期制御のロックを取得した回数.
+	 */
+	private final AtomicLong lockCount = new AtomicLong();
+
+	/**
+	 * 同期制御のロックの取得に要した時間の合計(ナノ秒).
+	 */
+	private final AtomicLong lockWaitNanos = new AtomicLong();
+
+	/**
+	 * 同期制御のロックの取得に要した時間の最大値(ナノ秒).
+	 */
+	private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+	/**
+	 * リソース名とsyncアクション名を指定してインスタンスを生成します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 */
+	public SyncActionMetrics(String resourceName, String action) {
+
+		this.resourceName = resourceName;
+		this.action = action;
+	}
+
+	/**
+	 * リクエストメッセージの処理を記録します.
+	 *
+	 * @param elapsedNanos 処理時間(ナノ秒)
+	 * @param failed 例外で終了した場合true
+	 */
+	public void recordRequest(long elapsedNanos, boolean failed) {
+
+		count.incrementAndGet();
+		if (failed) {
+			errorCount.incrementAndGet();
+		}
+		totalNanos.addAndGet(elapsedNanos);
+		updateMax(maxNanos, elapsedNanos);
+		latencyHistogram.record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+	}
+
+	/**
+	 * 1リクエストで上り更新、下り更新したリソースアイテム数を記録します.
+	 *
+	 * @param items リソースアイテム数
+	 */
+	public void recordItems(int items) {
+
+		itemCount.addAndGet(items);
+		itemsHistogram.record(items);
+	}
+
+	/**
+	 * 競合を記録します.
+	 *
+	 * @param conflictType 競合の種類(競合したサーバデータのsyncアクション)
+	 */
+	public void recordConflict(SyncAction conflictType) {
+
+		conflictCounts.incrementAndGet(conflictType.ordinal());
+	}
+
+	/**
+	 * 二重送信の検出を記録します.
+	 */
+	public void recordDuplicateUpload() {
+
+		duplicateUploadCount.incrementAndGet();
+	}
+
+	/**
+	 * 同期制御のロックの取得を記録します.
+	 *
+	 * @param waitNanos ロックの取得に要した時間(ナノ秒)
+	 */
+	public void recordLockWait(long waitNanos) {
+
+		lockCount.incrementAndGet();
+		lockWaitNanos.addAndGet(waitNanos);
+		updateMax(maxLockWaitNanos, waitNanos);
+	}
+
+	/**
+	 * 最大値を更新します.
+	 *
+	 * @param max 最大値
+	 * @param value 記録する値
+	 */
+	private static void updateMax(AtomicLong max, long value) {
+
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	@Override
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	@Override
+	public String getAction() {
+		return action;
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+
+	@Override
+	public long getTotalTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+	}
+
+	@Override
+	public long getMaxTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+	}
+
+	@Override
+	public Map<String, Long> getLatencyHistogram() {
+		return latencyHistogram.toMap();
+	}
+
+	@Override
+	public long getItemCount() {
+		return itemCount.get();
+	}
+
+	@Override
+	public Map<String, Long> getItemsPerRequestHistogram() {
+		return itemsHistogram.toMap();
+	}
+
+	@Override
+	public Map<String, Long> getConflictCounts() {
+
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (SyncAction syncAction : SyncAction.values()) {
+			result.put(syncAction.name(), conflictCounts.get(syncAction.ordinal()));
+		}
+		return result;
+	}
+
+	@Override
+	public long getDuplicateUploadCount() {
+		return duplicateUploadCount.get();
+	}
+
+	@Override
+	public long getLockCount() {
+		return lockCount.get();
+	}
+
+	@Override
+	public long getLockWaitTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.get());
+	}
+
+	@Override
+	public long getMaxLockWaitTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLockWaitNanos.get());
+	}
+}
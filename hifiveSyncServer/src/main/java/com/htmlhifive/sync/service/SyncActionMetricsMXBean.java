@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.Map;
+
+/**
+ * リソース、syncアクションごとの同期処理のメトリクスをJMXで公開するためのインターフェース.
+ *
+ * @author kishigam
+ */
+public interface SyncActionMetricsMXBean {
+
+	/**
+	 * @return リソース名
+	 */
+	String getResourceName();
+
+	/**
+	 * @return syncアクション名
+	 */
+	String getAction();
+
+	/**
+	 * @return 処理したリクエストメッセージの数
+	 */
+	long getCount();
+
+	/**
+	 * @return 例外で終了したリクエストメッセージの数
+	 */
+	long getErrorCount();
+
+	/**
+	 * @return 処理時間の合計(ミリ秒)
+	 */
+	long getTotalTimeMillis();
+
+	/**
+	 * @return 処理時間の最大値(ミリ秒)
+	 */
+	long getMaxTimeMillis();
+
+	/**
+	 * @return 処理時間の分布
+	 */
+	Map<String, Long> getLatencyHistogram();
+
+	/**
+	 * @return 上り更新、下り更新したリソースアイテムの総数
+	 */
+	long getItemCount();
+
+	/**
+	 * @return 1リクエストあたりのリソースアイテム数の分布
+	 */
+	Map<String, Long> getItemsPerRequestHistogram();
+
+	/**
+	 * @return 競合の種類(競合したサーバデータのsyncアクション)ごとの競合数
+	 */
+	Map<String, Long> getConflictCounts();
+
+	/**
+	 * @return 二重送信と判定された上り更新リクエストの数
+	 */
+	long getDuplicateUploadCount();
+
+	/**
+	 * @return 同期制御のロックを取得した回数
+	 */
+	long getLockCount();
+
+	/**
+	 * @return 同期制御のロックの取得に要した時間の合計(ミリ秒)
+	 */
+	long getLockWaitTimeMillis();
+
+	/**
+	 * @return 同期制御のロックの取得に要した時間の最大値(ミリ秒)
+	 */
+	long getMaxLockWaitTimeMillis();
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+/**
+ * syncリクエストの同期時刻を生成するインターフェース.<br>
+ * 同期時刻はリソースアイテム共通データの最終更新時刻や、クライアントが次回の下り更新で指定する時刻として使用されるため、ミリ秒単位の値を返す必要があります.
+ *
+ * @author kishigam
+ */
+public interface SyncClock {
+
+	/**
+	 * 同期時刻を生成して返します.
+	 *
+	 * @return 同期時刻(ミリ秒)
+	 */
+	long now();
+
+	/**
+	 * リクエストで受け取った、このサーバあるいは他のサーバが生成した時刻を通知します.<br>
+	 * 以降に生成する同期時刻は、通知された時刻より後になるようにします.
+	 *
+	 * @param timestamp リクエストで受け取った時刻(ミリ秒)
+	 */
+	void observe(long timestamp);
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * ノードごとに、{@link HybridLogicalClock}が同期時刻として発行できる時刻の上限を保持するエンティティ.<br>
+ * 再起動後は保存された上限から時刻を再開するため、同期時刻が後退することはありません.
+ *
+ * @author kishigam
+ */
+@Entity
+@Table(name = "SYNC_CLOCK_STATE")
+public class SyncClockState implements Serializable {
+
+	private static final long serialVersionUID = -6372710853049935182L;
+
+	/**
+	 * ノードID.
+	 */
+	@Id
+	private String nodeId;
+
+	/**
+	 * 発行できる同期時刻の上限(この値を含まない).
+	 */
+	private long reservedUntil;
+
+	/**
+	 * フレームワーク、ライブラリが使用するプライベートデフォルトコンストラクタ.
+	 */
+	@SuppressWarnings("unused")
+	private SyncClockState() {
+	}
+
+	/**
+	 * ノードIDと同期時刻の上限を指定してインスタンスを生成します.
+	 *
+	 * @param nodeId ノードID
+	 * @param reservedUntil 同期時刻の上限
+	 */
+	public SyncClockState(String nodeId, long reservedUntil) {
+		this.nodeId = nodeId;
+		this.reservedUntil = reservedUntil;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return the nodeId
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * @return the reservedUntil
+	 */
+	public long getReservedUntil() {
+		return reservedUntil;
+	}
+}
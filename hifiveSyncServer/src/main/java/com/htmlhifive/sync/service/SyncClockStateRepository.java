@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * 同期時刻の上限を永続化するためのリポジトリ. <br>
+ * SpringFrameworkの標準的なリポジトリメソッドを継承します.<br/>
+ *
+ * @author kishigam
+ */
+public interface SyncClockStateRepository extends JpaRepository<SyncClockState, String> {
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * リソース、syncアクションごとの同期処理のメトリクスを記録、公開するクラス.<br/>
+ * メトリクスは、リソースとsyncアクションの組み合わせごとに、最初に記録された時点で生成し、JMXのMBean("com.htmlhifive.sync:type=SyncMetrics,...")として登録します.<br/>
+ * 生成するメトリクスの数には上限を設け、上限に達した後の新しい組み合わせは記録しません.<br/>
+ * 記録を無効にした場合、記録のためのメソッドは何もしません.
+ *
+ * @author kishigam
+ */
+public class SyncMetrics {
+
+	private static final Logger LOGGER = Logger.getLogger(SyncMetrics.class);
+
+	/**
+	 * MBeanを登録するドメイン.
+	 */
+	private static final String JMX_DOMAIN = "com.htmlhifive.sync";
+
+	/**
+	 * メトリクスを記録する場合true.
+	 */
+	private final boolean enabled;
+
+	/**
+	 * 生成するメトリクスの最大数.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * メトリクスの数が上限に達したことをログに出力済の場合true.
+	 */
+	private volatile boolean limitLogged = false;
+
+	/**
+	 * リソース名、syncアクション名の順に並んだ、メトリクスのMap.
+	 */
+	private final ConcurrentMap<String, SyncActionMetrics> metricsMap = new ConcurrentSkipListMap<>();
+
+	/**
+	 * 登録したMBeanの名前.
+	 */
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+
+	/**
+	 * 記録の有無と、生成するメトリクスの最大数を指定してインスタンスを生成します.
+	 *
+	 * @param enabled メトリクスを記録する場合true
+	 * @param maxEntries 生成するメトリクス(リソースとsyncアクションの組み合わせ)の最大数
+	 */
+	public SyncMetrics(boolean enabled, int maxEntries) {
+
+		this.enabled = enabled;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * 登録したMBeanを登録解除します.
+	 */
+	@PreDestroy
+	public void stop() {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized (registeredNames) {
+			for (ObjectName name : registeredNames) {
+				try {
+					server.unregisterMBean(name);
+				} catch (JMException e) {
+					LOGGER.debug("[syncfw]Failed to unregister metrics MBean. : " + name, e);
+				}
+			}
+			registeredNames.clear();
+		}
+	}
+
+	/**
+	 * リクエストメッセージの処理を記録します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 * @param elapsedNanos 処理時間(ナノ秒)
+	 * @param failed 例外で終了した場合true
+	 */
+	public void recordRequest(String resourceName, String action, long elapsedNanos, boolean failed) {
+
+		SyncActionMetrics metrics = metricsFor(resourceName, action);
+		if (metrics != null) {
+			metrics.recordRequest(elapsedNanos, failed);
+		}
+	}
+
+	/**
+	 * 1リクエストで上り更新、下り更新したリソースアイテム数を記録します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 * @param items リソースアイテム数
+	 */
+	public void recordItems(String resourceName, String action, int items) {
+
+		SyncActionMetrics metrics = metricsFor(resourceName, action);
+		if (metrics != null) {
+			metrics.recordItems(items);
+		}
+	}
+
+	/**
+	 * 競合を記録します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 * @param conflictType 競合の種類(競合したサーバデータのsyncアクション)
+	 */
+	public void recordConflict(String resourceName, String action, SyncAction conflictType) {
+
+		if (conflictType == null) {
+			return;
+		}
+
+		SyncActionMetrics metrics = metricsFor(resourceName, action);
+		if (metrics != null) {
+			metrics.recordConflict(conflictType);
+		}
+	}
+
+	/**
+	 * 二重送信の検出を記録します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 */
+	public void recordDuplicateUpload(String resourceName, String action) {
+
+		SyncActionMetrics metrics = metricsFor(resourceName, action);
+		if (metrics != null) {
+			metrics.recordDuplicateUpload();
+		}
+	}
+
+	/**
+	 * 同期制御のロックの取得を記録します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 * @param waitNanos ロックの取得に要した時間(ナノ秒)
+	 */
+	public void recordLockWait(String resourceName, String action, long waitNanos) {
+
+		SyncActionMetrics metrics = metricsFor(resourceName, action);
+		if (metrics != null) {
+			metrics.recordLockWait(waitNanos);
+		}
+	}
+
+	/**
+	 * 記録されている全てのメトリクスを、リソース名、syncアクション名の順に返します.
+	 *
+	 * @return メトリクスのリスト
+	 */
+	public List<SyncActionMetrics> getAll() {
+
+		return new ArrayList<>(metricsMap.values());
+	}
+
+	/**
+	 * 指定されたリソースについて記録されているメトリクスを、syncアクション名の順に返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return メトリクスのリスト
+	 */
+	public List<SyncActionMetrics> getByResourceName(String resourceName) {
+
+		List<SyncActionMetrics> result = new ArrayList<>();
+		for (Map.Entry<String, SyncActionMetrics> entry : metricsMap.entrySet()) {
+			if (entry.getValue().getResourceName().equals(resourceName)) {
+				result.add(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * リソースとsyncアクションのメトリクスを返します.存在しない場合は生成し、MBeanとして登録します.<br/>
+	 * 記録しない場合、およびメトリクスの数が上限に達している場合はnullを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @param action syncアクション名
+	 * @return メトリクス
+	 */
+	private SyncActionMetrics metricsFor(String resourceName, String action) {
+
+		if (!enabled) {
+			return null;
+		}
+
+		String key = resourceName + "\n" + action;
+		SyncActionMetrics metrics = metricsMap.get(key);
+		if (metrics != null) {
+			return metrics;
+		}
+
+		// 上限の確認と追加を不可分に行うため、生成はロックして行う
+		synchronized (metricsMap) {
+			metrics = metricsMap.get(key);
+			if (metrics != null) {
+				return metrics;
+			}
+
+			if (metricsMap.size() >= maxEntries) {
+				if (!limitLogged) {
+					limitLogged = true;
+					LOGGER.warn("[syncfw]Number of sync metrics reached the limit, new metrics are not recorded. limit : "
+							+ maxEntries + ", resource : " + resourceName + ", action : " + action);
+				}
+				return null;
+			}
+
+			metrics = new SyncActionMetrics(resourceName, action);
+			metricsMap.put(key, metrics);
+		}
+
+		register(metrics);
+		return metrics;
+	}
+
+	/**
+	 * メトリクスをMBeanとして登録します.登録に失敗しても記録は継続します.
+	 *
+	 * @param metrics メトリクス
+	 */
+	private void register(SyncActionMetrics metrics) {
+
+		try {
+			ObjectName name = new ObjectName(JMX_DOMAIN + ":type=SyncMetrics,resource="
+					+ ObjectName.quote(metrics.getResourceName()) + ",action=" + ObjectName.quote(metrics.getAction()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+
+			synchronized (registeredNames) {
+				registeredNames.add(name);
+			}
+		} catch (JMException e) {
+			LOGGER.warn("[syncfw]Failed to register metrics MBean. resource : " + metrics.getResourceName()
+					+ ", action : " + metrics.getAction(), e);
+		}
+	}
+
+	/**
+	 * @return メトリクスを記録する場合true
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.htmlhifive.resourcefw.exception.NotFoundException;
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.resourcefw.resource.Resource;
+import com.htmlhifive.resourcefw.resource.ResourceClass;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+
+/**
+ * 同期処理のメトリクスをJSONで返すリソース.<br/>
+ * "/syncmetrics"で全てのメトリクスを、"/syncmetrics/(リソース名)"で指定したリソースのメトリクスを返します.<br/>
+ * SYNC_METRICS_ENDPOINT_ENABLEDが有効でない場合は、存在しないリソースとして扱います.
+ *
+ * @author kishigam
+ */
+@ResourceClass(name = "syncmetrics")
+public class SyncMetricsResource implements Resource {
+
+	/**
+	 * 同期処理のメトリクス.
+	 */
+	@Autowired
+	private SyncMetrics syncMetrics;
+
+	/**
+	 * sync機能の動作設定パラメータオブジェクト.
+	 */
+	@Autowired
+	private SyncConfigurationParameter syncConfigurationParameter;
+
+	/**
+	 * 全てのリソースのメトリクスを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return メトリクスのリスト
+	 * @throws NotFoundException メトリクスを公開しない場合
+	 */
+	public List<SyncActionMetrics> findByQuery(RequestMessage requestMessage) throws NotFoundException {
+
+		checkEnabled(requestMessage);
+
+		return syncMetrics.getAll();
+	}
+
+	/**
+	 * パスで指定されたリソースのメトリクスを返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return メトリクスのリスト
+	 * @throws NotFoundException メトリクスを公開しない場合
+	 */
+	public List<SyncActionMetrics> findById(RequestMessage requestMessage) throws NotFoundException {
+
+		checkEnabled(requestMessage);
+
+		String resourceName = requestMessage.getPath();
+		return syncMetrics.getByResourceName(resourceName);
+	}
+
+	/**
+	 * メトリクスを公開しない場合、{@link NotFoundException}をスローします.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @throws NotFoundException メトリクスを公開しない場合
+	 */
+	private void checkEnabled(RequestMessage requestMessage) throws NotFoundException {
+
+		if (!syncConfigurationParameter.SYNC_METRICS_ENDPOINT_ENABLED) {
+			throw new NotFoundException("name = syncmetrics", requestMessage);
+		}
+	}
+}
@@ -57,6 +57,13 @@ public class SyncRequestCommonData implements Serializable {
 	@Transient
 	private Long syncTime = null;
 
+	/**
+	 * この下り更新リクエストが読み取る範囲の終端となる変更シーケンス番号.<br>
+	 * 永続化の対象外です.
+	 */
+	@Transient
+	private Long changeSequence = null;
+
 	/**
 	 * @see Object#equals(Object)
 	 */
@@ -154,4 +161,18 @@ public class SyncRequestCommonData implements Serializable {
 	public void setSyncTime(Long syncTime) {
 		this.syncTime = syncTime;
 	}
+
+	/**
+	 * @return the changeSequence
+	 */
+	public Long getChangeSequence() {
+		return changeSequence;
+	}
+
+	/**
+	 * @param changeSequence the changeSequence to set
+	 */
+	public void setChangeSequence(Long changeSequence) {
+		this.changeSequence = changeSequence;
+	}
 }
@@ -17,6 +17,9 @@
 package com.htmlhifive.sync.service;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * sync機能のリクエスト共通データを永続化するためのリポジトリ. <br>
@@ -26,4 +29,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface SyncRequestCommonDataRepository extends JpaRepository<SyncRequestCommonData, String> {
 
+	/**
+	 * 保存済の前回上り更新時刻が指定された時刻より前(あるいは未設定)の場合のみ、前回上り更新時刻を更新します.
+	 *
+	 * @param storageId ストレージID
+	 * @param lastUploadTime 前回上り更新時刻
+	 * @return 更新件数(保存されていない場合、保存済の時刻が同じか後の場合は0)
+	 */
+	@Modifying
+	@Query("UPDATE SyncRequestCommonData r SET r.lastUploadTime = :lastUploadTime WHERE r.storageId = :storageId AND (r.lastUploadTime IS NULL OR r.lastUploadTime < :lastUploadTime)")
+	int updateLastUploadTimeIfLater(@Param("storageId") String storageId, @Param("lastUploadTime") Long lastUploadTime);
 }
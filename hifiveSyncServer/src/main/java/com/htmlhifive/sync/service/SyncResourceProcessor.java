@@ -16,18 +16,33 @@
  */
 package com.htmlhifive.sync.service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.htmlhifive.resourcefw.exception.AbstractResourceException;
+import com.htmlhifive.resourcefw.exception.BadRequestException;
+import com.htmlhifive.resourcefw.exception.GenericResourceException;
+import com.htmlhifive.resourcefw.exception.GoneException;
+import com.htmlhifive.resourcefw.exception.LockedException;
+import com.htmlhifive.resourcefw.exception.NotModifiedException;
 import com.htmlhifive.resourcefw.message.MessageSource;
 import com.htmlhifive.resourcefw.message.RequestMessage;
 import com.htmlhifive.resourcefw.message.RequestMessageContainer;
@@ -39,11 +54,15 @@ import com.htmlhifive.resourcefw.util.ResourcePathUtil;
 import com.htmlhifive.sync.config.DownloadControlType;
 import com.htmlhifive.sync.config.SyncConfigurationParameter;
 import com.htmlhifive.sync.config.UploadControlType;
+import com.htmlhifive.sync.exception.SyncConflictException;
 import com.htmlhifive.sync.exception.SyncUploadDuplicatedException;
+import com.htmlhifive.sync.resource.AbstractCrudSyncResource;
+import com.htmlhifive.sync.resource.BulkCreateContext;
 import com.htmlhifive.sync.resource.SyncResource;
 import com.htmlhifive.sync.resource.Synchronizer;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
 import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.ResourceItemHashUtil;
 import com.htmlhifive.sync.resource.common.SyncAction;
 
 /**
@@ -67,12 +86,37 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 	 */
 	private SyncConfigurationParameter syncConfigurationParameter;
 
+	/**
+	 * JVM内の排他ロックによる同期制御で使用するロック管理オブジェクト
+	 */
+	private StripedLockTable stripedLockTable;
+
 	/**
 	 * syncリクエストの前回上り更新結果を管理するリポジトリ.
 	 */
 	@Autowired
 	private SyncRequestCommonDataRepository syncRequestCommonDataRepository;
 
+	/**
+	 * 二重送信判定に使用する、ストレージIDごとの前回上り更新時刻のキャッシュ.
+	 */
+	private UploadHistoryCache uploadHistoryCache;
+
+	/**
+	 * 条件付き下り更新の判定に使用する、リソースごとのウォーターマーク.
+	 */
+	private ResourceChangeWatermark resourceChangeWatermark;
+
+	/**
+	 * 下り更新の起点が、破棄されたトゥームストーンより前かどうかを判定するオブジェクト.
+	 */
+	private TombstoneCompactor tombstoneCompactor;
+
+	/**
+	 * 同期処理のメトリクスを記録するオブジェクト.
+	 */
+	private SyncMetrics syncMetrics = new SyncMetrics(false, 0);
+
 	/**
 	 * HttpServletRequest メソッドによる動作判定のために使用
 	 */
@@ -101,6 +145,12 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 			}
 		}
 
+		// スナップショットリクエストは、ロック等の同期制御を行わずにスナップショットを返す
+		if (isSnapshotRequest(requestPathStr)) {
+			preProcessSnapshot(requestMessages, requestPathStr);
+			return;
+		}
+
 		// syncリクエストでなければ事前処理なし
 		if (!(uploadRequest || downloadRequest)) {
 			return;
@@ -127,6 +177,24 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 			// セットされていなければ適切なメソッドをセット
 			setSyncAction(requestMessages, httpMethod);
 
+			// リソースごとに、1リクエストで上り更新するリソースアイテム数を記録する
+			if (syncMetrics.isEnabled()) {
+				Set<String> resourceNames = getRecordableResourceNames(requestMessages,
+						syncConfigurationParameter.ACTION_FOR_UPLOAD);
+				Map<String, Integer> itemCounts = new HashMap<>();
+				for (RequestMessage requestMessage : requestMessages.getMessages()) {
+					String resourceName = getResourceName(requestMessage);
+					if (resourceNames.contains(resourceName)) {
+						Integer itemCount = itemCounts.get(resourceName);
+						itemCounts.put(resourceName, itemCount == null ? 1 : itemCount + 1);
+					}
+				}
+				for (Map.Entry<String, Integer> entry : itemCounts.entrySet()) {
+					syncMetrics.recordItems(entry.getKey(), syncConfigurationParameter.ACTION_FOR_UPLOAD,
+							entry.getValue());
+				}
+			}
+
 			// 上り更新同期制御を実行する
 			try {
 				processUploadControl(requestMessages);
@@ -135,11 +203,41 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 						+ e.getErrorStatus() + " ,detail : " + e.getMessage());
 			}
 
+			// 同じリソースアイテムに対する一連のリクエストメッセージを1つにまとめる
+			// 同期制御による並べ替えの後に行い、レスポンスは並べ替え後の順序で生成する
+			if (syncConfigurationParameter.UPLOAD_COALESCING_ENABLED && requestMessages.isMultiplexed()) {
+				UploadCoalescer uploadCoalescer = new UploadCoalescer(getMessageMetadata(), syncConfigurationParameter);
+				requestMessages.setMessages(uploadCoalescer.coalesce(requestMessages.getMessages(), synchronizer));
+				requestMessages.putContextData(syncConfigurationParameter.UPLOAD_COALESCER, uploadCoalescer,
+						MessageSource.PROCESSOR);
+			}
+
+			// 複数の新規作成は、リソースアイテムIDの重複を一括で検索し、まとめて実行する
+			if (syncConfigurationParameter.BULK_CREATE_BATCH_SIZE > 0 && requestMessages.isMultiplexed()) {
+				prepareBulkCreate(requestMessages);
+			}
+
 			action = syncConfigurationParameter.ACTION_FOR_UPLOAD;
 		}
 
 		if (downloadRequest) {
 
+			// 削除を取得できないクライアントには、全件の同期をやり直させる
+			checkResyncRequired(requestMessages);
+
+			// 前回の下り更新以降にリソースが更新されていなければ、リソースは読み取りロックの確認のみ行う
+			checkNotModified(requestMessages);
+
+			// 変更シーケンス番号による下り更新の場合のみ、読み取り範囲の終端をここで確定する
+			// 終端はクライアントが指定した起点より前にしない(コミット済であることが確実な番号がまだない場合は進めない)
+			Long requestedChangeSequence = findRequestedChangeSequence(requestMessages);
+			if (requestedChangeSequence != null) {
+				SyncRequestCommonData currentRequest = (SyncRequestCommonData) requestMessages
+						.getContextData(syncConfigurationParameter.REQUEST_COMMON_DATA);
+				currentRequest.setChangeSequence(Math.max(synchronizer.getLatestChangeSequence(),
+						requestedChangeSequence));
+			}
+
 			// 下り更新同期制御を実行し、結果をリクエストメッセージに保持する
 			try {
 				processDownloadControl(requestMessages);
@@ -157,6 +255,174 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 		}
 	}
 
+	/**
+	 * 下り更新の同期制御(LOCK、MEMORY_LOCK)を行う場合、多重化リクエストを並行して実行しません.<br/>
+	 * 同期制御のロックはリクエストスレッドのトランザクションが保持するため、別スレッドのトランザクションで読み取るとロックの解放を待ち続けます.
+	 */
+	@Override
+	protected boolean isParallelExecutable(RequestMessageContainer requestMessages) {
+
+		if (DownloadControlType.valueOf(syncConfigurationParameter.DOWNLOAD_CONTROL_TYPE) != DownloadControlType.NONE) {
+			return false;
+		}
+
+		return super.isParallelExecutable(requestMessages);
+	}
+
+	/**
+	 * スナップショットリクエストの事前処理として、URLパスの除去とアクションの設定を行います.<br/>
+	 * スナップショットはリソースごとに生成されるため、多重化されたリクエストは受け付けません.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @param requestPathStr URLパス
+	 */
+	private void preProcessSnapshot(RequestMessageContainer requestMessages, String requestPathStr) {
+
+		if (requestMessages.isMultiplexed()) {
+			throw new GenericResourceException(new BadRequestException(
+					"Snapshot request cannot be multiplexed.", requestMessages.getMessages().get(0)));
+		}
+
+		overwritePath(requestMessages, requestPathStr);
+		extractResourceItemCommonId(requestMessages);
+
+		RequestMessage requestMessage = requestMessages.getMessages().get(0);
+		requestMessage.put(getMessageMetadata().ACTION, syncConfigurationParameter.ACTION_FOR_SNAPSHOT,
+				MessageSource.PROCESSOR);
+	}
+
+	/**
+	 * リクエストメッセージが指定した変更シーケンス番号のうち、最大のものを返します.<br/>
+	 * 変更シーケンス番号を指定したリクエストメッセージがない場合はnullを返します.
+	 * 数値として解釈できない番号は、リソースの下り更新処理でエラーとするため、ここでは無視します.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @return 指定された最大の変更シーケンス番号
+	 */
+	private Long findRequestedChangeSequence(RequestMessageContainer requestMessages) {
+
+		Long requested = null;
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+			Object changeSequenceObj = requestMessage.get(syncConfigurationParameter.CHANGE_SEQUENCE);
+			if (changeSequenceObj == null) {
+				continue;
+			}
+			try {
+				long changeSequence = Long.parseLong(changeSequenceObj.toString());
+				requested = requested == null ? changeSequence : Math.max(requested, changeSequence);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+		return requested;
+	}
+
+	/**
+	 * 下り更新リクエストの起点(最終更新時刻または変更シーケンス番号)が、破棄されたトゥームストーンより前の場合に{@link GoneException}をスローします.<br/>
+	 * クライアントは、スナップショットまたは起点を0とした下り更新により、全件の同期をやり直す必要があります.<br/>
+	 * 起点を解析できない場合は、リソースの下り更新処理でエラーとするため、ここでは判定しません.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 */
+	private void checkResyncRequired(RequestMessageContainer requestMessages) {
+
+		if (tombstoneCompactor == null || !tombstoneCompactor.isEnabled()) {
+			return;
+		}
+
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+
+			Object lastModifiedObj = requestMessage.get(syncConfigurationParameter.LAST_MODIFIED);
+			Object changeSequenceObj = requestMessage.get(syncConfigurationParameter.CHANGE_SEQUENCE);
+
+			long lastModified;
+			Long changeSequence;
+			try {
+				lastModified = lastModifiedObj == null ? 0L : Long.parseLong(lastModifiedObj.toString());
+				changeSequence = changeSequenceObj == null ? null : Long.valueOf(changeSequenceObj.toString());
+			} catch (NumberFormatException e) {
+				continue;
+			}
+
+			String resourceName = getResourceName(requestMessage);
+			if (tombstoneCompactor.isResyncRequired(resourceName, lastModified, changeSequence)) {
+				throw new GenericResourceException(new GoneException(
+						"Deleted resource items before the last download are compacted, resync is required. : "
+								+ resourceName, requestMessage));
+			}
+		}
+	}
+
+	/**
+	 * 条件付き下り更新リクエストについて、リソースが更新されていないことをリクエストメッセージに設定します.<br/>
+	 * ETagは、リソースのウォーターマークと、リクエストの対象(パス、クエリ条件、継続トークン)のSHA-1ハッシュ値から生成します.<br/>
+	 * 最終更新時刻や変更シーケンス番号はリクエストごとに変わるため、ETagには含みません.<br/>
+	 * 読み取りロックはウォーターマークに反映されないため、ここでは{@link NotModifiedException}をスローせず、
+	 * リソースが読み取りロックを確認した後にスローします.<br/>
+	 * レスポンスのETagヘッダに設定するため、生成したETagをリクエストメッセージに保持します.<br/>
+	 * 多重化されたリクエストは対象外です.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 */
+	private void checkNotModified(RequestMessageContainer requestMessages) {
+
+		if (!syncConfigurationParameter.DOWNLOAD_ETAG_ENABLED || resourceChangeWatermark == null
+				|| requestMessages.isMultiplexed()) {
+			return;
+		}
+
+		RequestMessage requestMessage = requestMessages.getMessages().get(0);
+		String resourceName = ((ResourceItemCommonDataId) requestMessage
+				.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID)).getResourceName();
+
+		// ウォーターマークは下り更新の実行前に取得する(実行中に更新された場合、次回のETagは一致しない)
+		// クエリ条件は、条件の順序に関わらず同じ値になるよう条件名でソートする
+		Object query = requestMessage.get(getMessageMetadata().QUERY);
+		if (query instanceof Map) {
+			query = new TreeMap<>((Map<?, ?>) query);
+		}
+		String target = requestMessage.getPath() + "?" + query + "#"
+				+ requestMessage.get(syncConfigurationParameter.CONTINUATION_TOKEN);
+		String etag = "\"" + resourceChangeWatermark.get(resourceName) + "-"
+				+ ResourceItemHashUtil.hash(target.getBytes(StandardCharsets.UTF_8)) + "\"";
+
+		Object ifNoneMatch = requestMessages.getContextData(getMessageMetadata().HTTP_HEADER_IF_NONE_MATCH);
+		if (matchesETag(ifNoneMatch, etag)) {
+			requestMessage.put(syncConfigurationParameter.RESOURCE_NOT_MODIFIED, Boolean.TRUE, MessageSource.PROCESSOR);
+		}
+
+		requestMessage.put(syncConfigurationParameter.RESOURCE_ETAG, etag, MessageSource.PROCESSOR);
+	}
+
+	/**
+	 * If-None-Matchヘッダの値に、指定されたETagが含まれる場合trueを返します.
+	 *
+	 * @param ifNoneMatch If-None-Matchヘッダの値(文字列または文字列の配列)
+	 * @param etag ETag
+	 * @return ETagが含まれる場合true
+	 */
+	private boolean matchesETag(Object ifNoneMatch, String etag) {
+
+		if (ifNoneMatch == null) {
+			return false;
+		}
+
+		String[] headerValues = ifNoneMatch instanceof String[] ? (String[]) ifNoneMatch
+				: new String[] { ifNoneMatch.toString() };
+		for (String headerValue : headerValues) {
+			for (String candidate : headerValue.split(",")) {
+				candidate = candidate.trim();
+				if (candidate.startsWith("W/")) {
+					candidate = candidate.substring(2);
+				}
+				if (candidate.equals(etag)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * リクエストメッセージからパスを取り出し、かつsyncリクエストのアクション(上り/下り)を指示している部分を除去して再設定します.<br/>
 	 * 取り出したパス(アクションを指示している部分と以降のパス)を返します.
@@ -226,6 +492,19 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 		return pathStr[0].equals(syncConfigurationParameter.URL_PATH_DOWNLOAD);
 	}
 
+	/**
+	 * URLパスがスナップショットリクエストを示しているときtrueを返します.
+	 *
+	 * @param requestPathStr URLパス
+	 * @return スナップショットリクエストであればtrue
+	 */
+	private boolean isSnapshotRequest(String requestPathStr) {
+
+		String[] pathStr = ResourcePathUtil.down(requestPathStr);
+
+		return pathStr[0].equals(syncConfigurationParameter.URL_PATH_SNAPSHOT);
+	}
+
 	/**
 	 * URLパスがsync下り更新リクエストを示しているときtrueを返します.
 	 *
@@ -268,27 +547,36 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 	 */
 	private void checkDuplicateUpload(SyncRequestCommonData currentRequest, RequestMessageContainer requestMessages) {
 
-		SyncRequestCommonData lastUploadRequest = syncRequestCommonDataRepository
-				.findOne(currentRequest.getStorageId());
+		SyncRequestCommonData lastUploadRequest = uploadHistoryCache.findLastUpload(currentRequest.getStorageId());
 
 		// 初回リクエスト(前回上り更新リクエストの情報が存在しない)でなく、
 		// 「前回上り更新時刻」が前回リクエストの時点と同じ、あるいは(何らかの想定外の理由で)前の時刻になっていたら二重送信
-		if (lastUploadRequest != null && !currentRequest.isLaterUploadThan(lastUploadRequest)) {
+		boolean duplicated = lastUploadRequest != null && !currentRequest.isLaterUploadThan(lastUploadRequest);
+
+		// 今回分を保存
+		// 保存済の時刻より後の場合のみ保存されるため、保存されなければ(キャッシュが古かった場合も)二重送信
+		if (!duplicated && !uploadHistoryCache.saveLastUpload(currentRequest)) {
+			duplicated = true;
+			lastUploadRequest = uploadHistoryCache.findLastUpload(currentRequest.getStorageId());
+		}
+
+		if (duplicated) {
 
 			LOGGER.info(new StringBuilder().append("[syncfw] duplicate uploading detected. storageId : ")
 					.append(currentRequest.getStorageId()).append(", lastUpdateTime : ")
 					.append(currentRequest.getLastUploadTime()).toString());
 
+			for (String resourceName : getRecordableResourceNames(requestMessages,
+					syncConfigurationParameter.ACTION_FOR_UPLOAD)) {
+				syncMetrics.recordDuplicateUpload(resourceName, syncConfigurationParameter.ACTION_FOR_UPLOAD);
+			}
+
 			ResponseMessageContainer responseMessages = new ResponseMessageContainer(requestMessages.isMultiplexed());
 			responseMessages.putContextData(syncConfigurationParameter.REQUEST_COMMON_DATA, lastUploadRequest,
 					MessageSource.PROCESSOR);
 
 			throw new SyncUploadDuplicatedException(responseMessages);
-
 		}
-
-		// 今回分を保存
-		syncRequestCommonDataRepository.save(currentRequest);
 	}
 
 	/**
@@ -335,23 +623,23 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 			case LOCK:
 
 				// 対象データを先読みし、共通データを悲観的ロックする
-				for (ResourceItemCommonDataId itemCommonDataId : commonDataIdList) {
-					List<RequestMessage> messagesForId = messageMap.get(itemCommonDataId);
-					for (RequestMessage message : messagesForId) {
+				long lockStart = System.nanoTime();
+				try {
+					lockResourceItemCommonData(commonDataIdList, messageMap, false);
+				} finally {
+					recordLockWait(requestMessages, syncConfigurationParameter.ACTION_FOR_UPLOAD, lockStart);
+				}
 
-						// リソースクラスの取得
-						ResourceMethodInvoker resourceMethod = getResourceManager().getResourceMethodByName(
-								itemCommonDataId.getResourceName(), syncConfigurationParameter.ACTION_FOR_GETFORUPDATE,
-								message);
-						applyDefaultSynchronizer(resourceMethod);
-
-						// ロックした共通データをリクエストメッセージに追加
-						// 後に取得するロジックの関係上、リストで格納する
-						@SuppressWarnings("unchecked")
-						List<ResourceItemCommonData> got = (List<ResourceItemCommonData>) resourceMethod
-								.invoke(message);
-						message.put(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA, got);
-					}
+				break;
+
+			case MEMORY_LOCK:
+
+				// 対象データのJVM内の排他ロックを取得する
+				long memoryLockStart = System.nanoTime();
+				try {
+					lockInMemory(commonDataIdList, requestMessages);
+				} finally {
+					recordLockWait(requestMessages, syncConfigurationParameter.ACTION_FOR_UPLOAD, memoryLockStart);
 				}
 
 				break;
@@ -373,54 +661,423 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 
 		DownloadControlType controlType = DownloadControlType.valueOf(syncConfigurationParameter.DOWNLOAD_CONTROL_TYPE);
 
+		if (controlType == DownloadControlType.NONE) {
+			return;
+		}
+
+		MultiValueMap<ResourceItemCommonDataId, RequestMessage> messageMap = new LinkedMultiValueMap<>();
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+			ResourceItemCommonDataId resourceItemCommonDataId = (ResourceItemCommonDataId) requestMessage
+					.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID);
+			messageMap.add(resourceItemCommonDataId, requestMessage);
+		}
+		List<ResourceItemCommonDataId> commonDataIdList = new ArrayList<>(messageMap.keySet());
+		Collections.sort(commonDataIdList);
+
 		switch (controlType) {
 
 		// LOCKの場合、対象データを先読みして共通データを悲観的ロックする
 			case LOCK:
 
-				MultiValueMap<ResourceItemCommonDataId, RequestMessage> messageMap = new LinkedMultiValueMap<>();
-				for (RequestMessage requestMessage : requestMessages.getMessages()) {
-					ResourceItemCommonDataId resourceItemCommonDataId = (ResourceItemCommonDataId) requestMessage
-							.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID);
-					messageMap.add(resourceItemCommonDataId, requestMessage);
+				long lockStart = System.nanoTime();
+				try {
+					lockResourceItemCommonData(commonDataIdList, messageMap, true);
+				} finally {
+					recordLockWait(requestMessages, syncConfigurationParameter.ACTION_FOR_DOWNLOAD, lockStart);
 				}
-				List<ResourceItemCommonDataId> commonDataIdList = new ArrayList<>(messageMap.keySet());
-				Collections.sort(commonDataIdList);
 
-				for (ResourceItemCommonDataId itemCommonDataId : commonDataIdList) {
+				break;
 
-					List<RequestMessage> messagesForId = messageMap.get(itemCommonDataId);
-					for (RequestMessage message : messagesForId) {
+			// MEMORY_LOCKの場合、対象データのJVM内の排他ロックを取得する
+			case MEMORY_LOCK:
 
-						// リソースクラスの取得
-						ResourceMethodInvoker resourceMethod = getResourceManager().getResourceMethodByName(
-								itemCommonDataId.getResourceName(), syncConfigurationParameter.ACTION_FOR_GETFORUPDATE,
-								message);
-						applyDefaultSynchronizer(resourceMethod);
-
-						// ロックした共通データをリクエストメッセージに追加
-						@SuppressWarnings("unchecked")
-						List<ResourceItemCommonData> got = (List<ResourceItemCommonData>) resourceMethod
-								.invoke(message);
-						message.put(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA, got);
-					}
+				long memoryLockStart = System.nanoTime();
+				try {
+					lockInMemory(commonDataIdList, requestMessages);
+				} finally {
+					recordLockWait(requestMessages, syncConfigurationParameter.ACTION_FOR_DOWNLOAD, memoryLockStart);
 				}
 
-			case NONE:
+				break;
+
 			default:
 				break;
 		}
 	}
 
+	/**
+	 * 同期制御対象のリソースアイテム共通データIDに対するJVM内の排他ロックを取得します.<br/>
+	 * 取得したロックは、現在のトランザクションの終了時(コミット、ロールバックのいずれの場合も)に解放されます.<br/>
+	 * 待機時間内にロックを取得できなかった場合は、{@link LockedException}をラップした{@link GenericResourceException}をスローし、処理を中断します.
+	 *
+	 * @param commonDataIdList ソート済のリソースアイテム共通データIDのリスト
+	 * @param requestMessages リクエストメッセージコンテナ
+	 */
+	private void lockInMemory(List<ResourceItemCommonDataId> commonDataIdList,
+			RequestMessageContainer requestMessages) {
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("In-memory sync lock requires an active transaction.");
+		}
+
+		RequestMessage firstMessage = requestMessages.getMessages().get(0);
+
+		final int[] acquired;
+		try {
+			acquired = stripedLockTable.lock(commonDataIdList, syncConfigurationParameter.MEMORY_LOCK_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GenericResourceException(new LockedException(e, firstMessage));
+		}
+
+		if (acquired == null) {
+			throw new GenericResourceException(new LockedException("Timed out waiting for in-memory sync lock.",
+					firstMessage));
+		}
+
+		// トランザクションの終了時に解放する
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				stripedLockTable.unlock(acquired);
+			}
+		});
+	}
+
+	/**
+	 * 同期制御対象のリソースアイテム共通データを悲観的ロックにより取得し、各リクエストメッセージに設定します.<br/>
+	 * IDで指定されたリソースアイテムは、リソースごとにまとめ、ID順にチャンク単位で一括してロックします.<br/>
+	 * クエリで指定された場合や、リソースが独自の取得処理を持つ場合は、リクエストメッセージごとにリソースのgetForUpdateアクションでロックします.
+	 *
+	 * @param commonDataIdList ソート済のリソースアイテム共通データIDのリスト
+	 * @param messageMap リソースアイテム共通データIDごとのリクエストメッセージ
+	 * @param download 下り更新の場合true(リクエストメッセージの最終更新時刻以降に更新されたもののみ設定します)
+	 * @throws AbstractResourceException
+	 */
+	private void lockResourceItemCommonData(List<ResourceItemCommonDataId> commonDataIdList,
+			MultiValueMap<ResourceItemCommonDataId, RequestMessage> messageMap, boolean download)
+			throws AbstractResourceException {
+
+		// 一括ロックの対象(リソースごとのリソースアイテムID)と、個別にロックするメッセージに振り分ける
+		MultiValueMap<String, String> batchIdMap = new LinkedMultiValueMap<>();
+		List<RequestMessage> batchMessages = new ArrayList<>();
+		List<Long> batchModifiedSinceList = new ArrayList<>();
+		List<RequestMessage> individualMessages = new ArrayList<>();
+		List<ResourceMethodInvoker> individualMethods = new ArrayList<>();
+
+		for (ResourceItemCommonDataId itemCommonDataId : commonDataIdList) {
+
+			List<RequestMessage> messagesForId = messageMap.get(itemCommonDataId);
+			for (RequestMessage message : messagesForId) {
+
+				// リソースクラスの取得
+				ResourceMethodInvoker resourceMethod = getResourceManager().getResourceMethodByName(
+						itemCommonDataId.getResourceName(), syncConfigurationParameter.ACTION_FOR_GETFORUPDATE,
+						message);
+				applyDefaultSynchronizer(resourceMethod);
+
+				Long modifiedSince = download ? parseLastModified(message) : Long.valueOf(0L);
+				if (modifiedSince == null || !isBatchLockable(itemCommonDataId, message, resourceMethod)) {
+					individualMessages.add(message);
+					individualMethods.add(resourceMethod);
+					continue;
+				}
+
+				// 共通データIDのソート順に追加されるため、リソースアイテムIDもソート済となる
+				List<String> itemIds = batchIdMap.get(itemCommonDataId.getResourceName());
+				if (itemIds == null || !itemIds.get(itemIds.size() - 1).equals(itemCommonDataId.getResourceItemId())) {
+					batchIdMap.add(itemCommonDataId.getResourceName(), itemCommonDataId.getResourceItemId());
+				}
+				batchMessages.add(message);
+				batchModifiedSinceList.add(modifiedSince);
+			}
+		}
+
+		// リソースごとに一括ロック
+		Map<ResourceItemCommonDataId, ResourceItemCommonData> lockedMap = new HashMap<>();
+		for (Map.Entry<String, List<String>> entry : batchIdMap.entrySet()) {
+			for (ResourceItemCommonData common : synchronizer.getForUpdate(entry.getKey(), entry.getValue())) {
+				lockedMap.put(common.getId(), common);
+			}
+		}
+
+		// ロックした共通データをリクエストメッセージに追加
+		// 後に取得するロジックの関係上、リストで格納する
+		for (int i = 0; i < batchMessages.size(); i++) {
+			RequestMessage message = batchMessages.get(i);
+
+			ResourceItemCommonData common = lockedMap.get(message
+					.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID));
+
+			List<ResourceItemCommonData> got = new ArrayList<>();
+			if (common != null && common.getLastModified() > batchModifiedSinceList.get(i)) {
+				got.add(common);
+			}
+			message.put(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA, got);
+		}
+
+		// 一括ロックできないメッセージは個別にロック
+		for (int i = 0; i < individualMessages.size(); i++) {
+			RequestMessage message = individualMessages.get(i);
+
+			@SuppressWarnings("unchecked")
+			List<ResourceItemCommonData> got = (List<ResourceItemCommonData>) individualMethods.get(i).invoke(message);
+			message.put(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA, got);
+		}
+	}
+
+	/**
+	 * 上り更新の新規作成(CREATE)をまとめて実行するための情報を生成し、コンテキスト情報として設定します.<br/>
+	 * {@link AbstractCrudSyncResource}で、このプロセッサのシンクロナイザーを使用するリソースの新規作成が対象です.
+	 * 対象のリソースアイテムIDについて、共通データが既に存在するものをリソースごとに一括で検索します.<br/>
+	 * 対象の新規作成が1件以下の場合は何もしません.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 */
+	private void prepareBulkCreate(RequestMessageContainer requestMessages) {
+
+		BulkCreateContext bulkCreateContext = new BulkCreateContext(syncConfigurationParameter.BULK_CREATE_BATCH_SIZE);
+		int targetCount = 0;
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+
+			if (!SyncAction.CREATE.toString().equals(requestMessage.get(syncConfigurationParameter.SYNC_ACTION))) {
+				continue;
+			}
+
+			ResourceItemCommonDataId itemCommonDataId = (ResourceItemCommonDataId) requestMessage
+					.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID);
+			String resourceItemId = itemCommonDataId.getResourceItemId();
+			if (resourceItemId == null || resourceItemId.isEmpty()) {
+				continue;
+			}
+
+			ResourceMethodInvoker resourceMethod;
+			try {
+				resourceMethod = getResourceManager().getResourceMethodByName(itemCommonDataId.getResourceName(),
+						syncConfigurationParameter.ACTION_FOR_UPLOAD, requestMessage);
+			} catch (AbstractResourceException e) {
+				// リソースの呼び出し時に改めてエラーとする
+				continue;
+			}
+			applyDefaultSynchronizer(resourceMethod);
+
+			Object resource = resourceMethod.getResource();
+			if (!(resource instanceof AbstractCrudSyncResource)
+					|| ((SyncResource) resource).getSynchronizer() != this.synchronizer) {
+				continue;
+			}
+
+			bulkCreateContext.addMessage(itemCommonDataId.getResourceName(), requestMessage);
+			targetCount++;
+		}
+
+		if (targetCount <= 1) {
+			return;
+		}
+
+		for (String resourceName : bulkCreateContext.getResourceNames()) {
+			List<String> resourceItemIdList = new ArrayList<>();
+			for (RequestMessage requestMessage : bulkCreateContext.getMessages(resourceName)) {
+				resourceItemIdList.add(((ResourceItemCommonDataId) requestMessage
+						.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID)).getResourceItemId());
+			}
+			bulkCreateContext.setExistingItemIds(resourceName,
+					synchronizer.getExistingIds(resourceName, resourceItemIdList));
+		}
+
+		requestMessages.putContextData(syncConfigurationParameter.BULK_CREATE_CONTEXT, bulkCreateContext,
+				MessageSource.PROCESSOR);
+	}
+
+	/**
+	 * リクエストメッセージに対するリソースアイテム共通データのロックを、一括ロックで行うことができるときtrueを返します.<br/>
+	 * {@link AbstractCrudSyncResource}の標準のgetForUpdateアクションで、IDが指定されている場合が対象です.
+	 *
+	 * @param itemCommonDataId リソースアイテム共通データID
+	 * @param message リクエストメッセージ
+	 * @param resourceMethod getForUpdateアクションのリソースメソッド
+	 * @return 一括ロックできる場合true
+	 */
+	private boolean isBatchLockable(ResourceItemCommonDataId itemCommonDataId, RequestMessage message,
+			ResourceMethodInvoker resourceMethod) {
+
+		Object resource = resourceMethod.getResource();
+		if (!(resource instanceof AbstractCrudSyncResource)
+				|| ((SyncResource) resource).getSynchronizer() != this.synchronizer) {
+			return false;
+		}
+
+		if (message.get(getMessageMetadata().QUERY) != null) {
+			return false;
+		}
+
+		String resourceItemId = itemCommonDataId.getResourceItemId();
+		return resourceItemId != null && !resourceItemId.isEmpty();
+	}
+
+	/**
+	 * リクエストメッセージから最終更新時刻を取得します.<br/>
+	 * 指定されていない場合は0、数値として解釈できない場合はnullを返します.
+	 *
+	 * @param message リクエストメッセージ
+	 * @return 最終更新時刻
+	 */
+	private Long parseLastModified(RequestMessage message) {
+
+		Object lastModifiedObj = message.get(syncConfigurationParameter.LAST_MODIFIED);
+		if (lastModifiedObj == null) {
+			return 0L;
+		}
+
+		try {
+			return Long.parseLong(lastModifiedObj.toString());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * リクエストメッセージごとの事前処理の前に、リソースに対してSynchronizerを設定します.<br/>
+	 * 下り更新結果がページ分割された場合、次ページの継続トークンをレスポンスメッセージのヘッダに設定します.
 	 */
 	@Override
 	protected ResponseMessage processMessage(ResourceMethodInvoker resourceMethod, RequestMessage requestMessage)
 			throws AbstractResourceException {
 
 		applyDefaultSynchronizer(resourceMethod);
-		return super.processMessage(resourceMethod, requestMessage);
+
+		// syncリクエストでなければ、メトリクスを記録しない
+		if (requestMessage.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID) == null) {
+			return processSyncMessage(resourceMethod, requestMessage);
+		}
+
+		String resourceName = getResourceName(requestMessage);
+		String action = (String) requestMessage.get(getMessageMetadata().ACTION);
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			ResponseMessage responseMessage = processSyncMessage(resourceMethod, requestMessage);
+
+			// 下り更新したリソースアイテム数を記録する(逐次読み出しの場合、件数は不明のため記録しない)
+			Object body = responseMessage.get(getMessageMetadata().RESPONSE_BODY);
+			if (action.equals(syncConfigurationParameter.ACTION_FOR_DOWNLOAD) && body instanceof Collection) {
+				syncMetrics.recordItems(resourceName, action, ((Collection<?>) body).size());
+			}
+
+			failed = false;
+			return responseMessage;
+
+		} catch (SyncConflictException e) {
+			syncMetrics.recordConflict(resourceName, action, e.getConflictType());
+			throw e;
+		} finally {
+			syncMetrics.recordRequest(resourceName, action, System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * 1つのリクエストの処理を実行し、継続トークンとETagをレスポンスのヘッダに設定します.
+	 *
+	 * @param resourceMethod リソースに対してアクションを実行するためのInvokerオブジェクト
+	 * @param requestMessage リクエストメッセージ
+	 * @return リクエスト処理結果を含むレスポンスメッセージ
+	 * @throws AbstractResourceException リソース処理前後にスローされるフレームワーク例外
+	 */
+	private ResponseMessage processSyncMessage(ResourceMethodInvoker resourceMethod, RequestMessage requestMessage)
+			throws AbstractResourceException {
+
+		ResponseMessage responseMessage = super.processMessage(resourceMethod, requestMessage);
+
+		Object nextToken = requestMessage.get(syncConfigurationParameter.NEXT_CONTINUATION_TOKEN);
+		if (nextToken != null) {
+			putResponseHeader(responseMessage, syncConfigurationParameter.CONTINUATION_TOKEN, nextToken);
+		}
+
+		Object etag = requestMessage.get(syncConfigurationParameter.RESOURCE_ETAG);
+		if (etag != null) {
+			putResponseHeader(responseMessage, getMessageMetadata().HTTP_HEADER_ETAG, etag);
+		}
+
+		return responseMessage;
+	}
+
+	/**
+	 * 同期制御のロックの取得に要した時間を、対象のリソースごとに記録します.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @param action syncアクション名
+	 * @param startNanos ロックの取得を開始した時刻(ナノ秒)
+	 */
+	private void recordLockWait(RequestMessageContainer requestMessages, String action, long startNanos) {
+
+		long waitNanos = System.nanoTime() - startNanos;
+		for (String resourceName : getRecordableResourceNames(requestMessages, action)) {
+			syncMetrics.recordLockWait(resourceName, action, waitNanos);
+		}
+	}
+
+	/**
+	 * リクエストメッセージの対象のリソース名を返します.
+	 *
+	 * @param requestMessage リクエストメッセージ
+	 * @return リソース名
+	 */
+	private String getResourceName(RequestMessage requestMessage) {
+
+		return ((ResourceItemCommonDataId) requestMessage.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID))
+				.getResourceName();
+	}
+
+	/**
+	 * コンテナ内のリクエストメッセージの対象のリソース名のうち、メトリクスを記録するものを重複なく返します.<br/>
+	 * リソース名はリクエストのパスから取り出したものであるため、リソースマネージャでリソースを特定できるもののみを返します.
+	 * 存在しないリソース名でメトリクス(とMBean)が生成されることを防ぎます.<br/>
+	 * メトリクスを記録しない場合は、空のセットを返します.
+	 *
+	 * @param requestMessages リクエストメッセージコンテナ
+	 * @param action syncアクション名
+	 * @return リソース名のセット
+	 */
+	private Set<String> getRecordableResourceNames(RequestMessageContainer requestMessages, String action) {
+
+		Set<String> resourceNames = new LinkedHashSet<>();
+		if (!syncMetrics.isEnabled()) {
+			return resourceNames;
+		}
+
+		Set<String> unknownNames = new HashSet<>();
+		for (RequestMessage requestMessage : requestMessages.getMessages()) {
+			String resourceName = getResourceName(requestMessage);
+			if (resourceNames.contains(resourceName) || unknownNames.contains(resourceName)) {
+				continue;
+			}
+			try {
+				getResourceManager().getResourceMethodByName(resourceName, action, requestMessage);
+				resourceNames.add(resourceName);
+			} catch (AbstractResourceException e) {
+				unknownNames.add(resourceName);
+			}
+		}
+		return resourceNames;
+	}
+
+	/**
+	 * レスポンスメッセージにHTTPヘッダを追加します.
+	 *
+	 * @param responseMessage レスポンスメッセージ
+	 * @param name ヘッダ名(メタデータのキー名)
+	 * @param value ヘッダの値
+	 */
+	private void putResponseHeader(ResponseMessage responseMessage, String name, Object value) {
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> headers = (Map<String, Object>) responseMessage.get(getMessageMetadata().RESPONSE_HEADER);
+		if (headers == null) {
+			headers = new HashMap<>();
+			responseMessage.put(getMessageMetadata().RESPONSE_HEADER, headers, MessageSource.PROCESSOR);
+		}
+		headers.put(name, value);
 	}
 
 	/**
@@ -466,7 +1123,8 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 	}
 
 	/**
-	 * リソース処理の事後処理として、ストレージID、同期時刻をリクエストから取り出し、レスポンスのコンテキスト情報として設定します.
+	 * リソース処理の事後処理として、保留している共通データの更新をまとめて実行します.<br/>
+	 * また、ストレージID、同期時刻、変更シーケンス番号をリクエストから取り出し、レスポンスのコンテキスト情報として設定します.
 	 *
 	 * @param requestMessages リクエストメッセージコンテナ
 	 * @param responseMessages レスポンスメッセージコンテナ
@@ -474,9 +1132,22 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 	@Override
 	protected void postProcess(RequestMessageContainer requestMessages, ResponseMessageContainer responseMessages) {
 
+		// 各リクエストメッセージで保留した共通データの更新を、1回のJDBCバッチで実行
+		synchronizer.flush();
+
 		// ストレージIDを取り出し、コンテキスト情報として設定
 		SyncRequestCommonData requestCommon = (SyncRequestCommonData) requestMessages
 				.getContextData(syncConfigurationParameter.REQUEST_COMMON_DATA);
+
+		// 上り更新でリクエストメッセージをまとめた場合、まとめる前のリクエストメッセージごとのレスポンスを生成する
+		UploadCoalescer uploadCoalescer = (UploadCoalescer) requestMessages
+				.getContextData(syncConfigurationParameter.UPLOAD_COALESCER);
+		if (uploadCoalescer != null) {
+			responseMessages.setMessages(uploadCoalescer.restoreResponses(requestMessages.getMessages(),
+					responseMessages.getMessages(), requestCommon.getSyncTime()));
+			requestMessages.setMessages(uploadCoalescer.getOriginalMessages());
+		}
+
 		responseMessages.putContextData(syncConfigurationParameter.STORAGE_ID, requestCommon.getStorageId(),
 				MessageSource.PROCESSOR);
 
@@ -493,6 +1164,12 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 
 		responseMessages.putContextData(syncConfigurationParameter.SYNC_TIME, syncTime.toString(),
 				MessageSource.PROCESSOR);
+
+		// 下り更新で確定した変更シーケンス番号を、次回の下り更新の起点としてコンテキスト情報に設定
+		if (requestCommon.getChangeSequence() != null) {
+			responseMessages.putContextData(syncConfigurationParameter.CHANGE_SEQUENCE, requestCommon
+					.getChangeSequence().toString(), MessageSource.PROCESSOR);
+		}
 	}
 
 	/**
@@ -523,6 +1200,76 @@ public class SyncResourceProcessor extends DefaultResourceProcessor {
 		this.syncConfigurationParameter = syncConfigurationParameter;
 	}
 
+	/**
+	 * @return the uploadHistoryCache
+	 */
+	public UploadHistoryCache getUploadHistoryCache() {
+		return uploadHistoryCache;
+	}
+
+	/**
+	 * @param uploadHistoryCache the uploadHistoryCache to set
+	 */
+	public void setUploadHistoryCache(UploadHistoryCache uploadHistoryCache) {
+		this.uploadHistoryCache = uploadHistoryCache;
+	}
+
+	/**
+	 * @return the resourceChangeWatermark
+	 */
+	public ResourceChangeWatermark getResourceChangeWatermark() {
+		return resourceChangeWatermark;
+	}
+
+	/**
+	 * @param resourceChangeWatermark the resourceChangeWatermark to set
+	 */
+	public void setResourceChangeWatermark(ResourceChangeWatermark resourceChangeWatermark) {
+		this.resourceChangeWatermark = resourceChangeWatermark;
+	}
+
+	/**
+	 * @return the tombstoneCompactor
+	 */
+	public TombstoneCompactor getTombstoneCompactor() {
+		return tombstoneCompactor;
+	}
+
+	/**
+	 * @param tombstoneCompactor the tombstoneCompactor to set
+	 */
+	public void setTombstoneCompactor(TombstoneCompactor tombstoneCompactor) {
+		this.tombstoneCompactor = tombstoneCompactor;
+	}
+
+	/**
+	 * @return the syncMetrics
+	 */
+	public SyncMetrics getSyncMetrics() {
+		return syncMetrics;
+	}
+
+	/**
+	 * @param syncMetrics the syncMetrics to set
+	 */
+	public void setSyncMetrics(SyncMetrics syncMetrics) {
+		this.syncMetrics = syncMetrics;
+	}
+
+	/**
+	 * @return the stripedLockTable
+	 */
+	public StripedLockTable getStripedLockTable() {
+		return stripedLockTable;
+	}
+
+	/**
+	 * @param stripedLockTable the stripedLockTable to set
+	 */
+	public void setStripedLockTable(StripedLockTable stripedLockTable) {
+		this.stripedLockTable = stripedLockTable;
+	}
+
 	/**
 	 * @return the syncRequestCommonDataRepository
 	 */
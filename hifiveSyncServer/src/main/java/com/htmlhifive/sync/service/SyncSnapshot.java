@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * 1つのリソースの全リソースアイテムを、ある時点で書き出したスナップショットファイルを表すクラス.<br/>
+ * ファイルは下り更新結果と同じ形式のJSONをgzip圧縮したものです.<br/>
+ * 同期時刻と変更シーケンス番号は、スナップショットに含まれる更新の範囲を表し、クライアントはこれを起点に差分の下り更新を行います.
+ *
+ * @author kishigam
+ */
+public class SyncSnapshot {
+
+	/**
+	 * リソース名.
+	 */
+	private final String resourceName;
+
+	/**
+	 * スナップショットが含む更新の同期時刻.
+	 */
+	private final long syncTime;
+
+	/**
+	 * スナップショットが含む更新の変更シーケンス番号.
+	 */
+	private final long changeSequence;
+
+	/**
+	 * スナップショットファイル.
+	 */
+	private final File file;
+
+	/**
+	 * スナップショットを生成した時刻(サーバのシステム時刻).
+	 */
+	private final long createdAt;
+
+	/**
+	 * スナップショットの情報を指定してインスタンスを生成します.
+	 *
+	 * @param resourceName リソース名
+	 * @param syncTime スナップショットが含む更新の同期時刻
+	 * @param changeSequence スナップショットが含む更新の変更シーケンス番号
+	 * @param file スナップショットファイル
+	 * @param createdAt スナップショットを生成した時刻
+	 */
+	public SyncSnapshot(String resourceName, long syncTime, long changeSequence, File file, long createdAt) {
+
+		this.resourceName = resourceName;
+		this.syncTime = syncTime;
+		this.changeSequence = changeSequence;
+		this.file = file;
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * スナップショットファイルを読み込み用に開きます.<br/>
+	 * 開いた後に新しいスナップショットで置き換えられても、このチャネルからは元の内容を読み込めます.
+	 *
+	 * @return ファイルチャネル
+	 * @throws IOException ファイルを開けない場合
+	 */
+	public FileChannel open() throws IOException {
+		return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return the resourceName
+	 */
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	/**
+	 * @return the syncTime
+	 */
+	public long getSyncTime() {
+		return syncTime;
+	}
+
+	/**
+	 * @return the changeSequence
+	 */
+	public long getChangeSequence() {
+		return changeSequence;
+	}
+
+	/**
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the createdAt
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+}
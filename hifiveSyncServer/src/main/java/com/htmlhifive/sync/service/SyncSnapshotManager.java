@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.htmlhifive.sync.resource.AbstractCrudSyncResource;
+import com.htmlhifive.sync.resource.StreamingDownloadResult;
+import com.htmlhifive.sync.resource.Synchronizer;
+
+/**
+ * 初回同期を行うクライアントのために、リソースごとのスナップショットファイルを生成、管理するクラス.<br/>
+ * スナップショットは、最初に要求された時にリクエストとは別のスレッドで生成を開始し、以降は一定間隔で再生成します.<br/>
+ * ファイルはリソースごとのディレクトリに"(同期時刻)-(変更シーケンス番号).json.gz"の名前で保存されるため、再起動後も最新のものを再利用します.<br/>
+ * 生成間隔が0以下の場合、スナップショットは使用できません.
+ *
+ * @author kishigam
+ */
+public class SyncSnapshotManager {
+
+	private static final Logger LOGGER = Logger.getLogger(SyncSnapshotManager.class);
+
+	/**
+	 * スナップショットファイル名のパターン.
+	 */
+	private static final Pattern SNAPSHOT_FILE_NAME = Pattern.compile("(\\d+)-(\\d+)\\.json\\.gz");
+
+	/**
+	 * 同期時刻、変更シーケンス番号を取得するためのシンクロナイザー.
+	 */
+	@Autowired
+	private Synchronizer synchronizer;
+
+	/**
+	 * スナップショットの同期時刻を生成するオブジェクト.
+	 */
+	@Autowired
+	private SyncClock syncClock;
+
+	/**
+	 * スナップショットファイルを保存するディレクトリ.
+	 */
+	private final File directory;
+
+	/**
+	 * スナップショットの生成間隔(ミリ秒).
+	 */
+	private final long interval;
+
+	/**
+	 * 下り更新結果をJSONに変換するオブジェクト.
+	 */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * スナップショットを要求されたリソース.定期的な再生成の対象になります.
+	 */
+	private final ConcurrentMap<String, AbstractCrudSyncResource<?>> resources = new ConcurrentHashMap<>();
+
+	/**
+	 * リソースごとの最新のスナップショット.
+	 */
+	private final ConcurrentMap<String, SyncSnapshot> snapshots = new ConcurrentHashMap<>();
+
+	/**
+	 * リソースごとのスナップショット生成の排他に使用するオブジェクト.
+	 */
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * 初回の生成を実行中のリソース名.
+	 */
+	private final Set<String> generating = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * 再生成を定期的に実行するスケジューラ.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * 保存先ディレクトリと生成間隔を指定してインスタンスを生成します.<br/>
+	 * ディレクトリが指定されていない場合は、一時ディレクトリ以下に保存します.
+	 *
+	 * @param directory スナップショットファイルを保存するディレクトリ
+	 * @param interval スナップショットの生成間隔(ミリ秒)
+	 */
+	public SyncSnapshotManager(String directory, long interval) {
+
+		if (directory == null || directory.isEmpty()) {
+			this.directory = new File(System.getProperty("java.io.tmpdir"), "hifive-sync-snapshot");
+		} else {
+			this.directory = new File(directory);
+		}
+		this.interval = interval;
+	}
+
+	/**
+	 * スナップショットを使用する場合、再生成を定期的に実行するスケジューラを開始します.
+	 */
+	@PostConstruct
+	public void start() {
+
+		if (!isEnabled()) {
+			return;
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "sync-snapshot-generator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				refresh();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * スケジューラを停止します.
+	 */
+	@PreDestroy
+	public void stop() {
+
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * 指定されたリソースの最新のスナップショットを返します.<br/>
+	 * まだ存在しない場合は、保存済のファイルを探し、なければスケジューラのスレッドで生成を開始してnullを返します.<br/>
+	 * 全件の読み出しをリクエストのスレッドで行わないよう、ここでは生成の完了を待ちません.
+	 *
+	 * @param resourceName リソース名
+	 * @param resource スナップショットを生成するリソース
+	 * @return スナップショット(生成中の場合null)
+	 * @throws IOException 保存済のスナップショットファイルの検索に失敗した場合
+	 */
+	public SyncSnapshot getSnapshot(final String resourceName, final AbstractCrudSyncResource<?> resource)
+			throws IOException {
+
+		resources.putIfAbsent(resourceName, resource);
+
+		SyncSnapshot snapshot = snapshots.get(resourceName);
+		if (snapshot != null) {
+			return snapshot;
+		}
+
+		synchronized (lockFor(resourceName)) {
+			snapshot = snapshots.get(resourceName);
+			if (snapshot != null) {
+				return snapshot;
+			}
+
+			snapshot = findSaved(resourceName);
+			if (snapshot != null) {
+				snapshots.put(resourceName, snapshot);
+				return snapshot;
+			}
+		}
+
+		// 同時に要求された場合も、生成は1回だけ開始する
+		if (generating.add(resourceName)) {
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					generateFirst(resourceName, resource);
+				}
+			});
+		}
+
+		return null;
+	}
+
+	/**
+	 * まだスナップショットが存在しないリソースについて、最初のスナップショットを生成します.<br/>
+	 * 生成に失敗した場合は、次の要求または定期的な再生成で改めて生成します.
+	 *
+	 * @param resourceName リソース名
+	 * @param resource スナップショットを生成するリソース
+	 */
+	private void generateFirst(String resourceName, AbstractCrudSyncResource<?> resource) {
+
+		try {
+			synchronized (lockFor(resourceName)) {
+				if (!snapshots.containsKey(resourceName)) {
+					generate(resourceName, resource);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("[syncfw]Failed to generate snapshot. resource : " + resourceName, e);
+		} finally {
+			generating.remove(resourceName);
+		}
+	}
+
+	/**
+	 * 生成間隔を経過したスナップショットを再生成します.<br/>
+	 * 生成に失敗した場合は、それまでのスナップショットを引き続き使用します.
+	 */
+	public void refresh() {
+
+		for (Map.Entry<String, AbstractCrudSyncResource<?>> entry : resources.entrySet()) {
+			String resourceName = entry.getKey();
+
+			SyncSnapshot current = snapshots.get(resourceName);
+			if (current != null && current.getCreatedAt() + interval > System.currentTimeMillis()) {
+				continue;
+			}
+
+			try {
+				synchronized (lockFor(resourceName)) {
+					generate(resourceName, entry.getValue());
+				}
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("[syncfw]Failed to generate snapshot. resource : " + resourceName, e);
+			}
+		}
+	}
+
+	/**
+	 * リソースの全リソースアイテム(削除済のものを除く)をスナップショットファイルに書き出し、最新のスナップショットとします.<br/>
+	 * 一時ファイルに書き出した後に名前を変更するため、書き出し中のファイルが読み込まれることはありません.
+	 *
+	 * @param resourceName リソース名
+	 * @param resource スナップショットを生成するリソース
+	 * @return 生成したスナップショット
+	 * @throws IOException スナップショットファイルの生成に失敗した場合
+	 */
+	private SyncSnapshot generate(String resourceName, AbstractCrudSyncResource<?> resource) throws IOException {
+
+		// 読み込みの前に範囲を確定する(範囲以降の更新が含まれても、差分の下り更新で再度取得されるだけで問題ない)
+		// 同期時刻は、下り更新と同様にバッファ時間を差し引く
+		long changeSequence = synchronizer.getLatestChangeSequence();
+		long syncTime = syncClock.now()
+				- Long.valueOf(synchronizer.getSyncConfigurationParameter().BUFFER_TIME_FOR_DOWNLOAD);
+
+		File resourceDirectory = getResourceDirectory(resourceName);
+		if (!resourceDirectory.isDirectory() && !resourceDirectory.mkdirs()) {
+			throw new IOException("Failed to create snapshot directory : " + resourceDirectory);
+		}
+
+		File tempFile = File.createTempFile("snapshot", ".tmp", resourceDirectory);
+		StreamingDownloadResult result = resource.createSnapshotResult(resourceName);
+		OutputStream out = null;
+		try {
+			out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+			// 下り更新結果と同じ形式(リソースアイテムと共通データを含むMapの配列)で書き出す
+			JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+			generator.writeStartArray();
+			for (Map<String, Object> row : result) {
+				objectMapper.writeValue(generator, row);
+			}
+			generator.writeEndArray();
+			generator.close();
+
+		} catch (IOException | RuntimeException e) {
+			IOUtils.closeQuietly(out);
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		} finally {
+			result.close();
+		}
+
+		File snapshotFile = new File(resourceDirectory, syncTime + "-" + changeSequence + ".json.gz");
+		Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+		SyncSnapshot snapshot = new SyncSnapshot(resourceName, syncTime, changeSequence, snapshotFile,
+				System.currentTimeMillis());
+		snapshots.put(resourceName, snapshot);
+
+		LOGGER.info("[syncfw]Snapshot generated. : " + snapshot);
+
+		// 古いスナップショットファイルを削除する
+		// 読み込み中のファイルは、OSによっては削除できないため次回の生成時に削除される
+		File[] files = resourceDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (!file.equals(snapshotFile) && SNAPSHOT_FILE_NAME.matcher(file.getName()).matches()
+						&& !file.delete()) {
+					LOGGER.debug("[syncfw]Old snapshot cannot be deleted now. : " + file);
+				}
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * 保存済のスナップショットファイルのうち、最新のものを探して返します.存在しない場合はnullを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return スナップショット
+	 * @throws IOException
+	 */
+	private SyncSnapshot findSaved(String resourceName) throws IOException {
+
+		File[] files = getResourceDirectory(resourceName).listFiles();
+		if (files == null) {
+			return null;
+		}
+
+		SyncSnapshot latest = null;
+		for (File file : files) {
+			Matcher matcher = SNAPSHOT_FILE_NAME.matcher(file.getName());
+			if (!matcher.matches()) {
+				continue;
+			}
+
+			long syncTime = Long.parseLong(matcher.group(1));
+			if (latest == null || latest.getSyncTime() < syncTime) {
+				latest = new SyncSnapshot(resourceName, syncTime, Long.parseLong(matcher.group(2)), file,
+						file.lastModified());
+			}
+		}
+
+		return latest;
+	}
+
+	/**
+	 * リソースのスナップショットファイルを保存するディレクトリを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return ディレクトリ
+	 * @throws UnsupportedEncodingException
+	 */
+	private File getResourceDirectory(String resourceName) throws UnsupportedEncodingException {
+
+		return new File(directory, URLEncoder.encode(resourceName, "UTF-8"));
+	}
+
+	/**
+	 * リソースごとの排他に使用するオブジェクトを返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return 排他に使用するオブジェクト
+	 */
+	private Object lockFor(String resourceName) {
+
+		Object lock = new Object();
+		Object existing = locks.putIfAbsent(resourceName, lock);
+		return existing != null ? existing : lock;
+	}
+
+	/**
+	 * @return スナップショットを使用できる場合true
+	 */
+	public boolean isEnabled() {
+		return interval > 0;
+	}
+}
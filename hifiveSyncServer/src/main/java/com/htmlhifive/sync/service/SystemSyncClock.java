@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+/**
+ * サーバのシステム時刻を同期時刻とする{@link SyncClock}実装.
+ *
+ * @author kishigam
+ */
+public class SystemSyncClock implements SyncClock {
+
+	/**
+	 * システム時刻を返します.
+	 */
+	@Override
+	public long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * システム時刻を使用するため、何もしません.
+	 */
+	@Override
+	public void observe(long timestamp) {
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * リソースごとに、削除済のリソースアイテム共通データ(トゥームストーン)を破棄した範囲を保持するエンティティ.<br>
+ * 破棄したトゥームストーンの最終更新時刻、変更シーケンス番号の最大値を「最小有効ウォーターマーク」として保持します.<br>
+ * これより前の時刻(シーケンス番号)から下り更新を行うクライアントは、削除を取得できないため、全件の同期をやり直す必要があります.
+ *
+ * @author kishigam
+ */
+@Entity
+@Table(name = "TOMBSTONE_COMPACTION_STATE")
+public class TombstoneCompactionState implements Serializable {
+
+	private static final long serialVersionUID = 4381209865276340178L;
+
+	/**
+	 * リソース名.
+	 */
+	@Id
+	private String resourceName;
+
+	/**
+	 * 下り更新の起点として有効な最終更新時刻の最小値.
+	 */
+	private long minValidLastModified;
+
+	/**
+	 * 下り更新の起点として有効な変更シーケンス番号の最小値.
+	 */
+	private long minValidChangeSequence;
+
+	/**
+	 * フレームワーク、ライブラリが使用するプライベートデフォルトコンストラクタ.
+	 */
+	@SuppressWarnings("unused")
+	private TombstoneCompactionState() {
+	}
+
+	/**
+	 * リソース名を指定して、まだトゥームストーンを破棄していない状態のインスタンスを生成します.
+	 *
+	 * @param resourceName リソース名
+	 */
+	public TombstoneCompactionState(String resourceName) {
+		this.resourceName = resourceName;
+	}
+
+	/**
+	 * 破棄したトゥームストーンの最終更新時刻、変更シーケンス番号の最大値により、最小有効ウォーターマークを進めます.<br>
+	 * 現在の値より小さい値が指定された場合は変更しません.
+	 *
+	 * @param lastModified 破棄したトゥームストーンの最終更新時刻の最大値
+	 * @param changeSequence 破棄したトゥームストーンの変更シーケンス番号の最大値
+	 */
+	public void advance(long lastModified, long changeSequence) {
+
+		this.minValidLastModified = Math.max(this.minValidLastModified, lastModified);
+		this.minValidChangeSequence = Math.max(this.minValidChangeSequence, changeSequence);
+	}
+
+	/**
+	 * 指定された起点から下り更新を行うと、破棄したトゥームストーンを取得できない場合trueを返します.<br>
+	 * 変更シーケンス番号が指定された場合はシーケンス番号で、指定されていない場合は最終更新時刻で判定します.
+	 * 起点が0(初回同期)の場合は、取得済のリソースアイテムがないためfalseを返します.
+	 *
+	 * @param lastModified クライアントが前回の下り更新で取得した時刻
+	 * @param changeSequence クライアントが前回の下り更新で取得した変更シーケンス番号(指定されていない場合null)
+	 * @return 全件の同期をやり直す必要がある場合true
+	 */
+	public boolean isResyncRequired(long lastModified, Long changeSequence) {
+
+		if (changeSequence != null) {
+			return changeSequence > 0 && changeSequence < minValidChangeSequence;
+		}
+		return lastModified > 0 && lastModified < minValidLastModified;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	/**
+	 * @return the resourceName
+	 */
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	/**
+	 * @return the minValidLastModified
+	 */
+	public long getMinValidLastModified() {
+		return minValidLastModified;
+	}
+
+	/**
+	 * @return the minValidChangeSequence
+	 */
+	public long getMinValidChangeSequence() {
+		return minValidChangeSequence;
+	}
+}
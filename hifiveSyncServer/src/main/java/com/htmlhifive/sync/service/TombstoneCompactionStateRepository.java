@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * トゥームストーンを破棄した範囲を永続化するためのリポジトリ. <br>
+ * SpringFrameworkの標準的なリポジトリメソッドを継承します.<br/>
+ *
+ * @author kishigam
+ */
+public interface TombstoneCompactionStateRepository extends JpaRepository<TombstoneCompactionState, String> {
+
+	/**
+	 * リソース名が合致するトゥームストーンの破棄範囲を返します.<br>
+	 * 複数のサーバが同時に更新しても値が後退しないよう、悲観的ロックを実行します.
+	 *
+	 * @param resourceName リソース名
+	 * @return 検索したエンティティ
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT s FROM TombstoneCompactionState s WHERE s.resourceName = :resourceName")
+	TombstoneCompactionState findOneForUpdate(@Param("resourceName") String resourceName);
+}
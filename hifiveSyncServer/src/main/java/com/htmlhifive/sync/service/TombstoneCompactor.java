@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.htmlhifive.sync.resource.common.ResourceItemChangeLogRepository;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataRepository;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * 削除済のリソースアイテムの共通データ(トゥームストーン)と、共通データの更新履歴を、保持期間の経過後に破棄するクラス.<br/>
+ * 保持期間より前に削除されたトゥームストーンを、一定間隔で最終更新時刻の古い順に一定件数ずつ削除します.<br/>
+ * 削除するごとに、リソースの最小有効ウォーターマーク({@link TombstoneCompactionState})を進めます.
+ * これより前の時刻から下り更新を行うクライアントは削除を取得できないため、{@link #isResyncRequired(String, long, Long)}により検出し、全件の同期をやり直させます.<br/>
+ * 保持期間より前に記録された更新履歴も同様に削除し、削除した変更シーケンス番号まで最小有効ウォーターマークを進めます.
+ * ただし、最新の変更シーケンス番号が後退しないよう、全リソースで最新の更新履歴は削除しません.<br/>
+ * 最小有効ウォーターマークは下り更新ごとに参照するため、リソースごとにキャッシュし、実行間隔ごとに再読み込みします.
+ * 他のサーバで破棄が行われた場合、その反映は最大で実行間隔分遅れます.<br/>
+ * 実行間隔が0以下の場合、トゥームストーンと更新履歴は破棄されません.
+ *
+ * @author kishigam
+ */
+public class TombstoneCompactor {
+
+	private static final Logger LOGGER = Logger.getLogger(TombstoneCompactor.class);
+
+	/**
+	 * 共通データのリポジトリ.
+	 */
+	@Autowired
+	private ResourceItemCommonDataRepository resourceItemCommonDataRepository;
+
+	/**
+	 * 破棄したトゥームストーンの変更シーケンス番号を取得するための、共通データの更新履歴のリポジトリ.
+	 */
+	@Autowired
+	private ResourceItemChangeLogRepository resourceItemChangeLogRepository;
+
+	/**
+	 * トゥームストーンの破棄範囲のリポジトリ.
+	 */
+	@Autowired
+	private TombstoneCompactionStateRepository tombstoneCompactionStateRepository;
+
+	/**
+	 * 一定件数ごとのトランザクションを実行するためのトランザクションマネージャ.
+	 */
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * 保持期間の基準となる現在時刻を取得するオブジェクト.
+	 */
+	@Autowired
+	private SyncClock syncClock;
+
+	/**
+	 * 破棄を実行する間隔(ミリ秒).
+	 */
+	private final long interval;
+
+	/**
+	 * トゥームストーンの保持期間(ミリ秒).
+	 */
+	private final long retentionPeriod;
+
+	/**
+	 * 1回のトランザクションで破棄するトゥームストーンの最大数.
+	 */
+	private final int batchSize;
+
+	/**
+	 * 破棄を定期的に実行するスケジューラ.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * リソースごとの最小有効ウォーターマークのキャッシュ.
+	 */
+	private final ConcurrentMap<String, CachedState> cachedStates = new ConcurrentHashMap<>();
+
+	/**
+	 * 実行間隔、保持期間、1回のトランザクションで破棄する件数を指定してインスタンスを生成します.
+	 *
+	 * @param interval 破棄を実行する間隔(ミリ秒)
+	 * @param retentionPeriod トゥームストーンの保持期間(ミリ秒)
+	 * @param batchSize 1回のトランザクションで破棄するトゥームストーンの最大数
+	 */
+	public TombstoneCompactor(long interval, long retentionPeriod, int batchSize) {
+
+		this.interval = interval;
+		this.retentionPeriod = retentionPeriod;
+		this.batchSize = Math.max(batchSize, 1);
+	}
+
+	/**
+	 * トゥームストーンを破棄する場合、破棄を定期的に実行するスケジューラを開始します.
+	 */
+	@PostConstruct
+	public void start() {
+
+		if (!isEnabled()) {
+			return;
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "sync-tombstone-compactor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				compact();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * スケジューラを停止します.
+	 */
+	@PreDestroy
+	public void stop() {
+
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * 保持期間より前に削除されたトゥームストーンを、全てのリソースについて破棄します.<br/>
+	 * 破棄に失敗したリソースは、次回の実行時に再度破棄します.
+	 *
+	 * @return 破棄したトゥームストーンの件数
+	 */
+	public int compact() {
+
+		long before = syncClock.now() - retentionPeriod;
+
+		List<String> resourceNames;
+		List<String> changeLogResourceNames;
+		try {
+			resourceNames = resourceItemCommonDataRepository.findResourceNamesByActionBefore(SyncAction.DELETE,
+					before);
+			changeLogResourceNames = resourceItemChangeLogRepository.findResourceNamesBefore(before);
+		} catch (RuntimeException e) {
+			LOGGER.warn("[syncfw]Failed to find tombstones to compact.", e);
+			return 0;
+		}
+
+		int total = 0;
+		for (String resourceName : resourceNames) {
+			try {
+				int compacted = compact(resourceName, before);
+				if (compacted > 0) {
+					LOGGER.info("[syncfw]Tombstones compacted. resource : " + resourceName + ", count : " + compacted);
+				}
+				total += compacted;
+			} catch (RuntimeException e) {
+				LOGGER.warn("[syncfw]Failed to compact tombstones. resource : " + resourceName, e);
+			}
+		}
+
+		// トゥームストーンの破棄に使用するため、更新履歴はその後に削除する
+		for (String resourceName : changeLogResourceNames) {
+			try {
+				int pruned = pruneChangeLogs(resourceName, before);
+				if (pruned > 0) {
+					LOGGER.info("[syncfw]Change logs pruned. resource : " + resourceName + ", count : " + pruned);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.warn("[syncfw]Failed to prune change logs. resource : " + resourceName, e);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 指定されたリソースについて、指定時刻より前に削除されたトゥームストーンを一定件数ずつ破棄します.<br/>
+	 * 長時間ロックを保持しないよう、一定件数ごとにトランザクションをコミットします.
+	 *
+	 * @param resourceName リソース名
+	 * @param before 破棄する時刻(この時刻より前の削除を対象とする)
+	 * @return 破棄したトゥームストーンの件数
+	 */
+	private int compact(final String resourceName, final long before) {
+
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		int total = 0;
+		while (true) {
+			Integer compacted = transactionTemplate.execute(new TransactionCallback<Integer>() {
+				@Override
+				public Integer doInTransaction(TransactionStatus status) {
+					return compactBatch(resourceName, before);
+				}
+			});
+
+			total += compacted;
+			if (compacted > 0) {
+				cachedStates.remove(resourceName);
+			}
+			if (compacted < batchSize) {
+				return total;
+			}
+		}
+	}
+
+	/**
+	 * 指定されたリソースについて、最終更新時刻の古いトゥームストーンから一定件数を破棄し、最小有効ウォーターマークを進めます.<br/>
+	 * トランザクション内で呼び出す必要があります.
+	 *
+	 * @param resourceName リソース名
+	 * @param before 破棄する時刻(この時刻より前の削除を対象とする)
+	 * @return 破棄対象として検索したトゥームストーンの件数
+	 */
+	private int compactBatch(String resourceName, long before) {
+
+		List<ResourceItemCommonData> tombstones = resourceItemCommonDataRepository.findByActionBefore(resourceName,
+				SyncAction.DELETE, before, new PageRequest(0, batchSize));
+		if (tombstones.isEmpty()) {
+			return 0;
+		}
+
+		List<String> resourceItemIds = new ArrayList<>();
+		long maxLastModified = 0L;
+		for (ResourceItemCommonData tombstone : tombstones) {
+			resourceItemIds.add(tombstone.getId().getResourceItemId());
+			maxLastModified = Math.max(maxLastModified, tombstone.getLastModified());
+		}
+
+		// 他のサーバと同時に実行しても最小有効ウォーターマークが後退しないよう、削除の前にロックする
+		TombstoneCompactionState state = tombstoneCompactionStateRepository.findOneForUpdate(resourceName);
+		if (state == null) {
+			state = new TombstoneCompactionState(resourceName);
+		}
+
+		Long maxSequence = resourceItemChangeLogRepository.findLatestSequenceBefore(resourceName, resourceItemIds,
+				before);
+
+		// 検索後に再度作成されたリソースアイテムの共通データは、条件に合致しないため削除されない
+		// 更新履歴はここでは削除せず、保持期間の経過後にpruneChangeLogsで削除する(共通データと結合できないため下り更新の対象にはならない)
+		resourceItemCommonDataRepository.deleteByActionBefore(resourceName, resourceItemIds, SyncAction.DELETE,
+				before);
+
+		state.advance(maxLastModified, maxSequence == null ? 0L : maxSequence);
+		tombstoneCompactionStateRepository.save(state);
+
+		return tombstones.size();
+	}
+
+	/**
+	 * 指定されたリソースについて、指定時刻より前に記録された更新履歴を一定件数ずつ削除します.<br/>
+	 * 長時間ロックを保持しないよう、一定件数ごとにトランザクションをコミットします.
+	 *
+	 * @param resourceName リソース名
+	 * @param before 削除する時刻(この時刻より前の更新履歴を対象とする)
+	 * @return 削除した更新履歴の件数
+	 */
+	private int pruneChangeLogs(final String resourceName, final long before) {
+
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		int total = 0;
+		while (true) {
+			Integer pruned = transactionTemplate.execute(new TransactionCallback<Integer>() {
+				@Override
+				public Integer doInTransaction(TransactionStatus status) {
+					return pruneChangeLogBatch(resourceName, before);
+				}
+			});
+
+			total += pruned;
+			if (pruned > 0) {
+				cachedStates.remove(resourceName);
+			}
+			if (pruned < batchSize) {
+				return total;
+			}
+		}
+	}
+
+	/**
+	 * 指定されたリソースについて、変更シーケンス番号の小さい更新履歴から一定件数を削除し、最小有効ウォーターマークを進めます.<br/>
+	 * トランザクション内で呼び出す必要があります.
+	 *
+	 * @param resourceName リソース名
+	 * @param before 削除する時刻(この時刻より前の更新履歴を対象とする)
+	 * @return 削除した更新履歴の件数
+	 */
+	private int pruneChangeLogBatch(String resourceName, long before) {
+
+		Long latest = resourceItemChangeLogRepository.findLatestSequence();
+		if (latest == null) {
+			return 0;
+		}
+
+		List<Long> sequences = resourceItemChangeLogRepository.findSequencesBefore(resourceName, before, latest,
+				new PageRequest(0, batchSize));
+		if (sequences.isEmpty()) {
+			return 0;
+		}
+
+		// 他のサーバと同時に実行しても最小有効ウォーターマークが後退しないよう、削除の前にロックする
+		TombstoneCompactionState state = tombstoneCompactionStateRepository.findOneForUpdate(resourceName);
+		if (state == null) {
+			state = new TombstoneCompactionState(resourceName);
+		}
+
+		resourceItemChangeLogRepository.deleteBySequences(sequences);
+
+		// 削除した更新履歴より前の変更シーケンス番号から下り更新を行うクライアントには、全件の同期をやり直させる
+		state.advance(0L, sequences.get(sequences.size() - 1));
+		tombstoneCompactionStateRepository.save(state);
+
+		return sequences.size();
+	}
+
+	/**
+	 * 指定された起点から下り更新を行うと、破棄したトゥームストーンを取得できない場合trueを返します.<br/>
+	 * トゥームストーンを破棄しない設定の場合、常にfalseを返します.<br/>
+	 * 最小有効ウォーターマークは、キャッシュが実行間隔より古い場合のみデータベースから読み込みます.
+	 *
+	 * @param resourceName リソース名
+	 * @param lastModified クライアントが前回の下り更新で取得した時刻
+	 * @param changeSequence クライアントが前回の下り更新で取得した変更シーケンス番号(指定されていない場合null)
+	 * @return 全件の同期をやり直す必要がある場合true
+	 */
+	public boolean isResyncRequired(String resourceName, long lastModified, Long changeSequence) {
+
+		if (!isEnabled()) {
+			return false;
+		}
+
+		return getState(resourceName).isResyncRequired(lastModified, changeSequence);
+	}
+
+	/**
+	 * 指定されたリソースの最小有効ウォーターマークを返します.<br/>
+	 * キャッシュがないか、実行間隔より古い場合はデータベースから読み込みます.まだ破棄していないリソースは、破棄していない状態を返します.
+	 *
+	 * @param resourceName リソース名
+	 * @return 最小有効ウォーターマーク
+	 */
+	private TombstoneCompactionState getState(String resourceName) {
+
+		long now = System.currentTimeMillis();
+
+		CachedState cached = cachedStates.get(resourceName);
+		if (cached != null && cached.loadedAt + interval > now) {
+			return cached.state;
+		}
+
+		TombstoneCompactionState loaded = tombstoneCompactionStateRepository.findOne(resourceName);
+
+		// エンティティを保持しないよう、値をコピーしてキャッシュする
+		TombstoneCompactionState state = new TombstoneCompactionState(resourceName);
+		if (loaded != null) {
+			state.advance(loaded.getMinValidLastModified(), loaded.getMinValidChangeSequence());
+		}
+		cachedStates.put(resourceName, new CachedState(state, now));
+
+		return state;
+	}
+
+	/**
+	 * @return トゥームストーンを破棄する場合true
+	 */
+	public boolean isEnabled() {
+		return interval > 0;
+	}
+
+	/**
+	 * キャッシュした最小有効ウォーターマークと、その読み込み時刻.
+	 */
+	private static class CachedState {
+
+		private final TombstoneCompactionState state;
+
+		private final long loadedAt;
+
+		CachedState(TombstoneCompactionState state, long loadedAt) {
+			this.state = state;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
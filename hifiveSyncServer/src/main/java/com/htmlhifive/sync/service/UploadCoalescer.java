@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.htmlhifive.resourcefw.config.MessageMetadata;
+import com.htmlhifive.resourcefw.message.MessageSource;
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.resourcefw.message.ResponseMessage;
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.resourcefw.service.ResourceProcessingStatus;
+import com.htmlhifive.resourcefw.util.ResourcePathUtil;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.Synchronizer;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * 多重化された上り更新リクエストで、同じリソースアイテムに対する一連のリクエストメッセージを1つにまとめるクラス.<br/>
+ * 新規作成(CREATE)から始まり、更新(UPDATE)が続き、削除(DELETE)で終わる一連のリクエストメッセージについて、最終的な結果だけをリソースに反映します.<br/>
+ * <ul>
+ * <li>CREATE、UPDATE...は、最後のメッセージの内容によるCREATEになります.</li>
+ * <li>UPDATE、UPDATE...は、最後のメッセージの内容によるUPDATEになります.</li>
+ * <li>UPDATE...、DELETEは、DELETEになります.</li>
+ * <li>CREATE、UPDATE...、DELETEは、何も実行しません.</li>
+ * </ul>
+ * まとめたリクエストメッセージは最後のメッセージで代表して実行し、競合判定には最初のメッセージの最終更新時刻を使用します.<br/>
+ * レスポンスは、リクエストメッセージごとに、順に実行した場合と同じ形で生成します.<br/>
+ * リクエストごとに生成し、事前処理から事後処理まで保持して使用します.
+ *
+ * @author kishigam
+ */
+public class UploadCoalescer {
+
+	/**
+	 * メッセージメタデータオブジェクト.
+	 */
+	private final MessageMetadata messageMetadata;
+
+	/**
+	 * sync機能の動作設定パラメータオブジェクト.
+	 */
+	private final SyncConfigurationParameter syncConfigurationParameter;
+
+	/**
+	 * まとめる前のリクエストメッセージ.レスポンスはこの順に生成します.
+	 */
+	private List<RequestMessage> originalMessages;
+
+	/**
+	 * まとめたリクエストメッセージと、代表して実行するリクエストメッセージの対応.代表するメッセージ自身も含みます.
+	 */
+	private final Map<RequestMessage, RequestMessage> representatives = new IdentityHashMap<>();
+
+	/**
+	 * まとめたリクエストメッセージの、まとめる前の同期アクション.
+	 */
+	private final Map<RequestMessage, SyncAction> originalSyncActions = new IdentityHashMap<>();
+
+	/**
+	 * 何も実行しないことになったリクエストメッセージ.
+	 */
+	private final Set<RequestMessage> noOpMessages = Collections
+			.newSetFromMap(new IdentityHashMap<RequestMessage, Boolean>());
+
+	/**
+	 * インスタンスを生成します.
+	 *
+	 * @param messageMetadata メッセージメタデータオブジェクト
+	 * @param syncConfigurationParameter sync機能の動作設定パラメータオブジェクト
+	 */
+	public UploadCoalescer(MessageMetadata messageMetadata, SyncConfigurationParameter syncConfigurationParameter) {
+
+		this.messageMetadata = messageMetadata;
+		this.syncConfigurationParameter = syncConfigurationParameter;
+	}
+
+	/**
+	 * リソースアイテムごとに一連のリクエストメッセージをまとめ、実行するリクエストメッセージを返します.<br/>
+	 * まとめられないリクエストメッセージは、そのままの順序で含まれます.<br/>
+	 * 新規作成から削除までをまとめる場合、既に同じIDの共通データが存在すれば重複として扱う必要があるため、まとめずにそのまま実行します.
+	 *
+	 * @param messages 上り更新のリクエストメッセージ
+	 * @param synchronizer 共通データの存在確認に使用するシンクロナイザー
+	 * @return 実行するリクエストメッセージ
+	 */
+	public List<RequestMessage> coalesce(List<RequestMessage> messages, Synchronizer synchronizer) {
+
+		originalMessages = new ArrayList<>(messages);
+
+		MultiValueMap<ResourceItemCommonDataId, RequestMessage> messageMap = new LinkedMultiValueMap<>();
+		for (RequestMessage message : messages) {
+			messageMap.add(getCommonDataId(message), message);
+		}
+
+		// まとめた後の同期アクションを決定する
+		Map<ResourceItemCommonDataId, SyncAction> netSyncActions = new HashMap<>();
+		for (Map.Entry<ResourceItemCommonDataId, List<RequestMessage>> entry : messageMap.entrySet()) {
+
+			SyncAction netSyncAction = getNetSyncAction(entry.getValue());
+			// 存在確認のみのため、ロックを用いずに取得する
+			if (netSyncAction == SyncAction.NONE && synchronizer.getCommon(entry.getKey()) != null) {
+				continue;
+			}
+			if (netSyncAction != null) {
+				netSyncActions.put(entry.getKey(), netSyncAction);
+			}
+		}
+
+		List<RequestMessage> executed = new ArrayList<>();
+		for (RequestMessage message : messages) {
+
+			ResourceItemCommonDataId commonDataId = getCommonDataId(message);
+			SyncAction netSyncAction = netSyncActions.get(commonDataId);
+			if (netSyncAction == null) {
+				executed.add(message);
+				continue;
+			}
+
+			List<RequestMessage> chain = messageMap.get(commonDataId);
+			RequestMessage first = chain.get(0);
+			RequestMessage last = chain.get(chain.size() - 1);
+
+			originalSyncActions.put(message, getSyncAction(message));
+			if (netSyncAction == SyncAction.NONE) {
+				noOpMessages.add(message);
+				continue;
+			}
+
+			representatives.put(message, last);
+			if (message != last) {
+				continue;
+			}
+
+			// 最後のメッセージ(最終的な内容)で代表し、競合判定は最初のメッセージの最終更新時刻で行う
+			last.put(syncConfigurationParameter.SYNC_ACTION, netSyncAction.toString(), MessageSource.PROCESSOR);
+			Object firstLastModified = first.get(syncConfigurationParameter.LAST_MODIFIED);
+			if (firstLastModified != null) {
+				last.put(syncConfigurationParameter.LAST_MODIFIED, firstLastModified, MessageSource.PROCESSOR);
+			} else {
+				last.remove(syncConfigurationParameter.LAST_MODIFIED);
+			}
+			executed.add(last);
+		}
+
+		return executed;
+	}
+
+	/**
+	 * 一連のリクエストメッセージをまとめた後の同期アクションを返します.まとめられない場合はnullを返します.<br/>
+	 * 新規作成から削除までをまとめた場合、{@link SyncAction#NONE}を返します.
+	 *
+	 * @param chain 同じリソースアイテムに対するリクエストメッセージ
+	 * @return まとめた後の同期アクション
+	 */
+	private SyncAction getNetSyncAction(List<RequestMessage> chain) {
+
+		if (chain.size() < 2) {
+			return null;
+		}
+
+		SyncAction firstSyncAction = getSyncAction(chain.get(0));
+		SyncAction lastSyncAction = getSyncAction(chain.get(chain.size() - 1));
+		if ((firstSyncAction != SyncAction.CREATE && firstSyncAction != SyncAction.UPDATE)
+				|| (lastSyncAction != SyncAction.UPDATE && lastSyncAction != SyncAction.DELETE)) {
+			return null;
+		}
+		for (RequestMessage message : chain.subList(1, chain.size() - 1)) {
+			if (getSyncAction(message) != SyncAction.UPDATE) {
+				return null;
+			}
+		}
+
+		if (firstSyncAction == SyncAction.CREATE) {
+			return lastSyncAction == SyncAction.DELETE ? SyncAction.NONE : SyncAction.CREATE;
+		}
+		return lastSyncAction;
+	}
+
+	/**
+	 * 実行したリクエストメッセージのレスポンスから、まとめる前の全てのリクエストメッセージのレスポンスを生成し、まとめる前の順序で返します.<br/>
+	 * まとめたリクエストメッセージのレスポンスは、代表したメッセージのレスポンスを、それぞれの同期アクションに置き換えたものになります.<br/>
+	 * 何も実行しなかったリクエストメッセージのレスポンスは、同期時刻に正常終了した形で生成します.
+	 *
+	 * @param executedMessages 実行したリクエストメッセージ
+	 * @param executedResponses 実行したリクエストメッセージのレスポンス
+	 * @param syncTime 同期時刻
+	 * @return まとめる前のリクエストメッセージごとのレスポンス
+	 */
+	public List<ResponseMessage> restoreResponses(List<RequestMessage> executedMessages,
+			List<ResponseMessage> executedResponses, long syncTime) {
+
+		Map<RequestMessage, ResponseMessage> responseMap = new IdentityHashMap<>();
+		for (int i = 0; i < executedMessages.size(); i++) {
+			responseMap.put(executedMessages.get(i), executedResponses.get(i));
+		}
+
+		List<ResponseMessage> restored = new ArrayList<>();
+		for (RequestMessage message : originalMessages) {
+
+			SyncAction originalSyncAction = originalSyncActions.get(message);
+			if (originalSyncAction == null) {
+				restored.add(responseMap.get(message));
+			} else if (noOpMessages.contains(message)) {
+				restored.add(createNoOpResponse(message, originalSyncAction, syncTime));
+			} else {
+				restored.add(createCoalescedResponse(message, originalSyncAction,
+						responseMap.get(representatives.get(message))));
+			}
+		}
+
+		return restored;
+	}
+
+	/**
+	 * まとめる前のリクエストメッセージを返します.
+	 *
+	 * @return まとめる前のリクエストメッセージ
+	 */
+	public List<RequestMessage> getOriginalMessages() {
+		return originalMessages;
+	}
+
+	/**
+	 * 代表したメッセージのレスポンスから、まとめたリクエストメッセージのレスポンスを生成します.<br/>
+	 * レスポンスのボディが共通データの場合、同期アクションを置き換えた複製を設定します(共通データ自体は永続化対象のため変更しません).
+	 *
+	 * @param message まとめたリクエストメッセージ
+	 * @param originalSyncAction まとめる前の同期アクション
+	 * @param representativeResponse 代表したメッセージのレスポンス
+	 * @return レスポンス
+	 */
+	private ResponseMessage createCoalescedResponse(RequestMessage message, SyncAction originalSyncAction,
+			ResponseMessage representativeResponse) {
+
+		// コンテキスト情報(全レスポンスで共通)として参照できる値は複製しない
+		ResponseMessage responseMessage = new ResponseMessage(message);
+		for (String key : representativeResponse.keys()) {
+			if (responseMessage.get(key) == null) {
+				responseMessage.put(key, representativeResponse.get(key), MessageSource.PROCESSOR);
+			}
+		}
+
+		Object body = representativeResponse.get(messageMetadata.RESPONSE_BODY);
+		if (body instanceof ResourceItemCommonData) {
+			ResourceItemCommonData common = (ResourceItemCommonData) body;
+			responseMessage.put(messageMetadata.RESPONSE_BODY,
+					createCommonData(common.getId(), common.getTargetItemId(), originalSyncAction,
+							common.getLastModified()), MessageSource.PROCESSOR);
+		}
+
+		return responseMessage;
+	}
+
+	/**
+	 * 何も実行しなかったリクエストメッセージのレスポンスを生成します.
+	 *
+	 * @param message リクエストメッセージ
+	 * @param originalSyncAction まとめる前の同期アクション
+	 * @param syncTime 同期時刻
+	 * @return レスポンス
+	 */
+	private ResponseMessage createNoOpResponse(RequestMessage message, SyncAction originalSyncAction, long syncTime) {
+
+		// リソースがリクエストメッセージのパスから取り出すIDと同じ値をリソースアイテムIDとする
+		String targetItemId = ResourcePathUtil.down(message.getPath())[1];
+
+		ResponseMessage responseMessage = new ResponseMessage(message);
+		responseMessage.put(messageMetadata.RESPONSE_STATUS, ResourceActionStatus.OK, MessageSource.PROCESSOR);
+		responseMessage.put(messageMetadata.RESPONSE_BODY,
+				createCommonData(getCommonDataId(message), targetItemId, originalSyncAction, syncTime),
+				MessageSource.PROCESSOR);
+		responseMessage.put(messageMetadata.PROCESSING_STATUS, ResourceProcessingStatus.CONTINUE,
+				MessageSource.PROCESSOR);
+
+		return responseMessage;
+	}
+
+	/**
+	 * レスポンスに含める共通データを生成します.
+	 *
+	 * @param commonDataId 共通データID
+	 * @param targetItemId リソースアイテムID
+	 * @param syncAction 同期アクション
+	 * @param lastModified 最終更新時刻
+	 * @return 共通データ
+	 */
+	private ResourceItemCommonData createCommonData(ResourceItemCommonDataId commonDataId, String targetItemId,
+			SyncAction syncAction, long lastModified) {
+
+		ResourceItemCommonData common = new ResourceItemCommonData(commonDataId);
+		common.setTargetItemId(targetItemId);
+		common.modify(syncAction, lastModified);
+		return common;
+	}
+
+	/**
+	 * リクエストメッセージから共通データIDを取り出します.
+	 *
+	 * @param message リクエストメッセージ
+	 * @return 共通データID
+	 */
+	private ResourceItemCommonDataId getCommonDataId(RequestMessage message) {
+		return (ResourceItemCommonDataId) message.get(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID);
+	}
+
+	/**
+	 * リクエストメッセージから同期アクションを取り出します.同期アクションでない場合はnullを返します.
+	 *
+	 * @param message リクエストメッセージ
+	 * @return 同期アクション
+	 */
+	private SyncAction getSyncAction(RequestMessage message) {
+
+		Object syncActionObj = message.get(syncConfigurationParameter.SYNC_ACTION);
+		for (SyncAction syncAction : SyncAction.values()) {
+			if (syncAction.toString().equals(syncActionObj)) {
+				return syncAction;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * ストレージIDごとの前回上り更新時刻を管理し、二重送信判定に使用するクラス.<br/>
+ * データベースから取得した前回上り更新時刻をメモリ上にキャッシュします(read-through).<br/>
+ * 保存はリクエストのトランザクション内で、保存済の時刻より後の場合のみ条件付きで実行し、コミット後にキャッシュに反映します.<br/>
+ * キャッシュの最大件数が0以下の場合はキャッシュを使用せず、リクエストごとにデータベースを参照します.
+ *
+ * @author kishigam
+ */
+public class UploadHistoryCache {
+
+	/**
+	 * syncリクエストの前回上り更新結果を管理するリポジトリ.
+	 */
+	@Autowired
+	private SyncRequestCommonDataRepository syncRequestCommonDataRepository;
+
+	/**
+	 * キャッシュの最大件数.
+	 */
+	private final int maxSize;
+
+	/**
+	 * ストレージIDごとの前回上り更新時刻のキャッシュ.最大件数を超えると、最も長く参照されていないものから破棄します.
+	 */
+	private final Map<String, Long> cache;
+
+	/**
+	 * キャッシュの最大件数を指定してインスタンスを生成します.
+	 *
+	 * @param maxSize キャッシュの最大件数(0以下の場合はキャッシュを使用しない)
+	 */
+	public UploadHistoryCache(int maxSize) {
+
+		this.maxSize = maxSize;
+		this.cache = new LruMap(Math.max(maxSize, 0));
+	}
+
+	/**
+	 * 指定されたストレージIDの前回上り更新リクエストの共通データを返します.<br/>
+	 * キャッシュに存在しない場合はデータベースから取得し、キャッシュします.存在しない場合はnullを返します.
+	 *
+	 * @param storageId ストレージID
+	 * @return 前回上り更新リクエストの共通データ
+	 */
+	public SyncRequestCommonData findLastUpload(String storageId) {
+
+		if (!isEnabled()) {
+			return syncRequestCommonDataRepository.findOne(storageId);
+		}
+
+		Long lastUploadTime;
+		synchronized (cache) {
+			lastUploadTime = cache.get(storageId);
+		}
+
+		if (lastUploadTime == null) {
+			SyncRequestCommonData found = syncRequestCommonDataRepository.findOne(storageId);
+			if (found == null || found.getLastUploadTime() == null) {
+				return found;
+			}
+			lastUploadTime = found.getLastUploadTime();
+			putIfLater(storageId, lastUploadTime);
+		}
+
+		SyncRequestCommonData lastUpload = new SyncRequestCommonData();
+		lastUpload.setStorageId(storageId);
+		lastUpload.setLastUploadTime(lastUploadTime);
+		return lastUpload;
+	}
+
+	/**
+	 * 今回の上り更新リクエストの共通データを、前回上り更新リクエストとして現在のトランザクション内で保存します.<br/>
+	 * 保存済の時刻が今回の時刻より前の場合のみ更新するため、キャッシュが古い場合や並行して上り更新された場合も、時刻が戻ることはありません.<br/>
+	 * 保存済の時刻が今回の時刻と同じか後の場合は保存せずにfalseを返します.この場合、キャッシュの値は破棄します.<br/>
+	 * キャッシュを使用する場合、ロールバックされた上り更新を反映しないよう、コミット後にキャッシュに反映します.
+	 *
+	 * @param currentRequest 今回の上り更新リクエストの共通データ
+	 * @return 保存した場合true、保存済の時刻が今回の時刻と同じか後の場合false
+	 */
+	public boolean saveLastUpload(SyncRequestCommonData currentRequest) {
+
+		final String storageId = currentRequest.getStorageId();
+		final Long lastUploadTime = currentRequest.getLastUploadTime();
+
+		int updated = syncRequestCommonDataRepository.updateLastUploadTimeIfLater(storageId, lastUploadTime);
+		if (updated == 0) {
+			if (syncRequestCommonDataRepository.exists(storageId)) {
+				evict(storageId);
+				return false;
+			}
+			syncRequestCommonDataRepository.save(currentRequest);
+		}
+
+		if (!isEnabled()) {
+			return true;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					putIfLater(storageId, lastUploadTime);
+				}
+			});
+		} else {
+			putIfLater(storageId, lastUploadTime);
+		}
+		return true;
+	}
+
+	/**
+	 * キャッシュに保持している時刻より後の場合のみ、キャッシュを更新します.
+	 *
+	 * @param storageId ストレージID
+	 * @param lastUploadTime 前回上り更新時刻
+	 */
+	private void putIfLater(String storageId, Long lastUploadTime) {
+
+		synchronized (cache) {
+			Long current = cache.get(storageId);
+			if (current == null || current < lastUploadTime) {
+				cache.put(storageId, lastUploadTime);
+			}
+		}
+	}
+
+	/**
+	 * 指定されたストレージIDのキャッシュを破棄します.次回の参照時にデータベースから取得し直します.
+	 *
+	 * @param storageId ストレージID
+	 */
+	private void evict(String storageId) {
+
+		synchronized (cache) {
+			cache.remove(storageId);
+		}
+	}
+
+	/**
+	 * @return キャッシュを使用する場合true
+	 */
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * @return キャッシュしている件数
+	 */
+	public int getSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * 最大件数を超えると、最も長く参照されていないエントリを破棄するMap.
+	 */
+	private static class LruMap extends LinkedHashMap<String, Long> {
+
+		private static final long serialVersionUID = -2190368410432520562L;
+
+		/**
+		 * 最大件数.
+		 */
+		private final int maxSize;
+
+		/**
+		 * 最大件数を指定してインスタンスを生成します.
+		 *
+		 * @param maxSize 最大件数
+		 */
+		LruMap(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * @see LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
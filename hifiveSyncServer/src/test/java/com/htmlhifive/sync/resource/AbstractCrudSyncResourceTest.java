@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.junit.Test;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * <H3>AbstractCrudSyncResourceのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class AbstractCrudSyncResourceTest {
+
+	/**
+	 * クエリ条件が1つもない下り更新で、結合クエリに条件を追加しないことを確認する
+	 * {@link AbstractCrudSyncResource#toQueryPredicate(Specification, Root, CriteriaQuery, CriteriaBuilder)}用テストメソッド.
+	 */
+	@Test
+	public void testToQueryPredicateWithoutConditions() {
+
+		Predicate predicate = AbstractCrudSyncResource.<Object> toQueryPredicate(null, null, null, null);
+		assertThat(predicate, is(nullValue()));
+	}
+
+	/**
+	 * クエリ条件がある下り更新で、Specificationの条件を結合クエリに追加することを確認する
+	 * {@link AbstractCrudSyncResource#toQueryPredicate(Specification, Root, CriteriaQuery, CriteriaBuilder)}用テストメソッド.
+	 */
+	@Test
+	public void testToQueryPredicateWithConditions() {
+
+		final Predicate expected = (Predicate) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Predicate.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				});
+
+		Specification<Object> specification = new Specification<Object>() {
+			@Override
+			public Predicate toPredicate(Root<Object> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+				return expected;
+			}
+		};
+
+		Predicate predicate = AbstractCrudSyncResource.toQueryPredicate(specification, null, null, null);
+		assertThat(predicate, is(sameInstance(expected)));
+	}
+}
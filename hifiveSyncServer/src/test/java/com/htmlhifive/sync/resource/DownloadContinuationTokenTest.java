@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * <H3>DownloadContinuationTokenのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class DownloadContinuationTokenTest {
+
+	/**
+	 * {@link DownloadContinuationToken#encode()}、{@link DownloadContinuationToken#decode(String)}用テストメソッド.
+	 */
+	@Test
+	public void testEncodeAndDecode() {
+
+		DownloadContinuationToken target = new DownloadContinuationToken(1234567890123L, "item:001");
+
+		DownloadContinuationToken decoded = DownloadContinuationToken.decode(target.encode());
+		assertThat(decoded.getLastModified(), is(equalTo(target.getLastModified())));
+		assertThat(decoded.getResourceItemId(), is(equalTo(target.getResourceItemId())));
+	}
+
+	/**
+	 * {@link DownloadContinuationToken#decode(String)}用テストメソッド.<br>
+	 * トークンとして解釈できない文字列の場合.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeInvalidToken() {
+
+		DownloadContinuationToken.decode("not a token");
+	}
+
+	/**
+	 * {@link DownloadContinuationToken#isBefore(ResourceItemCommonData)}用テストメソッド.
+	 */
+	@Test
+	public void testIsBefore() {
+
+		DownloadContinuationToken target = new DownloadContinuationToken(100L, "b");
+
+		assertThat(target.isBefore(createCommonData("a", 101L)), is(true));
+		assertThat(target.isBefore(createCommonData("c", 100L)), is(true));
+		assertThat(target.isBefore(createCommonData("b", 100L)), is(false));
+		assertThat(target.isBefore(createCommonData("a", 100L)), is(false));
+		assertThat(target.isBefore(createCommonData("c", 99L)), is(false));
+	}
+
+	/**
+	 * 指定されたリソースアイテムIDと最終更新時刻を持つリソースアイテム共通データを生成します.
+	 */
+	private ResourceItemCommonData createCommonData(String resourceItemId, long lastModified) {
+
+		ResourceItemCommonData common = new ResourceItemCommonData(new ResourceItemCommonDataId("resource",
+				resourceItemId));
+		common.modify(SyncAction.UPDATE, lastModified);
+		return common;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.resource.common;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.beans.PropertyAccessorFactory;
+
+/**
+ * <H3>ResourceItemHashUtilのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class ResourceItemHashUtilTest {
+
+	/**
+	 * {@link ResourceItemHashUtil#hashItem(Object)}用テストメソッド.<br>
+	 * 同じ内容のリソースアイテムは同じハッシュ値、異なる内容のリソースアイテムは異なるハッシュ値になる.
+	 */
+	@Test
+	public void testHashItem() throws Exception {
+
+		String hash = ResourceItemHashUtil.hashItem(new Item("1", "name", 20));
+
+		assertThat(ResourceItemHashUtil.hashItem(new Item("1", "name", 20)), is(equalTo(hash)));
+		assertThat(ResourceItemHashUtil.hashItem(new Item("1", "name", 21)), is(not(equalTo(hash))));
+		assertThat(ResourceItemHashUtil.hashItem(new Item("1", null, 20)), is(not(equalTo(hash))));
+	}
+
+	/**
+	 * {@link ResourceItemHashUtil#hashFields(org.springframework.beans.BeanWrapper)}用テストメソッド.<br>
+	 * 変更したフィールドのハッシュ値のみが変わる.
+	 */
+	@Test
+	public void testHashFields() throws Exception {
+
+		Map<String, String> before = ResourceItemHashUtil.hashFields(PropertyAccessorFactory
+				.forBeanPropertyAccess(new Item("1", "name", 20)));
+		Map<String, String> after = ResourceItemHashUtil.hashFields(PropertyAccessorFactory
+				.forBeanPropertyAccess(new Item("1", "name", 21)));
+
+		assertThat(before.keySet(), is(equalTo(after.keySet())));
+		assertThat(before.containsKey("class"), is(false));
+		assertThat(after.get("id"), is(equalTo(before.get("id"))));
+		assertThat(after.get("name"), is(equalTo(before.get("name"))));
+		assertThat(after.get("age"), is(not(equalTo(before.get("age")))));
+	}
+
+	/**
+	 * テスト用のリソースアイテム.
+	 */
+	public static class Item {
+
+		private String id;
+
+		private String name;
+
+		private int age;
+
+		public Item(String id, String name, int age) {
+			this.id = id;
+			this.name = name;
+			this.age = age;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getAge() {
+			return age;
+		}
+	}
+}
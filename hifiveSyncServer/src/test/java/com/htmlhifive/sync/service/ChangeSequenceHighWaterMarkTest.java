@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.htmlhifive.sync.resource.common.ResourceItemChangeLogRepository;
+
+/**
+ * <H3>ChangeSequenceHighWaterMarkのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class ChangeSequenceHighWaterMarkTest {
+
+	/**
+	 * 安全ラグを経過するまで、記録した最大値を返さないことを確認する{@link ChangeSequenceHighWaterMark#get()}用テストメソッド.
+	 */
+	@Test
+	public void testGetReturnsSequenceAfterSafetyLag() throws Exception {
+
+		AtomicLong latest = new AtomicLong(10L);
+		ChangeSequenceHighWaterMark target = new ChangeSequenceHighWaterMark(200L);
+		ReflectionTestUtils.setField(target, "resourceItemChangeLogRepository", createRepository(latest));
+
+		// 起動直後は、安全ラグ以上前に記録した値がないため、待機せずに0を返す
+		long start = System.nanoTime();
+		assertThat(target.get(), is(0L));
+		assertTrue(System.nanoTime() - start < 100000000L);
+
+		Thread.sleep(250L);
+		assertThat(target.get(), is(10L));
+
+		// 記録した後に採番された番号は、安全ラグを経過するまで返さない
+		latest.set(20L);
+		Thread.sleep(30L);
+		assertThat(target.get(), is(10L));
+
+		Thread.sleep(250L);
+		assertThat(target.get(), is(20L));
+	}
+
+	/**
+	 * 安全ラグが0の場合、現在の最大値を返すことを確認する{@link ChangeSequenceHighWaterMark#get()}用テストメソッド.
+	 */
+	@Test
+	public void testGetWithoutSafetyLag() {
+
+		AtomicLong latest = new AtomicLong(5L);
+		ChangeSequenceHighWaterMark target = new ChangeSequenceHighWaterMark(0L);
+		ReflectionTestUtils.setField(target, "resourceItemChangeLogRepository", createRepository(latest));
+
+		assertThat(target.get(), is(5L));
+		latest.set(6L);
+		assertThat(target.get(), is(6L));
+	}
+
+	/**
+	 * 最新の変更シーケンス番号として指定された値を返すリポジトリを生成します.
+	 */
+	private ResourceItemChangeLogRepository createRepository(final AtomicLong latest) {
+
+		return (ResourceItemChangeLogRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ResourceItemChangeLogRepository.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("findLatestSequence")) {
+							return latest.get();
+						}
+						if (method.getName().equals("toString")) {
+							return "ResourceItemChangeLogRepository";
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
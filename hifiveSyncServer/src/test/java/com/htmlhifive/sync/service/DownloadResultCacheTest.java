@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * <H3>DownloadResultCacheのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class DownloadResultCacheTest {
+
+	/**
+	 * {@link DownloadResultCache#get(String, String, long)}用テストメソッド.<br>
+	 * 同じ区間に含まれる最終更新時刻では、キャッシュした結果が返される.
+	 */
+	@Test
+	public void testGetInSameBucket() {
+
+		DownloadResultCache target = new DownloadResultCache(10, 1000L);
+
+		long bucket = target.toBucket(12345L);
+		assertThat(bucket, is(equalTo(12000L)));
+		assertThat(target.get("person", "{}", bucket), is(nullValue()));
+
+		target.put("person", "{}", bucket, target.getGeneration("person"), results(3));
+
+		assertThat(target.get("person", "{}", target.toBucket(12999L)), is(notNullValue()));
+		assertThat(target.get("person", "{name=[a]}", bucket), is(nullValue()));
+		assertThat(target.getHitCount(), is(equalTo(1L)));
+		assertThat(target.getMissCount(), is(equalTo(2L)));
+	}
+
+	/**
+	 * {@link DownloadResultCache#invalidate(String)}用テストメソッド.<br>
+	 * 破棄されたリソースの結果のみ削除され、破棄前に生成を開始した結果はキャッシュされない.
+	 */
+	@Test
+	public void testInvalidate() {
+
+		DownloadResultCache target = new DownloadResultCache(10, 1000L);
+
+		target.put("person", "{}", 0L, target.getGeneration("person"), results(1));
+		target.put("item", "{}", 0L, target.getGeneration("item"), results(1));
+
+		long generation = target.getGeneration("person");
+		target.invalidate("person");
+		target.put("person", "{}", 1000L, generation, results(1));
+
+		assertThat(target.get("person", "{}", 0L), is(nullValue()));
+		assertThat(target.get("person", "{}", 1000L), is(nullValue()));
+		assertThat(target.get("item", "{}", 0L), is(notNullValue()));
+	}
+
+	/**
+	 * {@link DownloadResultCache#put(String, String, long, long, List)}用テストメソッド.<br>
+	 * 最大総件数を超えた場合、最も長く参照されていない結果から破棄される.
+	 */
+	@Test
+	public void testEvictByItemCount() {
+
+		DownloadResultCache target = new DownloadResultCache(5, 1000L);
+
+		target.put("person", "a", 0L, 0L, results(2));
+		target.put("person", "b", 0L, 0L, results(2));
+		target.get("person", "a", 0L);
+		target.put("person", "c", 0L, 0L, results(2));
+
+		assertThat(target.get("person", "a", 0L), is(notNullValue()));
+		assertThat(target.get("person", "b", 0L), is(nullValue()));
+		assertThat(target.get("person", "c", 0L), is(notNullValue()));
+		assertThat(target.getItemCount(), is(equalTo(4)));
+
+		// 1件で最大総件数を超える結果はキャッシュしない
+		target.put("person", "d", 0L, 0L, results(6));
+		assertThat(target.get("person", "d", 0L), is(nullValue()));
+	}
+
+	private List<Map<String, Object>> results(int size) {
+
+		List<Map<String, Object>> results = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			results.add(new HashMap<String, Object>());
+		}
+		return results;
+	}
+}
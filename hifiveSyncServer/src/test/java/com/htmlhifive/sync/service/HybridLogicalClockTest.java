@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataRepository;
+
+/**
+ * <H3>HybridLogicalClockのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class HybridLogicalClockTest {
+
+	/**
+	 * 論理カウンタを同期時刻に加算せず、待機せずに同期時刻を発行することを確認する{@link HybridLogicalClock#now()}用テストメソッド.
+	 */
+	@Test
+	public void testNowDoesNotAddLogicalCounter() {
+
+		HybridLogicalClock target = createClock(60000L, 5L, null, new CopyOnWriteArrayList<Long>(),
+				new AtomicBoolean());
+
+		long start = System.currentTimeMillis();
+		long previous = 0L;
+		for (int i = 0; i < 100000; i++) {
+			long timestamp = target.now();
+			assertTrue(timestamp >= previous);
+			assertTrue(timestamp <= System.currentTimeMillis());
+			previous = timestamp;
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000L);
+	}
+
+	/**
+	 * 予約済の上限がシステム時刻より先の状態で再起動した場合、待機せずに上限から同期時刻を発行することを確認する{@link HybridLogicalClock#now()}用テストメソッド.
+	 */
+	@Test
+	public void testNowDoesNotBlockAfterRestartAhead() {
+
+		long reservedUntil = System.currentTimeMillis() + 5000L;
+		HybridLogicalClock target = createClock(60000L, 1000L, reservedUntil, new CopyOnWriteArrayList<Long>(),
+				new AtomicBoolean());
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(target.now() >= reservedUntil);
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000L);
+	}
+
+	/**
+	 * システム時刻より先のクライアント時刻を受け取った場合、最大の先行量までに制限して反映し、待機しないことを確認する{@link HybridLogicalClock#observe(long)}用テストメソッド.
+	 */
+	@Test
+	public void testObserveLimitsFutureClientTime() {
+
+		HybridLogicalClock target = createClock(60000L, 1000L, null, new CopyOnWriteArrayList<Long>(),
+				new AtomicBoolean());
+
+		long before = System.currentTimeMillis();
+		target.observe(before + 4000L);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 10000; i++) {
+			long timestamp = target.now();
+			assertTrue(timestamp > before);
+			assertTrue(timestamp <= System.currentTimeMillis() + 1000L);
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000L);
+	}
+
+	/**
+	 * 受け取った時刻より後の同期時刻を発行し、最大のずれを超える時刻は無視することを確認する{@link HybridLogicalClock#observe(long)}用テストメソッド.
+	 */
+	@Test
+	public void testObserve() {
+
+		HybridLogicalClock target = createClock(60000L, 1000L, null, new CopyOnWriteArrayList<Long>(),
+				new AtomicBoolean());
+
+		long observed = target.now();
+		target.observe(observed);
+		assertTrue(target.now() > observed);
+
+		target.observe(System.currentTimeMillis() + 120000L);
+		assertTrue(target.now() <= System.currentTimeMillis() + 1000L);
+	}
+
+	/**
+	 * 予約済の上限を超える同期時刻を返さないことを確認する{@link HybridLogicalClock#now()}用テストメソッド.
+	 */
+	@Test
+	public void testNowStaysWithinReservation() throws Exception {
+
+		List<Long> reserved = new CopyOnWriteArrayList<>();
+		HybridLogicalClock target = createClock(100L, 1000L, null, reserved, new AtomicBoolean());
+
+		long end = System.currentTimeMillis() + 300L;
+		while (System.currentTimeMillis() < end) {
+			long timestamp = target.now();
+			assertTrue(timestamp < reserved.get(reserved.size() - 1));
+			Thread.sleep(1L);
+		}
+		assertTrue(reserved.size() >= 2);
+	}
+
+	/**
+	 * 予約に失敗した場合、次回の呼び出しで予約し直すことを確認する{@link HybridLogicalClock#now()}用テストメソッド.
+	 */
+	@Test
+	public void testNowRetriesFailedReservation() {
+
+		List<Long> reserved = new CopyOnWriteArrayList<>();
+		AtomicBoolean failing = new AtomicBoolean(true);
+		HybridLogicalClock target = createClock(60000L, 1000L, null, reserved, failing);
+
+		try {
+			target.now();
+			fail();
+		} catch (IllegalStateException e) {
+			assertThat(reserved.isEmpty(), is(true));
+		}
+
+		failing.set(false);
+		long timestamp = target.now();
+		assertThat(reserved.size(), is(1));
+		assertTrue(timestamp < reserved.get(0));
+	}
+
+	/**
+	 * 予約した上限を記録するリポジトリを使用する時計を生成し、保存済の上限(nullの場合は未保存)から初期化します.
+	 */
+	private HybridLogicalClock createClock(long reservation, long maxDrift, final Long reservedUntil,
+			final List<Long> reserved, final AtomicBoolean failing) {
+
+		HybridLogicalClock clock = new HybridLogicalClock("node", reservation, 60000L, maxDrift);
+
+		ReflectionTestUtils.setField(clock, "syncClockStateRepository",
+				createProxy(SyncClockStateRepository.class, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("findOne")) {
+							return reservedUntil == null ? null : new SyncClockState("node", reservedUntil);
+						}
+						if (method.getName().equals("save")) {
+							if (failing.get()) {
+								throw new IllegalStateException("failed to reserve");
+							}
+							reserved.add(((SyncClockState) args[0]).getReservedUntil());
+							return args[0];
+						}
+						return unsupported(method);
+					}
+				}));
+		ReflectionTestUtils.setField(clock, "resourceItemCommonDataRepository",
+				createProxy(ResourceItemCommonDataRepository.class, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("findMaxLastModified")) {
+							return null;
+						}
+						return unsupported(method);
+					}
+				}));
+		ReflectionTestUtils.setField(clock, "transactionManager",
+				createProxy(PlatformTransactionManager.class, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getTransaction")) {
+							return new SimpleTransactionStatus();
+						}
+						if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+							return null;
+						}
+						return unsupported(method);
+					}
+				}));
+
+		clock.init();
+		return clock;
+	}
+
+	private <T> T createProxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private Object unsupported(Method method) {
+		if (method.getName().equals("toString")) {
+			return method.getDeclaringClass().getSimpleName();
+		}
+		throw new UnsupportedOperationException(method.getName());
+	}
+}
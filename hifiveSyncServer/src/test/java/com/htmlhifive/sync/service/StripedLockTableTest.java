@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+
+/**
+ * <H3>StripedLockTableのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class StripedLockTableTest {
+
+	/**
+	 * {@link StripedLockTable#StripedLockTable(int)}用テストメソッド.<br>
+	 * ロックの数は2のべき乗に切り上げられる.
+	 */
+	@Test
+	public void testStripeCount() {
+
+		assertThat(new StripedLockTable(1).getStripeCount(), is(equalTo(1)));
+		assertThat(new StripedLockTable(16).getStripeCount(), is(equalTo(16)));
+		assertThat(new StripedLockTable(1000).getStripeCount(), is(equalTo(1024)));
+	}
+
+	/**
+	 * {@link StripedLockTable#lock(java.util.Collection, long)}用テストメソッド.<br>
+	 * 他のスレッドが保持しているロックは待機時間内に取得できず、解放後は取得できる.
+	 */
+	@Test
+	public void testLockContended() throws Exception {
+
+		final StripedLockTable target = new StripedLockTable(16);
+		final ResourceItemCommonDataId id = new ResourceItemCommonDataId("resource", "item1");
+
+		int[] acquired = target.lock(Arrays.asList(id), 0L);
+		assertThat(acquired, is(notNullValue()));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Callable<int[]> task = new Callable<int[]>() {
+				@Override
+				public int[] call() throws Exception {
+					int[] result = target.lock(Arrays.asList(id), 10L);
+					if (result != null) {
+						target.unlock(result);
+					}
+					return result;
+				}
+			};
+
+			assertThat(executor.submit(task).get(), is(nullValue()));
+			assertThat(target.getContendedCount(), is(equalTo(1L)));
+			assertThat(target.getTimeoutCount(), is(equalTo(1L)));
+
+			target.unlock(acquired);
+
+			assertThat(executor.submit(task).get(), is(notNullValue()));
+			assertThat(target.getAcquiredCount(), is(equalTo(2L)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * {@link StripedLockTable#lock(java.util.Collection, long)}用テストメソッド.<br>
+	 * 同じロックに割り当てられるIDが複数含まれていても、ロックは1回だけ取得される.
+	 */
+	@Test
+	public void testLockSameStripe() throws Exception {
+
+		StripedLockTable target = new StripedLockTable(1);
+
+		int[] acquired = target.lock(Arrays.asList(new ResourceItemCommonDataId("resource", "item1"),
+				new ResourceItemCommonDataId("resource", "item2")), 0L);
+
+		assertThat(acquired.length, is(equalTo(1)));
+		assertThat(target.getAcquiredCount(), is(equalTo(1L)));
+
+		target.unlock(acquired);
+	}
+}
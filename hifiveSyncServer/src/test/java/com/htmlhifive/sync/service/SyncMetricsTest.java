@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * <H3>SyncMetricsのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class SyncMetricsTest {
+
+	/**
+	 * {@link SyncMetrics#recordRequest(String, String, long, boolean)}用テストメソッド.<br>
+	 * リソース、syncアクションごとに記録され、MBeanとして登録される.
+	 */
+	@Test
+	public void testRecord() throws Exception {
+
+		SyncMetrics target = new SyncMetrics(true, 100);
+		try {
+			target.recordRequest("person", "upload", TimeUnit.MILLISECONDS.toNanos(3), false);
+			target.recordRequest("person", "upload", TimeUnit.MILLISECONDS.toNanos(30), true);
+			target.recordRequest("person", "download", TimeUnit.MILLISECONDS.toNanos(1), false);
+			target.recordConflict("person", "upload", SyncAction.DELETE);
+			target.recordItems("person", "upload", 20);
+
+			SyncActionMetrics upload = target.getByResourceName("person").get(1);
+			assertThat(upload.getAction(), is(equalTo("upload")));
+			assertThat(upload.getCount(), is(equalTo(2L)));
+			assertThat(upload.getErrorCount(), is(equalTo(1L)));
+			assertThat(upload.getMaxTimeMillis(), is(equalTo(30L)));
+			assertThat(upload.getConflictCounts().get(SyncAction.DELETE.name()), is(equalTo(1L)));
+			assertThat(upload.getItemsPerRequestHistogram().get("<=100"), is(equalTo(1L)));
+
+			Map<String, Long> latency = upload.getLatencyHistogram();
+			assertThat(latency.get("<=5ms"), is(equalTo(1L)));
+			assertThat(latency.get("<=50ms"), is(equalTo(1L)));
+
+			ObjectName name = new ObjectName("com.htmlhifive.sync:type=SyncMetrics,resource=\"person\",action=\"upload\"");
+			assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"), is((Object) 2L));
+		} finally {
+			target.stop();
+		}
+	}
+
+	/**
+	 * {@link SyncMetrics#recordRequest(String, String, long, boolean)}用テストメソッド.<br>
+	 * 無効の場合は記録されない.
+	 */
+	@Test
+	public void testDisabled() {
+
+		SyncMetrics target = new SyncMetrics(false, 100);
+		target.recordRequest("person", "upload", 1L, false);
+
+		assertThat(target.getAll().isEmpty(), is(true));
+	}
+
+	/**
+	 * {@link SyncMetrics#recordRequest(String, String, long, boolean)}用テストメソッド.<br>
+	 * 上限に達した後は、新しいリソースとsyncアクションの組み合わせを記録せず、既存の組み合わせは記録を継続する.
+	 */
+	@Test
+	public void testMaxEntries() {
+
+		SyncMetrics target = new SyncMetrics(true, 2);
+		try {
+			target.recordRequest("person", "upload", 1L, false);
+			target.recordRequest("person", "download", 1L, false);
+			target.recordRequest("unknown", "upload", 1L, false);
+			target.recordItems("unknown", "upload", 1);
+			target.recordRequest("person", "upload", 1L, false);
+
+			assertThat(target.getAll().size(), is(equalTo(2)));
+			assertThat(target.getByResourceName("unknown").isEmpty(), is(true));
+			assertThat(target.getByResourceName("person").get(1).getCount(), is(equalTo(2L)));
+		} finally {
+			target.stop();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * <H3>TombstoneCompactionStateのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class TombstoneCompactionStateTest {
+
+	/**
+	 * {@link TombstoneCompactionState#advance(long, long)}用テストメソッド.<br>
+	 * 最小有効ウォーターマークは後退しない.
+	 */
+	@Test
+	public void testAdvance() {
+
+		TombstoneCompactionState target = new TombstoneCompactionState("person");
+
+		target.advance(2000L, 20L);
+		target.advance(1000L, 30L);
+
+		assertThat(target.getMinValidLastModified(), is(equalTo(2000L)));
+		assertThat(target.getMinValidChangeSequence(), is(equalTo(30L)));
+	}
+
+	/**
+	 * {@link TombstoneCompactionState#isResyncRequired(long, Long)}用テストメソッド.<br>
+	 * 破棄したトゥームストーンより前の起点のみ、全件の同期が必要と判定される.初回同期(起点0)は対象外.
+	 */
+	@Test
+	public void testIsResyncRequired() {
+
+		TombstoneCompactionState target = new TombstoneCompactionState("person");
+		target.advance(2000L, 20L);
+
+		assertThat(target.isResyncRequired(1999L, null), is(true));
+		assertThat(target.isResyncRequired(2000L, null), is(false));
+		assertThat(target.isResyncRequired(0L, null), is(false));
+
+		// 変更シーケンス番号が指定されている場合は、時刻では判定しない
+		assertThat(target.isResyncRequired(1999L, 20L), is(false));
+		assertThat(target.isResyncRequired(3000L, 19L), is(true));
+		assertThat(target.isResyncRequired(3000L, 0L), is(false));
+	}
+}
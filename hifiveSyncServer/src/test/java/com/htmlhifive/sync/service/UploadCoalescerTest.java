@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2012-2013 NS Solutions Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.htmlhifive.sync.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.htmlhifive.resourcefw.config.MessageMetadata;
+import com.htmlhifive.resourcefw.exception.BadRequestException;
+import com.htmlhifive.resourcefw.message.FailureResponseMessage;
+import com.htmlhifive.resourcefw.message.MessageSource;
+import com.htmlhifive.resourcefw.message.RequestMessage;
+import com.htmlhifive.resourcefw.message.ResponseMessage;
+import com.htmlhifive.resourcefw.resource.ResourceActionStatus;
+import com.htmlhifive.resourcefw.service.ResourceProcessingStatus;
+import com.htmlhifive.sync.config.SyncConfigurationParameter;
+import com.htmlhifive.sync.resource.Synchronizer;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonData;
+import com.htmlhifive.sync.resource.common.ResourceItemCommonDataId;
+import com.htmlhifive.sync.resource.common.SyncAction;
+
+/**
+ * <H3>UploadCoalescerのテストクラス.</H3>
+ *
+ * @author kishigam
+ */
+public class UploadCoalescerTest {
+
+	private static final String RESOURCE_NAME = "person";
+
+	private MessageMetadata messageMetadata;
+
+	private SyncConfigurationParameter syncConfigurationParameter;
+
+	/**
+	 * メッセージのコンテキスト情報を保持するリクエストスコープを用意します.
+	 */
+	@Before
+	public void setUp() {
+
+		messageMetadata = new MessageMetadata();
+		messageMetadata.REQUEST_PATH = "__path";
+		messageMetadata.ACCEPT = "__accept";
+		messageMetadata.RESPONSE_STATUS = "__status";
+		messageMetadata.RESPONSE_BODY = "__body";
+		messageMetadata.PROCESSING_STATUS = "__processingStatus";
+		messageMetadata.ERROR_CAUSE = "__errorCause";
+		messageMetadata.ERROR_DETAIL_INFO = "__errorDetailInfo";
+		messageMetadata.ERROR_STACK_TRACE = "__errorStackTrace";
+
+		syncConfigurationParameter = new SyncConfigurationParameter();
+		syncConfigurationParameter.SYNC_ACTION = "__syncAction";
+		syncConfigurationParameter.LAST_MODIFIED = "__lastModified";
+		syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID = "__resourceItemCommonDataId";
+
+		// MessageContainerMethodProcessorがリクエストごとに設定するコンテキスト情報の実体
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute("__requestMessageContextData", new HashMap<>());
+		request.setAttribute("__responseMessageContextData", new HashMap<>());
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	@After
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	/**
+	 * {@link UploadCoalescer#coalesce(List, Synchronizer)}用テストメソッド.<br>
+	 * CREATE、UPDATE...は、最後のメッセージで代表し、最初のメッセージの最終更新時刻によるCREATEになる.
+	 */
+	@Test
+	public void testCoalesceCreateAndUpdates() {
+
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage other = createMessage("2", SyncAction.UPDATE, 50L);
+		RequestMessage update1 = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage update2 = createMessage("1", SyncAction.UPDATE, 200L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(create, other, update1, update2),
+				createSynchronizer());
+
+		assertThat(executed.size(), is(2));
+		assertThat(executed.get(0), is(sameInstance(other)));
+		assertThat(executed.get(1), is(sameInstance(update2)));
+		assertThat(update2.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.CREATE.toString()));
+		assertThat(update2.get(syncConfigurationParameter.LAST_MODIFIED), is(nullValue()));
+		assertThat(other.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.UPDATE.toString()));
+		assertThat(other.get(syncConfigurationParameter.LAST_MODIFIED), is((Object) 50L));
+	}
+
+	/**
+	 * {@link UploadCoalescer#coalesce(List, Synchronizer)}用テストメソッド.<br>
+	 * UPDATE...、DELETEは、最後のメッセージで代表し、最初のメッセージの最終更新時刻によるDELETEになる.
+	 */
+	@Test
+	public void testCoalesceUpdatesAndDelete() {
+
+		RequestMessage update1 = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage update2 = createMessage("1", SyncAction.UPDATE, 200L);
+		RequestMessage delete = createMessage("1", SyncAction.DELETE, 300L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(update1, update2, delete), createSynchronizer());
+
+		assertThat(executed.size(), is(1));
+		assertThat(executed.get(0), is(sameInstance(delete)));
+		assertThat(delete.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.DELETE.toString()));
+		assertThat(delete.get(syncConfigurationParameter.LAST_MODIFIED), is((Object) 100L));
+	}
+
+	/**
+	 * {@link UploadCoalescer#coalesce(List, Synchronizer)}用テストメソッド.<br>
+	 * 共通データが存在しない場合、CREATE、UPDATE...、DELETEは何も実行せず、同期時刻に正常終了したレスポンスを生成する.
+	 */
+	@Test
+	public void testCoalesceCreateAndDeleteWithoutCommonData() {
+
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage update = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage delete = createMessage("1", SyncAction.DELETE, 200L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(create, update, delete), createSynchronizer());
+
+		assertThat(executed.isEmpty(), is(true));
+
+		List<ResponseMessage> responses = target.restoreResponses(executed, Collections.<ResponseMessage> emptyList(),
+				500L);
+
+		assertThat(responses.size(), is(3));
+		SyncAction[] expectedSyncActions = { SyncAction.CREATE, SyncAction.UPDATE, SyncAction.DELETE };
+		for (int i = 0; i < responses.size(); i++) {
+			ResponseMessage response = responses.get(i);
+			assertThat(response.get(messageMetadata.RESPONSE_STATUS), is((Object) ResourceActionStatus.OK));
+			assertThat(response.get(messageMetadata.PROCESSING_STATUS),
+					is((Object) ResourceProcessingStatus.CONTINUE));
+
+			ResourceItemCommonData common = (ResourceItemCommonData) response.get(messageMetadata.RESPONSE_BODY);
+			assertThat(common.getId(), is(equalTo(new ResourceItemCommonDataId(RESOURCE_NAME, "1"))));
+			assertThat(common.getTargetItemId(), is("1"));
+			assertThat(common.getSyncAction(), is(expectedSyncActions[i]));
+			assertThat(common.getLastModified(), is(500L));
+		}
+	}
+
+	/**
+	 * {@link UploadCoalescer#coalesce(List, Synchronizer)}用テストメソッド.<br>
+	 * 共通データが既に存在する場合、CREATE、UPDATE...、DELETEはまとめずにそのまま実行し、レスポンスもそのまま返す.
+	 */
+	@Test
+	public void testCoalesceCreateAndDeleteWithCommonData() {
+
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage update = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage delete = createMessage("1", SyncAction.DELETE, 200L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(create, update, delete),
+				createSynchronizer("1"));
+
+		assertThat(executed, is(equalTo(Arrays.asList(create, update, delete))));
+		assertThat(create.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.CREATE.toString()));
+		assertThat(update.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.UPDATE.toString()));
+		assertThat(delete.get(syncConfigurationParameter.LAST_MODIFIED), is((Object) 200L));
+
+		List<ResponseMessage> executedResponses = Arrays.asList(new ResponseMessage(create), new ResponseMessage(
+				update), new ResponseMessage(delete));
+		List<ResponseMessage> responses = target.restoreResponses(executed, executedResponses, 500L);
+
+		assertThat(responses.size(), is(3));
+		for (int i = 0; i < responses.size(); i++) {
+			assertThat(responses.get(i), is(sameInstance(executedResponses.get(i))));
+		}
+	}
+
+	/**
+	 * {@link UploadCoalescer#coalesce(List, Synchronizer)}用テストメソッド.<br>
+	 * UPDATEの後のCREATEなど、一連の更新にならないリクエストメッセージはまとめない.
+	 */
+	@Test
+	public void testCoalesceNotChained() {
+
+		RequestMessage update = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage delete1 = createMessage("2", SyncAction.DELETE, 100L);
+		RequestMessage delete2 = createMessage("2", SyncAction.DELETE, 200L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(update, create, delete1, delete2),
+				createSynchronizer());
+
+		assertThat(executed, is(equalTo(Arrays.asList(update, create, delete1, delete2))));
+		assertThat(create.get(syncConfigurationParameter.SYNC_ACTION), is((Object) SyncAction.CREATE.toString()));
+		assertThat(delete2.get(syncConfigurationParameter.LAST_MODIFIED), is((Object) 200L));
+	}
+
+	/**
+	 * {@link UploadCoalescer#restoreResponses(List, List, long)}用テストメソッド.<br>
+	 * まとめる前のリクエストメッセージごとに、まとめる前の順序でレスポンスを返す.<br>
+	 * まとめたメッセージのレスポンスは、代表したメッセージのレスポンスの共通データを変更せず、それぞれの同期アクションに置き換えた複製になる.
+	 */
+	@Test
+	public void testRestoreResponsesInOriginalOrder() {
+
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage other = createMessage("2", SyncAction.UPDATE, 50L);
+		RequestMessage update = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage noOpCreate = createMessage("3", SyncAction.CREATE, null);
+		RequestMessage noOpDelete = createMessage("3", SyncAction.DELETE, 100L);
+		List<RequestMessage> messages = Arrays.asList(create, other, update, noOpCreate, noOpDelete);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(messages, createSynchronizer());
+		assertThat(executed, is(equalTo(Arrays.asList(other, update))));
+
+		ResponseMessage otherResponse = createResponse(other, ResourceActionStatus.OK, "2", SyncAction.UPDATE, 700L);
+		ResponseMessage representativeResponse = createResponse(update, ResourceActionStatus.CREATED, "1",
+				SyncAction.CREATE, 700L);
+		ResourceItemCommonData representativeCommon = (ResourceItemCommonData) representativeResponse
+				.get(messageMetadata.RESPONSE_BODY);
+
+		List<ResponseMessage> responses = target.restoreResponses(executed,
+				Arrays.asList(otherResponse, representativeResponse), 800L);
+
+		assertThat(responses.size(), is(messages.size()));
+		assertThat(responses.get(1), is(sameInstance(otherResponse)));
+
+		SyncAction[] expectedSyncActions = { SyncAction.CREATE, SyncAction.UPDATE, SyncAction.UPDATE,
+				SyncAction.CREATE, SyncAction.DELETE };
+		String[] expectedTargetItemIds = { "1", "2", "1", "3", "3" };
+		long[] expectedLastModified = { 700L, 700L, 700L, 800L, 800L };
+		for (int i = 0; i < responses.size(); i++) {
+			ResourceItemCommonData common = (ResourceItemCommonData) responses.get(i).get(
+					messageMetadata.RESPONSE_BODY);
+			assertThat(common.getSyncAction(), is(expectedSyncActions[i]));
+			assertThat(common.getTargetItemId(), is(expectedTargetItemIds[i]));
+			assertThat(common.getLastModified(), is(expectedLastModified[i]));
+		}
+
+		for (ResponseMessage coalesced : Arrays.asList(responses.get(0), responses.get(2))) {
+			assertThat(coalesced, is(not(sameInstance(representativeResponse))));
+			assertThat(coalesced.get(messageMetadata.RESPONSE_STATUS), is((Object) ResourceActionStatus.CREATED));
+			assertThat(coalesced.get(messageMetadata.RESPONSE_BODY),
+					is(not(sameInstance((Object) representativeCommon))));
+		}
+		assertThat(representativeCommon.getSyncAction(), is(SyncAction.CREATE));
+	}
+
+	/**
+	 * {@link UploadCoalescer#restoreResponses(List, List, long)}用テストメソッド.<br>
+	 * 代表したメッセージが競合した場合、まとめた全てのメッセージのレスポンスが競合のステータスとボディを持つ.
+	 */
+	@Test
+	public void testRestoreResponsesCopiesConflict() {
+
+		RequestMessage update1 = createMessage("1", SyncAction.UPDATE, 100L);
+		RequestMessage update2 = createMessage("1", SyncAction.UPDATE, 200L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(update1, update2), createSynchronizer());
+
+		Map<String, Object> conflictBody = new HashMap<>();
+		conflictBody.put("conflictType", SyncAction.CONFLICT);
+		ResponseMessage conflictResponse = new ResponseMessage(update2);
+		conflictResponse.put(messageMetadata.RESPONSE_STATUS, ResourceActionStatus.CONFLICT, MessageSource.PROCESSOR);
+		conflictResponse.put(messageMetadata.RESPONSE_BODY, conflictBody, MessageSource.PROCESSOR);
+
+		List<ResponseMessage> responses = target.restoreResponses(executed, Arrays.asList(conflictResponse), 800L);
+
+		assertThat(responses.size(), is(2));
+		for (ResponseMessage response : responses) {
+			assertThat(response, is(not(sameInstance(conflictResponse))));
+			assertThat(response.get(messageMetadata.RESPONSE_STATUS), is((Object) ResourceActionStatus.CONFLICT));
+			assertThat(response.get(messageMetadata.RESPONSE_BODY), is(sameInstance((Object) conflictBody)));
+		}
+	}
+
+	/**
+	 * {@link UploadCoalescer#restoreResponses(List, List, long)}用テストメソッド.<br>
+	 * 代表したメッセージが失敗した場合、まとめた全てのメッセージのレスポンスが失敗のステータスと例外情報を持つ.
+	 */
+	@Test
+	public void testRestoreResponsesCopiesFailure() {
+
+		RequestMessage create = createMessage("1", SyncAction.CREATE, null);
+		RequestMessage update = createMessage("1", SyncAction.UPDATE, 100L);
+
+		UploadCoalescer target = new UploadCoalescer(messageMetadata, syncConfigurationParameter);
+		List<RequestMessage> executed = target.coalesce(Arrays.asList(create, update), createSynchronizer());
+
+		ResponseMessage failureResponse = new FailureResponseMessage(update, new BadRequestException("invalid",
+				update), MessageSource.PROCESSOR);
+
+		List<ResponseMessage> responses = target.restoreResponses(executed, Arrays.asList(failureResponse), 800L);
+
+		assertThat(responses.size(), is(2));
+		for (ResponseMessage response : responses) {
+			assertThat(response, is(not(sameInstance(failureResponse))));
+			assertThat(response.get(messageMetadata.RESPONSE_STATUS),
+					is(failureResponse.get(messageMetadata.RESPONSE_STATUS)));
+			assertThat(response.get(messageMetadata.ERROR_CAUSE), is((Object) BadRequestException.class.getName()));
+			assertThat(response.get(messageMetadata.ERROR_DETAIL_INFO), is((Object) "invalid"));
+			assertThat(response.get(messageMetadata.RESPONSE_BODY), is(nullValue()));
+		}
+	}
+
+	/**
+	 * 指定したリソースアイテムに対する上り更新のリクエストメッセージを生成します.
+	 */
+	private RequestMessage createMessage(String itemId, SyncAction syncAction, Long lastModified) {
+
+		RequestMessage message = new RequestMessage(messageMetadata);
+		message.put(messageMetadata.REQUEST_PATH, RESOURCE_NAME + "/" + itemId, MessageSource.PROCESSOR);
+		message.put(syncConfigurationParameter.RESOURCE_ITEM_COMMON_DATA_ID, new ResourceItemCommonDataId(
+				RESOURCE_NAME, itemId), MessageSource.PROCESSOR);
+		message.put(syncConfigurationParameter.SYNC_ACTION, syncAction.toString(), MessageSource.PROCESSOR);
+		if (lastModified != null) {
+			message.put(syncConfigurationParameter.LAST_MODIFIED, lastModified, MessageSource.PROCESSOR);
+		}
+		return message;
+	}
+
+	/**
+	 * 共通データをボディに持つレスポンスメッセージを生成します.
+	 */
+	private ResponseMessage createResponse(RequestMessage message, ResourceActionStatus status, String itemId,
+			SyncAction syncAction, long lastModified) {
+
+		ResourceItemCommonData common = new ResourceItemCommonData(
+				new ResourceItemCommonDataId(RESOURCE_NAME, itemId));
+		common.setTargetItemId(itemId);
+		common.modify(syncAction, lastModified);
+
+		ResponseMessage response = new ResponseMessage(message);
+		response.put(messageMetadata.RESPONSE_STATUS, status, MessageSource.PROCESSOR);
+		response.put(messageMetadata.RESPONSE_BODY, common, MessageSource.PROCESSOR);
+		return response;
+	}
+
+	/**
+	 * 指定したリソースアイテムIDの共通データのみが存在するシンクロナイザーを生成します.
+	 */
+	private Synchronizer createSynchronizer(String... existingItemIds) {
+
+		final Set<ResourceItemCommonDataId> existing = new HashSet<>();
+		for (String itemId : existingItemIds) {
+			existing.add(new ResourceItemCommonDataId(RESOURCE_NAME, itemId));
+		}
+
+		return (Synchronizer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Synchronizer.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getCommon")) {
+							ResourceItemCommonDataId id = (ResourceItemCommonDataId) args[0];
+							return existing.contains(id) ? new ResourceItemCommonData(id) : null;
+						}
+						if (method.getName().equals("toString")) {
+							return Synchronizer.class.getSimpleName();
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}